@@ -0,0 +1,13 @@
+#Usage
+#java -Xmx812m -cp ../lib/WordnetTools-1.0-jar-with-dependencies.jar vu.wntools.wnsimilarity.main.SimilarityServer
+
+#Loads the wordnet once and answers queries on http://127.0.0.1:8765/, e.g.
+#curl "http://127.0.0.1:8765/similarity?method=lin&source=car&target=bicycle"
+#curl "http://127.0.0.1:8765/hypernyms?word=car"
+#curl "http://127.0.0.1:8765/lcs?source=car&target=bicycle"
+#curl "http://127.0.0.1:8765/expand?word=car&method=wu-palmer&k=10"
+#curl --data-binary @queries.jsonl "http://127.0.0.1:8765/batch"
+#curl "http://127.0.0.1:8765/stats"
+
+#ENGLISH
+java -Xmx812m -cp ../lib/WordnetTools-1.0-jar-with-dependencies.jar vu.wntools.wnsimilarity.main.SimilarityServer --lmf-file "eng=../resources/wneng-30.lmf.xml" --subsumers "eng=../resources/ic-semcor.dat.lower-case-cum" --relations "../resources/relations.txt" --port 8765
@@ -2,6 +2,7 @@ package vu.wntools.lmf;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import vu.wntools.wordnet.GlossStore;
 import vu.wntools.wordnet.WordnetLmfData;
 
 import java.util.ArrayList;
@@ -18,11 +19,14 @@ public class Synset {
     private String synsetId;
     private String iliId;
     private ArrayList<Gloss> definitions;
+    /// store with the definitions that were read, null if they are all in definitions
+    private GlossStore glossStore;
     private ArrayList<SynsetRelation> relations;
 
 
     public Synset() {
         this.definitions = new ArrayList<Gloss>();
+        this.glossStore = null;
         this.relations = new ArrayList<SynsetRelation>();
         this.iliId = "";
         this.synsetId = "";
@@ -32,9 +36,12 @@ public class Synset {
         if (this.iliId.isEmpty()) {
             this.iliId = synset.iliId;
         }
-        for (int i = 0; i < synset.getDefinitions().size(); i++) {
-            Gloss gloss = synset.getDefinitions().get(i);
-            definitions.add(gloss);
+        if (synset.glossStore!=null && synset.glossStore==this.glossStore && synset.synsetId.equals(this.synsetId)) {
+            /// the stored definitions of both are found under the same id
+            definitions.addAll(synset.definitions);
+        }
+        else {
+            definitions.addAll(synset.getGlosses());
         }
         for (int i = 0; i < synset.getRelations().size(); i++) {
             SynsetRelation synsetRelation = synset.getRelations().get(i);
@@ -42,12 +49,48 @@ public class Synset {
         }
     }
 
+    /**
+     * Returns the definitions as a list that can be changed. Definitions that are in the gloss store are decoded and
+     * kept in the list from now on, use getGlosses to read them without keeping them.
+     * @return the definitions
+     */
     public ArrayList<Gloss> getDefinitions() {
+        if (glossStore!=null) {
+            ArrayList<Gloss> glosses = glossStore.getGlosses(synsetId);
+            glosses.addAll(definitions);
+            definitions = glosses;
+            glossStore = null;
+        }
         return definitions;
     }
 
+    /**
+     * @return the definitions in the gloss store followed by the others, decoded now and not kept by the synset
+     */
+    public ArrayList<Gloss> getGlosses() {
+        if (glossStore==null) {
+            return definitions;
+        }
+        ArrayList<Gloss> glosses = glossStore.getGlosses(synsetId);
+        glosses.addAll(definitions);
+        return glosses;
+    }
+
     public void setDefinitions(ArrayList<Gloss> definitions) {
         this.definitions = definitions;
+        this.glossStore = null;
+    }
+
+    /**
+     * The definitions of the synset id in the store come before those that are added with addDefinition
+     * @param glossStore
+     */
+    public void setGlossStore(GlossStore glossStore) {
+        this.glossStore = glossStore;
+    }
+
+    public GlossStore getGlossStore() {
+        return glossStore;
     }
 
     public void addDefinition(Gloss definition) {
@@ -103,8 +146,9 @@ public class Synset {
             root.setAttribute("ili", this.getIliId());
         }
         Element glosses = xmldoc.createElement("Glosses");
-        for (int i = 0; i < this.getDefinitions().size(); i++) {
-            Gloss definition = this.getDefinitions().get(i);
+        ArrayList<Gloss> definitions = this.getGlosses();
+        for (int i = 0; i < definitions.size(); i++) {
+            Gloss definition = definitions.get(i);
             glosses.appendChild(definition.toXml(xmldoc));
         }
         root.appendChild(glosses);
@@ -129,6 +173,7 @@ public class Synset {
         }
         str +="][";
 
+        ArrayList<Gloss> definitions = this.getGlosses();
         for (int i = 0; i < definitions.size(); i++) {
             Gloss gloss = definitions.get(i);
             str += gloss.getText();
@@ -160,6 +205,7 @@ public class Synset {
         }
         str +="][";
 
+        ArrayList<Gloss> definitions = this.getGlosses();
         for (int i = 0; i < definitions.size(); i++) {
             Gloss gloss = definitions.get(i);
             str += gloss.getText();
@@ -182,6 +228,7 @@ public class Synset {
         }
         str +="][";
 
+        ArrayList<Gloss> definitions = this.getGlosses();
         for (int i = 0; i < definitions.size(); i++) {
             Gloss gloss = definitions.get(i);
             str += gloss.getText();
@@ -25,6 +25,8 @@ public class CompareGlosses {
         String pathToPwnFile = "";
         pathToFile = "/Users/piek/Desktop/GWG/nl/startedFromOdwnRbnLmf/odwn_1.0.xml.lmf.pwn-glosses.google-glosses.ili.lmf";
         WordnetLmfDataSaxParser parser = new WordnetLmfDataSaxParser();
+        /// the glosses are decoded when they are compared
+        parser.setLazyGlosses(true);
         parser.parseFile(pathToFile);
         parser.wordnetData.buildParentToChildMap();
         System.out.println("synsets = " + parser.wordnetData.synsetMap.size());
@@ -58,8 +60,9 @@ public class CompareGlosses {
                 Synset candidateSynset = parser.wordnetData.synsetMap.get(candidateId);
                 if (candidateSynset!=null) {
                     int nDefWords = 0;
-                    for (int j = 0; j < candidateSynset.getDefinitions().size(); j++) {
-                        Gloss gloss = candidateSynset.getDefinitions().get(j);
+                    ArrayList<Gloss> candidateGlosses = candidateSynset.getGlosses();
+                    for (int j = 0; j < candidateGlosses.size(); j++) {
+                        Gloss gloss = candidateGlosses.get(j);
                         int nWords = getContentWords(gloss.getText()).size();
                         if (nWords>nDefWords) {
                             nDefWords = nWords;
@@ -152,10 +155,12 @@ public class CompareGlosses {
     static int averageGlossSimilarity(Synset synset1, Synset synset2) {
         int score = 0;
         int matchCounts = 0;
-        for (int l = 0; l < synset1.getDefinitions().size(); l++) {
-            Gloss gloss1 = synset1.getDefinitions().get(l);
-            for (int i = 0; i < synset2.getDefinitions().size(); i++) {
-                Gloss gloss2 =  synset2.getDefinitions().get(i);
+        ArrayList<Gloss> glosses1 = synset1.getGlosses();
+        ArrayList<Gloss> glosses2 = synset2.getGlosses();
+        for (int l = 0; l < glosses1.size(); l++) {
+            Gloss gloss1 = glosses1.get(l);
+            for (int i = 0; i < glosses2.size(); i++) {
+                Gloss gloss2 =  glosses2.get(i);
                 if (gloss1.getLanguage().equals(gloss2.getLanguage())) {
                     int thisScore = getDiceScore(gloss1.getText(), gloss2.getText());
                     score += thisScore;
@@ -180,11 +185,13 @@ public class CompareGlosses {
     static int maxGlossSimilarity(Synset synset1, Synset synset2) {
         int score = -2;
        // System.out.println("synset1 = " + synset1.getSynsetId());
-        for (int l = 0; l < synset1.getDefinitions().size(); l++) {
-            Gloss gloss1 = synset1.getDefinitions().get(l);
+        ArrayList<Gloss> glosses1 = synset1.getGlosses();
+        ArrayList<Gloss> glosses2 = synset2.getGlosses();
+        for (int l = 0; l < glosses1.size(); l++) {
+            Gloss gloss1 = glosses1.get(l);
             if (gloss1.getLanguage().equals(GLOSSLANGUAGE)) {
-                for (int i = 0; i < synset2.getDefinitions().size(); i++) {
-                    Gloss gloss2 = synset2.getDefinitions().get(i);
+                for (int i = 0; i < glosses2.size(); i++) {
+                    Gloss gloss2 = glosses2.get(i);
                     if (gloss1.getLanguage().equals(gloss2.getLanguage())) {
                         int thisScore = getDiceScore(gloss1.getText(), gloss2.getText());
                         if (thisScore >= score) {
@@ -56,6 +56,8 @@ public class GwgAddGlosses {
             readGlosses.readGlossFile(pathToGlossFile, glossLanguage, glossOwner);
             System.out.println("readGlosses.synsetToGlosses.size() = " + readGlosses.synsetToGlosses.size());
             WordnetLmfDataSaxParser wordnetLmfDataSaxParser = new WordnetLmfDataSaxParser();
+            /// the glosses of the file stay in the gloss store, the new glosses are added after them
+            wordnetLmfDataSaxParser.setLazyGlosses(true);
             wordnetLmfDataSaxParser.parseFile(pathToLmfFile);
             Set keySet = wordnetLmfDataSaxParser.wordnetData.synsetMap.keySet();
             Iterator<String> keys = keySet.iterator();
@@ -328,13 +328,11 @@ public class JsonForRadialReingoldTilfordTree {
                     String sizeString = "";
                     String color = "";
                     if (s.startsWith("odwn")) {
-                        if (wordnetData.synsetToGlosses.containsKey(s)) {
-                            ArrayList<Gloss> glosses = wordnetData.synsetToGlosses.get(s);
-                            for (int j = 0; j < glosses.size(); j++) {
-                                Gloss gloss = glosses.get(j);
-                                if (gloss.getLanguage().equals("en")) {
-                                    synonyms += "["+gloss.getText()+"]";
-                                }
+                        ArrayList<Gloss> glosses = wordnetData.getGlosses(s);
+                        for (int j = 0; j < glosses.size(); j++) {
+                            Gloss gloss = glosses.get(j);
+                            if (gloss.getLanguage().equals("en")) {
+                                synonyms += "["+gloss.getText()+"]";
                             }
                         }
                         sizeString = "600";
@@ -397,13 +395,11 @@ public class JsonForRadialReingoldTilfordTree {
                     String sizeString = "";
                     String color = "";
                     if (s.startsWith("odwn")) {
-                        if (wordnetData.synsetToGlosses.containsKey(s)) {
-                            ArrayList<Gloss> glosses = wordnetData.synsetToGlosses.get(s);
-                            for (int j = 0; j < glosses.size(); j++) {
-                                Gloss gloss = glosses.get(j);
-                                if (gloss.getLanguage().equals("en")) {
-                                    synonyms += "["+gloss.getText()+"]";
-                                }
+                        ArrayList<Gloss> glosses = wordnetData.getGlosses(s);
+                        for (int j = 0; j < glosses.size(); j++) {
+                            Gloss gloss = glosses.get(j);
+                            if (gloss.getLanguage().equals("en")) {
+                                synonyms += "["+gloss.getText()+"]";
                             }
                         }
                         sizeString = "600";
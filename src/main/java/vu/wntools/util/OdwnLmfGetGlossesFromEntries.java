@@ -189,6 +189,8 @@ public class OdwnLmfGetGlossesFromEntries extends DefaultHandler {
             String pathToRbnLmfFile = "/Users/piek/Desktop/odwn/input_check/odwn_orbn-LMF.xml";
 
             WordnetLmfDataSaxParser wordnetLmfDataSaxParser = new WordnetLmfDataSaxParser();
+            /// the glosses of the file stay in the gloss store, the glosses of the senses are added after them
+            wordnetLmfDataSaxParser.setLazyGlosses(true);
             wordnetLmfDataSaxParser.parseFile(pathToRbnLmfFile);
             OutputStream fosGlossMap = new FileOutputStream(pathToRbnLmfFile+".source-gloss");
             wordnetLmfDataSaxParser.wordnetData.setGlobalLabel("ODWN-ORBN-LMF");
@@ -237,6 +239,7 @@ public class OdwnLmfGetGlossesFromEntries extends DefaultHandler {
             String pathToRbnLmfFile = "/Users/piek/Desktop/GWG/nl/odwn_orbn-LMF.xml";
 
             WordnetLmfDataSaxParser wordnetLmfDataSaxParser = new WordnetLmfDataSaxParser();
+            wordnetLmfDataSaxParser.setLazyGlosses(true);
             wordnetLmfDataSaxParser.parseFile(pathToRbnLmfFile);
 /*
             OdwnCdbtoGWG wordnetDataSaxParser = new OdwnCdbtoGWG();
@@ -5,6 +5,7 @@ import vu.wntools.wordnet.SynsetNode;
 import vu.wntools.wordnet.WordnetData;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -194,13 +195,22 @@ public class Util {
     }
 
     static public ArrayList<String> readRelationsFile (String pathToRelationFile) {
+        return readRelationsFile(pathToRelationFile, Charset.defaultCharset());
+    }
+
+    /**
+     * @param pathToRelationFile
+     * @param encoding character set of the file
+     * @return the lines that are not empty and do not start with #, trimmed
+     */
+    static public ArrayList<String> readRelationsFile (String pathToRelationFile, Charset encoding) {
         ArrayList<String> relations = new ArrayList<String>();
         if (!new File(pathToRelationFile).exists())   {
             System.out.println("Cannot find pathToRelationFile = " + pathToRelationFile);
         }
         try {
             FileInputStream fis = new FileInputStream(pathToRelationFile);
-            InputStreamReader isr = new InputStreamReader(fis);
+            InputStreamReader isr = new InputStreamReader(fis, encoding);
             BufferedReader in = new BufferedReader(isr);
             String inputLine;
             while (in.ready()&&(inputLine = in.readLine()) != null) {
@@ -1,5 +1,7 @@
 package vu.wntools.util;
 
+import vu.wntools.wordnet.WordnetStringPool;
+
 import java.io.*;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -39,13 +41,14 @@ public class WordnetOverlap {
                 if (inputLine.trim().length()>0) {
                    String [] fields = inputLine.split(" ");
                    if (fields.length>0) {
-                       String lemma = fields[0];
+                       String lemma = WordnetStringPool.intern(fields[0]);
                        ArrayList<String> synsets = new ArrayList<String>();
                        for (int i = 1; i < fields.length; i++) {
                            String field = fields[i];
                            if (field.endsWith(":0")) {
                                field = field.substring(0, field.length()-2);
                            }
+                           field = WordnetStringPool.intern(field);
                            synsets.add(field);
                        }
                        hashMap.put(lemma, synsets);
@@ -68,13 +71,14 @@ public class WordnetOverlap {
                 if (inputLine.trim().length()>0) {
                    String [] fields = inputLine.split(" ");
                    if (fields.length>0) {
-                       String lemma = fields[0];
+                       String lemma = WordnetStringPool.intern(fields[0]);
                        ArrayList<String> synsets = new ArrayList<String>();
                        for (int i = 1; i < fields.length; i++) {
                            String field = fields[i];
                            if (field.endsWith(":0")) {
                                field = field.substring(0, field.length()-2);
                            }
+                           field = WordnetStringPool.intern(field);
                            synsets.add(field);
                            if (synsetMap.containsKey(field)) {
                                ArrayList<String> words = synsetMap.get(field);
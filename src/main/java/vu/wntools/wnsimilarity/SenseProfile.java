@@ -0,0 +1,56 @@
+package vu.wntools.wnsimilarity;
+
+import vu.wntools.wnsimilarity.corpus.SubsumersFrequencies;
+import vu.wntools.wordnet.WordnetData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The hyper chains of one meaning of a word, built once when the meanings of two words are compared.
+ * For meanings on the target side the position of the first occurrence of every synset in each chain is also kept,
+ * so that finding the match of a source chain in a target chain is one lookup per element of the source chain.
+ */
+class SenseProfile {
+
+    final String synsetId;
+    final ArrayList<ArrayList<String>> chains;
+    final ArrayList<HashMap<String, Integer>> positions;
+    /// information content of the synset, 0 if there is no frequency for it
+    final double informationContent;
+
+    SenseProfile (WordnetData wordnetData, SubsumersFrequencies subsumersFrequencies, String synsetId, boolean target) {
+        this.synsetId = synsetId;
+        this.chains = new ArrayList<ArrayList<String>>();
+        wordnetData.getMultipleHyperChain(synsetId, chains);
+        if (target) {
+            positions = new ArrayList<HashMap<String, Integer>>(chains.size());
+            for (int l = 0; l < chains.size(); l++) {
+                ArrayList<String> hyperTarget = chains.get(l);
+                HashMap<String, Integer> chainPositions = new HashMap<String, Integer>(hyperTarget.size()*2);
+                for (int m = hyperTarget.size()-1; m >= 0; m--) {
+                    chainPositions.put(hyperTarget.get(m), m);
+                }
+                positions.add(chainPositions);
+            }
+        }
+        else {
+            positions = null;
+        }
+        if (subsumersFrequencies!=null) {
+            informationContent = WordnetSimilarityApi.getInformationContent(subsumersFrequencies, synsetId);
+        }
+        else {
+            informationContent = 0;
+        }
+    }
+
+    static SenseProfile [] getProfiles (WordnetData wordnetData, SubsumersFrequencies subsumersFrequencies,
+                                        ArrayList<String> synsetIds, boolean target) {
+        SenseProfile [] profiles = new SenseProfile[synsetIds.size()];
+        for (int i = 0; i < synsetIds.size(); i++) {
+            profiles[i] = new SenseProfile(wordnetData, subsumersFrequencies, synsetIds.get(i), target);
+        }
+        return profiles;
+    }
+}
@@ -0,0 +1,271 @@
+package vu.wntools.wnsimilarity;
+
+import vu.wntools.wnsimilarity.measures.SimilarityPair;
+import vu.wntools.wordnet.SynsetGraph;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded cache of the similarity pairs of synset pairs, used by the synset and word functions of
+ * WordnetSimilarityApi when it is set with WordnetSimilarityApi.setSimilarityPairCache.
+ *
+ * Each measure has its own table, keyed by the two synset ordinals packed in a long (source in the high 32 bits).
+ * The order matters, since the chain based measures take the first match of the source chain.
+ * Measures that depend on a parameter (the fixed depth of Leacock and Chodorow, the subsumer frequencies of the
+ * information content measures) also have the parameter in the key, so callers with different parameters share the
+ * table without dropping each other's entries and a score is only found with the parameter it was computed with.
+ * As in HyperChainCache, every table is split in segments that are locked separately and evict their least recently
+ * used entry (LRU) or their oldest entry (FIFO) when they are full.
+ *
+ * The cache stores the score, the match and the trees, and hands out a new SimilarityPair on every hit, so callers
+ * can still set the normalized score. The trees are shared.
+ */
+public class SimilarityPairCache {
+
+    public static final int LRU = 0;
+    public static final int FIFO = 1;
+
+    public static final int PATH = 0;
+    /// Leacock and Chodorow with a fixed depth, the parameter is the depth
+    public static final int LEACOCK_CHODOROW = 1;
+    /// Leacock and Chodorow with the depth of the chains of a synset pair
+    public static final int LEACOCK_CHODOROW_SYNSETS = 2;
+    /// Leacock and Chodorow with the depth of the chains of a pair of meanings of words
+    public static final int LEACOCK_CHODOROW_WORDS = 3;
+    public static final int WU_PALMER = 4;
+    public static final int RESNIK = 5;
+    public static final int LIN = 6;
+    public static final int JIANG_CONRATH = 7;
+    static final String [] MEASURES = {"path", "leacock-chodorow", "leacock-chodorow synsets", "leacock-chodorow words",
+            "wu-palmer", "resnik", "lin", "jiang-conrath"};
+
+    private final SynsetGraph graph;
+    private final int maxSize;
+    private final int eviction;
+    private final Segment [][] segments;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param graph the graph the ordinals belong to
+     * @param maxSize maximum number of synset pairs per measure
+     * @param eviction LRU or FIFO
+     */
+    public SimilarityPairCache (SynsetGraph graph, int maxSize, int eviction) {
+        this.graph = graph;
+        this.maxSize = maxSize;
+        this.eviction = eviction;
+        int nSegments = 16;
+        while (nSegments>1 && maxSize/nSegments<64) {
+            nSegments /= 2;
+        }
+        this.segments = new Segment[MEASURES.length][nSegments];
+        for (int m = 0; m < MEASURES.length; m++) {
+            for (int i = 0; i < nSegments; i++) {
+                segments[m][i] = new Segment((maxSize+nSegments-1)/nSegments, eviction==LRU);
+            }
+        }
+    }
+
+    public SynsetGraph getGraph() {
+        return graph;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getEviction() {
+        return eviction;
+    }
+
+    static long key (int source, int target) {
+        return ((long) source<<32) | (target & 0xffffffffL);
+    }
+
+    private Segment getSegment (int measure, long key) {
+        Segment [] table = segments[measure];
+        int hash = (int) (key ^ (key>>>32));
+        hash ^= (hash>>>16);
+        return table[hash & (table.length-1)];
+    }
+
+    /**
+     * @param measure
+     * @param parameter parameter of the measure, null if it has none
+     * @param sourceId
+     * @param targetId
+     * @return a new similarity pair with the cached result, or null if the pair is not in the cache
+     */
+    public SimilarityPair get (int measure, Object parameter, String sourceId, String targetId) {
+        int source = graph.getOrdinal(sourceId);
+        int target = graph.getOrdinal(targetId);
+        if (source<0 || target<0) {
+            return null;
+        }
+        CachedScore entry;
+        long key = key(source, target);
+        Segment segment = getSegment(measure, key);
+        synchronized (segment) {
+            entry = segment.get(new PairKey(key, parameter));
+        }
+        if (entry==null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        SimilarityPair similarityPair = new SimilarityPair();
+        similarityPair.setSourceId(sourceId);
+        similarityPair.setTargetId(targetId);
+        similarityPair.setScore(entry.score);
+        similarityPair.setMatch(entry.match);
+        similarityPair.setSourceTree(entry.sourceTree);
+        similarityPair.setTargetTree(entry.targetTree);
+        return similarityPair;
+    }
+
+    /**
+     * Stores the result of a synset pair. Pairs with a synset that is not in the graph are not stored.
+     * @param measure
+     * @param parameter parameter of the measure, null if it has none
+     * @param similarityPair
+     * @return the similarity pair
+     */
+    public SimilarityPair put (int measure, Object parameter, SimilarityPair similarityPair) {
+        int source = graph.getOrdinal(similarityPair.getSourceId());
+        int target = graph.getOrdinal(similarityPair.getTargetId());
+        if (source<0 || target<0) {
+            return similarityPair;
+        }
+        CachedScore entry = new CachedScore(similarityPair);
+        long key = key(source, target);
+        Segment segment = getSegment(measure, key);
+        synchronized (segment) {
+            segment.put(new PairKey(key, parameter), entry);
+        }
+        return similarityPair;
+    }
+
+    public void clear () {
+        for (int m = 0; m < segments.length; m++) {
+            for (int i = 0; i < segments[m].length; i++) {
+                synchronized (segments[m][i]) {
+                    segments[m][i].clear();
+                }
+            }
+        }
+    }
+
+    public int size () {
+        int size = 0;
+        for (int m = 0; m < segments.length; m++) {
+            size += size(m);
+        }
+        return size;
+    }
+
+    public int size (int measure) {
+        int size = 0;
+        for (int i = 0; i < segments[measure].length; i++) {
+            synchronized (segments[measure][i]) {
+                size += segments[measure][i].size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return hits divided by lookups, 0 if there were no lookups
+     */
+    public double getHitRate() {
+        long lookups = getHits()+getMisses();
+        if (lookups==0) {
+            return 0;
+        }
+        return (double) getHits()/lookups;
+    }
+
+    public String toString () {
+        return "similarity pair cache size = "+size()+", hits = "+getHits()+", misses = "+getMisses()
+                +", hit rate = "+getHitRate()+", evictions = "+getEvictions();
+    }
+
+    /**
+     * Synset pair and the parameter of the measure it was scored with
+     */
+    private static class PairKey {
+        final long pair;
+        final Object parameter;
+
+        PairKey (long pair, Object parameter) {
+            this.pair = pair;
+            this.parameter = parameter;
+        }
+
+        public boolean equals (Object o) {
+            if (!(o instanceof PairKey)) {
+                return false;
+            }
+            PairKey other = (PairKey) o;
+            if (pair!=other.pair) {
+                return false;
+            }
+            return parameter==null ? other.parameter==null : parameter.equals(other.parameter);
+        }
+
+        public int hashCode () {
+            int hash = (int) (pair ^ (pair>>>32));
+            return parameter==null ? hash : 31*hash+parameter.hashCode();
+        }
+    }
+
+    /**
+     * Result of a synset pair without the ids, which are given again on every hit
+     */
+    private static class CachedScore {
+        final double score;
+        final String match;
+        final ArrayList<String> sourceTree;
+        final ArrayList<String> targetTree;
+
+        CachedScore (SimilarityPair similarityPair) {
+            this.score = similarityPair.getScore();
+            this.match = similarityPair.getMatch();
+            this.sourceTree = similarityPair.getSourceTree();
+            this.targetTree = similarityPair.getTargetTree();
+        }
+    }
+
+    private class Segment extends LinkedHashMap<PairKey, CachedScore> {
+        private final int capacity;
+
+        Segment (int capacity, boolean accessOrder) {
+            super(16, 0.75f, accessOrder);
+            this.capacity = capacity;
+        }
+
+        protected boolean removeEldestEntry (Map.Entry<PairKey, CachedScore> eldest) {
+            if (size()>capacity) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
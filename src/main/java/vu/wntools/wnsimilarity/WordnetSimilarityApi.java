@@ -2,9 +2,15 @@ package vu.wntools.wnsimilarity;
 
 import vu.wntools.wnsimilarity.corpus.SubsumersFrequencies;
 import vu.wntools.wnsimilarity.measures.*;
+import vu.wntools.wordnet.AncestorIndex;
+import vu.wntools.wordnet.DepthTable;
+import vu.wntools.wordnet.HyperPath;
+import vu.wntools.wordnet.HyperPathIndex;
+import vu.wntools.wordnet.SynsetGraph;
 import vu.wntools.wordnet.WordnetData;
 
-import java.util.ArrayList;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Created with IntelliJ IDEA.
@@ -19,6 +25,47 @@ import java.util.ArrayList;
  */
 public class WordnetSimilarityApi {
 
+    static private volatile SimilarityPairCache similarityPairCache = null;
+
+    /**
+     * Sets the cache that the synset and word functions use for the scores of synset pairs, null to switch it off.
+     * The cache is only used for a WordnetData with the same synset graph as the cache.
+     * @param cache
+     */
+    static public void setSimilarityPairCache (SimilarityPairCache cache) {
+        similarityPairCache = cache;
+    }
+
+    static public SimilarityPairCache getSimilarityPairCache () {
+        return similarityPairCache;
+    }
+
+    static private SimilarityPairCache getSimilarityPairCache (WordnetData wordnetData) {
+        SimilarityPairCache cache = similarityPairCache;
+        if (cache!=null && cache.getGraph()==wordnetData.getSynsetGraph()) {
+            return cache;
+        }
+        return null;
+    }
+
+    static SimilarityPair getCachedSimilarityPair (WordnetData wordnetData, int measure, Object parameter,
+                                                   String sourceId, String targetId) {
+        SimilarityPairCache cache = getSimilarityPairCache(wordnetData);
+        if (cache==null) {
+            return null;
+        }
+        return cache.get(measure, parameter, sourceId, targetId);
+    }
+
+    static SimilarityPair cacheSimilarityPair (WordnetData wordnetData, int measure, Object parameter,
+                                               SimilarityPair similarityPair) {
+        SimilarityPairCache cache = getSimilarityPairCache(wordnetData);
+        if (cache!=null) {
+            cache.put(measure, parameter, similarityPair);
+        }
+        return similarityPair;
+    }
+
     /**
      * This function takes an ArrayList of SimilarityPairs and returns the topscoring SimilarityPair
      * @param similarityPairArrayList
@@ -48,6 +95,116 @@ public class WordnetSimilarityApi {
         }
     }
 
+    /**
+     * Uses the ancestor index of the wordnet to check if two synsets have any subsumer in common.
+     * Pairs without a common subsumer can not get a score from the path, Leacock-Chodorow, Wu-Palmer and Resnik measures,
+     * so their hyper chains do not need to be built.
+     * @param wordnetData
+     * @param sourceId
+     * @param targetId
+     * @return true if the synsets share a subsumer
+     */
+    static public boolean hasCommonSubsumer (WordnetData wordnetData, String sourceId, String targetId) {
+        AncestorIndex ancestorIndex = wordnetData.getAncestorIndex();
+        SynsetGraph graph = ancestorIndex.getGraph();
+        int source = graph.getOrdinal(sourceId);
+        int target = graph.getOrdinal(targetId);
+        if (source<0 || target<0) {
+            return sourceId.equals(targetId);
+        }
+        return ancestorIndex.getPathLength(source, target)>-1;
+    }
+
+    /**
+     * Path and Leacock-Chodorow scores only depend on the shortest path through a common subsumer, which the ancestor index
+     * gives directly. The hyper chains are only built to fill in the source and target trees that pass through the lowest
+     * common subsumer.
+     * @param wordnetData
+     * @param averageDepth only used for Leacock-Chodorow
+     * @param leacockChodorow if false the path score is given
+     * @param sourceId
+     * @param targetId
+     * @return SimilarityPair or null if the trees through the subsumer cannot be found (circular hypernyms)
+     */
+    static SimilarityPair closurePathSimilarity (WordnetData wordnetData, int averageDepth, boolean leacockChodorow,
+                                                 String sourceId, String targetId) {
+        SimilarityPair similarityPair = new SimilarityPair();
+        similarityPair.setSourceId(sourceId);
+        similarityPair.setTargetId(targetId);
+        AncestorIndex ancestorIndex = wordnetData.getAncestorIndex();
+        SynsetGraph graph = ancestorIndex.getGraph();
+        int source = graph.getOrdinal(sourceId);
+        int target = graph.getOrdinal(targetId);
+        if (source<0 || target<0) {
+            return null;
+        }
+        int [] lcs = ancestorIndex.getLowestCommonSubsumers(source, target);
+        if (lcs.length==0) {
+            return similarityPair;
+        }
+        int pathLength = ancestorIndex.getPathLength(source, target);
+        /// the first source chain that reaches one of the subsumers in the least number of steps is the one
+        /// on which the chain based measures find their best match
+        ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
+        wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
+        ArrayList<String> sourceTree = null;
+        for (int i = 0; i < hyperChainsSource.size() && sourceTree==null; i++) {
+            ArrayList<String> hyperSource = hyperChainsSource.get(i);
+            for (int j = 0; j < hyperSource.size(); j++) {
+                int hyper = graph.getOrdinal(hyperSource.get(j));
+                if (hyper>-1 && Arrays.binarySearch(lcs, hyper)>-1 && ancestorIndex.getDistance(source, hyper)==j) {
+                    sourceTree = hyperSource;
+                    break;
+                }
+            }
+        }
+        if (sourceTree==null) {
+            return null;
+        }
+        HashMap<String, Integer> sourcePositions = new HashMap<String, Integer>();
+        for (int i = sourceTree.size()-1; i >= 0; i--) {
+            sourcePositions.put(sourceTree.get(i), i);
+        }
+        ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
+        wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
+        String match = "";
+        ArrayList<String> targetTree = null;
+        for (int i = 0; i < hyperChainsTarget.size() && targetTree==null; i++) {
+            ArrayList<String> hyperTarget = hyperChainsTarget.get(i);
+            int i1 = -1;
+            int i2 = -1;
+            for (int j = 0; j < hyperTarget.size(); j++) {
+                Integer position = sourcePositions.get(hyperTarget.get(j));
+                if (position!=null && (i1==-1 || position<i1)) {
+                    i1 = position;
+                    i2 = j;
+                }
+            }
+            if (i1>-1 && i1+i2==pathLength) {
+                targetTree = hyperTarget;
+                match = sourceTree.get(i1);
+            }
+        }
+        if (targetTree==null) {
+            return null;
+        }
+        double distance = 1+pathLength; /// node counting as in the chain based measures
+        double score;
+        if (leacockChodorow) {
+            score = - Math.log(distance/(2*averageDepth));
+        }
+        else {
+            score = 1/distance;
+        }
+        if (score>similarityPair.getScore()) {
+            similarityPair.setMatch(match);
+            similarityPair.setScore(score);
+            similarityPair.setSourceTree(sourceTree);
+            similarityPair.setTargetTree(targetTree);
+        }
+        return similarityPair;
+    }
+
     /**
      * Takes a WordnetData, a file with the frequencies of subsumers, and a pair of words.
      * It returns an ArrayList with the cumulative similarity pairs for all the meanings of the word.
@@ -62,51 +219,7 @@ public class WordnetSimilarityApi {
                                                                             SubsumersFrequencies subsumersFrequencies,
                                                                             String word1,
                                                                             String word2) {
-
-        ArrayList<SimilarityPair> similarityPairArrayList = new ArrayList<SimilarityPair>();
-        boolean knownWords = true;
-        if (!wordnetData.entryToSynsets.containsKey(word1)) {
-            System.out.println("Unknown word = " + word1);
-            knownWords= false;
-        }
-        if (!wordnetData.entryToSynsets.containsKey(word2)) {
-            System.out.println("Unknown word = " + word2);
-            knownWords= false;
-        }
-        if (knownWords) {
-            ArrayList<String> sources = wordnetData.entryToSynsets.get(word1);
-            ArrayList<String> targets = wordnetData.entryToSynsets.get(word2);
-            for (int i = 0; i < sources.size(); i++) {
-                String sourceId = sources.get(i);
-                for (int j = 0; j < targets.size(); j++) {
-                    String targetId =  targets.get(j);
-                    SimilarityPair similarityPair = new SimilarityPair();
-                    similarityPair.setSourceId(sourceId);
-                    similarityPair.setTargetId(targetId);
-                    ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
-                    ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
-                    wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
-                    wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
-                    for (int k = 0; k < hyperChainsSource.size(); k++) {
-                        ArrayList<String> hyperSource = hyperChainsSource.get(k);
-                        for (int l = 0; l < hyperChainsTarget.size(); l++) {
-                            ArrayList<String> hyperTarget = hyperChainsTarget.get(l);
-                            double score = vu.wntools.wnsimilarity.measures.Resnik.GetDistance(subsumersFrequencies.data, subsumersFrequencies.maxFreq, hyperSource, hyperTarget);
-                            //System.out.println("score = " + score);
-                            //System.out.println("similarityPair = " + similarityPair.getScore());
-                            if (score>similarityPair.getScore()) {
-                                similarityPair.setMatch(Resnik.match);
-                                similarityPair.setScore(score);
-                                similarityPair.setSourceTree(hyperSource);
-                                similarityPair.setTargetTree(hyperTarget);
-                            }
-                        }
-                    }
-                    similarityPairArrayList.add(similarityPair);
-                }
-            }
-        }
-        return similarityPairArrayList;
+        return wordSimilarity(wordnetData, subsumersFrequencies, SimilarityPairCache.RESNIK, 0, word1, word2);
     }
 
     /**
@@ -122,29 +235,38 @@ public class WordnetSimilarityApi {
     static public SimilarityPair synsetResnikSimilarity (WordnetData wordnetData,
                                                          SubsumersFrequencies subsumersFrequencies,
                                                          String sourceId,String targetId) {
+        SimilarityPair cachedPair = getCachedSimilarityPair(wordnetData, SimilarityPairCache.RESNIK, subsumersFrequencies, sourceId, targetId);
+        if (cachedPair!=null) {
+            return cachedPair;
+        }
 
         SimilarityPair similarityPair = new SimilarityPair();
         similarityPair.setSourceId(sourceId);
         similarityPair.setTargetId(targetId);
+        if (!hasCommonSubsumer(wordnetData, sourceId, targetId)) {
+            return cacheSimilarityPair(wordnetData, SimilarityPairCache.RESNIK, subsumersFrequencies, similarityPair);
+        }
 
         ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
         ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
         wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
         wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
+        SimilarityMeasure measure = new Resnik(subsumersFrequencies);
+        MeasureResult result = new MeasureResult();
         for (int i = 0; i < hyperChainsSource.size(); i++) {
             ArrayList<String> hyperSource = hyperChainsSource.get(i);
             for (int j = 0; j < hyperChainsTarget.size(); j++) {
                 ArrayList<String> hyperTarget = hyperChainsTarget.get(j);
-                double score = vu.wntools.wnsimilarity.measures.Resnik.GetDistance(subsumersFrequencies.data, subsumersFrequencies.maxFreq, hyperSource, hyperTarget);
+                double score = measure.getSimilarity(hyperSource, hyperTarget, result);
                 if (score>similarityPair.getScore()) {
-                    similarityPair.setMatch(Resnik.match);
+                    similarityPair.setMatch(result.getMatch());
                     similarityPair.setScore(score);
                     similarityPair.setSourceTree(hyperSource);
                     similarityPair.setTargetTree(hyperTarget);
                 }
             }
         }
-        return similarityPair;
+        return cacheSimilarityPair(wordnetData, SimilarityPairCache.RESNIK, subsumersFrequencies, similarityPair);
     }
 
     /////////////////////////////////////////
@@ -163,50 +285,7 @@ public class WordnetSimilarityApi {
                                                                             SubsumersFrequencies subsumersFrequencies,
                                                                             String word1,
                                                                             String word2) {
-
-        ArrayList<SimilarityPair> similarityPairArrayList = new ArrayList<SimilarityPair>();
-        boolean knownWords = true;
-        if (!wordnetData.entryToSynsets.containsKey(word1)) {
-            System.out.println("Unknown word = " + word1);
-            knownWords= false;
-        }
-        if (!wordnetData.entryToSynsets.containsKey(word2)) {
-            System.out.println("Unknown word = " + word2);
-            knownWords= false;
-        }
-        if (knownWords) {
-            ArrayList<String> sources = wordnetData.entryToSynsets.get(word1);
-            ArrayList<String> targets = wordnetData.entryToSynsets.get(word2);
-            for (int i = 0; i < sources.size(); i++) {
-                String sourceId = sources.get(i);
-                for (int j = 0; j < targets.size(); j++) {
-                    String targetId =  targets.get(j);
-                    SimilarityPair similarityPair = new SimilarityPair();
-                    similarityPair.setSourceId(sourceId);
-                    similarityPair.setTargetId(targetId);
-
-                    ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
-                    ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
-                    wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
-                    wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
-                    for (int k = 0; k < hyperChainsSource.size(); k++) {
-                        ArrayList<String> hyperSource = hyperChainsSource.get(k);
-                        for (int l = 0; l < hyperChainsTarget.size(); l++) {
-                            ArrayList<String> hyperTarget = hyperChainsTarget.get(l);
-                            double score = JiangConrath.GetDistance(subsumersFrequencies.data, subsumersFrequencies.maxFreq, hyperSource, hyperTarget);
-                            if (score>similarityPair.getScore()) {
-                                similarityPair.setMatch(JiangConrath.match);
-                                similarityPair.setScore(score);
-                                similarityPair.setSourceTree(hyperSource);
-                                similarityPair.setTargetTree(hyperTarget);
-                            }
-                        }
-                    }
-                    similarityPairArrayList.add(similarityPair);
-                }
-            }
-        }
-        return similarityPairArrayList;
+        return wordSimilarity(wordnetData, subsumersFrequencies, SimilarityPairCache.JIANG_CONRATH, 0, word1, word2);
     }
 
     /**
@@ -222,6 +301,10 @@ public class WordnetSimilarityApi {
     static public SimilarityPair synsetJiangConrathSimilarity (WordnetData wordnetData,
                                                          SubsumersFrequencies subsumersFrequencies,
                                                          String sourceId,String targetId) {
+        SimilarityPair cachedPair = getCachedSimilarityPair(wordnetData, SimilarityPairCache.JIANG_CONRATH, subsumersFrequencies, sourceId, targetId);
+        if (cachedPair!=null) {
+            return cachedPair;
+        }
 
         SimilarityPair similarityPair = new SimilarityPair();
         similarityPair.setSourceId(sourceId);
@@ -230,20 +313,22 @@ public class WordnetSimilarityApi {
         ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
         wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
         wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
+        SimilarityMeasure measure = new JiangConrath(subsumersFrequencies);
+        MeasureResult result = new MeasureResult();
         for (int i = 0; i < hyperChainsSource.size(); i++) {
             ArrayList<String> hyperSource = hyperChainsSource.get(i);
             for (int j = 0; j < hyperChainsTarget.size(); j++) {
                 ArrayList<String> hyperTarget = hyperChainsTarget.get(j);
-                double score = JiangConrath.GetDistance(subsumersFrequencies.data, subsumersFrequencies.maxFreq, hyperSource, hyperTarget);
+                double score = measure.getSimilarity(hyperSource, hyperTarget, result);
                 if (score>similarityPair.getScore()) {
-                    similarityPair.setMatch(JiangConrath.match);
+                    similarityPair.setMatch(result.getMatch());
                     similarityPair.setScore(score);
                     similarityPair.setSourceTree(hyperSource);
                     similarityPair.setTargetTree(hyperTarget);
                 }
             }
         }
-        return similarityPair;
+        return cacheSimilarityPair(wordnetData, SimilarityPairCache.JIANG_CONRATH, subsumersFrequencies, similarityPair);
     }
 
 
@@ -261,50 +346,7 @@ public class WordnetSimilarityApi {
                                                                             SubsumersFrequencies subsumersFrequencies,
                                                                             String word1,
                                                                             String word2) {
-
-        ArrayList<SimilarityPair> similarityPairArrayList = new ArrayList<SimilarityPair>();
-        boolean knownWords = true;
-        if (!wordnetData.entryToSynsets.containsKey(word1)) {
-            System.out.println("Unknown word = " + word1);
-            knownWords= false;
-        }
-        if (!wordnetData.entryToSynsets.containsKey(word2)) {
-            System.out.println("Unknown word = " + word2);
-            knownWords= false;
-        }
-        if (knownWords) {
-            ArrayList<String> sources = wordnetData.entryToSynsets.get(word1);
-            ArrayList<String> targets = wordnetData.entryToSynsets.get(word2);
-            for (int i = 0; i < sources.size(); i++) {
-                String sourceId = sources.get(i);
-                for (int j = 0; j < targets.size(); j++) {
-                    String targetId =  targets.get(j);
-                    SimilarityPair similarityPair = new SimilarityPair();
-                    similarityPair.setSourceId(sourceId);
-                    similarityPair.setTargetId(targetId);
-
-                    ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
-                    ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
-                    wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
-                    wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
-                    for (int k = 0; k < hyperChainsSource.size(); k++) {
-                        ArrayList<String> hyperSource = hyperChainsSource.get(k);
-                        for (int l = 0; l < hyperChainsTarget.size(); l++) {
-                            ArrayList<String> hyperTarget = hyperChainsTarget.get(l);
-                            double score = Lin.GetDistance(subsumersFrequencies.data, subsumersFrequencies.maxFreq, hyperSource, hyperTarget);
-                            if (score>similarityPair.getScore()) {
-                                similarityPair.setMatch(Lin.match);
-                                similarityPair.setScore(score);
-                                similarityPair.setSourceTree(hyperSource);
-                                similarityPair.setTargetTree(hyperTarget);
-                            }
-                        }
-                    }
-                    similarityPairArrayList.add(similarityPair);
-                }
-            }
-        }
-        return similarityPairArrayList;
+        return wordSimilarity(wordnetData, subsumersFrequencies, SimilarityPairCache.LIN, 0, word1, word2);
     }
 
     /**
@@ -320,6 +362,10 @@ public class WordnetSimilarityApi {
     static public SimilarityPair synsetLinSimilarity (WordnetData wordnetData,
                                                          SubsumersFrequencies subsumersFrequencies,
                                                          String sourceId,String targetId) {
+        SimilarityPair cachedPair = getCachedSimilarityPair(wordnetData, SimilarityPairCache.LIN, subsumersFrequencies, sourceId, targetId);
+        if (cachedPair!=null) {
+            return cachedPair;
+        }
 
         SimilarityPair similarityPair = new SimilarityPair();
         similarityPair.setSourceId(sourceId);
@@ -329,20 +375,22 @@ public class WordnetSimilarityApi {
         ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
         wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
         wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
+        SimilarityMeasure measure = new Lin(subsumersFrequencies);
+        MeasureResult result = new MeasureResult();
         for (int i = 0; i < hyperChainsSource.size(); i++) {
             ArrayList<String> hyperSource = hyperChainsSource.get(i);
             for (int j = 0; j < hyperChainsTarget.size(); j++) {
                 ArrayList<String> hyperTarget = hyperChainsTarget.get(j);
-                double score = Lin.GetDistance(subsumersFrequencies.data, subsumersFrequencies.maxFreq, hyperSource, hyperTarget);
+                double score = measure.getSimilarity(hyperSource, hyperTarget, result);
                 if (score>similarityPair.getScore()) {
-                    similarityPair.setMatch(Lin.match);
+                    similarityPair.setMatch(result.getMatch());
                     similarityPair.setScore(score);
                     similarityPair.setSourceTree(hyperSource);
                     similarityPair.setTargetTree(hyperTarget);
                 }
             }
         }
-        return similarityPair;
+        return cacheSimilarityPair(wordnetData, SimilarityPairCache.LIN, subsumersFrequencies, similarityPair);
     }
 
 
@@ -360,50 +408,7 @@ public class WordnetSimilarityApi {
                                                                                      int averageDepth,
                                                                                      String word1,
                                                                                      String word2) {
-
-        ArrayList<SimilarityPair> similarityPairArrayList = new ArrayList<SimilarityPair>();
-        boolean knownWords = true;
-        if (!wordnetData.entryToSynsets.containsKey(word1)) {
-            System.out.println("Unknown word = " + word1);
-            knownWords= false;
-        }
-        if (!wordnetData.entryToSynsets.containsKey(word2)) {
-            System.out.println("Unknown word = " + word2);
-            knownWords= false;
-        }
-        if (knownWords) {
-            ArrayList<String> sources = wordnetData.entryToSynsets.get(word1);
-            ArrayList<String> targets = wordnetData.entryToSynsets.get(word2);
-            for (int i = 0; i < sources.size(); i++) {
-                String sourceId = sources.get(i);
-                for (int j = 0; j < targets.size(); j++) {
-                    String targetId =  targets.get(j);
-                    SimilarityPair similarityPair = new SimilarityPair();
-                    similarityPair.setSourceId(sourceId);
-                    similarityPair.setTargetId(targetId);
-
-                    ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
-                    ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
-                    wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
-                    wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
-                    for (int k = 0; k < hyperChainsSource.size(); k++) {
-                        ArrayList<String> hyperSource = hyperChainsSource.get(k);
-                        for (int l = 0; l < hyperChainsTarget.size(); l++) {
-                            ArrayList<String> hyperTarget = hyperChainsTarget.get(l);
-                            double score = LeacockChodorow.GetDistance(averageDepth, hyperSource, hyperTarget);
-                            if (score>similarityPair.getScore()) {
-                                similarityPair.setMatch(LeacockChodorow.match);
-                                similarityPair.setScore(score);
-                                similarityPair.setSourceTree(hyperSource);
-                                similarityPair.setTargetTree(hyperTarget);
-                            }
-                        }
-                    }
-                    similarityPairArrayList.add(similarityPair);
-                }
-            }
-        }
-        return similarityPairArrayList;
+        return wordSimilarity(wordnetData, null, SimilarityPairCache.LEACOCK_CHODOROW, averageDepth, word1, word2);
     }
 
 
@@ -419,63 +424,7 @@ public class WordnetSimilarityApi {
     static public ArrayList<SimilarityPair> wordLeacockChodorowSimilarity (WordnetData wordnetData,
                                                                                      String word1,
                                                                                      String word2) {
-
-      //  System.out.println("word1 = " + word1);
-      //  System.out.println("word2 = " + word2);
-        ArrayList<SimilarityPair> similarityPairArrayList = new ArrayList<SimilarityPair>();
-        boolean knownWords = true;
-        if (!wordnetData.entryToSynsets.containsKey(word1)) {
-            System.out.println("Unknown word = " + word1);
-            knownWords= false;
-        }
-        if (!wordnetData.entryToSynsets.containsKey(word2)) {
-            System.out.println("Unknown word = " + word2);
-            knownWords= false;
-        }
-        if (knownWords) {
-            ArrayList<String> sources = wordnetData.entryToSynsets.get(word1);
-            ArrayList<String> targets = wordnetData.entryToSynsets.get(word2);
-          //  System.out.println("sources = " + sources.toString());
-          //  System.out.println("targets = " + targets.toString());
-            for (int i = 0; i < sources.size(); i++) {
-                String sourceId = sources.get(i);
-                for (int j = 0; j < targets.size(); j++) {
-                    String targetId =  targets.get(j);
-                    SimilarityPair similarityPair = new SimilarityPair();
-                    similarityPair.setSourceId(sourceId);
-                    similarityPair.setTargetId(targetId);
-
-                    ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
-                    ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
-                   // System.out.println("\n\nWord:"+word1);
-                    wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
-                   // System.out.println("\n\nWord:"+word2);
-                    wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
-                    for (int k = 0; k < hyperChainsSource.size(); k++) {
-                        ArrayList<String> hyperSource = hyperChainsSource.get(k);
-                        for (int l = 0; l < hyperChainsTarget.size(); l++) {
-                            ArrayList<String> hyperTarget = hyperChainsTarget.get(l);
-                            int D = (hyperSource.size()+hyperTarget.size())/2;
-                            double score = LeacockChodorow.GetDistance(D, hyperSource, hyperTarget);
-                           // System.out.println("L & C score = " + score);
-                           // System.out.println("similarityPair = " + similarityPair.getScore());
-                            if (score>similarityPair.getScore()) {
-                                similarityPair.setMatch(LeacockChodorow.match);
-/*                                if (LeacockChodorow.match.isEmpty()) {
-                                    System.out.println("hyperSource = " + hyperSource.toString());
-                                    System.out.println("hyperTarget = " + hyperTarget.toString());
-                                }*/
-                                similarityPair.setScore(score);
-                                similarityPair.setSourceTree(hyperSource);
-                                similarityPair.setTargetTree(hyperTarget);
-                            }
-                        }
-                    }
-                    similarityPairArrayList.add(similarityPair);
-                }
-            }
-        }
-        return similarityPairArrayList;
+        return wordSimilarity(wordnetData, null, SimilarityPairCache.LEACOCK_CHODOROW_WORDS, 0, word1, word2);
     }
 
     /**
@@ -491,29 +440,37 @@ public class WordnetSimilarityApi {
                                                                               int averageDepth,
                                                                               String sourceId,
                                                                               String targetId) {
+        SimilarityPair cachedPair = getCachedSimilarityPair(wordnetData, SimilarityPairCache.LEACOCK_CHODOROW, averageDepth, sourceId, targetId);
+        if (cachedPair!=null) {
+            return cachedPair;
+        }
 
-        SimilarityPair similarityPair = new SimilarityPair();
-        similarityPair.setSourceId(sourceId);
-        similarityPair.setTargetId(targetId);
-
-        ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
-        ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
-        wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
-        wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
-        for (int k = 0; k < hyperChainsSource.size(); k++) {
-            ArrayList<String> hyperSource = hyperChainsSource.get(k);
-            for (int l = 0; l < hyperChainsTarget.size(); l++) {
-                ArrayList<String> hyperTarget = hyperChainsTarget.get(l);
-                double score = vu.wntools.wnsimilarity.measures.LeacockChodorow.GetDistance(averageDepth, hyperSource, hyperTarget);
-                if (score>similarityPair.getScore()) {
-                    similarityPair.setMatch(LeacockChodorow.match);
-                    similarityPair.setScore(score);
-                    similarityPair.setSourceTree(hyperSource);
-                    similarityPair.setTargetTree(hyperTarget);
+        SimilarityPair similarityPair = closurePathSimilarity(wordnetData, averageDepth, true, sourceId, targetId);
+        if (similarityPair==null) {
+            similarityPair = new SimilarityPair();
+            similarityPair.setSourceId(sourceId);
+            similarityPair.setTargetId(targetId);
+            ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
+            ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
+            wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
+            wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
+            SimilarityMeasure measure = new LeacockChodorow(averageDepth);
+            MeasureResult result = new MeasureResult();
+            for (int k = 0; k < hyperChainsSource.size(); k++) {
+                ArrayList<String> hyperSource = hyperChainsSource.get(k);
+                for (int l = 0; l < hyperChainsTarget.size(); l++) {
+                    ArrayList<String> hyperTarget = hyperChainsTarget.get(l);
+                    double score = measure.getSimilarity(hyperSource, hyperTarget, result);
+                    if (score>similarityPair.getScore()) {
+                        similarityPair.setMatch(result.getMatch());
+                        similarityPair.setScore(score);
+                        similarityPair.setSourceTree(hyperSource);
+                        similarityPair.setTargetTree(hyperTarget);
+                    }
                 }
             }
         }
-        return similarityPair;
+        return cacheSimilarityPair(wordnetData, SimilarityPairCache.LEACOCK_CHODOROW, averageDepth, similarityPair);
     }
 
     /**
@@ -528,25 +485,33 @@ public class WordnetSimilarityApi {
     static public SimilarityPair synsetLeacockChodorowSimilarity (WordnetData wordnetData,
                                                                               String sourceId,
                                                                               String targetId) {
+        SimilarityPair cachedPair = getCachedSimilarityPair(wordnetData, SimilarityPairCache.LEACOCK_CHODOROW_SYNSETS, null, sourceId, targetId);
+        if (cachedPair!=null) {
+            return cachedPair;
+        }
 
         SimilarityPair similarityPair = new SimilarityPair();
         similarityPair.setSourceId(sourceId);
         similarityPair.setTargetId(targetId);
+        if (!hasCommonSubsumer(wordnetData, sourceId, targetId)) {
+            return cacheSimilarityPair(wordnetData, SimilarityPairCache.LEACOCK_CHODOROW_SYNSETS, null, similarityPair);
+        }
 
         ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
         ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
         wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
         wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
+        SimilarityMeasure measure = new LeacockChodorow(0, 1);
+        MeasureResult result = new MeasureResult();
         
         for (int i = 0; i < hyperChainsSource.size(); i++) {
             ArrayList<String> hyperSource = hyperChainsSource.get(i);
             for (int j = 0; j < hyperChainsTarget.size(); j++) {
                 ArrayList<String> hyperTarget = hyperChainsTarget.get(j);
-                int D = 1+(hyperSource.size()+hyperTarget.size())/2;
-                double score = vu.wntools.wnsimilarity.measures.LeacockChodorow.GetDistance(D, hyperSource, hyperTarget);
+                double score = measure.getSimilarity(hyperSource, hyperTarget, result);
 
                 if (score>similarityPair.getScore()) {
-                    similarityPair.setMatch(LeacockChodorow.match);
+                    similarityPair.setMatch(result.getMatch());
                     similarityPair.setScore(score);
                     similarityPair.setSourceTree(hyperSource);
                     similarityPair.setTargetTree(hyperTarget);
@@ -567,7 +532,7 @@ public class WordnetSimilarityApi {
             System.out.println("similarityPair match = " + similarityPair.getMatch());
             System.out.println("similarityPair score = " + similarityPair.getScore());
         }*/
-        return similarityPair;
+        return cacheSimilarityPair(wordnetData, SimilarityPairCache.LEACOCK_CHODOROW_SYNSETS, null, similarityPair);
     }
 
     /**
@@ -586,11 +551,16 @@ public class WordnetSimilarityApi {
         SimilarityPair similarityPair = new SimilarityPair();
         similarityPair.setSourceId(sourceId);
         similarityPair.setTargetId(targetId);
+        if (!hasCommonSubsumer(wordnetData, sourceId, targetId)) {
+            return similarityPair;
+        }
 
         ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
         ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
         wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
         wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
+        SimilarityMeasure measure = new LeacockChodorow(0, 1);
+        MeasureResult result = new MeasureResult();
 
         for (int i = 0; i < hyperChainsSource.size(); i++) {
             ArrayList<String> hyperSourceAll = hyperChainsSource.get(i);
@@ -610,11 +580,10 @@ public class WordnetSimilarityApi {
                         hyperTarget.add(s);
                     }
                 }
-                int D = 1+(hyperSource.size()+hyperTarget.size())/2;
-                double score = vu.wntools.wnsimilarity.measures.LeacockChodorow.GetDistance(D, hyperSource, hyperTarget);
+                double score = measure.getSimilarity(hyperSource, hyperTarget, result);
 
                 if (score>similarityPair.getScore()) {
-                    similarityPair.setMatch(LeacockChodorow.match);
+                    similarityPair.setMatch(result.getMatch());
                     similarityPair.setScore(score);
                     similarityPair.setSourceTree(hyperSource);
                     similarityPair.setTargetTree(hyperTarget);
@@ -637,50 +606,7 @@ public class WordnetSimilarityApi {
     static public ArrayList<SimilarityPair> wordWuPalmerSimilarity (WordnetData wordnetData,
                                                                            String word1,
                                                                            String word2) {
-
-        ArrayList<SimilarityPair> similarityPairArrayList = new ArrayList<SimilarityPair>();
-        boolean knownWords = true;
-        if (!wordnetData.entryToSynsets.containsKey(word1)) {
-            System.out.println("Unknown word = " + word1);
-            knownWords= false;
-        }
-        if (!wordnetData.entryToSynsets.containsKey(word2)) {
-            System.out.println("Unknown word = " + word2);
-            knownWords= false;
-        }
-        if (knownWords) {
-            ArrayList<String> sources = wordnetData.entryToSynsets.get(word1);
-            ArrayList<String> targets = wordnetData.entryToSynsets.get(word2);
-            for (int i = 0; i < sources.size(); i++) {
-                String sourceId = sources.get(i);
-                for (int j = 0; j < targets.size(); j++) {
-                    String targetId =  targets.get(j);
-                    SimilarityPair similarityPair = new SimilarityPair();
-                    similarityPair.setSourceId(sourceId);
-                    similarityPair.setTargetId(targetId);
-                    ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
-                    ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
-                    wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
-                    wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
-                    for (int k = 0; k < hyperChainsSource.size(); k++) {
-                        ArrayList<String> hyperSource = hyperChainsSource.get(k);
-                        for (int l = 0; l < hyperChainsTarget.size(); l++) {
-                            ArrayList<String> hyperTarget = hyperChainsTarget.get(l);
-                            double score = WuPalmer.GetDistance(hyperSource, hyperTarget);
-                            if (score>similarityPair.getScore()) {
-                                similarityPair.setMatch(WuPalmer.match);
-                                similarityPair.setScore(score);
-                                similarityPair.setSourceTree(hyperSource);
-                                similarityPair.setTargetTree(hyperTarget);
-                            }
-                        }
-                    }
-                   // System.out.println("final similarityPair = " + similarityPair.getScore());
-                    similarityPairArrayList.add(similarityPair);
-                }
-            }
-        }
-        return similarityPairArrayList;
+        return wordSimilarity(wordnetData, null, SimilarityPairCache.WU_PALMER, 0, word1, word2);
     }
 
     /**
@@ -695,29 +621,38 @@ public class WordnetSimilarityApi {
     static public SimilarityPair synsetWuPalmerSimilarity (WordnetData wordnetData,
                                                                               String sourceId,
                                                                               String targetId) {
+        SimilarityPair cachedPair = getCachedSimilarityPair(wordnetData, SimilarityPairCache.WU_PALMER, null, sourceId, targetId);
+        if (cachedPair!=null) {
+            return cachedPair;
+        }
 
         SimilarityPair similarityPair = new SimilarityPair();
         similarityPair.setSourceId(sourceId);
         similarityPair.setTargetId(targetId);
+        if (!hasCommonSubsumer(wordnetData, sourceId, targetId)) {
+            return cacheSimilarityPair(wordnetData, SimilarityPairCache.WU_PALMER, null, similarityPair);
+        }
 
         ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
         ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
         wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
         wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
+        SimilarityMeasure measure = new WuPalmer();
+        MeasureResult result = new MeasureResult();
         for (int i = 0; i < hyperChainsSource.size(); i++) {
             ArrayList<String> hyperSource = hyperChainsSource.get(i);
             for (int j = 0; j < hyperChainsTarget.size(); j++) {
                 ArrayList<String> hyperTarget = hyperChainsTarget.get(j);
-                double score = WuPalmer.GetDistance(hyperSource, hyperTarget);
+                double score = measure.getSimilarity(hyperSource, hyperTarget, result);
                 if (score>similarityPair.getScore()) {
-                    similarityPair.setMatch(WuPalmer.match);
+                    similarityPair.setMatch(result.getMatch());
                     similarityPair.setScore(score);
                     similarityPair.setSourceTree(hyperSource);
                     similarityPair.setTargetTree(hyperTarget);
                 }
             }
         }
-        return similarityPair;
+        return cacheSimilarityPair(wordnetData, SimilarityPairCache.WU_PALMER, null, similarityPair);
     }
 
     /**
@@ -732,44 +667,307 @@ public class WordnetSimilarityApi {
     static public ArrayList<SimilarityPair> wordPathSimilarity (WordnetData wordnetData,
                                                                            String word1,
                                                                            String word2) {
+        return wordSimilarity(wordnetData, null, SimilarityPairCache.PATH, 0, word1, word2);
+    }
 
-        ArrayList<SimilarityPair> similarityPairArrayList = new ArrayList<SimilarityPair>();
-        boolean knownWords = true;
-        if (!wordnetData.entryToSynsets.containsKey(word1)) {
-            System.out.println("Unknown word = " + word1);
-            knownWords= false;
-        }
-        if (!wordnetData.entryToSynsets.containsKey(word2)) {
-            System.out.println("Unknown word = " + word2);
-            knownWords= false;
-        }
-        if (knownWords) {
-            ArrayList<String> sources = wordnetData.entryToSynsets.get(word1);
-            ArrayList<String> targets = wordnetData.entryToSynsets.get(word2);
-            for (int i = 0; i < sources.size(); i++) {
-                String sourceId = sources.get(i);
-                for (int j = 0; j < targets.size(); j++) {
+    /**
+     * Takes a path to a CDB Synset File (Cornetto XML export dump format)and a pair of synset IDs.
+     * It returns the similarity pair for the synset pairs
+     * The method used is Path
+     * @param wordnetData
+     * @param sourceId
+     * @param targetId
+     * @return SimilarityPair
+     */
+    static public SimilarityPair synsetPathSimilarity (WordnetData wordnetData,
+                                                                              String sourceId,
+                                                                              String targetId) {
+        SimilarityPair cachedPair = getCachedSimilarityPair(wordnetData, SimilarityPairCache.PATH, null, sourceId, targetId);
+        if (cachedPair!=null) {
+            return cachedPair;
+        }
+
+        SimilarityPair similarityPair = closurePathSimilarity(wordnetData, 0, false, sourceId, targetId);
+        if (similarityPair==null) {
+            similarityPair = new SimilarityPair();
+            similarityPair.setSourceId(sourceId);
+            similarityPair.setTargetId(targetId);
+            ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
+            ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
+            wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
+            wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
+            SimilarityMeasure measure = new BaseLines();
+            MeasureResult result = new MeasureResult();
+            for (int i = 0; i < hyperChainsSource.size(); i++) {
+                ArrayList<String> hyperSource = hyperChainsSource.get(i);
+                for (int j = 0; j < hyperChainsTarget.size(); j++) {
+                    ArrayList<String> hyperTarget = hyperChainsTarget.get(j);
+                    double score = measure.getSimilarity(hyperSource, hyperTarget, result);
+                    if (score>similarityPair.getScore()) {
+                        similarityPair.setMatch(result.getMatch());
+                        similarityPair.setScore(score);
+                        similarityPair.setSourceTree(hyperSource);
+                        similarityPair.setTargetTree(hyperTarget);
+                    }
+                }
+            }
+        }
+        return cacheSimilarityPair(wordnetData, SimilarityPairCache.PATH, null, similarityPair);
+    }
+
+
+    /**
+     * Takes a WordnetData, a file with the frequencies of subsumers and a pair of words.
+     * It returns an ArrayList with the scores of all measures for all the meanings of the words.
+     * The hyper chains and the matches are computed once per synset pair and used for all the measures.
+     * The Leacock and Chodorow score uses the depth of the chains if averageDepth is 0 or less.
+     * @param wordnetData
+     * @param subsumersFrequencies
+     * @param averageDepth
+     * @param word1
+     * @param word2
+     * @return ArrayList<AllMeasuresPair>
+     */
+    static public ArrayList<AllMeasuresPair> wordAllSimilarity (WordnetData wordnetData,
+                                                                SubsumersFrequencies subsumersFrequencies,
+                                                                int averageDepth,
+                                                                String word1,
+                                                                String word2) {
+
+        ArrayList<AllMeasuresPair> allMeasuresPairArrayList = new ArrayList<AllMeasuresPair>();
+        boolean knownWords = true;
+        if (!wordnetData.entryToSynsets.containsKey(word1)) {
+            System.out.println("Unknown word = " + word1);
+            knownWords= false;
+        }
+        if (!wordnetData.entryToSynsets.containsKey(word2)) {
+            System.out.println("Unknown word = " + word2);
+            knownWords= false;
+        }
+        if (knownWords) {
+            ArrayList<String> sources = wordnetData.entryToSynsets.get(word1);
+            ArrayList<String> targets = wordnetData.entryToSynsets.get(word2);
+            for (int i = 0; i < sources.size(); i++) {
+                String sourceId = sources.get(i);
+                for (int j = 0; j < targets.size(); j++) {
+                    String targetId =  targets.get(j);
+                    allMeasuresPairArrayList.add(allSimilarity(wordnetData, subsumersFrequencies, averageDepth, 0, sourceId, targetId));
+                }
+            }
+        }
+        return allMeasuresPairArrayList;
+    }
+
+    /**
+     * Takes a WordnetData, a file with the frequencies of subsumers and a pair of synset IDs.
+     * It returns the scores of all measures for the synset pair.
+     * The Leacock and Chodorow score uses the depth of the chains if averageDepth is 0 or less.
+     * @param wordnetData
+     * @param subsumersFrequencies
+     * @param averageDepth
+     * @param sourceId
+     * @param targetId
+     * @return AllMeasuresPair
+     */
+    static public AllMeasuresPair synsetAllSimilarity (WordnetData wordnetData,
+                                                       SubsumersFrequencies subsumersFrequencies,
+                                                       int averageDepth,
+                                                       String sourceId,
+                                                       String targetId) {
+        return allSimilarity(wordnetData, subsumersFrequencies, averageDepth, 1, sourceId, targetId);
+    }
+
+    /**
+     * This function takes an ArrayList of AllMeasuresPairs and returns the topscoring pair for each measure
+     * @param allMeasuresPairArrayList
+     * @return AllMeasuresPair
+     */
+    static public AllMeasuresPair getTopScoringAllMeasuresPair (ArrayList<AllMeasuresPair> allMeasuresPairArrayList) {
+        AllMeasuresPair topScore = new AllMeasuresPair();
+        for (int i = 0; i < allMeasuresPairArrayList.size(); i++) {
+            AllMeasuresPair allMeasuresPair = allMeasuresPairArrayList.get(i);
+            if (allMeasuresPair.getPath().getScore()>topScore.getPath().getScore()) {
+                topScore.setPath(allMeasuresPair.getPath());
+            }
+            if (allMeasuresPair.getLeacockChodorow().getScore()>topScore.getLeacockChodorow().getScore()) {
+                topScore.setLeacockChodorow(allMeasuresPair.getLeacockChodorow());
+            }
+            if (allMeasuresPair.getWuPalmer().getScore()>topScore.getWuPalmer().getScore()) {
+                topScore.setWuPalmer(allMeasuresPair.getWuPalmer());
+            }
+            if (allMeasuresPair.getResnik().getScore()>topScore.getResnik().getScore()) {
+                topScore.setResnik(allMeasuresPair.getResnik());
+                topScore.setResnikValue(allMeasuresPair.getResnikValue());
+            }
+            if (allMeasuresPair.getLin().getScore()>topScore.getLin().getScore()) {
+                topScore.setLin(allMeasuresPair.getLin());
+                topScore.setLinIc1(allMeasuresPair.getLinIc1());
+                topScore.setLinIc2(allMeasuresPair.getLinIc2());
+                topScore.setLinIcLcs(allMeasuresPair.getLinIcLcs());
+            }
+            if (allMeasuresPair.getJiangConrath().getScore()>topScore.getJiangConrath().getScore()) {
+                topScore.setJiangConrath(allMeasuresPair.getJiangConrath());
+                topScore.setJiangConrathIc1(allMeasuresPair.getJiangConrathIc1());
+                topScore.setJiangConrathIc2(allMeasuresPair.getJiangConrathIc2());
+                topScore.setJiangConrathIcLcs(allMeasuresPair.getJiangConrathIcLcs());
+            }
+        }
+        return topScore;
+    }
+
+    /**
+     * Fused kernel for all measures. The hyper chains of both synsets are built once and for every pair of chains
+     * the first element of the source chain that occurs in the target chain is looked up once.
+     * The scores of the six measures are derived from that single match, so each measure gets the same result
+     * as its own word or synset function.
+     * @param wordnetData
+     * @param subsumersFrequencies
+     * @param averageDepth fixed depth for Leacock and Chodorow, 0 or less to use the depth of the chains
+     * @param depthOffset added to the chain depth for Leacock and Chodorow: 0 for words, 1 for synsets
+     * @param sourceId
+     * @param targetId
+     * @return AllMeasuresPair
+     */
+    static AllMeasuresPair allSimilarity (WordnetData wordnetData,
+                                          SubsumersFrequencies subsumersFrequencies,
+                                          int averageDepth,
+                                          int depthOffset,
+                                          String sourceId,
+                                          String targetId) {
+        AllMeasuresPair allMeasuresPair = new AllMeasuresPair();
+        allMeasuresPair.setSourceId(sourceId);
+        allMeasuresPair.setTargetId(targetId);
+        SimilarityPair [] similarityPairs = {allMeasuresPair.getPath(), allMeasuresPair.getLeacockChodorow(),
+                allMeasuresPair.getWuPalmer(), allMeasuresPair.getResnik(), allMeasuresPair.getLin(),
+                allMeasuresPair.getJiangConrath()};
+        for (int i = 0; i < similarityPairs.length; i++) {
+            similarityPairs[i].setSourceId(sourceId);
+            similarityPairs[i].setTargetId(targetId);
+        }
+
+        ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
+        ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
+        wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
+        wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
+
+        /// position of the first occurrence of each synset in the target chains, replaces indexOf
+        ArrayList<HashMap<String, Integer>> targetPositions = new ArrayList<HashMap<String, Integer>>();
+        for (int l = 0; l < hyperChainsTarget.size(); l++) {
+            ArrayList<String> hyperTarget = hyperChainsTarget.get(l);
+            HashMap<String, Integer> positions = new HashMap<String, Integer>(hyperTarget.size()*2);
+            for (int m = hyperTarget.size()-1; m >= 0; m--) {
+                positions.put(hyperTarget.get(m), m);
+            }
+            targetPositions.add(positions);
+        }
+
+        double ic1 = getInformationContent(subsumersFrequencies, sourceId);
+        double ic2 = getInformationContent(subsumersFrequencies, targetId);
+        double [] scores = new double[similarityPairs.length];
+        for (int k = 0; k < hyperChainsSource.size(); k++) {
+            ArrayList<String> hyperSource = hyperChainsSource.get(k);
+            for (int l = 0; l < hyperChainsTarget.size(); l++) {
+                ArrayList<String> hyperTarget = hyperChainsTarget.get(l);
+                HashMap<String, Integer> positions = targetPositions.get(l);
+                int i1 = -1;
+                int i2 = -1;
+                String match = "";
+                for (int m = 0; m < hyperSource.size(); m++) {
+                    Integer position = positions.get(hyperSource.get(m));
+                    if (position!=null) {
+                        i1 = m;
+                        i2 = position;
+                        match = hyperSource.get(m);
+                        break;
+                    }
+                }
+                int D = averageDepth;
+                if (D<=0) {
+                    D = depthOffset+(hyperSource.size()+hyperTarget.size())/2;
+                }
+                double icLcs = 0;
+                scores[0] = BaseLines.GetPath(i1, i2);
+                scores[1] = LeacockChodorow.GetDistance(D, i1, i2);
+                scores[2] = WuPalmer.GetDistance(i1, i2, hyperSource.size(), hyperTarget.size());
+                scores[3] = -1;
+                if (i1>-1) {
+                    /// NaN for Resnik and infinite for Lin and Jiang and Conrath if the subsumer has no frequency
+                    scores[3] = subsumersFrequencies.getInformationContent(match);
+                    icLcs = scores[3];
+                    if (Double.isNaN(icLcs)) {
+                        icLcs = -Math.log(0/(double) subsumersFrequencies.maxFreq);
+                    }
+                }
+                scores[4] = Lin.GetDistance(ic1, ic2, icLcs, i1, i2);
+                scores[5] = JiangConrath.GetDistance(ic1, ic2, icLcs, i1, i2);
+                for (int m = 0; m < scores.length; m++) {
+                    SimilarityPair similarityPair = similarityPairs[m];
+                    if (scores[m]>similarityPair.getScore()) {
+                        similarityPair.setMatch(match);
+                        similarityPair.setScore(scores[m]);
+                        similarityPair.setSourceTree(hyperSource);
+                        similarityPair.setTargetTree(hyperTarget);
+                        if (m==3 && subsumersFrequencies.getProbability(match)>-1) {
+                            allMeasuresPair.setResnikValue(subsumersFrequencies.getProbability(match));
+                        }
+                        else if (m==4) {
+                            allMeasuresPair.setLinIc1(ic1);
+                            allMeasuresPair.setLinIc2(ic2);
+                            allMeasuresPair.setLinIcLcs(icLcs);
+                        }
+                        else if (m==5) {
+                            allMeasuresPair.setJiangConrathIc1(ic1);
+                            allMeasuresPair.setJiangConrathIc2(ic2);
+                            allMeasuresPair.setJiangConrathIcLcs(icLcs);
+                        }
+                    }
+                }
+            }
+        }
+        return allMeasuresPair;
+    }
+
+    /**
+     * Compares all meanings of two words with one measure and returns the similarity pair of every pair of meanings.
+     * The hyper chains of each meaning are built once and the first occurrences of the synsets in the chains of the
+     * meanings of the second word are looked up once, instead of once for every pair of meanings.
+     * The pairs get the same score, match and trees as the synset functions for the measure.
+     * @param wordnetData
+     * @param subsumersFrequencies
+     * @param measure one of the measures of SimilarityPairCache
+     * @param averageDepth fixed depth for SimilarityPairCache.LEACOCK_CHODOROW
+     * @param word1
+     * @param word2
+     * @return ArrayList<SimilarityPair>
+     */
+    static ArrayList<SimilarityPair> wordSimilarity (WordnetData wordnetData,
+                                                     SubsumersFrequencies subsumersFrequencies,
+                                                     int measure, int averageDepth,
+                                                     String word1, String word2) {
+        ArrayList<SimilarityPair> similarityPairArrayList = new ArrayList<SimilarityPair>();
+        if (knownWords(wordnetData, word1, word2)) {
+            ArrayList<String> sources = wordnetData.entryToSynsets.get(word1);
+            ArrayList<String> targets = wordnetData.entryToSynsets.get(word2);
+            Object parameter = getCacheParameter(measure, subsumersFrequencies, averageDepth);
+            SenseProfile [] sourceProfiles = new SenseProfile[sources.size()];
+            SenseProfile [] targetProfiles = new SenseProfile[targets.size()];
+            int [] best = new int[3];
+            for (int i = 0; i < sources.size(); i++) {
+                String sourceId = sources.get(i);
+                for (int j = 0; j < targets.size(); j++) {
                     String targetId =  targets.get(j);
-                    SimilarityPair similarityPair = new SimilarityPair();
-                    similarityPair.setSourceId(sourceId);
-                    similarityPair.setTargetId(targetId);
-
-                    ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
-                    ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
-                    wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
-                    wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
-                    for (int k = 0; k < hyperChainsSource.size(); k++) {
-                        ArrayList<String> hyperSource = hyperChainsSource.get(k);
-                        for (int l = 0; l < hyperChainsTarget.size(); l++) {
-                            ArrayList<String> hyperTarget = hyperChainsTarget.get(l);
-                            double score = BaseLines.GetPath(hyperSource, hyperTarget);
-                            if (score>similarityPair.getScore()) {
-                                similarityPair.setMatch(BaseLines.match);
-                                similarityPair.setScore(score);
-                                similarityPair.setSourceTree(hyperSource);
-                                similarityPair.setTargetTree(hyperTarget);
-                            }
+                    SimilarityPair similarityPair = getCachedSimilarityPair(wordnetData, measure, parameter, sourceId, targetId);
+                    if (similarityPair==null) {
+                        if (sourceProfiles[i]==null) {
+                            sourceProfiles[i] = new SenseProfile(wordnetData, subsumersFrequencies, sourceId, false);
                         }
+                        if (targetProfiles[j]==null) {
+                            targetProfiles[j] = new SenseProfile(wordnetData, subsumersFrequencies, targetId, true);
+                        }
+                        double score = scoreSensePair(wordnetData, subsumersFrequencies, measure, averageDepth,
+                                sourceProfiles[i], targetProfiles[j], best);
+                        similarityPair = cacheSimilarityPair(wordnetData, measure, parameter,
+                                toSimilarityPair(sourceProfiles[i], targetProfiles[j], score, best));
                     }
                     similarityPairArrayList.add(similarityPair);
                 }
@@ -779,41 +977,1085 @@ public class WordnetSimilarityApi {
     }
 
     /**
-     * Takes a path to a CDB Synset File (Cornetto XML export dump format)and a pair of synset IDs.
-     * It returns the similarity pair for the synset pairs
-     * The method used is Path
+     * Takes a WordnetData, a file with the frequencies of subsumers and a pair of words and returns the best scoring
+     * pair of meanings, the same pair as getTopScoringSimilarityPair gives for the list of the word function.
+     * Only the scores are kept while the meanings are compared; the similarity pair is made for the best pair only.
      * @param wordnetData
+     * @param subsumersFrequencies only used by resnik, lin and jiang-conrath
+     * @param method path, leacock-chodorow, wu-palmer, resnik, lin or jiang-conrath
+     * @param averageDepth fixed depth for leacock-chodorow, 0 or less to use the depth of the chains
+     * @param word1
+     * @param word2
+     * @return SimilarityPair, with a score of -1 if no pair gets a score
+     */
+    static public SimilarityPair wordBestSimilarity (WordnetData wordnetData,
+                                                     SubsumersFrequencies subsumersFrequencies,
+                                                     String method, int averageDepth,
+                                                     String word1, String word2) {
+        int measure = getWordMeasure(method, averageDepth);
+        if (measure<0 || !knownWords(wordnetData, word1, word2)) {
+            return new SimilarityPair();
+        }
+        ArrayList<String> sources = wordnetData.entryToSynsets.get(word1);
+        ArrayList<String> targets = wordnetData.entryToSynsets.get(word2);
+        Object parameter = getCacheParameter(measure, subsumersFrequencies, averageDepth);
+        boolean cached = getSimilarityPairCache(wordnetData)!=null;
+        SenseProfile [] sourceProfiles = new SenseProfile[sources.size()];
+        SenseProfile [] targetProfiles = new SenseProfile[targets.size()];
+        int [] best = new int[3];
+        int [] topChains = new int[3];
+        double topScore = -1;
+        SimilarityPair topPair = null;
+        SenseProfile topSource = null;
+        SenseProfile topTarget = null;
+        for (int i = 0; i < sources.size(); i++) {
+            String sourceId = sources.get(i);
+            for (int j = 0; j < targets.size(); j++) {
+                String targetId =  targets.get(j);
+                SimilarityPair similarityPair = null;
+                if (cached) {
+                    similarityPair = getCachedSimilarityPair(wordnetData, measure, parameter, sourceId, targetId);
+                }
+                double score;
+                if (similarityPair!=null) {
+                    score = similarityPair.getScore();
+                }
+                else {
+                    if (sourceProfiles[i]==null) {
+                        sourceProfiles[i] = new SenseProfile(wordnetData, subsumersFrequencies, sourceId, false);
+                    }
+                    if (targetProfiles[j]==null) {
+                        targetProfiles[j] = new SenseProfile(wordnetData, subsumersFrequencies, targetId, true);
+                    }
+                    score = scoreSensePair(wordnetData, subsumersFrequencies, measure, averageDepth,
+                            sourceProfiles[i], targetProfiles[j], best);
+                    if (cached) {
+                        similarityPair = cacheSimilarityPair(wordnetData, measure, parameter,
+                                toSimilarityPair(sourceProfiles[i], targetProfiles[j], score, best));
+                    }
+                }
+                if (score>topScore) {
+                    topScore = score;
+                    topPair = similarityPair;
+                    if (similarityPair==null) {
+                        topSource = sourceProfiles[i];
+                        topTarget = targetProfiles[j];
+                        System.arraycopy(best, 0, topChains, 0, best.length);
+                    }
+                }
+            }
+        }
+        if (topPair!=null) {
+            return topPair;
+        }
+        if (topSource==null) {
+            return new SimilarityPair();
+        }
+        return toSimilarityPair(topSource, topTarget, topScore, topChains);
+    }
+
+    static private boolean knownWords (WordnetData wordnetData, String word1, String word2) {
+        boolean knownWords = true;
+        if (!wordnetData.entryToSynsets.containsKey(word1)) {
+            System.out.println("Unknown word = " + word1);
+            knownWords= false;
+        }
+        if (!wordnetData.entryToSynsets.containsKey(word2)) {
+            System.out.println("Unknown word = " + word2);
+            knownWords= false;
+        }
+        return knownWords;
+    }
+
+    /**
+     * @param method
+     * @param averageDepth
+     * @return the measure of SimilarityPairCache used for pairs of meanings of words, -1 if the method is not known
+     */
+    static int getWordMeasure (String method, int averageDepth) {
+        if (method.equalsIgnoreCase("path")) return SimilarityPairCache.PATH;
+        if (method.equalsIgnoreCase("leacock-chodorow")) {
+            if (averageDepth>0) return SimilarityPairCache.LEACOCK_CHODOROW;
+            return SimilarityPairCache.LEACOCK_CHODOROW_WORDS;
+        }
+        if (method.equalsIgnoreCase("wu-palmer")) return SimilarityPairCache.WU_PALMER;
+        if (method.equalsIgnoreCase("resnik")) return SimilarityPairCache.RESNIK;
+        if (method.equalsIgnoreCase("lin")) return SimilarityPairCache.LIN;
+        if (method.equalsIgnoreCase("jiang-conrath")) return SimilarityPairCache.JIANG_CONRATH;
+        return -1;
+    }
+
+    static private Object getCacheParameter (int measure, SubsumersFrequencies subsumersFrequencies, int averageDepth) {
+        if (measure==SimilarityPairCache.LEACOCK_CHODOROW) {
+            return averageDepth;
+        }
+        else if (measure==SimilarityPairCache.RESNIK || measure==SimilarityPairCache.LIN
+                || measure==SimilarityPairCache.JIANG_CONRATH) {
+            return subsumersFrequencies;
+        }
+        return null;
+    }
+
+    /**
+     * Scores a pair of meanings from their profiles. For every pair of chains the first element of the source chain
+     * that occurs in the target chain is the match, and the first pair of chains with the highest score is the best,
+     * as in the measure loops of the synset functions.
+     * @param best returns the index of the source chain, the target chain and the position of the match
+     * in the source chain of the best pair of chains, -1 if no pair of chains gets a score
+     * @return the best score, -1 if no pair of chains gets a score
+     */
+    static double scoreSensePair (WordnetData wordnetData, SubsumersFrequencies subsumersFrequencies,
+                                  int measure, int averageDepth,
+                                  SenseProfile source, SenseProfile target, int [] best) {
+        best[0] = -1;
+        best[1] = -1;
+        best[2] = -1;
+        double topScore = -1;
+        if (measure!=SimilarityPairCache.LIN && measure!=SimilarityPairCache.JIANG_CONRATH
+                && !hasCommonSubsumer(wordnetData, source.synsetId, target.synsetId)) {
+            return topScore;
+        }
+        for (int k = 0; k < source.chains.size(); k++) {
+            ArrayList<String> hyperSource = source.chains.get(k);
+            for (int l = 0; l < target.chains.size(); l++) {
+                ArrayList<String> hyperTarget = target.chains.get(l);
+                HashMap<String, Integer> positions = target.positions.get(l);
+                int i1 = -1;
+                int i2 = -1;
+                for (int m = 0; m < hyperSource.size(); m++) {
+                    Integer position = positions.get(hyperSource.get(m));
+                    if (position!=null) {
+                        i1 = m;
+                        i2 = position;
+                        break;
+                    }
+                }
+                double score;
+                if (measure==SimilarityPairCache.PATH) {
+                    score = BaseLines.GetPath(i1, i2);
+                }
+                else if (measure==SimilarityPairCache.LEACOCK_CHODOROW) {
+                    score = LeacockChodorow.GetDistance(averageDepth, i1, i2);
+                }
+                else if (measure==SimilarityPairCache.LEACOCK_CHODOROW_SYNSETS) {
+                    score = LeacockChodorow.GetDistance(1+(hyperSource.size()+hyperTarget.size())/2, i1, i2);
+                }
+                else if (measure==SimilarityPairCache.LEACOCK_CHODOROW_WORDS) {
+                    score = LeacockChodorow.GetDistance((hyperSource.size()+hyperTarget.size())/2, i1, i2);
+                }
+                else if (measure==SimilarityPairCache.WU_PALMER) {
+                    score = WuPalmer.GetDistance(i1, i2, hyperSource.size(), hyperTarget.size());
+                }
+                else if (measure==SimilarityPairCache.RESNIK) {
+                    score = -1;
+                    if (i1>-1) {
+                        /// NaN if the subsumer has no frequency
+                        score = subsumersFrequencies.getInformationContent(hyperSource.get(i1));
+                    }
+                }
+                else {
+                    double icLcs = 0;
+                    if (i1>-1) {
+                        icLcs = subsumersFrequencies.getInformationContent(hyperSource.get(i1));
+                        if (Double.isNaN(icLcs)) {
+                            icLcs = -Math.log(0/(double) subsumersFrequencies.maxFreq);
+                        }
+                    }
+                    if (measure==SimilarityPairCache.LIN) {
+                        score = Lin.GetDistance(source.informationContent, target.informationContent, icLcs, i1, i2);
+                    }
+                    else {
+                        score = JiangConrath.GetDistance(source.informationContent, target.informationContent, icLcs, i1, i2);
+                    }
+                }
+                if (score>topScore) {
+                    topScore = score;
+                    best[0] = k;
+                    best[1] = l;
+                    best[2] = i1;
+                }
+            }
+        }
+        return topScore;
+    }
+
+    static SimilarityPair toSimilarityPair (SenseProfile source, SenseProfile target, double score, int [] best) {
+        SimilarityPair similarityPair = new SimilarityPair();
+        similarityPair.setSourceId(source.synsetId);
+        similarityPair.setTargetId(target.synsetId);
+        if (best[0]>-1) {
+            ArrayList<String> hyperSource = source.chains.get(best[0]);
+            if (best[2]>-1) {
+                similarityPair.setMatch(hyperSource.get(best[2]));
+            }
+            similarityPair.setScore(score);
+            similarityPair.setSourceTree(hyperSource);
+            similarityPair.setTargetTree(target.chains.get(best[1]));
+        }
+        return similarityPair;
+    }
+
+    /**
+     * Takes a WordnetData, a file with the frequencies of subsumers and a pair of words and returns the best scoring
+     * pair of meanings as a CompactSimilarityPair, with the same score and match as wordBestSimilarity.
+     * The chains are compared as shared HyperPaths of ordinals, so no chains of ids are made for the meanings.
+     * The trees of the best pair are only made when they are asked for. The cache of similarity pairs is not used.
+     * @param wordnetData
+     * @param subsumersFrequencies only used by resnik, lin and jiang-conrath
+     * @param method path, leacock-chodorow, wu-palmer, resnik, lin or jiang-conrath
+     * @param averageDepth fixed depth for leacock-chodorow, 0 or less to use the depth of the chains
+     * @param word1
+     * @param word2
+     * @return CompactSimilarityPair, with a score of -1 if no pair gets a score, null if the method is not known
+     */
+    static public CompactSimilarityPair wordBestCompactSimilarity (WordnetData wordnetData,
+                                                                   SubsumersFrequencies subsumersFrequencies,
+                                                                   String method, int averageDepth,
+                                                                   String word1, String word2) {
+        int measure = getWordMeasure(method, averageDepth);
+        if (measure<0) {
+            return null;
+        }
+        HyperPathIndex hyperPathIndex = wordnetData.getHyperPathIndex();
+        if (!knownWords(wordnetData, word1, word2)) {
+            return new CompactSimilarityPair(hyperPathIndex, -1, -1);
+        }
+        SynsetGraph graph = hyperPathIndex.getGraph();
+        AncestorIndex ancestorIndex = wordnetData.getAncestorIndex();
+        ArrayList<String> sources = wordnetData.entryToSynsets.get(word1);
+        ArrayList<String> targets = wordnetData.entryToSynsets.get(word2);
+        int [] best = new int[3];
+        int [] topBest = new int[3];
+        double topScore = -1;
+        int topSource = -1;
+        int topTarget = -1;
+        for (int i = 0; i < sources.size(); i++) {
+            int source = graph.getOrdinal(sources.get(i));
+            if (source<0) {
+                continue;
+            }
+            for (int j = 0; j < targets.size(); j++) {
+                int target = graph.getOrdinal(targets.get(j));
+                if (target<0) {
+                    continue;
+                }
+                double score = scoreOrdinalPair(hyperPathIndex, ancestorIndex, subsumersFrequencies, measure, averageDepth,
+                        source, target, best);
+                if (score>topScore) {
+                    topScore = score;
+                    topSource = source;
+                    topTarget = target;
+                    System.arraycopy(best, 0, topBest, 0, best.length);
+                }
+            }
+        }
+        CompactSimilarityPair compactSimilarityPair = new CompactSimilarityPair(hyperPathIndex, topSource, topTarget);
+        if (topSource>-1) {
+            compactSimilarityPair.set(topScore, topBest[2], topBest[0], topBest[1]);
+        }
+        return compactSimilarityPair;
+    }
+
+    /**
+     * Compares a pair of synsets with one of the measures and returns a CompactSimilarityPair, with the same score
+     * and match as synsetSimilarity. The cache of similarity pairs is not used.
+     * @param wordnetData
+     * @param subsumersFrequencies only used by resnik, lin and jiang-conrath
+     * @param method path, leacock-chodorow, wu-palmer, resnik, lin or jiang-conrath
+     * @param averageDepth fixed depth for leacock-chodorow, 0 or less to use the depth of the chains
      * @param sourceId
      * @param targetId
-     * @return SimilarityPair
+     * @return CompactSimilarityPair, or null if the method is not known or a synset is not in the wordnet,
+     * in which case synsetSimilarity gives the result
      */
-    static public SimilarityPair synsetPathSimilarity (WordnetData wordnetData,
-                                                                              String sourceId,
-                                                                              String targetId) {
+    static public CompactSimilarityPair synsetCompactSimilarity (WordnetData wordnetData,
+                                                                 SubsumersFrequencies subsumersFrequencies,
+                                                                 String method, int averageDepth,
+                                                                 String sourceId, String targetId) {
+        int measure = getWordMeasure(method, averageDepth);
+        if (measure<0) {
+            return null;
+        }
+        if (measure==SimilarityPairCache.LEACOCK_CHODOROW_WORDS) {
+            measure = SimilarityPairCache.LEACOCK_CHODOROW_SYNSETS;
+        }
+        HyperPathIndex hyperPathIndex = wordnetData.getHyperPathIndex();
+        SynsetGraph graph = hyperPathIndex.getGraph();
+        int source = graph.getOrdinal(sourceId);
+        int target = graph.getOrdinal(targetId);
+        if (source<0 || target<0) {
+            return null;
+        }
+        int [] best = new int[3];
+        double score = scoreOrdinalPair(hyperPathIndex, wordnetData.getAncestorIndex(), subsumersFrequencies,
+                measure, averageDepth, source, target, best);
+        CompactSimilarityPair compactSimilarityPair = new CompactSimilarityPair(hyperPathIndex, source, target);
+        if (best[0]>-1) {
+            compactSimilarityPair.set(score, best[2], best[0], best[1]);
+        }
+        return compactSimilarityPair;
+    }
 
+    /**
+     * Scores a pair of synsets as scoreSensePair does, on the HyperPaths of the synsets. Each target chain is marked
+     * once in a scratch array of the thread, after which the match of every source chain is found by walking the
+     * source chain up to the first marked synset. The chains are compared target chain first, so a pair of chains
+     * with the same score as the best pair only wins if its source chain comes earlier, which gives the same best pair.
+     * @param best returns the index of the source chain, the target chain and the ordinal of the match
+     * of the best pair of chains, -1 if no pair of chains gets a score
+     * @return the best score, -1 if no pair of chains gets a score
+     */
+    static double scoreOrdinalPair (HyperPathIndex hyperPathIndex, AncestorIndex ancestorIndex,
+                                    SubsumersFrequencies subsumersFrequencies,
+                                    int measure, int averageDepth,
+                                    int source, int target, int [] best) {
+        best[0] = -1;
+        best[1] = -1;
+        best[2] = -1;
+        double topScore = -1;
+        if (measure!=SimilarityPairCache.LIN && measure!=SimilarityPairCache.JIANG_CONRATH
+                && ancestorIndex.getPathLength(source, target)<0) {
+            return topScore;
+        }
+        SynsetGraph graph = hyperPathIndex.getGraph();
+        double ic1 = 0;
+        double ic2 = 0;
+        if (measure==SimilarityPairCache.LIN || measure==SimilarityPairCache.JIANG_CONRATH) {
+            ic1 = subsumersFrequencies.getInformationContent(graph, source);
+            if (Double.isNaN(ic1)) {
+                ic1 = 0;
+            }
+            ic2 = subsumersFrequencies.getInformationContent(graph, target);
+            if (Double.isNaN(ic2)) {
+                ic2 = 0;
+            }
+        }
+        HyperPath [] sourcePaths = hyperPathIndex.getPaths(source);
+        HyperPath [] targetPaths = hyperPathIndex.getPaths(target);
+        ChainMarks marks = chainMarks.get();
+        marks.ensureSize(graph.size());
+        int [] stamps = marks.stamps;
+        int [] positions = marks.positions;
+        for (int l = 0; l < targetPaths.length; l++) {
+            HyperPath hyperTarget = targetPaths[l];
+            int stamp = marks.nextStamp();
+            int m = 0;
+            for (HyperPath path = hyperTarget; path!=null; path = path.getNext()) {
+                int ordinal = path.getOrdinal();
+                if (stamps[ordinal]!=stamp) {
+                    stamps[ordinal] = stamp;
+                    positions[ordinal] = m;
+                }
+                m++;
+            }
+            for (int k = 0; k < sourcePaths.length; k++) {
+                HyperPath hyperSource = sourcePaths[k];
+                int i1 = -1;
+                int i2 = -1;
+                int match = -1;
+                m = 0;
+                for (HyperPath path = hyperSource; path!=null; path = path.getNext()) {
+                    int ordinal = path.getOrdinal();
+                    if (stamps[ordinal]==stamp) {
+                        i1 = m;
+                        i2 = positions[ordinal];
+                        match = ordinal;
+                        break;
+                    }
+                    m++;
+                }
+                double score;
+                if (measure==SimilarityPairCache.PATH) {
+                    score = BaseLines.GetPath(i1, i2);
+                }
+                else if (measure==SimilarityPairCache.LEACOCK_CHODOROW) {
+                    score = LeacockChodorow.GetDistance(averageDepth, i1, i2);
+                }
+                else if (measure==SimilarityPairCache.LEACOCK_CHODOROW_SYNSETS) {
+                    score = LeacockChodorow.GetDistance(1+(hyperSource.getLength()+hyperTarget.getLength())/2, i1, i2);
+                }
+                else if (measure==SimilarityPairCache.LEACOCK_CHODOROW_WORDS) {
+                    score = LeacockChodorow.GetDistance((hyperSource.getLength()+hyperTarget.getLength())/2, i1, i2);
+                }
+                else if (measure==SimilarityPairCache.WU_PALMER) {
+                    score = WuPalmer.GetDistance(i1, i2, hyperSource.getLength(), hyperTarget.getLength());
+                }
+                else if (measure==SimilarityPairCache.RESNIK) {
+                    score = -1;
+                    if (match>-1) {
+                        /// NaN if the subsumer has no frequency
+                        score = subsumersFrequencies.getInformationContent(graph, match);
+                    }
+                }
+                else {
+                    double icLcs = 0;
+                    if (match>-1) {
+                        icLcs = subsumersFrequencies.getInformationContent(graph, match);
+                        if (Double.isNaN(icLcs)) {
+                            icLcs = -Math.log(0/(double) subsumersFrequencies.maxFreq);
+                        }
+                    }
+                    if (measure==SimilarityPairCache.LIN) {
+                        score = Lin.GetDistance(ic1, ic2, icLcs, i1, i2);
+                    }
+                    else {
+                        score = JiangConrath.GetDistance(ic1, ic2, icLcs, i1, i2);
+                    }
+                }
+                if (score>topScore || (score==topScore && k<best[0])) {
+                    topScore = score;
+                    best[0] = k;
+                    best[1] = l;
+                    best[2] = match;
+                }
+            }
+        }
+        return topScore;
+    }
+
+    static private final ThreadLocal<ChainMarks> chainMarks = new ThreadLocal<ChainMarks>() {
+        protected ChainMarks initialValue() {
+            return new ChainMarks();
+        }
+    };
+
+    /**
+     * Marks of the synsets of one chain, by ordinal. A synset is in the chain if its stamp is the stamp of the chain,
+     * so the marks of the previous chain do not have to be cleared.
+     */
+    static private class ChainMarks {
+        int [] stamps = new int[0];
+        int [] positions = new int[0];
+        int stamp = 0;
+
+        void ensureSize (int size) {
+            if (stamps.length<size) {
+                stamps = new int[size];
+                positions = new int[size];
+                stamp = 0;
+            }
+        }
+
+        int nextStamp () {
+            if (stamp==Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                stamp = 0;
+            }
+            return ++stamp;
+        }
+    }
+
+    /**
+     * Compares a pair of synsets with one of the measures, as the Similarity tool does for synset pairs.
+     * The Leacock and Chodorow score uses the depth of the chains if averageDepth is 0 or less.
+     * @param wordnetData
+     * @param subsumersFrequencies only used by resnik, lin and jiang-conrath
+     * @param method path, leacock-chodorow, wu-palmer, resnik, lin or jiang-conrath
+     * @param averageDepth
+     * @param sourceId
+     * @param targetId
+     * @return SimilarityPair, with a score of -1 if the method is not known
+     */
+    static public SimilarityPair synsetSimilarity (WordnetData wordnetData,
+                                                   SubsumersFrequencies subsumersFrequencies,
+                                                   String method, int averageDepth,
+                                                   String sourceId, String targetId) {
+        if (method.equalsIgnoreCase("leacock-chodorow")) {
+            if (averageDepth>0) {
+                return synsetLeacockChodorowSimilarity(wordnetData, averageDepth, sourceId, targetId);
+            }
+            return synsetLeacockChodorowSimilarity(wordnetData, sourceId, targetId);
+        }
+        else if (method.equalsIgnoreCase("wu-palmer")) {
+            return synsetWuPalmerSimilarity(wordnetData, sourceId, targetId);
+        }
+        else if (method.equalsIgnoreCase("path")) {
+            return synsetPathSimilarity(wordnetData, sourceId, targetId);
+        }
+        else if (method.equalsIgnoreCase("resnik")) {
+            return synsetResnikSimilarity(wordnetData, subsumersFrequencies, sourceId, targetId);
+        }
+        else if (method.equalsIgnoreCase("lin")) {
+            return synsetLinSimilarity(wordnetData, subsumersFrequencies, sourceId, targetId);
+        }
+        else if (method.equalsIgnoreCase("jiang-conrath")) {
+            return synsetJiangConrathSimilarity(wordnetData, subsumersFrequencies, sourceId, targetId);
+        }
         SimilarityPair similarityPair = new SimilarityPair();
         similarityPair.setSourceId(sourceId);
         similarityPair.setTargetId(targetId);
+        return similarityPair;
+    }
 
-        ArrayList<ArrayList<String>> hyperChainsSource = new ArrayList<ArrayList<String>>();
-        ArrayList<ArrayList<String>> hyperChainsTarget = new ArrayList<ArrayList<String>>();
-        wordnetData.getMultipleHyperChain(sourceId, hyperChainsSource);
-        wordnetData.getMultipleHyperChain(targetId, hyperChainsTarget);
-        for (int i = 0; i < hyperChainsSource.size(); i++) {
-            ArrayList<String> hyperSource = hyperChainsSource.get(i);
-            for (int j = 0; j < hyperChainsTarget.size(); j++) {
-                ArrayList<String> hyperTarget = hyperChainsTarget.get(j);
-                double score = BaseLines.GetPath(hyperSource, hyperTarget);
-                if (score>similarityPair.getScore()) {
-                    similarityPair.setMatch(BaseLines.match);
-                    similarityPair.setScore(score);
-                    similarityPair.setSourceTree(hyperSource);
-                    similarityPair.setTargetTree(hyperTarget);
+    /**
+     * Orders similarity pairs from the highest to the lowest score, pairs with the same score by target id
+     */
+    static public final Comparator<SimilarityPair> BEST_FIRST = new Comparator<SimilarityPair>() {
+        public int compare(SimilarityPair p1, SimilarityPair p2) {
+            int c = Double.compare(p2.getScore(), p1.getScore());
+            if (c==0) {
+                c = p1.getTargetId().compareTo(p2.getTargetId());
+            }
+            return c;
+        }
+    };
+
+    /**
+     * Takes a WordnetData, a synset and a measure and returns the k synsets that are most similar to the synset,
+     * best first. Only synsets that have a subsumer in common with the synset and get a finite score are returned,
+     * the synset itself is left out.
+     *
+     * The candidates are not all scored:
+     * - path and leacock-chodorow with a fixed depth only depend on the length of the shortest path through a common subsumer.
+     * The synsets are visited in order of that length by walking down from the subsumers of the synset, and the walk stops
+     * when k synsets have been found at a shorter or equal length.
+     * - for the other measures the subsumers of the synset are taken from the highest to the lowest bound on the score
+     * of a synset below them (see getSubsumerBound) and only the synsets below them that were not seen yet are scored,
+     * until the bound of the next subsumer is lower than the k-th score. Lin and jiang-conrath are only bounded if the
+     * frequencies are cumulated (see SubsumersFrequencies.isMonotone), otherwise all synsets are scored with
+     * exhaustiveMostSimilar.
+     * The candidates are scored on the chains of ordinals, only the returned pairs are made with synsetSimilarity. Their
+     * scores and trees are the same as those of the synset functions for the pair.
+     * @param wordnetData
+     * @param subsumersFrequencies only used by resnik, lin and jiang-conrath
+     * @param method path, leacock-chodorow, wu-palmer, resnik, lin or jiang-conrath
+     * @param averageDepth fixed depth for leacock-chodorow, 0 or less to use the depth of the chains
+     * @param synsetId
+     * @param pos only synsets with an id that ends with pos are returned, all synsets if empty
+     * @param k
+     * @param threads number of threads used when all synsets need to be scored
+     * @return ArrayList<SimilarityPair>
+     */
+    static public ArrayList<SimilarityPair> synsetMostSimilar (WordnetData wordnetData,
+                                                               SubsumersFrequencies subsumersFrequencies,
+                                                               String method, int averageDepth,
+                                                               String synsetId, String pos, int k, int threads) {
+        if (method.equalsIgnoreCase("path")) {
+            return closureMostSimilar(wordnetData, method, averageDepth, synsetId, pos, k);
+        }
+        else if (method.equalsIgnoreCase("leacock-chodorow") && averageDepth>0) {
+            return closureMostSimilar(wordnetData, method, averageDepth, synsetId, pos, k);
+        }
+        int measure = getSynsetMeasure(method, averageDepth);
+        if ((measure==SimilarityPairCache.LIN || measure==SimilarityPairCache.JIANG_CONRATH)
+                && !subsumersFrequencies.isMonotone(wordnetData.getSynsetGraph())) {
+            return exhaustiveMostSimilar(wordnetData, subsumersFrequencies, method, averageDepth, synsetId, pos, k, threads);
+        }
+        return boundedMostSimilar(wordnetData, subsumersFrequencies, method, averageDepth, synsetId, pos, k);
+    }
+
+    /**
+     * Same as synsetMostSimilar but it scores every synset of the wordnet, divided over the threads of a pool that is
+     * shared by all calls. It works for all measures and gives the reference result for the pruned queries. The failure
+     * of a thread is thrown again, instead of a top k of the other threads.
+     * @param wordnetData
+     * @param subsumersFrequencies
+     * @param method
+     * @param averageDepth
+     * @param synsetId
+     * @param pos
+     * @param k
+     * @param threads
+     * @return ArrayList<SimilarityPair>
+     */
+    static public ArrayList<SimilarityPair> exhaustiveMostSimilar (final WordnetData wordnetData,
+                                                                   final SubsumersFrequencies subsumersFrequencies,
+                                                                   final String method, final int averageDepth,
+                                                                   final String synsetId, final String pos, final int k,
+                                                                   int threads) {
+        /// build the derived indexes before the threads start using them
+        final HyperPathIndex hyperPathIndex = wordnetData.getHyperPathIndex();
+        final AncestorIndex ancestorIndex = wordnetData.getAncestorIndex();
+        final SynsetGraph graph = ancestorIndex.getGraph();
+        final int measure = getSynsetMeasure(method, averageDepth);
+        final int source = graph.getOrdinal(synsetId);
+        final int nThreads = Math.max(threads, 1);
+        TopSimilarityPairs top = new TopSimilarityPairs(k);
+        if (source<0 || measure<0) {
+            return top.toList();
+        }
+        if (nThreads==1) {
+            top = scoreSynsets(hyperPathIndex, ancestorIndex, subsumersFrequencies, measure, averageDepth, source, pos, k,
+                    0, 1);
+        }
+        else {
+            ArrayList<Future<TopSimilarityPairs>> results = new ArrayList<Future<TopSimilarityPairs>>(nThreads);
+            try {
+                ExecutorService executor = getScoringExecutor(nThreads);
+                for (int t = 0; t < nThreads; t++) {
+                    final int first = t;
+                    results.add(executor.submit(new Callable<TopSimilarityPairs>() {
+                        public TopSimilarityPairs call() {
+                            return scoreSynsets(hyperPathIndex, ancestorIndex, subsumersFrequencies, measure, averageDepth,
+                                    source, pos, k, first, nThreads);
+                        }
+                    }));
+                }
+                for (int i = 0; i < results.size(); i++) {
+                    try {
+                        top.addAll(results.get(i).get());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Scoring the synsets was interrupted");
+                    } catch (ExecutionException e) {
+                        /// a partial top k is not the reference result, the failure of a thread is the failure of the query
+                        if (e.getCause() instanceof RuntimeException) {
+                            throw (RuntimeException) e.getCause();
+                        }
+                        if (e.getCause() instanceof Error) {
+                            throw (Error) e.getCause();
+                        }
+                        throw new IllegalStateException("Scoring the synsets failed: "+e.getCause(), e.getCause());
+                    }
+                }
+            } finally {
+                /// the pool is shared, so only the tasks of this query are stopped
+                for (int i = 0; i < results.size(); i++) {
+                    results.get(i).cancel(true);
                 }
             }
         }
-        return similarityPair;
+        return toSimilarityPairs(wordnetData, subsumersFrequencies, method, averageDepth, synsetId, top);
+    }
+
+    /**
+     * Scores the synsets first, first+step, first+2*step, ... against the source
+     * @return the k best of these synsets
+     */
+    static private TopSimilarityPairs scoreSynsets (HyperPathIndex hyperPathIndex, AncestorIndex ancestorIndex,
+                                                    SubsumersFrequencies subsumersFrequencies, int measure,
+                                                    int averageDepth, int source, String pos, int k,
+                                                    int first, int step) {
+        SynsetGraph graph = ancestorIndex.getGraph();
+        TopSimilarityPairs top = new TopSimilarityPairs(k);
+        int [] best = new int[3];
+        for (int i = first; i < graph.size(); i += step) {
+            if (i!=source && (pos.isEmpty() || graph.getId(i).endsWith(pos))
+                    && ancestorIndex.getPathLength(source, i)>-1) {
+                double score = scoreOrdinalPair(hyperPathIndex, ancestorIndex, subsumersFrequencies,
+                        measure, averageDepth, source, i, best);
+                offerOrdinalPair(top, graph, source, i, score, best[2]);
+            }
+        }
+        return top;
+    }
+
+    static private ThreadPoolExecutor scoringExecutor = null;
+
+    /**
+     * The pool of exhaustiveMostSimilar. It is made on first use with daemon threads that stop when they are idle, so it
+     * does not keep the JVM alive, and it grows when a query asks for more threads.
+     * @param threads
+     * @return ExecutorService with at least this number of threads
+     */
+    static synchronized private ExecutorService getScoringExecutor (int threads) {
+        if (scoringExecutor==null) {
+            scoringExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "wordnet-similarity-scoring");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            scoringExecutor.allowCoreThreadTimeOut(true);
+        }
+        else if (scoringExecutor.getMaximumPoolSize()<threads) {
+            scoringExecutor.setMaximumPoolSize(threads);
+            scoringExecutor.setCorePoolSize(threads);
+        }
+        return scoringExecutor;
     }
 
+    /**
+     * @param method
+     * @param averageDepth
+     * @return the measure of SimilarityPairCache that synsetSimilarity uses for a pair of synsets, -1 if the method is
+     * not known
+     */
+    static int getSynsetMeasure (String method, int averageDepth) {
+        int measure = getWordMeasure(method, averageDepth);
+        if (measure==SimilarityPairCache.LEACOCK_CHODOROW_WORDS) {
+            measure = SimilarityPairCache.LEACOCK_CHODOROW_SYNSETS;
+        }
+        return measure;
+    }
+
+    /**
+     * Offers a pair that was scored on ordinals, without making a SimilarityPair if it cannot be kept
+     * @param match ordinal of the match, -1 if the pair has no match
+     */
+    static private void offerOrdinalPair (TopSimilarityPairs top, SynsetGraph graph, int source, int target,
+                                          double score, int match) {
+        if (match<0 || !top.accepts(score)) {
+            return;
+        }
+        SimilarityPair similarityPair = new SimilarityPair();
+        similarityPair.setSourceId(graph.getId(source));
+        similarityPair.setTargetId(graph.getId(target));
+        similarityPair.setMatch(graph.getId(match));
+        similarityPair.setScore(score);
+        top.offer(similarityPair);
+    }
+
+    /**
+     * Makes the kept pairs again with synsetSimilarity, to give them the trees of the synset functions
+     */
+    static private ArrayList<SimilarityPair> toSimilarityPairs (WordnetData wordnetData,
+                                                                SubsumersFrequencies subsumersFrequencies,
+                                                                String method, int averageDepth,
+                                                                String synsetId, TopSimilarityPairs top) {
+        ArrayList<SimilarityPair> similarityPairs = top.toList();
+        for (int i = 0; i < similarityPairs.size(); i++) {
+            similarityPairs.set(i, synsetSimilarity(wordnetData, subsumersFrequencies, method, averageDepth,
+                    synsetId, similarityPairs.get(i).getTargetId()));
+        }
+        Collections.sort(similarityPairs, BEST_FIRST);
+        return similarityPairs;
+    }
+
+    /**
+     * Walks down from the subsumers of the synset, starting each subsumer at its distance to the synset,
+     * so that every synset is reached first at the length of its shortest path to the synset
+     */
+    static ArrayList<SimilarityPair> closureMostSimilar (WordnetData wordnetData, String method, int averageDepth,
+                                                         String synsetId, String pos, int k) {
+        ArrayList<SimilarityPair> similarityPairs = new ArrayList<SimilarityPair>();
+        AncestorIndex ancestorIndex = wordnetData.getAncestorIndex();
+        SynsetGraph graph = ancestorIndex.getGraph();
+        int source = graph.getOrdinal(synsetId);
+        if (source<0 || k<1) {
+            return similarityPairs;
+        }
+        int [] ancestors = ancestorIndex.getAncestors(source);
+        int [] distances = ancestorIndex.getAncestorDistances(source);
+        int maxDistance = 0;
+        for (int i = 0; i < distances.length; i++) {
+            maxDistance = Math.max(maxDistance, distances[i]);
+        }
+        boolean [] seen = new boolean[graph.size()];
+        ArrayList<Integer> found = new ArrayList<Integer>();
+        int [] level = new int[16];
+        int levelSize = 0;
+        for (int length = 0; (levelSize>0 || length<=maxDistance) && found.size()<k; length++) {
+            for (int i = 0; i < ancestors.length; i++) {
+                if (distances[i]==length && !seen[ancestors[i]]) {
+                    seen[ancestors[i]] = true;
+                    if (levelSize==level.length) {
+                        level = Arrays.copyOf(level, levelSize*2);
+                    }
+                    level[levelSize++] = ancestors[i];
+                }
+            }
+            /// all synsets of this level have the same score, so they are added in id order
+            Arrays.sort(level, 0, levelSize);
+            int [] next = new int[Math.max(16, levelSize)];
+            int nextSize = 0;
+            for (int i = 0; i < levelSize; i++) {
+                int node = level[i];
+                if (node!=source && (pos.isEmpty() || graph.getId(node).endsWith(pos))) {
+                    found.add(node);
+                }
+                for (int j = graph.getChildStart(node); j < graph.getChildEnd(node); j++) {
+                    int child = graph.getChildTarget(j);
+                    if (!seen[child]) {
+                        seen[child] = true;
+                        if (nextSize==next.length) {
+                            next = Arrays.copyOf(next, nextSize*2);
+                        }
+                        next[nextSize++] = child;
+                    }
+                }
+            }
+            level = next;
+            levelSize = nextSize;
+        }
+        for (int i = 0; i < found.size() && i < k; i++) {
+            similarityPairs.add(synsetSimilarity(wordnetData, null, method, averageDepth, synsetId, graph.getId(found.get(i))));
+        }
+        /// the chain based fallback for circular hypernyms can give a different score than the path length
+        Collections.sort(similarityPairs, BEST_FIRST);
+        return similarityPairs;
+    }
+
+    /**
+     * Scores the synsets below the subsumers of the synset, from the subsumer with the highest bound down
+     */
+    static ArrayList<SimilarityPair> boundedMostSimilar (WordnetData wordnetData, SubsumersFrequencies subsumersFrequencies,
+                                                         String method, int averageDepth,
+                                                         String synsetId, String pos, int k) {
+        TopSimilarityPairs top = new TopSimilarityPairs(k);
+        HyperPathIndex hyperPathIndex = wordnetData.getHyperPathIndex();
+        AncestorIndex ancestorIndex = wordnetData.getAncestorIndex();
+        DepthTable depthTable = wordnetData.getDepthTable();
+        final SynsetGraph graph = ancestorIndex.getGraph();
+        int measure = getSynsetMeasure(method, averageDepth);
+        int source = graph.getOrdinal(synsetId);
+        if (source<0 || measure<0 || k<1) {
+            return top.toList();
+        }
+        int [] ancestors = ancestorIndex.getAncestors(source);
+        int [] distances = ancestorIndex.getAncestorDistances(source);
+        final double [] bounds = new double[ancestors.length];
+        ArrayList<Integer> order = new ArrayList<Integer>();
+        for (int i = 0; i < ancestors.length; i++) {
+            bounds[i] = getSubsumerBound(depthTable, subsumersFrequencies, measure, source, ancestors[i], distances[i]);
+            /// subsumers without a frequency do not give a resnik score
+            if (!Double.isNaN(bounds[i])) {
+                order.add(i);
+            }
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            public int compare(Integer i1, Integer i2) {
+                return Double.compare(bounds[i2], bounds[i1]);
+            }
+        });
+        boolean [] seen = new boolean[graph.size()];
+        int [] stack = new int[16];
+        int [] best = new int[3];
+        for (int i = 0; i < order.size(); i++) {
+            int ancestor = ancestors[order.get(i)];
+            /// synsets that were not seen below a subsumer with a higher bound can not score higher than this bound
+            if (top.isFull() && bounds[order.get(i)]<top.getLowestScore()) {
+                break;
+            }
+            if (seen[ancestor]) {
+                continue;
+            }
+            seen[ancestor] = true;
+            int stackTop = 0;
+            stack[0] = ancestor;
+            while (stackTop>=0) {
+                int node = stack[stackTop--];
+                if (node!=source && (pos.isEmpty() || graph.getId(node).endsWith(pos))) {
+                    double score = scoreOrdinalPair(hyperPathIndex, ancestorIndex, subsumersFrequencies, measure,
+                            averageDepth, source, node, best);
+                    offerOrdinalPair(top, graph, source, node, score, best[2]);
+                }
+                for (int j = graph.getChildStart(node); j < graph.getChildEnd(node); j++) {
+                    int child = graph.getChildTarget(j);
+                    if (!seen[child]) {
+                        seen[child] = true;
+                        stackTop++;
+                        if (stackTop==stack.length) {
+                            stack = Arrays.copyOf(stack, stackTop*2);
+                        }
+                        stack[stackTop] = child;
+                    }
+                }
+            }
+        }
+        return toSimilarityPairs(wordnetData, subsumersFrequencies, method, averageDepth, synsetId, top);
+    }
+
+    /**
+     * Highest score that a synset can get from a pair of chains with the subsumer as match. The match of a pair of
+     * chains is a common subsumer, so a synset that is not below any of the subsumers with a bound of at least t
+     * scores lower than t. The chains of both synsets continue above the subsumer with at most its maximum depth D,
+     * and the match is at least the distance d of the subsumer, and 1 together, down the chains:
+     * - resnik: the information content of the subsumer, NaN if it has no frequency
+     * - wu-palmer: 2D/(2D+max(d,1))
+     * - leacock-chodorow with the depth of the chains: -log((1+max(d,1))/(2+2D+max(d,1)))
+     * - lin: 2ic/(ic1+ic), jiang-conrath: 1/(ic1-ic), with ic the information content of the subsumer and ic1 that of
+     * the synset. These need frequencies that do not increase down the hierarchy, which makes the information content
+     * of the other synset at least ic. Both are infinite if ic equals ic1 (the synonym score of the measures) and 0
+     * if the subsumer has no frequency.
+     * @param depthTable
+     * @param subsumersFrequencies
+     * @param measure
+     * @param source
+     * @param ancestor subsumer of the source
+     * @param distance distance of the subsumer to the source
+     * @return bound on the score
+     */
+    static double getSubsumerBound (DepthTable depthTable, SubsumersFrequencies subsumersFrequencies, int measure,
+                                    int source, int ancestor, int distance) {
+        SynsetGraph graph = depthTable.getGraph();
+        if (measure==SimilarityPairCache.RESNIK) {
+            return subsumersFrequencies.getInformationContent(graph, ancestor);
+        }
+        else if (measure==SimilarityPairCache.LIN || measure==SimilarityPairCache.JIANG_CONRATH) {
+            double ic1 = subsumersFrequencies.getInformationContent(graph, source);
+            double ic = subsumersFrequencies.getInformationContent(graph, ancestor);
+            if (Double.isNaN(ic1) || ic1==0 || Double.isNaN(ic)) {
+                return 0;
+            }
+            if (ic==ic1) {
+                return Double.POSITIVE_INFINITY;
+            }
+            /// the same expressions as the measures with ic for the information content of the other synset
+            if (measure==SimilarityPairCache.LIN) {
+                return (2*ic)/(ic1+ic);
+            }
+            return 1/(ic1+ic-(2*ic));
+        }
+        int depth = 2*depthTable.getMaxDepth(ancestor);
+        int steps = Math.max(distance, 1);
+        if (measure==SimilarityPairCache.WU_PALMER) {
+            return depth/(double) (depth+steps);
+        }
+        return -Math.log((1+steps)/(double) (2+depth+steps));
+    }
+
+    /**
+     * Takes a WordnetData, a word and a measure and returns the k lemmas that are most similar to the word, best first.
+     * The score of a lemma is the best score of a pair of a meaning of the word and a synset of the lemma.
+     * Synonyms of the word get the score of the synset compared to itself. The word itself is left out.
+     * The synsets are found with synsetMostSimilar. If the synsets found for the meanings do not give k lemmas
+     * of which the score is certain, more synsets are asked for.
+     * @param wordnetData
+     * @param subsumersFrequencies only used by resnik, lin and jiang-conrath
+     * @param method
+     * @param averageDepth
+     * @param word
+     * @param pos
+     * @param k
+     * @param threads
+     * @return ArrayList<SimilarWord>
+     */
+    static public ArrayList<SimilarWord> wordMostSimilar (WordnetData wordnetData,
+                                                          SubsumersFrequencies subsumersFrequencies,
+                                                          String method, int averageDepth,
+                                                          String word, String pos, int k, int threads) {
+        ArrayList<SimilarWord> similarWords = new ArrayList<SimilarWord>();
+        ArrayList<String> senses = wordnetData.entryToSynsets.get(word);
+        if (senses==null || k<1) {
+            return similarWords;
+        }
+        int nSynsets = wordnetData.getAncestorIndex().getGraph().size();
+        int kSynsets = k;
+        HashMap<String, SimilarityPair> best = new HashMap<String, SimilarityPair>();
+        while (true) {
+            best.clear();
+            /// lemmas that are not found can not score higher than the lowest score of a full list
+            double threshold = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < senses.size(); i++) {
+                String sense = senses.get(i);
+                ArrayList<SimilarityPair> similarityPairs =
+                        synsetMostSimilar(wordnetData, subsumersFrequencies, method, averageDepth, sense, pos, kSynsets, threads);
+                if (similarityPairs.size()==kSynsets) {
+                    threshold = Math.max(threshold, similarityPairs.get(kSynsets-1).getScore());
+                }
+                if (pos.isEmpty() || sense.endsWith(pos)) {
+                    similarityPairs.add(synsetSimilarity(wordnetData, subsumersFrequencies, method, averageDepth, sense, sense));
+                }
+                for (int j = 0; j < similarityPairs.size(); j++) {
+                    SimilarityPair similarityPair = similarityPairs.get(j);
+                    ArrayList<String> lemmas = wordnetData.synsetToEntries.get(similarityPair.getTargetId());
+                    if (lemmas==null) {
+                        continue;
+                    }
+                    for (int l = 0; l < lemmas.size(); l++) {
+                        String lemma = lemmas.get(l);
+                        if (!lemma.equals(word) && (!best.containsKey(lemma)
+                                || similarityPair.getScore()>best.get(lemma).getScore())) {
+                            best.put(lemma, similarityPair);
+                        }
+                    }
+                }
+            }
+            int nCertain = 0;
+            Set keySet = best.keySet();
+            Iterator<String> keys = keySet.iterator();
+            while (keys.hasNext()) {
+                if (best.get(keys.next()).getScore()>=threshold) {
+                    nCertain++;
+                }
+            }
+            if (nCertain>=k || kSynsets>=nSynsets) {
+                break;
+            }
+            kSynsets = (int) Math.min((long) kSynsets*4, nSynsets);
+        }
+        Set keySet = best.keySet();
+        Iterator<String> keys = keySet.iterator();
+        while (keys.hasNext()) {
+            String lemma = keys.next();
+            similarWords.add(new SimilarWord(lemma, best.get(lemma)));
+        }
+        Collections.sort(similarWords, new Comparator<SimilarWord>() {
+            public int compare(SimilarWord w1, SimilarWord w2) {
+                int c = Double.compare(w2.getScore(), w1.getScore());
+                if (c==0) {
+                    c = w1.getWord().compareTo(w2.getWord());
+                }
+                return c;
+            }
+        });
+        while (similarWords.size()>k) {
+            similarWords.remove(similarWords.size()-1);
+        }
+        return similarWords;
+    }
+
+    /**
+     * The k best similarity pairs offered so far, with the worst of them on top of a heap
+     */
+    static class TopSimilarityPairs {
+        private final int k;
+        private final PriorityQueue<SimilarityPair> heap;
+
+        TopSimilarityPairs (int k) {
+            this.k = k;
+            this.heap = new PriorityQueue<SimilarityPair>(Math.max(k, 1)+1, Collections.reverseOrder(BEST_FIRST));
+        }
+
+        /**
+         * Pairs without a common subsumer or without a finite score are not kept
+         * @param similarityPair
+         */
+        void offer (SimilarityPair similarityPair) {
+            double score = similarityPair.getScore();
+            if (k<1 || similarityPair.getMatch().isEmpty() || score<=-1 || Double.isNaN(score) || Double.isInfinite(score)) {
+                return;
+            }
+            heap.add(similarityPair);
+            if (heap.size()>k) {
+                heap.poll();
+            }
+        }
+
+        void addAll (TopSimilarityPairs other) {
+            Iterator<SimilarityPair> pairs = other.heap.iterator();
+            while (pairs.hasNext()) {
+                offer(pairs.next());
+            }
+        }
+
+        boolean isFull () {
+            return heap.size()>=k;
+        }
+
+        /**
+         * @param score
+         * @return false if a pair with this score would not be kept
+         */
+        boolean accepts (double score) {
+            return k>0 && (!isFull() || score>=getLowestScore());
+        }
+
+        double getLowestScore () {
+            return heap.peek().getScore();
+        }
+
+        ArrayList<SimilarityPair> toList () {
+            ArrayList<SimilarityPair> similarityPairs = new ArrayList<SimilarityPair>(heap);
+            Collections.sort(similarityPairs, BEST_FIRST);
+            return similarityPairs;
+        }
+    }
+
+    /**
+     * @param subsumersFrequencies
+     * @param synsetId
+     * @return information content of the synset, 0 if there is no frequency for it
+     */
+    static double getInformationContent (SubsumersFrequencies subsumersFrequencies, String synsetId) {
+        double ic = subsumersFrequencies.getInformationContent(synsetId);
+        if (Double.isNaN(ic)) {
+            ic = 0;
+        }
+        return ic;
+    }
 
 }
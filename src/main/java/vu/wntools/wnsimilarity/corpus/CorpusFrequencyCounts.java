@@ -0,0 +1,242 @@
+package vu.wntools.wnsimilarity.corpus;
+
+import vu.wntools.wordnet.HyperPath;
+import vu.wntools.wordnet.HyperPathIndex;
+import vu.wntools.wordnet.HyperPathVisitor;
+import vu.wntools.wordnet.SynsetGraph;
+import vu.wntools.wordnet.WordnetData;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cumulative corpus frequencies of the subsumers of a wordnet, counted by synset ordinal.
+ *
+ * A lemma frequency is added to every element of every hypernym chain of every synset of the lemma,
+ * and once more to the synset itself, as CumulateCorpusFrequency always did. The subsumers of a synset are
+ * collected once from its shared hypernym chains and kept as a profile of ordinals and the number of times each
+ * ordinal is counted, so that the chains are not rebuilt for every lemma.
+ *
+ * The counts are sums, so counts of different parts of a corpus can be added up with add or read from
+ * subsumer frequency files written by write. Counts created with newPartial share the profiles and can be filled
+ * on different threads.
+ */
+public class CorpusFrequencyCounts {
+
+    public long nWords;
+    private final WordnetData wordnetData;
+    private final HyperPathIndex hyperPathIndex;
+    private final SynsetGraph graph;
+    private final AtomicReferenceArray<int[]> profiles;
+    private final long [] counts;
+    private final boolean [] subsumers;
+    /// subsumers read from a file that are not in this wordnet, kept so that merging does not lose them
+    private final HashMap<String, Long> unknown;
+
+    public CorpusFrequencyCounts (WordnetData wordnetData) {
+        this(wordnetData, wordnetData.getHyperPathIndex(),
+                new AtomicReferenceArray<int[]>(wordnetData.getHyperPathIndex().getGraph().size()));
+    }
+
+    private CorpusFrequencyCounts (WordnetData wordnetData, HyperPathIndex hyperPathIndex, AtomicReferenceArray<int[]> profiles) {
+        this.nWords = 0;
+        this.wordnetData = wordnetData;
+        this.hyperPathIndex = hyperPathIndex;
+        this.graph = hyperPathIndex.getGraph();
+        this.profiles = profiles;
+        this.counts = new long[graph.size()];
+        this.subsumers = new boolean[graph.size()];
+        this.unknown = new HashMap<String, Long>();
+    }
+
+    /**
+     * @return empty counts for the same wordnet that share the subsumer profiles with these counts
+     */
+    public CorpusFrequencyCounts newPartial () {
+        return new CorpusFrequencyCounts(wordnetData, hyperPathIndex, profiles);
+    }
+
+    /**
+     * Reads a line of a corpus frequency file. Lines with too few fields are skipped, lines with a lemma
+     * that is not in the wordnet are counted in nWords only.
+     * @param inputLine e.g. maken/verb/949996
+     * @param separator
+     * @param lemmaField
+     * @param posField
+     * @param freqField
+     */
+    public void addLine (String inputLine, String separator, int lemmaField, int posField, int freqField) {
+        String [] fields = inputLine.split(separator);
+        if ((fields.length>lemmaField) && (fields.length>freqField) && (fields.length>posField)){
+            nWords++;
+            String lemma = fields[lemmaField].trim();
+            String freqString = fields[freqField].trim();
+            try {
+                addLemma(lemma, Long.parseLong(freqString));
+            } catch (NumberFormatException e) {
+                e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+            }
+        }
+    }
+
+    public void addLemma (String lemma, long freq) {
+        ArrayList<String> synsets = wordnetData.entryToSynsets.get(lemma);
+        if (synsets!=null) {
+            for (int i = 0; i < synsets.size(); i++) {
+                int ordinal = graph.getOrdinal(synsets.get(i));
+                if (ordinal>-1) {
+                    int [] profile = getProfile(ordinal);
+                    int n = profile.length/2;
+                    for (int j = 0; j < n; j++) {
+                        int subsumer = profile[j];
+                        counts[subsumer] += freq*profile[n+j];
+                        subsumers[subsumer] = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Subsumers of the synset with the number of times the synset frequency is added to them:
+     * the first half of the array holds the ordinals, the second half the multiplicities.
+     * @param ordinal
+     * @return profile
+     */
+    int [] getProfile (int ordinal) {
+        int [] profile = profiles.get(ordinal);
+        if (profile==null) {
+            final HashMap<Integer, Integer> multiplicities = new HashMap<Integer, Integer>();
+            final ArrayList<Integer> order = new ArrayList<Integer>();
+            /// the synset itself is counted once more on top of its own chains
+            order.add(ordinal);
+            multiplicities.put(ordinal, 1);
+            hyperPathIndex.visit(ordinal, new HyperPathVisitor() {
+                public boolean visit(HyperPath path) {
+                    for (HyperPath hyperPath = path; hyperPath!=null; hyperPath = hyperPath.getNext()) {
+                        int hyper = hyperPath.getOrdinal();
+                        Integer cnt = multiplicities.get(hyper);
+                        if (cnt==null) {
+                            order.add(hyper);
+                            multiplicities.put(hyper, 1);
+                        }
+                        else {
+                            multiplicities.put(hyper, cnt+1);
+                        }
+                    }
+                    return true;
+                }
+            });
+            profile = new int[order.size()*2];
+            for (int j = 0; j < order.size(); j++) {
+                profile[j] = order.get(j);
+                profile[order.size()+j] = multiplicities.get(order.get(j));
+            }
+            profiles.set(ordinal, profile);
+        }
+        return profile;
+    }
+
+    /**
+     * Adds the counts of another part of the corpus
+     * @param other counts for the same wordnet
+     */
+    public void add (CorpusFrequencyCounts other) {
+        nWords += other.nWords;
+        if (other.graph==graph) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+                subsumers[i] |= other.subsumers[i];
+            }
+        }
+        else {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.subsumers[i]) {
+                    add(other.graph.getId(i), other.counts[i]);
+                }
+            }
+        }
+        Set keySet = other.unknown.keySet();
+        Iterator<String> keys = keySet.iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            add(key, other.unknown.get(key));
+        }
+    }
+
+    private void add (String synsetId, long cnt) {
+        int ordinal = graph.getOrdinal(synsetId);
+        if (ordinal>-1) {
+            counts[ordinal] += cnt;
+            subsumers[ordinal] = true;
+        }
+        else if (unknown.containsKey(synsetId)) {
+            unknown.put(synsetId, unknown.get(synsetId)+cnt);
+        }
+        else {
+            unknown.put(synsetId, cnt);
+        }
+    }
+
+    /**
+     * Adds the counts of a subsumer frequency file, e.g. the result of an earlier run on another part of the corpus
+     * @param pathToSubsumersFrequenciesFile
+     * @return number of subsumers read, -1 if the file cannot be read
+     */
+    public int readSubsumerFrequencies (String pathToSubsumersFrequenciesFile) {
+        SubsumersFrequencies subsumersFrequencies = new SubsumersFrequencies();
+        int n = subsumersFrequencies.readSubsumerFrequenciesFromFile(pathToSubsumersFrequenciesFile);
+        if (n>-1) {
+            nWords += subsumersFrequencies.nWords;
+            Set keySet = subsumersFrequencies.data.keySet();
+            Iterator<String> keys = keySet.iterator();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                add(key, subsumersFrequencies.data.get(key));
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @param synsetId
+     * @return cumulative frequency of the subsumer, -1 if it was not counted
+     */
+    public long getCount (String synsetId) {
+        int ordinal = graph.getOrdinal(synsetId);
+        if (ordinal>-1 && subsumers[ordinal]) {
+            return counts[ordinal];
+        }
+        else if (unknown.containsKey(synsetId)) {
+            return unknown.get(synsetId);
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the counts in the format read by SubsumersFrequencies: nwords:N followed by synset-id/frequency lines
+     * @param fos
+     * @throws IOException
+     */
+    public void write (OutputStream fos) throws IOException {
+        String str = "nwords:"+nWords+"\n";
+        fos.write(str.getBytes());
+        for (int i = 0; i < counts.length; i++) {
+            if (subsumers[i]) {
+                str = graph.getId(i)+"/"+counts[i]+"\n";
+                fos.write(str.getBytes());
+            }
+        }
+        Set keySet = unknown.keySet();
+        Iterator<String> keys = keySet.iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            str = key+"/"+unknown.get(key)+"\n";
+            fos.write(str.getBytes());
+        }
+    }
+}
@@ -7,9 +7,7 @@ import vu.wntools.wordnet.WordnetLmfSaxParser;
 
 import java.io.*;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.concurrent.*;
 
 /**
  * Created with IntelliJ IDEA.
@@ -23,6 +21,9 @@ import java.util.Set;
  * We read a lemma + freq
  * We build up the list of hyper trees for each lemma, we store each hyper in a hashmap and increment the frequency with the frequency of the word
  * We save the hyper-frequency hashmap to be used to calculate the distances
+ *
+ * The corpus can be split over several files that are read in a single pass by a pool of threads, see cumulate.
+ * Results of earlier runs on other parts of the corpus can be added with --subsumers.
  */
 public class CumulateCorpusFrequency {
 
@@ -54,7 +55,11 @@ doen/verb/795530,00
                                 "--separator            <character that is used to separate the fields in the corpus-freq file, e.g. \",\"\n"+
                                 "--lemma-field          <nth position in corpus-freq file where the lemma can be found, counting from 0 to length-1\n, e.g. 0\n"+
                                 "--pos-field          <nth position in corpus-freq file where the lemma can be found, counting from 0 to length-1\n, e.g. 1\n"+
-                                "--freq-field          <nth position in corpus-freq file where the frequency can be found, counting from 0 to length-1\n, e.g. 2\n";
+                                "--freq-field          <nth position in corpus-freq file where the frequency can be found, counting from 0 to length-1\n, e.g. 2\n"+
+                                "--corpus-freq and --subsumers can be repeated to process a corpus that is split over several files\n"+
+                                "--subsumers            <path to subsumer frequency file of another part of the corpus, which is added to the result\n"+
+                                "--threads              <number of threads used to count the corpus files, default 1\n"+
+                                "--output               <path to the result file, default is the first corpus-freq file with the extension .cum\n";
     /**
      *
      * @param args
@@ -63,12 +68,14 @@ doen/verb/795530,00
         boolean parametersOK = true;
         WordnetData wordnetData = new WordnetData();
         String pathToWordnetFile = "";
-        String pathToCorpusFrequencyFile = "";
+        ArrayList<String> pathToCorpusFrequencyFiles = new ArrayList<String>();
+        ArrayList<String> pathToSubsumerFrequencyFiles = new ArrayList<String>();
+        String pathToOutputFile = "";
+        int threads = 1;
         String separator = "/";
         int lemmaField = -1;
         int posField = -1;
         int freqField = -1;
-        long nWords= 0;
         for (int i = 0; i < args.length; i++) {
             String arg = args[i];
             //System.out.println("arg = " + arg);
@@ -91,7 +98,20 @@ doen/verb/795530,00
                 wordnetData = parser.wordnetData;
             }
             else if ((arg.equalsIgnoreCase("--corpus-freq")) && args.length>i) {
-                pathToCorpusFrequencyFile = args[i+1];
+                pathToCorpusFrequencyFiles.add(args[i+1]);
+            }
+            else if ((arg.equalsIgnoreCase("--subsumers")) && args.length>i) {
+                pathToSubsumerFrequencyFiles.add(args[i+1]);
+            }
+            else if ((arg.equalsIgnoreCase("--output")) && args.length>i) {
+                pathToOutputFile = args[i+1];
+            }
+            else if ((arg.equalsIgnoreCase("--threads")) && args.length>i) {
+                try {
+                    threads = Integer.parseInt(args[i+1]);
+                } catch (NumberFormatException e) {
+                    e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+                }
             }
             else if ((arg.equalsIgnoreCase("--separator")) && args.length>i) {
                 separator = args[i+1];
@@ -125,142 +145,150 @@ doen/verb/795530,00
                     "--gwg-file: path to Global Wordnet Grid file");
             parametersOK = false;
         }
-        if (pathToCorpusFrequencyFile.isEmpty()) {
+        if (pathToCorpusFrequencyFiles.isEmpty() && pathToSubsumerFrequencyFiles.isEmpty()) {
             System.out.println("Missing parameter --corpus-freq: path to file with corpus frequencies");
             parametersOK = false;
         }
-        if (lemmaField<0) {
+        if (lemmaField<0 && !pathToCorpusFrequencyFiles.isEmpty()) {
             System.out.println("You need to provide integer for lemma field");
             parametersOK = false;
         }
-        if (freqField<0) {
+        if (freqField<0 && !pathToCorpusFrequencyFiles.isEmpty()) {
             System.out.println("You need to provide integer for lemma field");
             parametersOK = false;
         }
+        if (threads<1) {
+            System.out.println("The number of threads should be at least 1");
+            parametersOK = false;
+        }
+        if (pathToOutputFile.isEmpty()) {
+            if (!pathToCorpusFrequencyFiles.isEmpty()) {
+                pathToOutputFile = pathToCorpusFrequencyFiles.get(0)+".cum";
+            }
+            else {
+                pathToOutputFile = pathToSubsumerFrequencyFiles.get(0)+".cum";
+            }
+        }
         if (!parametersOK) {
             System.out.println(usage);
             return;
         }
         else {
             try {
-                HashMap<String, Long> hyperFrequencies = new HashMap<String, Long>();
-                System.out.println("pathToCorpusFrequencyFile = " + pathToCorpusFrequencyFile);
+                System.out.println("pathToCorpusFrequencyFiles = " + pathToCorpusFrequencyFiles.toString());
+                System.out.println("pathToSubsumerFrequencyFiles = " + pathToSubsumerFrequencyFiles.toString());
                 System.out.println("pathToWordnetFile = " + pathToWordnetFile);
                 System.out.println("separator = " + separator);
                 System.out.println("lemmaField = " + lemmaField);
                 System.out.println("posField = " + posField);
                 System.out.println("freqField = " + freqField);
-                FileOutputStream fos = new FileOutputStream(pathToCorpusFrequencyFile+".cum");
-                FileInputStream fis = new FileInputStream(pathToCorpusFrequencyFile);
-                InputStreamReader isr = new InputStreamReader(fis);
-                BufferedReader in = new BufferedReader(isr);
-                String inputLine;
-                while (in.ready()&&(inputLine = in.readLine()) != null) {
-                    /*
-                    maken/verb/949996,00
-                    willen/verb/945113,00
-                    zeggen/verb/893042,00
-                     */
-                    String [] fields = inputLine.split(separator);
-                    if ((fields.length>lemmaField) && (fields.length>freqField) && (fields.length>posField)){
-                        nWords++;
-                        String lemma = "";
-                        String pos = "";
-                        String freqString = "";
-                        lemma = fields[lemmaField].trim();
-                        if (posField>-1) pos = fields[posField].trim();
-                        freqString = fields[freqField].trim();
-                        Long freq = null;
-                        try {
-                            freq = Long.parseLong(freqString);
-                        } catch (NumberFormatException e) {
-                            e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
-                        }
-/*
-                        System.out.println("freqString = " + freqString);
-                        System.out.println("freq = " + freq);
-*/
-                        if (wordnetData.entryToSynsets.containsKey(lemma)) {
-                            ArrayList<String> synsets = wordnetData.entryToSynsets.get(lemma);
-                            for (int i = 0; i < synsets.size(); i++) {
-                                String synsetId = synsets.get(i);
-                                ArrayList<ArrayList<String>> hyperChains = new ArrayList<ArrayList<String>>();
-                                wordnetData.getMultipleHyperChain(synsetId, hyperChains);
-                                for (int j = 0; j < hyperChains.size(); j++) {
-                                    ArrayList<String> hypers = hyperChains.get(j);
-                                    for (int k = 0; k < hypers.size(); k++) {
-                                        String hyper = hypers.get(k);
-                                        if (hyperFrequencies.containsKey(hyper)) {
-                                            Long cnt = hyperFrequencies.get(hyper);
-                                            cnt+= freq;
-                                            hyperFrequencies.put(hyper, cnt);
-                                        }
-                                        else {
-                                            hyperFrequencies.put(hyper, freq);
-                                        }
-                                    }
-                                }
+                System.out.println("threads = " + threads);
+                System.out.println("pathToOutputFile = " + pathToOutputFile);
+                long start = System.currentTimeMillis();
+                CorpusFrequencyCounts corpusFrequencyCounts = new CorpusFrequencyCounts(wordnetData);
+                cumulate(corpusFrequencyCounts, pathToCorpusFrequencyFiles, separator, lemmaField, posField, freqField, threads);
+                for (int i = 0; i < pathToSubsumerFrequencyFiles.size(); i++) {
+                    corpusFrequencyCounts.readSubsumerFrequencies(pathToSubsumerFrequencyFiles.get(i));
+                }
+                OutputStream fos = new BufferedOutputStream(new FileOutputStream(pathToOutputFile));
+                corpusFrequencyCounts.write(fos);
+                fos.close();
+                System.out.println("Cumulated "+corpusFrequencyCounts.nWords+" lemmas in "+(System.currentTimeMillis()-start)+" ms");
+            } catch (IOException e) {
+                e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+            }
+        }
+    }
+
+    /**
+     * Counts the corpus frequency files in a single pass. The lines are read in blocks that are counted
+     * by a pool of threads, each thread in its own partial counts. The partial counts are added to the result at the end.
+     * @param corpusFrequencyCounts result
+     * @param pathToCorpusFrequencyFiles
+     * @param separator
+     * @param lemmaField
+     * @param posField
+     * @param freqField
+     * @param threads number of threads, 1 if it is less
+     * @throws IOException if a file cannot be read or a thread fails to count its lines, the counts are then incomplete
+     */
+    static public void cumulate (CorpusFrequencyCounts corpusFrequencyCounts, ArrayList<String> pathToCorpusFrequencyFiles,
+                                 final String separator, final int lemmaField, final int posField, final int freqField,
+                                 int threads) throws IOException {
+        threads = Math.max(1, threads);
+        final ArrayList<String> endOfInput = new ArrayList<String>();
+        final BlockingQueue<ArrayList<String>> blocks = new ArrayBlockingQueue<ArrayList<String>>(threads*2);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<CorpusFrequencyCounts>> partials = new ArrayList<Future<CorpusFrequencyCounts>>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                final CorpusFrequencyCounts partial = corpusFrequencyCounts.newPartial();
+                partials.add(executor.submit(new Callable<CorpusFrequencyCounts>() {
+                    public CorpusFrequencyCounts call() throws InterruptedException {
+                        ArrayList<String> block;
+                        while ((block = blocks.take())!=endOfInput) {
+                            for (int j = 0; j < block.size(); j++) {
+                                partial.addLine(block.get(j), separator, lemmaField, posField, freqField);
                             }
                         }
+                        return partial;
                     }
-                }
-                String str = "nwords:"+nWords+"\n";
-                fos.write(str.getBytes());
-                fis.close();
-                fis = new FileInputStream(pathToCorpusFrequencyFile);
-                isr = new InputStreamReader(fis);
-                in = new BufferedReader(isr);
-                inputLine = "";
-                while (in.ready()&&(inputLine = in.readLine()) != null) {
-                    /*
-                    maken/verb/949996,00
-                    willen/verb/945113,00
-                    zeggen/verb/893042,00
-                     */
-                    String [] fields = inputLine.split(separator);
-                    if ((fields.length>lemmaField) && (fields.length>freqField) && (fields.length>posField)){
-                        String lemma = "";
-                        String pos = "";
-                        String freqString = "";
-                        lemma = fields[lemmaField].trim();
-                        if (posField>-1) pos = fields[posField].trim();
-                        freqString = fields[freqField].trim();
-                        Long freq = null;
-                        try {
-                            freq = Long.parseLong(freqString);
-                        } catch (NumberFormatException e) {
-                            e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
-                        }
-/*
-                        System.out.println("freqString = " + freqString);
-                        System.out.println("freq = " + freq);
-*/
-                        if (wordnetData.entryToSynsets.containsKey(lemma)) {
-                            ArrayList<String> synsets = wordnetData.entryToSynsets.get(lemma);
-                            for (int i = 0; i < synsets.size(); i++) {
-                                String synsetId = synsets.get(i);
-                                if (hyperFrequencies.containsKey(synsetId)) {
-                                    Long cnt = hyperFrequencies.get(synsetId);
-                                    cnt+= freq;
-                                    hyperFrequencies.put(synsetId, cnt);
-                                }
-                            }
+                }));
+            }
+            for (int i = 0; i < pathToCorpusFrequencyFiles.size(); i++) {
+                FileInputStream fis = new FileInputStream(pathToCorpusFrequencyFiles.get(i));
+                try {
+                    InputStreamReader isr = new InputStreamReader(fis);
+                    BufferedReader in = new BufferedReader(isr);
+                    String inputLine;
+                    ArrayList<String> block = new ArrayList<String>(10000);
+                    while (in.ready()&&(inputLine = in.readLine()) != null) {
+                        block.add(inputLine);
+                        if (block.size()==10000) {
+                            put(blocks, block, partials);
+                            block = new ArrayList<String>(10000);
                         }
                     }
+                    put(blocks, block, partials);
+                } finally {
+                    fis.close();
                 }
-                fis.close();
-                Set keySet = hyperFrequencies.keySet();
-                Iterator keys = keySet.iterator();
-                while (keys.hasNext()) {
-                    String key = (String) keys.next();
-                    Long cnt = hyperFrequencies.get(key) ;
-                    str = key+"/"+cnt+"\n";
-                    fos.write(str.getBytes());
-                }
-                fos.close();
-            } catch (IOException e) {
-                e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
             }
+            for (int i = 0; i < threads; i++) {
+                put(blocks, endOfInput, partials);
+            }
+            for (int i = 0; i < partials.size(); i++) {
+                corpusFrequencyCounts.add(partials.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Counting the corpus frequencies was interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Counting the corpus frequencies failed: "+e.getCause(), e.getCause());
+        } finally {
+            /// also stops the threads that wait for input when reading the files failed
+            executor.shutdownNow();
         }
     }
+
+    /**
+     * Puts the block in the queue, waiting while it is full for as long as no counting thread has failed, so that
+     * reading stops when the threads that would take the blocks are gone
+     * @param blocks
+     * @param block
+     * @param partials
+     * @throws InterruptedException
+     * @throws ExecutionException the failure of a counting thread
+     */
+    private static void put (BlockingQueue<ArrayList<String>> blocks, ArrayList<String> block,
+                             ArrayList<Future<CorpusFrequencyCounts>> partials) throws InterruptedException, ExecutionException {
+        do {
+            for (int i = 0; i < partials.size(); i++) {
+                if (partials.get(i).isDone()) {
+                    /// throws if the thread failed, a thread that took the end of the input returns its counts
+                    partials.get(i).get();
+                }
+            }
+        } while (!blocks.offer(block, 100, TimeUnit.MILLISECONDS));
+    }
 }
@@ -1,6 +1,10 @@
 package vu.wntools.wnsimilarity.corpus;
 
+import vu.wntools.wordnet.SynsetGraph;
+import vu.wntools.wordnet.WordnetData;
+
 import java.io.*;
+import java.util.Arrays;
 import java.util.HashMap;
 
 /**
@@ -19,6 +23,10 @@ import java.util.HashMap;
     d_n-37213/376
 
  For Dutch such a file is created using the function CumulateCorpusFrequencyUsingCdbSynsets
+
+ After reading, resolveInformationContent can map the frequencies once onto the synset ordinals of a wordnet. The
+ information content -log(freq/maxFreq) is then stored in a dense array and the measures no longer look up and
+ convert the frequencies for every call.
  */
 
 public class SubsumersFrequencies {
@@ -26,11 +34,164 @@ public class SubsumersFrequencies {
     public HashMap<String, Long> data;
     public long nWords;
     public long maxFreq;
+    public SynsetGraph synsetGraph;
+    /** information content by synset ordinal of synsetGraph, NaN if there is no frequency for the synset */
+    public double [] informationContent;
+    /** freq/maxFreq by synset ordinal of synsetGraph, -1 if there is no frequency for the synset */
+    public double [] probabilities;
+    /** highest finite information content, can be used to normalize the IC based scores */
+    public double maxInformationContent;
+    /** graph of the last isMonotone check and its result */
+    private SynsetGraph monotoneGraph;
+    private boolean monotone;
 
     public SubsumersFrequencies() {
         this.data = new HashMap<String, Long>();
         this.nWords = 0;
         this.maxFreq = 0;
+        this.synsetGraph = null;
+        this.informationContent = null;
+        this.probabilities = null;
+        this.maxInformationContent = 0;
+        this.monotoneGraph = null;
+        this.monotone = false;
+    }
+
+    /**
+     * Resolves the frequencies against the synset graph of the wordnet and stores the information content
+     * of each synset in an array indexed by its ordinal. Needs to be called again if the frequencies are read again.
+     * @param wordnetData
+     * @return number of synsets in the wordnet that have a frequency
+     */
+    public int resolveInformationContent (WordnetData wordnetData) {
+        SynsetGraph graph = wordnetData.getSynsetGraph();
+        double [] ic = new double[graph.size()];
+        double [] prob = new double[graph.size()];
+        Arrays.fill(ic, Double.NaN);
+        Arrays.fill(prob, -1);
+        double max = 0;
+        int nResolved = 0;
+        for (int i = 0; i < graph.size(); i++) {
+            Long freq = data.get(graph.getId(i));
+            if (freq!=null) {
+                prob[i] = (double) freq/(double) maxFreq;
+                ic[i] = -Math.log(prob[i]);
+                if (ic[i]>max && !Double.isInfinite(ic[i])) {
+                    max = ic[i];
+                }
+                nResolved++;
+            }
+        }
+        this.probabilities = prob;
+        this.informationContent = ic;
+        this.maxInformationContent = max;
+        this.synsetGraph = graph;
+        this.monotoneGraph = null;
+        return nResolved;
+    }
+
+    /**
+     * @param graph
+     * @return true if the information content was resolved against this graph, so that its ordinals can be used
+     */
+    public boolean isResolved (SynsetGraph graph) {
+        return graph!=null && synsetGraph==graph && informationContent!=null;
+    }
+
+    /**
+     * Checks that no synset has a higher information content than one of its hyponyms, as with frequencies that are
+     * cumulated over the hyponyms, and that a synset with a frequency has no hypernym without one. The result is
+     * kept for the last graph.
+     * @param graph
+     * @return true if the information content does not decrease down the hypernym relations of the graph
+     */
+    public synchronized boolean isMonotone (SynsetGraph graph) {
+        if (monotoneGraph==graph) {
+            return monotone;
+        }
+        boolean result = true;
+        for (int i = 0; i < graph.size() && result; i++) {
+            double ic = getInformationContent(graph, i);
+            if (Double.isNaN(ic)) {
+                continue;
+            }
+            for (int j = graph.getHyperStart(i); j < graph.getHyperEnd(i); j++) {
+                double hyperIc = getInformationContent(graph, graph.getHyperTarget(j));
+                if (Double.isNaN(hyperIc) || hyperIc>ic) {
+                    result = false;
+                    break;
+                }
+            }
+        }
+        monotoneGraph = graph;
+        monotone = result;
+        return result;
+    }
+
+    /**
+     * Reads the information content from the dense array, without looking up the synset id
+     * @param ordinal ordinal of the synset in the graph of resolveInformationContent
+     * @return -log(freq/maxFreq) for the synset or NaN if there is no frequency for it
+     */
+    public double getInformationContent (int ordinal) {
+        return informationContent[ordinal];
+    }
+
+    /**
+     * @param graph
+     * @param ordinal ordinal of the synset in graph
+     * @return -log(freq/maxFreq) for the synset or NaN if there is no frequency for it, read from the dense array if
+     * the information content was resolved against graph, otherwise looked up by the id of the synset
+     */
+    public double getInformationContent (SynsetGraph graph, int ordinal) {
+        if (isResolved(graph)) {
+            return informationContent[ordinal];
+        }
+        return getInformationContent(graph.getId(ordinal));
+    }
+
+    /**
+     * @param ordinal ordinal of the synset in the graph of resolveInformationContent
+     * @return freq/maxFreq for the synset or -1 if there is no frequency for it
+     */
+    public double getProbability (int ordinal) {
+        return probabilities[ordinal];
+    }
+
+    /**
+     * @param synsetId
+     * @return -log(freq/maxFreq) for the synset or NaN if there is no frequency for it
+     */
+    public double getInformationContent (String synsetId) {
+        if (synsetGraph!=null) {
+            int ordinal = synsetGraph.getOrdinal(synsetId);
+            if (ordinal>-1) {
+                return informationContent[ordinal];
+            }
+        }
+        Long freq = data.get(synsetId);
+        if (freq==null) {
+            return Double.NaN;
+        }
+        return -Math.log((double) freq/(double) maxFreq);
+    }
+
+    /**
+     * @param synsetId
+     * @return freq/maxFreq for the synset or -1 if there is no frequency for it
+     */
+    public double getProbability (String synsetId) {
+        if (synsetGraph!=null) {
+            int ordinal = synsetGraph.getOrdinal(synsetId);
+            if (ordinal>-1) {
+                return probabilities[ordinal];
+            }
+        }
+        Long freq = data.get(synsetId);
+        if (freq==null) {
+            return -1;
+        }
+        return (double) freq/(double) maxFreq;
     }
 
     public int readSubsumerFrequenciesFromFile (String pathToSubsumersFrequenciesFile) {
@@ -38,6 +199,10 @@ public class SubsumersFrequencies {
             System.out.println("Cannot find pathToSubsumersFrequenciesFile = " + pathToSubsumersFrequenciesFile);
             return -1;
         }
+        synsetGraph = null;
+        informationContent = null;
+        probabilities = null;
+        monotoneGraph = null;
         try {
             FileInputStream fissub = new FileInputStream(pathToSubsumersFrequenciesFile);
             InputStreamReader isr = new InputStreamReader(fissub);
@@ -1,6 +1,9 @@
 package vu.wntools.wnsimilarity.main;
 
 import vu.wntools.util.Util;
+import vu.wntools.wnsimilarity.WordnetSimilarityApi;
+import vu.wntools.wnsimilarity.corpus.SubsumersFrequencies;
+import vu.wntools.wnsimilarity.measures.SimilarWord;
 import vu.wntools.wordnet.SynsetNode;
 import vu.wntools.wordnet.WordnetData;
 import vu.wntools.wordnet.WordnetLmfSaxParser;
@@ -69,6 +72,11 @@ public class ExpandWord {
         boolean UP = false;
         String pathToInputFile = "";
         String posFilter = "";
+        String method = "";
+        String pathToSubsumersFrequencies = "";
+        int topK = 10;
+        int depth = 0;
+        int threads = 1;
         WordnetData wordnetData = new WordnetData();
         ArrayList<String> relations = new ArrayList<String>();
         ArrayList<String> inputwords = new ArrayList<String>();
@@ -90,6 +98,33 @@ public class ExpandWord {
             else if ((arg.equalsIgnoreCase("--pos")) && args.length>i) {
                 posFilter = args[i+1];
             }
+            else if ((arg.equalsIgnoreCase("--similar")) && args.length>i) {
+                method = args[i+1];
+            }
+            else if ((arg.equalsIgnoreCase("--subsumers")) && args.length>i) {
+                pathToSubsumersFrequencies = args[i+1];
+            }
+            else if ((arg.equalsIgnoreCase("--k")) && args.length>i) {
+                try {
+                    topK = Integer.parseInt(args[i+1]);
+                } catch (NumberFormatException e) {
+                    e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+                }
+            }
+            else if ((arg.equalsIgnoreCase("--depth")) && args.length>i) {
+                try {
+                    depth = Integer.parseInt(args[i+1]);
+                } catch (NumberFormatException e) {
+                    e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+                }
+            }
+            else if ((arg.equalsIgnoreCase("--threads")) && args.length>i) {
+                try {
+                    threads = Integer.parseInt(args[i+1]);
+                } catch (NumberFormatException e) {
+                    e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+                }
+            }
 
         }
         if (pathToInputFile.isEmpty()) {
@@ -115,7 +150,33 @@ public class ExpandWord {
                 parser.parseFile(pathToWordnetFile);
                 wordnetData = parser.wordnetData;
                 wordnetData.buildSynsetIndex();
-                if (!UP) {
+                if (!method.isEmpty()) {
+                    /// expands the words with the k most similar lemmas according to the measure
+                    fos.close();
+                    fos = new FileOutputStream(pathToInputFile+"."+method);
+                    SubsumersFrequencies subsumersFrequencies = new SubsumersFrequencies();
+                    if (!pathToSubsumersFrequencies.isEmpty()) {
+                        subsumersFrequencies.readSubsumerFrequenciesFromFile(pathToSubsumersFrequencies);
+                        subsumersFrequencies.resolveInformationContent(wordnetData);
+                    }
+                    for (int i = 0; i < inputwords.size(); i++) {
+                        String word =  inputwords.get(i);
+                        if (!wordnetData.entryToSynsets.containsKey(word)) {
+                            System.out.println("Cannot find the word:"+word);
+                            continue;
+                        }
+                        ArrayList<SimilarWord> similarWords = WordnetSimilarityApi.wordMostSimilar(wordnetData,
+                                subsumersFrequencies, method, depth, word, posFilter, topK, threads);
+                        for (int j = 0; j < similarWords.size(); j++) {
+                            SimilarWord similarWord = similarWords.get(j);
+                            String str = word+"\t"+similarWord.getWord()+"\t"+similarWord.getScore()+"\t"
+                                    +similarWord.getSimilarityPair().getSourceId()+"\t"
+                                    +similarWord.getSimilarityPair().getTargetId()+"\n";
+                            fos.write(str.getBytes());
+                        }
+                    }
+                }
+                else if (!UP) {
                     wordnetData.buildChildRelationsFromids();
                     System.out.println("wordnetData entryToSynsets = " + wordnetData.entryToSynsets.size());
                     System.out.println("wordnetData child relations = " + wordnetData.childRelations.size());
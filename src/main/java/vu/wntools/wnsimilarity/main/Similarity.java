@@ -1,16 +1,19 @@
 package vu.wntools.wnsimilarity.main;
 
 import vu.wntools.util.Util;
+import vu.wntools.wnsimilarity.SimilarityPairCache;
 import vu.wntools.wnsimilarity.WordnetSimilarityApi;
 import vu.wntools.wnsimilarity.corpus.SubsumersFrequencies;
 import vu.wntools.wnsimilarity.measures.*;
 import vu.wntools.wordnet.CdbSynSaxParser;
 import vu.wntools.wordnet.PwnSaxParser;
 import vu.wntools.wordnet.WordnetData;
+import vu.wntools.wordnet.WordnetIndexBuilder;
 import vu.wntools.wordnet.WordnetLmfSaxParser;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.concurrent.*;
 
 /**
  * Created with IntelliJ IDEA.
@@ -22,6 +25,7 @@ import java.util.ArrayList;
 public class Similarity {
     static final String version = "1.0";
     static String separator = "\t";
+    static boolean writeTrees = true;
 
     static final String usage = "\n" +
             "   Choose one of the 3 options to load a wordnet file\n" +
@@ -33,9 +37,13 @@ public class Similarity {
             "   --input         <file with pairs to be compared on single lines separate with \"/\">\n"+
             "   --pairs         <indicate the type of input values: \"words\" or \"synsets\" or \"word-synsets\">\n" +
             "   --method        <leacock-chodorow, resnik, path, wu-palmer, jiang-conrath, lin or all>\n"+
-            "   --depth         <optional: a fixed value for average depth can be given, >\n"+
+            "   --depth         <optional: a fixed value for average depth can be given, or \"average\" or \"max\" to take\n"+
+            "                    the average or maximum depth of the synsets in the wordnet>\n"+
             "   --subsumers     <path to a file with subsumer frequencies, required for resnik, lin, jiang-conrath or all>\n"+
-            "   --separator     <token for separating input and output fields, default is <TAB>>\n";
+            "   --separator     <token for separating input and output fields, default is <TAB>>\n"+
+            "   --threads       <optional: number of threads used to load an LMF file and to compare the pairs, default is 1>\n"+
+            "   --score-cache   <optional: number of synset pairs per measure kept in a cache of scores, default is 0 (no cache)>\n"+
+            "   --no-trees      <optional: only the score and match are written to the log, not the hyper chains of the pairs>\n";
 
     /**
      *
@@ -56,6 +64,9 @@ public class Similarity {
         String pathToSubsumerFrequencies = "";
         String posFilter = "";
         int depth = 0;
+        String depthOption = "";
+        int threads = 1;
+        int scoreCacheSize = 0;
         String pairs = "";
         String method = "";
         if (args.length==0) {
@@ -95,10 +106,15 @@ public class Similarity {
                 pairs = args[i+1];
             }
             else if ((arg.equalsIgnoreCase("--depth")) && args.length>i) {
-                try {
-                    depth = Integer.parseInt(args[i+1]);
-                } catch (NumberFormatException e) {
-                    e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+                if (args[i+1].equalsIgnoreCase("average") || args[i+1].equalsIgnoreCase("max")) {
+                    depthOption = args[i+1];
+                }
+                else {
+                    try {
+                        depth = Integer.parseInt(args[i+1]);
+                    } catch (NumberFormatException e) {
+                        e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+                    }
                 }
             }
             else if ((arg.equalsIgnoreCase("--subsumers")) && args.length>i) {
@@ -108,6 +124,23 @@ public class Similarity {
             else if ((arg.equalsIgnoreCase("--separator")) && args.length>i) {
                 separator = args[i+1];
             }
+            else if ((arg.equalsIgnoreCase("--threads")) && args.length>i) {
+                try {
+                    threads = Integer.parseInt(args[i+1]);
+                } catch (NumberFormatException e) {
+                    e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+                }
+            }
+            else if (arg.equalsIgnoreCase("--no-trees")) {
+                writeTrees = false;
+            }
+            else if ((arg.equalsIgnoreCase("--score-cache")) && args.length>i) {
+                try {
+                    scoreCacheSize = Integer.parseInt(args[i+1]);
+                } catch (NumberFormatException e) {
+                    e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+                }
+            }
         }
         if (pathToWordnetFile.isEmpty()) {
             System.out.println("Missing parameter for wordnet file \n" +
@@ -152,6 +185,8 @@ public class Similarity {
                 str += "posFilter = " + posFilter+"\n";
                 str += "pathToRelFile = " + pathToRelFile+"\n";
                 str += "depth = " + depth+"\n";
+                str += "threads = " + threads+"\n";
+                str += "score cache = " + scoreCacheSize+"\n";
                 if (pathToRelFile.isEmpty()) {
                     relations = Util.readRelationsFile(pathToRelFile);
                     str += "relationFile = "+pathToRelFile+"\n";
@@ -162,6 +197,7 @@ public class Similarity {
                     if (!posFilter.isEmpty()) parser.setPos(posFilter);
                     parser.parseFile(pathToWordnetFile);
                     wordnetData = parser.wordnetData;
+                    wordnetData.buildSynsetIndex();
                 }
                 else if (wnformat.equalsIgnoreCase("--gwg-file")) {
                     PwnSaxParser parser = new PwnSaxParser();
@@ -169,19 +205,37 @@ public class Similarity {
                     if (!posFilter.isEmpty()) parser.setPos(posFilter);
                     parser.parseFile(pathToWordnetFile);
                     wordnetData = parser.wordnetData;
+                    wordnetData.buildSynsetIndex();
                 }
                 else if (wnformat.equalsIgnoreCase("--lmf-file")) {
                     WordnetLmfSaxParser parser = new WordnetLmfSaxParser();
+                    parser.setIndexes(WordnetIndexBuilder.SYNSET_INDEX);
                     if (relations.size()>0) parser.setRelations( relations);
                     if (!posFilter.isEmpty()) parser.setPos(posFilter);
-                    parser.parseFile(pathToWordnetFile);
+                    parser.parseFile(pathToWordnetFile, threads);
                     wordnetData = parser.wordnetData;
                 }
-                wordnetData.buildSynsetIndex();
                 str += "wordnetData entries = " + wordnetData.entryToSynsets.size()+"\n";
-                str += "wordnetData synsets = " + wordnetData.getHyperRelations().size()+"\n\n";
-                FileOutputStream fos = new FileOutputStream(pathToInputFile+"."+method);
-                FileOutputStream log = new FileOutputStream(pathToInputFile+"."+method+".log");
+                str += "wordnetData synsets = " + wordnetData.getHyperRelations().size()+"\n";
+                if (depthOption.equalsIgnoreCase("average")) {
+                    depth = wordnetData.getAverageDepthBySynset();
+                    str += "average depth = " + depth+"\n";
+                }
+                else if (depthOption.equalsIgnoreCase("max")) {
+                    depth = wordnetData.getMaxDepthBySynset();
+                    str += "max depth = " + depth+"\n";
+                }
+                if (!pathToSubsumerFrequencies.isEmpty()) {
+                    str += "subsumersFrequencies resolved synsets = " + subsumersFrequencies.resolveInformationContent(wordnetData)+"\n";
+                    str += "subsumersFrequencies max information content = " + subsumersFrequencies.maxInformationContent+"\n";
+                }
+                if (scoreCacheSize>0) {
+                    WordnetSimilarityApi.setSimilarityPairCache(new SimilarityPairCache(wordnetData.getSynsetGraph(),
+                            scoreCacheSize, SimilarityPairCache.LRU));
+                }
+                str += "\n";
+                OutputStream fos = new BufferedOutputStream(new FileOutputStream(pathToInputFile+"."+method));
+                OutputStream log = new BufferedOutputStream(new FileOutputStream(pathToInputFile+"."+method+".log"));
                 log.write(str.getBytes());
                 System.out.println(str);
                 FileInputStream fis = new FileInputStream(pathToInputFile);
@@ -206,411 +260,35 @@ public class Similarity {
                 }
                 fos.write(str.getBytes());
                 log.write(str.getBytes());
-                while (in.ready()&&(inputLine = in.readLine()) != null) {
-                    String [] fields = inputLine.split(separator);
-                    if (fields.length==2) {
-                        String source = fields[0].trim();
-                        String target = fields[1].trim();
-                        System.out.println("source = " + source);
-                        System.out.println("target = " + target);
-                        String logString = "";
-                        String logString2 = "";
-                        String match = "";
-                        if (pairs.equalsIgnoreCase("words")) {
-                            String unknown = "";
-                            if (!wordnetData.entryToSynsets.containsKey(source)) {
-                                if (!wordnetData.entryToSynsets.containsKey(target)) {
-                                    unknown = source + separator + "unknown"+separator+target+separator+"unknown"+"\n";
-                                }
-                                else {
-                                    unknown = source + separator + "unknown"+separator+target+separator+"known"+"\n";
-                                }
-                            }
-                            else if (!wordnetData.entryToSynsets.containsKey(target)) {
-                                unknown = source + separator + "known"+separator+target+separator+"unknown"+"\n";
-                            }
-                            if (!unknown.isEmpty()) {
-                                logString = "Method = " + method + "\n";
-                                logString += unknown;
-                                if (!logString2.isEmpty()) {
-                                    logString += logString2;
-                                }
-                                log.write(logString.getBytes());
-                                inputLine = unknown;
-                                fos.write(inputLine.getBytes());
-                            }
-                            else if (!method.equals("all")) {
-                                ArrayList<SimilarityPair> similarityPairArrayList = new ArrayList<SimilarityPair>();
-                                SimilarityPair topPair = new SimilarityPair();
-                                if (method.equalsIgnoreCase("leacock-chodorow")) {
-                                    LeacockChodorow.match = "";
-                                    if (depth>0) {
-                                        similarityPairArrayList = WordnetSimilarityApi.wordLeacockChodorowSimilarity(wordnetData, depth, source, target);
-                                    }
-                                    else {
-                                        similarityPairArrayList = WordnetSimilarityApi.wordLeacockChodorowSimilarity(wordnetData, source, target);
-                                    }
-                                    topPair = WordnetSimilarityApi.getTopScoringSimilarityPair(similarityPairArrayList);
-                                    match = topPair.getMatch();
-
-                                }
-                                else if (method.equalsIgnoreCase("path")) {
-                                    BaseLines.match = "";
-                                    similarityPairArrayList = WordnetSimilarityApi.wordPathSimilarity(wordnetData, source, target);
-                                    topPair = WordnetSimilarityApi.getTopScoringSimilarityPair(similarityPairArrayList);
-                                    match = topPair.getMatch();
-                                }
-                                else if (method.equalsIgnoreCase("wu-palmer")) {
-                                    WuPalmer.match = "";
-                                    similarityPairArrayList = WordnetSimilarityApi.wordWuPalmerSimilarity(wordnetData, source, target);
-                                    topPair = WordnetSimilarityApi.getTopScoringSimilarityPair(similarityPairArrayList);
-                                    match = topPair.getMatch();
-                                }
-                                else if (method.equalsIgnoreCase("resnik")) {
-                                    Resnik.match = "";
-                                    Resnik.value = 0;
-                                    similarityPairArrayList = WordnetSimilarityApi.wordResnikSimilarity(wordnetData, subsumersFrequencies, source, target);
-                                    topPair = WordnetSimilarityApi.getTopScoringSimilarityPair(similarityPairArrayList);
-                                    match = topPair.getMatch();
-                                    logString2 = "Resnik value = "+Resnik.value+"\n";
-                                }
-                                else if (method.equalsIgnoreCase("lin")) {
-                                    vu.wntools.wnsimilarity.measures.Lin.match = "";
-                                    Lin.valueIc1 = 0;
-                                    Lin.valueIc2 = 0;
-                                    Lin.valueIcLcs = 0;
-                                    similarityPairArrayList = WordnetSimilarityApi.wordLinSimilarity(wordnetData, subsumersFrequencies, source, target);
-                                    topPair = WordnetSimilarityApi.getTopScoringSimilarityPair(similarityPairArrayList);
-                                    match = topPair.getMatch();
-                                    logString2 = "Lin value Ic1 = "+Lin.valueIc1+"\n";
-                                    logString2 += "Lin value Ic2 = "+Lin.valueIc2+"\n";
-                                    logString2 += "Lin value IcLcs = "+Lin.valueIcLcs+"\n";
-                                }
-                                else if (method.equalsIgnoreCase("jiang-conrath")) {
-                                    JiangConrath.match = "";
-                                    JiangConrath.valueIc1 = 0;
-                                    JiangConrath.valueIc2 = 0;
-                                    JiangConrath.valueIcLcs = 0;
-                                    similarityPairArrayList = WordnetSimilarityApi.wordJiangConrathSimilarity(wordnetData, subsumersFrequencies, source, target);
-                                    topPair = WordnetSimilarityApi.getTopScoringSimilarityPair(similarityPairArrayList);
-                                    match = topPair.getMatch();
-                                    logString2 = "JiangConrath value Ic1 = "+JiangConrath.valueIc1+"\n";
-                                    logString2 += "JiangConrath value Ic2 = "+JiangConrath.valueIc2+"\n";
-                                    logString2 += "JiangConrath value IcLcs = "+JiangConrath.valueIcLcs+"\n";
-                                }
-                                logString = "Method = "+method+"\n";
-                                logString += "\tScore = "+topPair.getScore()+"\n";
-                                if (!logString2.isEmpty()) {
-                                    logString += logString2;
-                                }
-                                logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(match)+"\n";
-                                logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
-                                logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
-                                logString += "\n";
-                                log.write(logString.getBytes());
-
-                                inputLine+=separator+topPair.getScore()+separator+match +"\n";
-                                //System.out.println("inputLine = " + inputLine);
-                                fos.write(inputLine.getBytes());
-                            }
-                            else {  //ALL METHODS WORDS
-                                SimilarityPair topPair = new SimilarityPair();
-                                ArrayList<SimilarityPair> similarityPairArrayList = new ArrayList<SimilarityPair>();
-                                LeacockChodorow.match = "";
-
-
-                                //// Path
-                                similarityPairArrayList = WordnetSimilarityApi.wordPathSimilarity(wordnetData, source, target);
-                                topPair = WordnetSimilarityApi.getTopScoringSimilarityPair(similarityPairArrayList);
-                                inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
-
-                                logString = "Method = Path\n";
-                                logString += "\tScore = "+topPair.getScore()+"\n";
-                                logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
-                                logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
-                                logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
-                                log.write(logString.getBytes());
-
-
-                                /// L&C
-                                if (depth>0) {
-                                    similarityPairArrayList = WordnetSimilarityApi.wordLeacockChodorowSimilarity(wordnetData, depth, source, target);
-                                }
-                                else {
-                                    similarityPairArrayList = WordnetSimilarityApi.wordLeacockChodorowSimilarity(wordnetData, source, target);
-                                }
-                                topPair = WordnetSimilarityApi.getTopScoringSimilarityPair(similarityPairArrayList);
-                                inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
-
-                                logString = "Method = LeacockChodorow\n";
-                                logString += "\tScore = "+topPair.getScore()+"\n";
-                                logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
-                                logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
-                                logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
-                                log.write(logString.getBytes());
-
-                                //// W&P
-                                WuPalmer.match = "";
-                                similarityPairArrayList = WordnetSimilarityApi.wordWuPalmerSimilarity(wordnetData, source, target);
-                                topPair = WordnetSimilarityApi.getTopScoringSimilarityPair(similarityPairArrayList);
-                                inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
-
-                                logString = "Method = WuPalmer\n";
-                                logString += "\tScore = "+topPair.getScore()+"\n";
-                                logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
-                                logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
-                                logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
-                                log.write(logString.getBytes());
-
-                                /// Resnik
-                                Resnik.match = "";
-                                Resnik.value = 0;
-                                similarityPairArrayList = WordnetSimilarityApi.wordResnikSimilarity(wordnetData, subsumersFrequencies, source, target);
-                                topPair = WordnetSimilarityApi.getTopScoringSimilarityPair(similarityPairArrayList);
-                                inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
-
-                                logString = "Method = Resnik\n";
-                                logString += "\tScore = "+topPair.getScore()+"\n";
-                                logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
-                                logString += "\tIcLcs = "+Resnik.value+"\n";
-                                logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
-                                logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
-                                log.write(logString.getBytes());
-
-
-                                /// Lin
-                                vu.wntools.wnsimilarity.measures.Lin.match = "";
-                                Lin.valueIc1 = 0;
-                                Lin.valueIc2 = 0;
-                                Lin.valueIcLcs = 0;
-                                similarityPairArrayList = WordnetSimilarityApi.wordLinSimilarity(wordnetData, subsumersFrequencies, source, target);
-                                topPair = WordnetSimilarityApi.getTopScoringSimilarityPair(similarityPairArrayList);
-                                inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
-
-                                logString = "Method = Lin\n";
-                                logString += "\tScore = "+topPair.getScore()+"\n";
-                                logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
-                                logString += "Ic1 = "+Lin.valueIc1+"\n";
-                                logString += "Ic2 = "+Lin.valueIc2+"\n";
-                                logString += "IcLcs = "+Lin.valueIcLcs+"\n";
-                                logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
-                                logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
-                                log.write(logString.getBytes());
-
-
-                                // J&C
-                                JiangConrath.match = "";
-                                JiangConrath.valueIc1 = 0;
-                                JiangConrath.valueIc2 = 0;
-                                JiangConrath.valueIcLcs = 0;
-
-                                similarityPairArrayList = WordnetSimilarityApi.wordJiangConrathSimilarity(wordnetData, subsumersFrequencies, source, target);
-                                topPair = WordnetSimilarityApi.getTopScoringSimilarityPair(similarityPairArrayList);
-                                inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
-
-                                logString = "Method = JiangConrath\n";
-                                logString += "\tScore = "+topPair.getScore()+"\n";
-                                logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
-                                logString += "Ic1 = "+JiangConrath.valueIc1+"\n";
-                                logString += "Ic2 = "+JiangConrath.valueIc2+"\n";
-                                logString += "IcLcs = "+JiangConrath.valueIcLcs+"\n";
-                                logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
-                                logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n\n";
-                                log.write(logString.getBytes());
-
-                                inputLine+= "\n";
-                                fos.write(inputLine.getBytes());
-                            }
-                        }  //// SYNSETS
-                        else if ((pairs.equalsIgnoreCase("synsets")) ||
-                                 (pairs.equalsIgnoreCase("word-synsets"))) {
-                            String word1 = "";
-                            String word2 = "";
-                            if ((pairs.equalsIgnoreCase("word-synsets"))) {
-                                String [] inputFields = source.split("#");
-                                if (inputFields.length==2) {
-                                    word1 = inputFields[0];
-                                    source = inputFields[1];
-                                }
-                                inputFields = target.split("#");
-                                if (inputFields.length==2) {
-                                    word2 = inputFields[0];
-                                    target = inputFields[1];
-                                }
-                            }
-                            if (!method.equals("all")) {
-                                SimilarityPair similarityPair = new SimilarityPair();
-                                if (method.equalsIgnoreCase("leacock-chodorow")) {
-                                    vu.wntools.wnsimilarity.measures.LeacockChodorow.match = "";
-                                    if (depth>0) {
-                                        similarityPair = WordnetSimilarityApi.synsetLeacockChodorowSimilarity(wordnetData, depth, source, target);
-                                    }
-                                    else {
-                                        similarityPair = WordnetSimilarityApi.synsetLeacockChodorowSimilarity(wordnetData, source, target);
-                                    }
-                                    match = similarityPair.getMatch();
-                                }
-                                else if (method.equalsIgnoreCase("wu-palmer")) {
-                                    WuPalmer.match = "";
-                                    similarityPair = WordnetSimilarityApi.synsetWuPalmerSimilarity(wordnetData, source, target);
-                                    match = similarityPair.getMatch();
-                                }
-                                else if (method.equalsIgnoreCase("path")) {
-                                    BaseLines.match = "";
-                                    similarityPair = WordnetSimilarityApi.synsetPathSimilarity(wordnetData, source, target);
-                                    match = similarityPair.getMatch();
-                                }
-                                else if (method.equalsIgnoreCase("resnik")) {
-                                    vu.wntools.wnsimilarity.measures.Resnik.match = "";
-                                    Resnik.value = 0;
-                                    similarityPair = WordnetSimilarityApi.synsetResnikSimilarity(wordnetData, subsumersFrequencies, source, target);
-                                    match = similarityPair.getMatch();
-                                    logString2 = "Resnik icLcs = "+Resnik.value+"\n";
-                                }
-                                else if (method.equalsIgnoreCase("lin")) {
-                                    Lin.match = "";
-                                    Lin.valueIc1 = 0;
-                                    Lin.valueIc2 = 0;
-                                    Lin.valueIcLcs = 0;
-                                    similarityPair = WordnetSimilarityApi.synsetLinSimilarity(wordnetData, subsumersFrequencies, source, target);
-                                    match = similarityPair.getMatch();
-                                    logString2 = "Lin value Ic1 = "+Lin.valueIc1+"\n";
-                                    logString2 += "Lin value Ic2 = "+Lin.valueIc2+"\n";
-                                    logString2 += "Lin value IcLcs = "+Lin.valueIcLcs+"\n";
-                                }
-                                else if (method.equalsIgnoreCase("jiang-conrath")) {
-                                    JiangConrath.match = "";
-                                    JiangConrath.valueIc1 = 0;
-                                    JiangConrath.valueIc2 = 0;
-                                    JiangConrath.valueIcLcs = 0;
-                                    similarityPair = WordnetSimilarityApi.synsetJiangConrathSimilarity(wordnetData, subsumersFrequencies, source, target);
-                                    match = similarityPair.getMatch();
-                                    logString2 = "JiangConrath value Ic1 = "+JiangConrath.valueIc1+"\n";
-                                    logString2 += "JiangConrath value Ic2 = "+JiangConrath.valueIc2+"\n";
-                                    logString2 += "JiangConrath value IcLcs = "+JiangConrath.valueIcLcs+"\n";
-                                }
-
-                                logString = "Method = "+method+"\n";
-                                logString += "\tScore = "+similarityPair.getScore()+"\n";
-                                if (!logString2.isEmpty()) {
-                                    logString += logString2;
-                                }
-                                logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(match)+"\n";
-                                logString += "\t"+word1+"#"+source+wordnetData.toHyperString(similarityPair.getSourceTree())+"\n";
-                                logString += "\t"+word2+"#"+target+wordnetData.toHyperString(similarityPair.getTargetTree())+"\n";
-                                logString += "\n";
-                                log.write(logString.getBytes());
-
-                                inputLine+=separator+similarityPair.getScore()+separator+match +"\n";
-                                fos.write(inputLine.getBytes());
-                            }
-                            else { /// ALL METHODS SYNSETS
-                                SimilarityPair similarityPair = new SimilarityPair();
-
-                                /// Path
-                                BaseLines.match = "";
-                                similarityPair = WordnetSimilarityApi.synsetPathSimilarity(wordnetData, source, target);
-                                inputLine+=separator+similarityPair.getScore()+separator+similarityPair.getMatch();
-
-                                logString = "Method = Path\n";
-                                logString += "\tScore = "+similarityPair.getScore()+"\n";
-                                logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(similarityPair.getMatch())+"\n";
-                                logString += "\t"+source+wordnetData.toHyperString(similarityPair.getSourceTree())+"\n";
-                                logString += "\t"+target+wordnetData.toHyperString(similarityPair.getTargetTree())+"\n";
-                                log.write(logString.getBytes());
-
-                                /// L&C
-                                LeacockChodorow.match = "";
-                                if (depth>0) {
-                                    similarityPair = WordnetSimilarityApi.synsetLeacockChodorowSimilarity(wordnetData, depth, source, target);
-                                }
-                                else {
-                                    similarityPair = WordnetSimilarityApi.synsetLeacockChodorowSimilarity(wordnetData, source, target);
-                                }
-                                inputLine+=separator+similarityPair.getScore()+separator+similarityPair.getMatch();
-
-                                logString = "Method = LeacockChodorow\n";
-                                logString += "\tScore = "+similarityPair.getScore()+"\n";
-                                logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(similarityPair.getMatch())+"\n";
-                                logString += "\t"+source+wordnetData.toHyperString(similarityPair.getSourceTree())+"\n";
-                                logString += "\t"+target+wordnetData.toHyperString(similarityPair.getTargetTree())+"\n";
-                                log.write(logString.getBytes());
-
-                                //// WuPalmer
-                                WuPalmer.match = "";
-                                similarityPair = WordnetSimilarityApi.synsetWuPalmerSimilarity(wordnetData, source, target);
-                                inputLine+=separator+similarityPair.getScore()+separator+similarityPair.getMatch();
-
-                                logString = "Method = WuPalmer\n";
-                                logString += "\tScore = "+similarityPair.getScore()+"\n";
-                                logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(similarityPair.getMatch())+"\n";
-                                logString += "\t"+source+wordnetData.toHyperString(similarityPair.getSourceTree())+"\n";
-                                logString += "\t"+target+wordnetData.toHyperString(similarityPair.getTargetTree())+"\n";
-                                log.write(logString.getBytes());
-
-
-                                //// Resnik
-                                vu.wntools.wnsimilarity.measures.Resnik.match = "";
-                                Resnik.value = 0;
-                                similarityPair = WordnetSimilarityApi.synsetResnikSimilarity(wordnetData, subsumersFrequencies, source, target);
-                                inputLine+=separator+similarityPair.getScore()+separator+similarityPair.getMatch();
-
-                                logString = "Method = Resnik\n";
-                                logString += "\tScore = "+similarityPair.getScore()+"\n";
-                                logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(similarityPair.getMatch())+"\n";
-                                logString += "IcLcs = "+Resnik.value+"\n";
-                                logString += "\t"+source+wordnetData.toHyperString(similarityPair.getSourceTree())+"\n";
-                                logString += "\t"+target+wordnetData.toHyperString(similarityPair.getTargetTree())+"\n";
-                                log.write(logString.getBytes());
-
-                                /// Lin
-                                Lin.match = "";
-                                Lin.valueIc1 = 0;
-                                Lin.valueIc2 = 0;
-                                Lin.valueIcLcs = 0;
-                                similarityPair = WordnetSimilarityApi.synsetLinSimilarity(wordnetData, subsumersFrequencies, source, target);
-                                inputLine+=separator+similarityPair.getScore()+separator+similarityPair.getMatch();
-
-                                logString = "Method = Lin\n";
-                                logString += "\tScore = "+similarityPair.getScore()+"\n";
-                                logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(similarityPair.getMatch())+"\n";
-                                logString += "Ic1 = "+Lin.valueIc1+"\n";
-                                logString += "Ic2 = "+Lin.valueIc2+"\n";
-                                logString += "IcLcs = "+Lin.valueIcLcs+"\n";
-                                logString += "\t"+source+wordnetData.toHyperString(similarityPair.getSourceTree())+"\n";
-                                logString += "\t"+target+wordnetData.toHyperString(similarityPair.getTargetTree())+"\n";
-                                log.write(logString.getBytes());
-
-                                /// J&C
-                                JiangConrath.match = "";
-                                JiangConrath.valueIc1 = 0;
-                                JiangConrath.valueIc2 = 0;
-                                JiangConrath.valueIcLcs = 0;
-                                similarityPair = WordnetSimilarityApi.synsetJiangConrathSimilarity(wordnetData, subsumersFrequencies, source, target);
-                                inputLine+=separator+similarityPair.getScore()+separator+similarityPair.getMatch();
-
-
-                                logString = "Method = JiangConrath\n";
-                                logString += "\tScore = "+similarityPair.getScore()+"\n";
-                                logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(similarityPair.getMatch())+"\n";
-                                logString += "Ic1 = "+JiangConrath.valueIc1+"\n";
-                                logString += "Ic2 = "+JiangConrath.valueIc2+"\n";
-                                logString += "IcLcs = "+JiangConrath.valueIcLcs+"\n";
-                                logString += "\t"+source+wordnetData.toHyperString(similarityPair.getSourceTree())+"\n";
-                                logString += "\t"+target+wordnetData.toHyperString(similarityPair.getTargetTree())+"\n";
-                                logString += "\n";
-                                log.write(logString.getBytes());
-
-                                inputLine+= "\n";
-                                fos.write(inputLine.getBytes());
-                            }
-
-                        }
-                        else {
-                            System.out.println("Unknown input type pairs = " + pairs);
-                        }
+                long startTime = System.currentTimeMillis();
+                int nPairs = 0;
+                if (threads>1) {
+                    nPairs = compareLines(in, wordnetData, subsumersFrequencies, method, pairs, depth, threads, fos, log);
+                }
+                else {
+                    while (in.ready()&&(inputLine = in.readLine()) != null) {
+                        StringBuilder output = new StringBuilder();
+                        StringBuilder logOutput = new StringBuilder();
+                        compareLine(inputLine, wordnetData, subsumersFrequencies, method, pairs, depth, output, logOutput);
+                        fos.write(output.toString().getBytes());
+                        log.write(logOutput.toString().getBytes());
+                        nPairs++;
                     }
                 }
+                long elapsed = System.currentTimeMillis()-startTime;
+                str = "Compared " + nPairs + " pairs in " + elapsed + " ms with " + Math.max(threads, 1) + " thread(s)";
+                if (elapsed>0) {
+                    str += ", " + (nPairs*1000L/elapsed) + " pairs per second";
+                }
+                str += "\n";
+                if (wordnetData.getHyperChainCache()!=null) {
+                    str += wordnetData.getHyperChainCache().toString()+"\n";
+                }
+                if (WordnetSimilarityApi.getSimilarityPairCache()!=null) {
+                    str += WordnetSimilarityApi.getSimilarityPairCache().toString()+"\n";
+                }
+                log.write(str.getBytes());
+                System.out.println(str);
                 fos.close();
                 log.close();
             } catch (IOException e) {
@@ -620,4 +298,429 @@ public class Similarity {
 
     }
 
+    /**
+     * Compares the pair on a single input line and adds the result line to output and the details to log.
+     * Only reads the wordnet and the subsumer frequencies, so lines can be compared in parallel.
+     * @param inputLine
+     * @param wordnetData
+     * @param subsumersFrequencies
+     * @param method
+     * @param pairs
+     * @param depth
+     * @param output
+     * @param log
+     */
+    static void compareLine (String inputLine, WordnetData wordnetData, SubsumersFrequencies subsumersFrequencies,
+                             String method, String pairs, int depth,
+                             StringBuilder output, StringBuilder log) {
+        String [] fields = inputLine.split(separator);
+        if (fields.length==2) {
+            String source = fields[0].trim();
+            String target = fields[1].trim();
+            String logString = "";
+            String logString2 = "";
+            String match = "";
+            if (pairs.equalsIgnoreCase("words")) {
+                String unknown = "";
+                if (!wordnetData.entryToSynsets.containsKey(source)) {
+                    if (!wordnetData.entryToSynsets.containsKey(target)) {
+                        unknown = source + separator + "unknown"+separator+target+separator+"unknown"+"\n";
+                    }
+                    else {
+                        unknown = source + separator + "unknown"+separator+target+separator+"known"+"\n";
+                    }
+                }
+                else if (!wordnetData.entryToSynsets.containsKey(target)) {
+                    unknown = source + separator + "known"+separator+target+separator+"unknown"+"\n";
+                }
+                if (!unknown.isEmpty()) {
+                    logString = "Method = " + method + "\n";
+                    logString += unknown;
+                    if (!logString2.isEmpty()) {
+                        logString += logString2;
+                    }
+                    log.append(logString);
+                    inputLine = unknown;
+                    output.append(inputLine);
+                }
+                else if (!method.equals("all") && !writeTrees) {
+                    /// only the score and match of the best pair of meanings are needed
+                    CompactSimilarityPair compactPair = WordnetSimilarityApi.wordBestCompactSimilarity(wordnetData,
+                            subsumersFrequencies, method, depth, source, target);
+                    if (compactPair==null) {
+                        compactPair = new CompactSimilarityPair(wordnetData.getHyperPathIndex(), -1, -1);
+                    }
+                    compareResult(inputLine, wordnetData, method, compactPair, output, log);
+                }
+                else if (!method.equals("all")) {
+                    /// only the best pair of meanings is kept
+                    SimilarityPair topPair = WordnetSimilarityApi.wordBestSimilarity(wordnetData, subsumersFrequencies,
+                            method, depth, source, target);
+                    match = topPair.getMatch();
+                    logString2 = getMeasureLog(subsumersFrequencies, method, topPair);
+                    logString = "Method = "+method+"\n";
+                    logString += "\tScore = "+topPair.getScore()+"\n";
+                    if (!logString2.isEmpty()) {
+                        logString += logString2;
+                    }
+                    logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(match)+"\n";
+                    logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
+                    logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
+                    logString += "\n";
+                    log.append(logString);
+
+                    inputLine+=separator+topPair.getScore()+separator+match +"\n";
+                    //System.out.println("inputLine = " + inputLine);
+                    output.append(inputLine);
+                }
+                else {  //ALL METHODS WORDS
+                    /// the hyper chains and matches are computed once for all measures
+                    AllMeasuresPair allMeasuresPair = WordnetSimilarityApi.getTopScoringAllMeasuresPair(
+                            WordnetSimilarityApi.wordAllSimilarity(wordnetData, subsumersFrequencies, depth, source, target));
+
+                    //// Path
+                    SimilarityPair topPair = allMeasuresPair.getPath();
+                    inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
+
+                    logString = "Method = Path\n";
+                    logString += "\tScore = "+topPair.getScore()+"\n";
+                    logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
+                    logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
+                    logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
+                    log.append(logString);
+
+                    /// L&C
+                    topPair = allMeasuresPair.getLeacockChodorow();
+                    inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
+
+                    logString = "Method = LeacockChodorow\n";
+                    logString += "\tScore = "+topPair.getScore()+"\n";
+                    logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
+                    logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
+                    logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
+                    log.append(logString);
+
+                    //// W&P
+                    topPair = allMeasuresPair.getWuPalmer();
+                    inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
+
+                    logString = "Method = WuPalmer\n";
+                    logString += "\tScore = "+topPair.getScore()+"\n";
+                    logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
+                    logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
+                    logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
+                    log.append(logString);
+
+                    /// Resnik
+                    topPair = allMeasuresPair.getResnik();
+                    inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
+
+                    logString = "Method = Resnik\n";
+                    logString += "\tScore = "+topPair.getScore()+"\n";
+                    logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
+                    logString += "\tIcLcs = "+allMeasuresPair.getResnikValue()+"\n";
+                    logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
+                    logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
+                    log.append(logString);
+
+                    /// Lin
+                    topPair = allMeasuresPair.getLin();
+                    inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
+
+                    logString = "Method = Lin\n";
+                    logString += "\tScore = "+topPair.getScore()+"\n";
+                    logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
+                    logString += "Ic1 = "+allMeasuresPair.getLinIc1()+"\n";
+                    logString += "Ic2 = "+allMeasuresPair.getLinIc2()+"\n";
+                    logString += "IcLcs = "+allMeasuresPair.getLinIcLcs()+"\n";
+                    logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
+                    logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
+                    log.append(logString);
+
+                    // J&C
+                    topPair = allMeasuresPair.getJiangConrath();
+                    inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
+
+                    logString = "Method = JiangConrath\n";
+                    logString += "\tScore = "+topPair.getScore()+"\n";
+                    logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
+                    logString += "Ic1 = "+allMeasuresPair.getJiangConrathIc1()+"\n";
+                    logString += "Ic2 = "+allMeasuresPair.getJiangConrathIc2()+"\n";
+                    logString += "IcLcs = "+allMeasuresPair.getJiangConrathIcLcs()+"\n";
+                    logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
+                    logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n\n";
+                    log.append(logString);
+
+                    inputLine+= "\n";
+                    output.append(inputLine);
+                }
+            }  //// SYNSETS
+            else if ((pairs.equalsIgnoreCase("synsets")) ||
+                     (pairs.equalsIgnoreCase("word-synsets"))) {
+                String word1 = "";
+                String word2 = "";
+                if ((pairs.equalsIgnoreCase("word-synsets"))) {
+                    String [] inputFields = source.split("#");
+                    if (inputFields.length==2) {
+                        word1 = inputFields[0];
+                        source = inputFields[1];
+                    }
+                    inputFields = target.split("#");
+                    if (inputFields.length==2) {
+                        word2 = inputFields[0];
+                        target = inputFields[1];
+                    }
+                }
+                CompactSimilarityPair compactPair = null;
+                if (!method.equals("all") && !writeTrees) {
+                    /// synsets that are not in the wordnet are compared as usual
+                    compactPair = WordnetSimilarityApi.synsetCompactSimilarity(wordnetData, subsumersFrequencies,
+                            method, depth, source, target);
+                }
+                if (compactPair!=null) {
+                    compareResult(inputLine, wordnetData, method, compactPair, output, log);
+                }
+                else if (!method.equals("all")) {
+                    SimilarityPair similarityPair = WordnetSimilarityApi.synsetSimilarity(wordnetData,
+                            subsumersFrequencies, method, depth, source, target);
+                    match = similarityPair.getMatch();
+                    logString2 = getMeasureLog(subsumersFrequencies, method, similarityPair);
+
+                    logString = "Method = "+method+"\n";
+                    logString += "\tScore = "+similarityPair.getScore()+"\n";
+                    if (!logString2.isEmpty()) {
+                        logString += logString2;
+                    }
+                    logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(match)+"\n";
+                    logString += "\t"+word1+"#"+source+wordnetData.toHyperString(similarityPair.getSourceTree())+"\n";
+                    logString += "\t"+word2+"#"+target+wordnetData.toHyperString(similarityPair.getTargetTree())+"\n";
+                    logString += "\n";
+                    log.append(logString);
+
+                    inputLine+=separator+similarityPair.getScore()+separator+match +"\n";
+                    output.append(inputLine);
+                }
+                else { /// ALL METHODS SYNSETS
+                    /// the hyper chains and matches are computed once for all measures
+                    AllMeasuresPair allMeasuresPair = WordnetSimilarityApi.synsetAllSimilarity(wordnetData, subsumersFrequencies, depth, source, target);
+
+                    //// Path
+                    SimilarityPair topPair = allMeasuresPair.getPath();
+                    inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
+
+                    logString = "Method = Path\n";
+                    logString += "\tScore = "+topPair.getScore()+"\n";
+                    logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
+                    logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
+                    logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
+                    log.append(logString);
+
+                    /// L&C
+                    topPair = allMeasuresPair.getLeacockChodorow();
+                    inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
+
+                    logString = "Method = LeacockChodorow\n";
+                    logString += "\tScore = "+topPair.getScore()+"\n";
+                    logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
+                    logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
+                    logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
+                    log.append(logString);
+
+                    //// W&P
+                    topPair = allMeasuresPair.getWuPalmer();
+                    inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
+
+                    logString = "Method = WuPalmer\n";
+                    logString += "\tScore = "+topPair.getScore()+"\n";
+                    logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
+                    logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
+                    logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
+                    log.append(logString);
+
+                    /// Resnik
+                    topPair = allMeasuresPair.getResnik();
+                    inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
+
+                    logString = "Method = Resnik\n";
+                    logString += "\tScore = "+topPair.getScore()+"\n";
+                    logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
+                    logString += "\tIcLcs = "+allMeasuresPair.getResnikValue()+"\n";
+                    logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
+                    logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
+                    log.append(logString);
+
+                    /// Lin
+                    topPair = allMeasuresPair.getLin();
+                    inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
+
+                    logString = "Method = Lin\n";
+                    logString += "\tScore = "+topPair.getScore()+"\n";
+                    logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
+                    logString += "Ic1 = "+allMeasuresPair.getLinIc1()+"\n";
+                    logString += "Ic2 = "+allMeasuresPair.getLinIc2()+"\n";
+                    logString += "IcLcs = "+allMeasuresPair.getLinIcLcs()+"\n";
+                    logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
+                    logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n";
+                    log.append(logString);
+
+                    // J&C
+                    topPair = allMeasuresPair.getJiangConrath();
+                    inputLine+=separator+topPair.getScore()+separator+topPair.getMatch();
+
+                    logString = "Method = JiangConrath\n";
+                    logString += "\tScore = "+topPair.getScore()+"\n";
+                    logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(topPair.getMatch())+"\n";
+                    logString += "Ic1 = "+allMeasuresPair.getJiangConrathIc1()+"\n";
+                    logString += "Ic2 = "+allMeasuresPair.getJiangConrathIc2()+"\n";
+                    logString += "IcLcs = "+allMeasuresPair.getJiangConrathIcLcs()+"\n";
+                    logString += "\t"+source+wordnetData.toHyperString(topPair.getSourceTree())+"\n";
+                    logString += "\t"+target+wordnetData.toHyperString(topPair.getTargetTree())+"\n\n";
+                    log.append(logString);
+
+                    inputLine+= "\n";
+                    output.append(inputLine);
+                }
+
+            }
+            else {
+                System.out.println("Unknown input type pairs = " + pairs);
+            }
+        }
+    }
+
+    /**
+     * Writes the score and match of a pair without its hyper chains
+     * @param inputLine
+     * @param wordnetData
+     * @param method
+     * @param compactPair
+     * @param output
+     * @param log
+     */
+    static void compareResult (String inputLine, WordnetData wordnetData, String method, CompactSimilarityPair compactPair,
+                               StringBuilder output, StringBuilder log) {
+        String match = compactPair.getMatch();
+        String logString = "Method = "+method+"\n";
+        logString += "\tScore = "+compactPair.getScore()+"\n";
+        logString += "\tMatch ="+wordnetData.getFirstEntryForSynset(match)+"\n";
+        logString += "\n";
+        log.append(logString);
+        output.append(inputLine+separator+compactPair.getScore()+separator+match+"\n");
+    }
+
+    /**
+     * Batch mode: reads the input in blocks of lines and compares the lines of a block on a pool of threads
+     * that share the read-only wordnet. The results of a block are written in input order before the next block is read.
+     * @param in
+     * @param wordnetData
+     * @param subsumersFrequencies
+     * @param method
+     * @param pairs
+     * @param depth
+     * @param threads
+     * @param fos
+     * @param log
+     * @return number of lines that were compared
+     * @throws IOException
+     */
+    static int compareLines (BufferedReader in, final WordnetData wordnetData, final SubsumersFrequencies subsumersFrequencies,
+                             final String method, final String pairs, final int depth, int threads,
+                             OutputStream fos, OutputStream log) throws IOException {
+        int nPairs = 0;
+        int blockSize = threads*1000;
+        /// build the derived indexes before the threads start using them
+        wordnetData.getAncestorIndex();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            String inputLine;
+            ArrayList<Future<String[]>> results = new ArrayList<Future<String[]>>(blockSize);
+            while (in.ready()&&(inputLine = in.readLine()) != null) {
+                final String line = inputLine;
+                results.add(executor.submit(new Callable<String[]>() {
+                    public String[] call() {
+                        StringBuilder output = new StringBuilder();
+                        StringBuilder logOutput = new StringBuilder();
+                        compareLine(line, wordnetData, subsumersFrequencies, method, pairs, depth, output, logOutput);
+                        return new String[] {output.toString(), logOutput.toString()};
+                    }
+                }));
+                nPairs++;
+                if (results.size()==blockSize) {
+                    writeResults(results, nPairs-results.size()+1, fos, log);
+                }
+            }
+            writeResults(results, nPairs-results.size()+1, fos, log);
+        } finally {
+            /// cancels the lines of the block that are still waiting when a line failed
+            executor.shutdownNow();
+        }
+        return nPairs;
+    }
+
+    /**
+     * Writes the results of a block in input order
+     * @param results
+     * @param firstLine number of the input line of the first result
+     * @param fos
+     * @param log
+     * @throws IOException also when a line could not be compared, the output would no longer be aligned with the input
+     */
+    static void writeResults (ArrayList<Future<String[]>> results, int firstLine, OutputStream fos, OutputStream log) throws IOException {
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                String [] result = results.get(i).get();
+                fos.write(result[0].getBytes());
+                log.write(result[1].getBytes());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Comparing the input was interrupted at line "+(firstLine+i));
+            } catch (ExecutionException e) {
+                throw new IOException("Comparing input line "+(firstLine+i)+" failed: "+e.getCause(), e.getCause());
+            }
+        }
+        results.clear();
+    }
+
+    /**
+     * @param subsumersFrequencies
+     * @param method
+     * @param similarityPair
+     * @return the information content values of resnik, lin or jiang-conrath for the log, empty for the other measures
+     */
+    static String getMeasureLog (SubsumersFrequencies subsumersFrequencies, String method,
+                                 SimilarityPair similarityPair) {
+        String logString = "";
+        if (method.equalsIgnoreCase("resnik")) {
+            MeasureResult measureResult = getMeasureResult(new Resnik(subsumersFrequencies), similarityPair);
+            logString = "Resnik value = "+measureResult.getProbability()+"\n";
+        }
+        else if (method.equalsIgnoreCase("lin")) {
+            MeasureResult measureResult = getMeasureResult(new Lin(subsumersFrequencies), similarityPair);
+            logString = "Lin value Ic1 = "+measureResult.getIc1()+"\n";
+            logString += "Lin value Ic2 = "+measureResult.getIc2()+"\n";
+            logString += "Lin value IcLcs = "+measureResult.getIcLcs()+"\n";
+        }
+        else if (method.equalsIgnoreCase("jiang-conrath")) {
+            MeasureResult measureResult = getMeasureResult(new JiangConrath(subsumersFrequencies), similarityPair);
+            logString = "JiangConrath value Ic1 = "+measureResult.getIc1()+"\n";
+            logString += "JiangConrath value Ic2 = "+measureResult.getIc2()+"\n";
+            logString += "JiangConrath value IcLcs = "+measureResult.getIcLcs()+"\n";
+        }
+        return logString;
+    }
+
+    /**
+     * Runs the measure again on the trees of the best pair to get the information content values that were used
+     * @param measure
+     * @param similarityPair
+     * @return MeasureResult
+     */
+    static MeasureResult getMeasureResult (SimilarityMeasure measure, SimilarityPair similarityPair) {
+        MeasureResult measureResult = new MeasureResult();
+        if (!similarityPair.getSourceTree().isEmpty() && !similarityPair.getTargetTree().isEmpty()) {
+            measure.getSimilarity(similarityPair.getSourceTree(), similarityPair.getTargetTree(), measureResult);
+        }
+        return measureResult;
+    }
+
 }
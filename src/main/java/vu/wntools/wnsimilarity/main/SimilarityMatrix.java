@@ -0,0 +1,638 @@
+package vu.wntools.wnsimilarity.main;
+
+import vu.wntools.util.Util;
+import vu.wntools.wnsimilarity.corpus.SubsumersFrequencies;
+import vu.wntools.wnsimilarity.measures.*;
+import vu.wntools.wordnet.*;
+
+import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.*;
+
+/**
+ * Computes the similarity of all pairs of words of a word list with one measure.
+ *
+ * The score of a pair of words is the best score of the pairs of their meanings, the same score as the Similarity tool
+ * gives for a pair of words. The hypernym chains of every meaning are converted to arrays of synset ordinals once,
+ * together with the information content of the synset, and are shared by all pairs.
+ * The matrix is symmetric, so only the tiles on and above the diagonal are computed. A tile covers a block of rows and
+ * a block of columns so that the chains of both blocks stay in the cache while the tile is computed.
+ * The tiles of a band of rows are computed on a pool of threads.
+ *
+ * The result is written as a binary matrix of N x N little-endian floats in the order of the word list,
+ * which is mapped in memory band by band, or as a TSV file with the pairs that score at least a threshold.
+ * The TSV file is written in the character set of the word list, ISO-8859-1 unless another one is given.
+ * Words that are not in the wordnet and pairs that get no score have a score of -1.
+ */
+public class SimilarityMatrix {
+    static final String version = "1.0";
+
+    static final String usage = "\n" +
+            "   Choose one of the 3 options to load a wordnet file\n" +
+            "   --gwg-file      <path to wordnet file in global wordnet grid format\n" +
+            "   --lmf-file      <path to wordnet file in lmf format\n" +
+            "   --cdb-file      <path to wordnet file in Cornetto export synset format\n" +
+            "   --pos           <optional part-of-speech filter, values: n, v, a\n" +
+            "   --relations     <optional file with relations used for the hiearchy\n"+
+            "   --input         <file with one word per line>\n"+
+            "   --method        <leacock-chodorow, resnik, path, wu-palmer, jiang-conrath or lin>\n"+
+            "   --depth         <optional: a fixed value for average depth can be given, or \"average\" or \"max\" to take\n"+
+            "                    the average or maximum depth of the synsets in the wordnet>\n"+
+            "   --subsumers     <path to a file with subsumer frequencies, required for resnik, lin or jiang-conrath>\n"+
+            "   --format        <optional: \"binary\" for a N x N matrix of little-endian floats or \"tsv\" for the pairs\n"+
+            "                    that score at least the threshold, default is tsv>\n"+
+            "   --threshold     <optional: minimum score of the pairs in the tsv output, default is 0>\n"+
+            "   --output        <optional: path to the output file, default is the input file + \".\" + method + \".matrix\" or \".tsv\">\n"+
+            "   --tile          <optional: number of words in the rows and columns of a tile, default is 256>\n"+
+            "   --threads       <optional: number of threads, default is the number of processors>\n"+
+            "   --encoding      <optional: character set of the word list and the tsv output, default is ISO-8859-1>\n";
+
+    static final int PATH = 0;
+    static final int LEACOCK_CHODOROW = 1;
+    static final int WU_PALMER = 2;
+    static final int RESNIK = 3;
+    static final int LIN = 4;
+    static final int JIANG_CONRATH = 5;
+
+    static final String ENCODING = "ISO-8859-1";
+
+    static public void main (String[] args) {
+        WordnetData wordnetData = new WordnetData();
+        SubsumersFrequencies subsumersFrequencies = new SubsumersFrequencies();
+        ArrayList<String> relations = new ArrayList<String>();
+        boolean ok = true;
+        String wnformat = "";
+        String pathToWordnetFile = "";
+        String pathToInputFile = "";
+        String pathToOutputFile = "";
+        String pathToRelFile = "";
+        String pathToSubsumerFrequencies = "";
+        String posFilter = "";
+        String format = "tsv";
+        String method = "";
+        String depthOption = "";
+        String encoding = ENCODING;
+        int depth = 0;
+        int tile = 256;
+        double threshold = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length==0) {
+            System.out.println(usage);
+        }
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ((arg.equalsIgnoreCase("--gwg-file")) && args.length>i) {
+                pathToWordnetFile = args[i+1];
+                wnformat = arg;
+            }
+            else if ((arg.equalsIgnoreCase("--lmf-file")) && args.length>i) {
+                pathToWordnetFile = args[i+1];
+                wnformat = arg;
+            }
+            else if ((arg.equalsIgnoreCase("--cdb-file")) && args.length>i) {
+                pathToWordnetFile = args[i+1];
+                wnformat = arg;
+            }
+            else if ((arg.equalsIgnoreCase("--pos")) && args.length>i) {
+                posFilter = args[i+1];
+            }
+            else if ((arg.equalsIgnoreCase("--input")) && args.length>i) {
+                pathToInputFile = args[i+1];
+            }
+            else if ((arg.equalsIgnoreCase("--output")) && args.length>i) {
+                pathToOutputFile = args[i+1];
+            }
+            else if ((arg.equalsIgnoreCase("--relations")) && args.length>i) {
+                pathToRelFile = args[i+1];
+            }
+            else if ((arg.equalsIgnoreCase("--method")) && args.length>i) {
+                method = args[i+1];
+            }
+            else if ((arg.equalsIgnoreCase("--format")) && args.length>i) {
+                format = args[i+1];
+            }
+            else if ((arg.equalsIgnoreCase("--encoding")) && args.length>i) {
+                encoding = args[i+1];
+            }
+            else if ((arg.equalsIgnoreCase("--depth")) && args.length>i) {
+                if (args[i+1].equalsIgnoreCase("average") || args[i+1].equalsIgnoreCase("max")) {
+                    depthOption = args[i+1];
+                }
+                else {
+                    try {
+                        depth = Integer.parseInt(args[i+1]);
+                    } catch (NumberFormatException e) {
+                        e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+                    }
+                }
+            }
+            else if ((arg.equalsIgnoreCase("--subsumers")) && args.length>i) {
+                pathToSubsumerFrequencies = args[i+1];
+                subsumersFrequencies.readSubsumerFrequenciesFromFile(pathToSubsumerFrequencies);
+            }
+            else if ((arg.equalsIgnoreCase("--threshold")) && args.length>i) {
+                try {
+                    threshold = Double.parseDouble(args[i+1]);
+                } catch (NumberFormatException e) {
+                    e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+                }
+            }
+            else if ((arg.equalsIgnoreCase("--tile")) && args.length>i) {
+                try {
+                    tile = Integer.parseInt(args[i+1]);
+                } catch (NumberFormatException e) {
+                    e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+                }
+            }
+            else if ((arg.equalsIgnoreCase("--threads")) && args.length>i) {
+                try {
+                    threads = Integer.parseInt(args[i+1]);
+                } catch (NumberFormatException e) {
+                    e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+                }
+            }
+        }
+        int measure = getMeasure(method);
+        if (pathToWordnetFile.isEmpty()) {
+            System.out.println("Missing parameter for wordnet file \n" +
+                    " --gwg-file global wordnet grid format\n" +
+                    " --cdb-file cornetto export format\n" +
+                    " --lmf-file wordnet lmf format\n");
+            ok = false;
+        }
+        else if (pathToInputFile.isEmpty()) {
+            System.out.println("Missing parameter --input");
+            ok = false;
+        }
+        else if (measure<0) {
+            System.out.println("Missing or unknown parameter --method");
+            ok = false;
+        }
+        else if (!format.equalsIgnoreCase("binary") && !format.equalsIgnoreCase("tsv")) {
+            System.out.println("Unknown value for --format:"+format);
+            ok = false;
+        }
+        else if (measure>=RESNIK && pathToSubsumerFrequencies.isEmpty()) {
+            System.out.println("Missing parameter --subsumers");
+            ok = false;
+        }
+        else if (!isCharset(encoding)) {
+            System.out.println("Unknown value for --encoding:"+encoding);
+            ok = false;
+        }
+        if (!ok) {
+            System.out.println(usage);
+            return;
+        }
+        if (pathToOutputFile.isEmpty()) {
+            if (format.equalsIgnoreCase("binary")) {
+                pathToOutputFile = pathToInputFile+"."+method+".matrix";
+            }
+            else {
+                pathToOutputFile = pathToInputFile+"."+method+".tsv";
+            }
+        }
+        try {
+            String str = "Wordnet Tools, version "+version+", implementation by Piek Vossen (piek.vossen@vu.nl), VU University Amsterdam\n";
+            str += "pathToWordnetFile = " + pathToWordnetFile+"\n";
+            str += "pathToInputFile = " + pathToInputFile+"\n";
+            str += "pathToOutputFile = " + pathToOutputFile+"\n";
+            str += "method = " + method+"\n";
+            str += "format = " + format+"\n";
+            str += "pathToSubsumerFrequencies = " + pathToSubsumerFrequencies+"\n";
+            str += "posFilter = " + posFilter+"\n";
+            str += "pathToRelFile = " + pathToRelFile+"\n";
+            str += "tile = " + tile+"\n";
+            str += "threads = " + threads+"\n";
+            if (!pathToRelFile.isEmpty()) {
+                relations = Util.readRelationsFile(pathToRelFile);
+            }
+            if (wnformat.equalsIgnoreCase("--cdb-file")) {
+                CdbSynSaxParser parser = new CdbSynSaxParser();
+                if (relations.size()>0) parser.setRelations( relations);
+                if (!posFilter.isEmpty()) parser.setPos(posFilter);
+                parser.parseFile(pathToWordnetFile);
+                wordnetData = parser.wordnetData;
+                wordnetData.buildSynsetIndex();
+            }
+            else if (wnformat.equalsIgnoreCase("--gwg-file")) {
+                PwnSaxParser parser = new PwnSaxParser();
+                if (relations.size()>0) parser.setRelations( relations);
+                if (!posFilter.isEmpty()) parser.setPos(posFilter);
+                parser.parseFile(pathToWordnetFile);
+                wordnetData = parser.wordnetData;
+                wordnetData.buildSynsetIndex();
+            }
+            else if (wnformat.equalsIgnoreCase("--lmf-file")) {
+                WordnetLmfSaxParser parser = new WordnetLmfSaxParser();
+                parser.setIndexes(WordnetIndexBuilder.SYNSET_INDEX);
+                if (relations.size()>0) parser.setRelations( relations);
+                if (!posFilter.isEmpty()) parser.setPos(posFilter);
+                parser.parseFile(pathToWordnetFile, threads);
+                wordnetData = parser.wordnetData;
+            }
+            if (depthOption.equalsIgnoreCase("average")) {
+                depth = wordnetData.getAverageDepthBySynset();
+            }
+            else if (depthOption.equalsIgnoreCase("max")) {
+                depth = wordnetData.getMaxDepthBySynset();
+            }
+            str += "depth = " + depth+"\n";
+            if (!pathToSubsumerFrequencies.isEmpty()) {
+                str += "subsumersFrequencies resolved synsets = " + subsumersFrequencies.resolveInformationContent(wordnetData)+"\n";
+            }
+            ArrayList<String> words = Util.readRelationsFile(pathToInputFile, Charset.forName(encoding));
+            str += "words = " + words.size()+"\n";
+            System.out.println(str);
+            long startTime = System.currentTimeMillis();
+            SimilarityMatrix similarityMatrix = new SimilarityMatrix(wordnetData, subsumersFrequencies, measure, depth, words);
+            long nPairs;
+            if (format.equalsIgnoreCase("binary")) {
+                nPairs = similarityMatrix.writeBinary(pathToOutputFile, tile, threads);
+            }
+            else {
+                OutputStream fos = new BufferedOutputStream(new FileOutputStream(pathToOutputFile));
+                nPairs = similarityMatrix.writeTsv(fos, Charset.forName(encoding), threshold, tile, threads);
+                fos.close();
+            }
+            long elapsed = System.currentTimeMillis()-startTime;
+            str = "Compared " + nPairs + " pairs in " + elapsed + " ms with " + Math.max(threads, 1) + " thread(s)";
+            if (elapsed>0) {
+                str += ", " + (nPairs*1000L/elapsed) + " pairs per second";
+            }
+            System.out.println(str);
+        } catch (IOException e) {
+            e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+        }
+    }
+
+    static boolean isCharset (String encoding) {
+        try {
+            return Charset.isSupported(encoding);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param method
+     * @return code of the measure or -1 if the method is not known
+     */
+    static int getMeasure (String method) {
+        if (method.equalsIgnoreCase("path")) return PATH;
+        if (method.equalsIgnoreCase("leacock-chodorow")) return LEACOCK_CHODOROW;
+        if (method.equalsIgnoreCase("wu-palmer")) return WU_PALMER;
+        if (method.equalsIgnoreCase("resnik")) return RESNIK;
+        if (method.equalsIgnoreCase("lin")) return LIN;
+        if (method.equalsIgnoreCase("jiang-conrath")) return JIANG_CONRATH;
+        return -1;
+    }
+
+    private final int measure;
+    private final int averageDepth;
+    private final ArrayList<String> words;
+    /// ordinals of the meanings of each word, empty if the word is unknown
+    private final int [][] senses;
+    /// hypernym chains of each meaning as arrays of ordinals
+    private final int [][][] chains;
+    /// information content of each meaning and of each subsumer, NaN if there is no frequency
+    private final double [] informationContent;
+    private final double icUnknownLcs;
+    private final int nOrdinals;
+
+    /**
+     * Converts the chains of all meanings of the words to arrays of ordinals.
+     * Meanings that are not in the synset graph of the wordnet get an ordinal after those of the graph and a chain
+     * with only the synset itself, as WordnetData.getMultipleHyperChain gives them.
+     * @param wordnetData
+     * @param subsumersFrequencies
+     * @param measure
+     * @param averageDepth fixed depth for Leacock and Chodorow, 0 or less to use the depth of the chains
+     * @param words
+     */
+    public SimilarityMatrix (WordnetData wordnetData, SubsumersFrequencies subsumersFrequencies,
+                             int measure, int averageDepth, ArrayList<String> words) {
+        this.measure = measure;
+        this.averageDepth = averageDepth;
+        this.words = words;
+        HyperPathIndex hyperPathIndex = wordnetData.getHyperPathIndex();
+        SynsetGraph graph = hyperPathIndex.getGraph();
+        HashMap<String, Integer> extraOrdinals = new HashMap<String, Integer>();
+        ArrayList<String> extraIds = new ArrayList<String>();
+        senses = new int[words.size()][];
+        for (int i = 0; i < words.size(); i++) {
+            ArrayList<String> synsets = wordnetData.entryToSynsets.get(words.get(i));
+            if (synsets==null) {
+                senses[i] = new int[0];
+                continue;
+            }
+            senses[i] = new int[synsets.size()];
+            for (int j = 0; j < synsets.size(); j++) {
+                String synsetId = synsets.get(j);
+                int ordinal = graph.getOrdinal(synsetId);
+                if (ordinal<0) {
+                    Integer extra = extraOrdinals.get(synsetId);
+                    if (extra==null) {
+                        extra = graph.size()+extraIds.size();
+                        extraOrdinals.put(synsetId, extra);
+                        extraIds.add(synsetId);
+                    }
+                    ordinal = extra;
+                }
+                senses[i][j] = ordinal;
+            }
+        }
+        nOrdinals = graph.size()+extraIds.size();
+        chains = new int[nOrdinals][][];
+        for (int i = 0; i < senses.length; i++) {
+            for (int j = 0; j < senses[i].length; j++) {
+                int ordinal = senses[i][j];
+                if (chains[ordinal]!=null) {
+                    continue;
+                }
+                if (ordinal<graph.size()) {
+                    HyperPath [] paths = hyperPathIndex.getPaths(ordinal);
+                    chains[ordinal] = new int[paths.length][];
+                    for (int p = 0; p < paths.length; p++) {
+                        chains[ordinal][p] = paths[p].toOrdinals();
+                    }
+                }
+                else {
+                    chains[ordinal] = new int[][] {{ordinal}};
+                }
+            }
+        }
+        informationContent = new double[nOrdinals];
+        if (measure>=RESNIK) {
+            for (int i = 0; i < graph.size(); i++) {
+                informationContent[i] = subsumersFrequencies.getInformationContent(graph, i);
+            }
+            for (int i = 0; i < extraIds.size(); i++) {
+                informationContent[graph.size()+i] = subsumersFrequencies.getInformationContent(extraIds.get(i));
+            }
+        }
+        icUnknownLcs = -Math.log(0/(double) subsumersFrequencies.maxFreq);
+    }
+
+    public int size () {
+        return words.size();
+    }
+
+    /**
+     * Scores a pair of words: the best score of the pairs of their meanings
+     * @param w1 index of the first word
+     * @param w2 index of the second word
+     * @param positions scratch array with nOrdinals elements
+     * @param stamps scratch array with nOrdinals elements
+     * @param stamp last stamp used in stamps, returned updated in stamp[0]
+     * @return score or -1 if no pair of meanings gets a score
+     */
+    double scoreWords (int w1, int w2, int [] positions, int [] stamps, int [] stamp) {
+        double best = -1;
+        for (int i = 0; i < senses[w1].length; i++) {
+            for (int j = 0; j < senses[w2].length; j++) {
+                double score = scoreSynsets(senses[w1][i], senses[w2][j], positions, stamps, stamp);
+                if (score>best) {
+                    best = score;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Scores a pair of synsets as WordnetSimilarityApi.allSimilarity does for words: for every pair of chains
+     * the first element of the source chain that occurs in the target chain is the match
+     */
+    double scoreSynsets (int source, int target, int [] positions, int [] stamps, int [] stamp) {
+        double best = -1;
+        int [][] sourceChains = chains[source];
+        int [][] targetChains = chains[target];
+        double ic1 = informationContent[source];
+        double ic2 = informationContent[target];
+        if (Double.isNaN(ic1)) ic1 = 0;
+        if (Double.isNaN(ic2)) ic2 = 0;
+        for (int l = 0; l < targetChains.length; l++) {
+            int [] hyperTarget = targetChains[l];
+            int current = ++stamp[0];
+            for (int m = hyperTarget.length-1; m >= 0; m--) {
+                stamps[hyperTarget[m]] = current;
+                positions[hyperTarget[m]] = m;
+            }
+            for (int k = 0; k < sourceChains.length; k++) {
+                int [] hyperSource = sourceChains[k];
+                int i1 = -1;
+                int i2 = -1;
+                for (int m = 0; m < hyperSource.length; m++) {
+                    if (stamps[hyperSource[m]]==current) {
+                        i1 = m;
+                        i2 = positions[hyperSource[m]];
+                        break;
+                    }
+                }
+                double score = score(i1, i2, hyperSource, hyperTarget, ic1, ic2);
+                if (score>best) {
+                    best = score;
+                }
+            }
+        }
+        return best;
+    }
+
+    private double score (int i1, int i2, int [] hyperSource, int [] hyperTarget, double ic1, double ic2) {
+        if (measure==PATH) {
+            return BaseLines.GetPath(i1, i2);
+        }
+        else if (measure==LEACOCK_CHODOROW) {
+            int D = averageDepth;
+            if (D<=0) {
+                D = (hyperSource.length+hyperTarget.length)/2;
+            }
+            return LeacockChodorow.GetDistance(D, i1, i2);
+        }
+        else if (measure==WU_PALMER) {
+            return WuPalmer.GetDistance(i1, i2, hyperSource.length, hyperTarget.length);
+        }
+        if (measure==RESNIK) {
+            if (i1>-1) {
+                return informationContent[hyperSource[i1]];
+            }
+            return -1;
+        }
+        double icLcs = 0;
+        if (i1>-1) {
+            icLcs = informationContent[hyperSource[i1]];
+            if (Double.isNaN(icLcs)) {
+                icLcs = icUnknownLcs;
+            }
+        }
+        if (measure==LIN) {
+            return Lin.GetDistance(ic1, ic2, icLcs, i1, i2);
+        }
+        return JiangConrath.GetDistance(ic1, ic2, icLcs, i1, i2);
+    }
+
+    /**
+     * Computes the scores of a tile, rows r0..r1 and columns c0..c1. On the diagonal only the upper half is computed.
+     * @return scores by row and column within the tile
+     */
+    float [][] computeTile (int r0, int r1, int c0, int c1) {
+        int [] positions = new int[nOrdinals];
+        int [] stamps = new int[nOrdinals];
+        int [] stamp = new int[1];
+        float [][] scores = new float[r1-r0][c1-c0];
+        for (int i = r0; i < r1; i++) {
+            for (int j = Math.max(c0, i); j < c1; j++) {
+                scores[i-r0][j-c0] = (float) scoreWords(i, j, positions, stamps, stamp);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Writes the matrix as N x N little-endian floats. The file is mapped in memory by bands of rows, the tiles above
+     * the diagonal are written to their own band and mirrored to the band of their columns.
+     * @param pathToOutputFile
+     * @param tile
+     * @param threads
+     * @return number of pairs that were compared
+     * @throws IOException also when a tile could not be computed, the file is then deleted so that its zeros are not
+     * taken for scores
+     */
+    public long writeBinary (String pathToOutputFile, int tile, int threads) throws IOException {
+        final int n = words.size();
+        final int size = Math.max(1, tile);
+        int nBands = (n+size-1)/size;
+        RandomAccessFile file = new RandomAccessFile(pathToOutputFile, "rw");
+        boolean complete = false;
+        try {
+            FileChannel channel = file.getChannel();
+            file.setLength((long) n*n*4);
+            final MappedByteBuffer [] bands = new MappedByteBuffer[nBands];
+            for (int b = 0; b < nBands; b++) {
+                int rows = Math.min(n, (b+1)*size)-b*size;
+                bands[b] = channel.map(FileChannel.MapMode.READ_WRITE, (long) b*size*n*4, (long) rows*n*4);
+                bands[b].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            long nPairs = computeBands(tile, threads, new TileWriter() {
+                public String write(int r0, int c0, float[][] scores) {
+                    for (int i = 0; i < scores.length; i++) {
+                        for (int j = 0; j < scores[i].length; j++) {
+                            int row = r0+i;
+                            int column = c0+j;
+                            if (column>=row) {
+                                bands[row/size].putFloat(((row%size)*n+column)*4, scores[i][j]);
+                                bands[column/size].putFloat(((column%size)*n+row)*4, scores[i][j]);
+                            }
+                        }
+                    }
+                    return "";
+                }
+            }, null, null);
+            for (int b = 0; b < nBands; b++) {
+                bands[b].force();
+            }
+            complete = true;
+            return nPairs;
+        } finally {
+            file.close();
+            if (!complete) {
+                new File(pathToOutputFile).delete();
+            }
+        }
+    }
+
+    /**
+     * Writes the pairs above the diagonal that score at least the threshold as word, word, score lines
+     * in the order of the word list
+     * @param fos
+     * @param encoding character set of the lines
+     * @param threshold
+     * @param tile
+     * @param threads
+     * @return number of pairs that were compared
+     * @throws IOException
+     */
+    public long writeTsv (OutputStream fos, Charset encoding, final double threshold, int tile, int threads)
+            throws IOException {
+        return computeBands(tile, threads, new TileWriter() {
+            public String write(int r0, int c0, float[][] scores) {
+                StringBuilder output = new StringBuilder();
+                for (int i = 0; i < scores.length; i++) {
+                    for (int j = 0; j < scores[i].length; j++) {
+                        int row = r0+i;
+                        int column = c0+j;
+                        if (column>row && scores[i][j]>=threshold) {
+                            output.append(words.get(row)).append("\t").append(words.get(column)).append("\t")
+                                    .append(scores[i][j]).append("\n");
+                        }
+                    }
+                }
+                return output.toString();
+            }
+        }, fos, encoding);
+    }
+
+    interface TileWriter {
+        /**
+         * Called on the thread that computed the tile
+         * @return output to be written in the order of the tiles
+         */
+        String write (int r0, int c0, float [][] scores);
+    }
+
+    /**
+     * Computes the tiles on and above the diagonal band by band. The tiles of a band are computed on a pool of threads,
+     * and their output is written in the order of the columns before the next band is started.
+     */
+    private long computeBands (int tile, int threads, final TileWriter writer, OutputStream fos, Charset encoding)
+            throws IOException {
+        final int n = words.size();
+        int size = Math.max(1, tile);
+        long nPairs = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(threads, 1));
+        try {
+            for (int r0 = 0; r0 < n; r0 += size) {
+                final int rowStart = r0;
+                final int rowEnd = Math.min(n, r0+size);
+                ArrayList<Future<String>> results = new ArrayList<Future<String>>();
+                for (int c0 = r0; c0 < n; c0 += size) {
+                    final int columnStart = c0;
+                    final int columnEnd = Math.min(n, c0+size);
+                    results.add(executor.submit(new Callable<String>() {
+                        public String call() {
+                            float [][] scores = computeTile(rowStart, rowEnd, columnStart, columnEnd);
+                            return writer.write(rowStart, columnStart, scores);
+                        }
+                    }));
+                }
+                for (int i = 0; i < results.size(); i++) {
+                    try {
+                        String output = results.get(i).get();
+                        if (fos!=null && !output.isEmpty()) {
+                            fos.write(output.getBytes(encoding));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Computing the matrix was interrupted at row "+rowStart);
+                    } catch (ExecutionException e) {
+                        throw new IOException("Computing the tile at row "+rowStart+", column "+(rowStart+i*size)
+                                +" failed: "+e.getCause(), e.getCause());
+                    }
+                }
+                for (int i = rowStart; i < rowEnd; i++) {
+                    nPairs += n-i;
+                }
+            }
+        } finally {
+            /// cancels the tiles of the band that are still waiting when a tile failed
+            executor.shutdownNow();
+        }
+        return nPairs;
+    }
+}
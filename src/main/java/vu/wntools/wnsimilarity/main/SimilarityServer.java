@@ -0,0 +1,1002 @@
+package vu.wntools.wnsimilarity.main;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import vu.wntools.util.Util;
+import vu.wntools.wnsimilarity.WordnetSimilarityApi;
+import vu.wntools.wnsimilarity.corpus.SubsumersFrequencies;
+import vu.wntools.wnsimilarity.measures.AllMeasuresPair;
+import vu.wntools.wnsimilarity.measures.CompactSimilarityPair;
+import vu.wntools.wnsimilarity.measures.SimilarWord;
+import vu.wntools.wnsimilarity.measures.SimilarityPair;
+import vu.wntools.wordnet.*;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Long-running server that loads one or more wordnets once and answers similarity, hypernym, lowest common subsumer
+ * and expansion queries over HTTP on the loopback interface, so that a pipeline does not start a JVM and parse the
+ * wordnet for every batch. Requests are answered by a pool of threads that share frozen copies of the loaded wordnets.
+ *
+ * Endpoints, GET with query parameters, the answer is a JSON object:
+ *   /similarity  method, source, target, optional pairs (words or synsets), depth, trees (true to add the chains)
+ *   /hypernyms   word or synset
+ *   /lcs         source, target, optional pairs (words or synsets)
+ *   /expand      word, optional method, k, pos and depth, or without a method optional levels (default 1): the
+ *                hyponyms of the meanings up to that many levels down
+ *   /stats       number of requests, errors and latency per endpoint
+ *   /batch       POST with one JSON object per line, each with an "endpoint" and the parameters of that endpoint.
+ *                The answers are returned as JSON lines in the order of the input, with the "id" of the line if it has one.
+ * Every query takes an optional wordnet parameter with the name of the wordnet, the first wordnet is the default.
+ */
+public class SimilarityServer {
+    static final String version = "1.0";
+
+    static final String usage = "\n" +
+            "   Loads the wordnets once and answers queries over http on the loopback interface\n" +
+            "   Give one or more wordnet files, optionally preceded by a name and \"=\" (default is the file name)\n" +
+            "   --gwg-file      <path to wordnet file in global wordnet grid format\n" +
+            "   --lmf-file      <path to wordnet file in lmf format\n" +
+            "   --cdb-file      <path to wordnet file in Cornetto export synset format\n" +
+            "   --pos           <optional part-of-speech filter, values: n, v, a\n" +
+            "   --relations     <optional file with relations used for the hiearchy\n"+
+            "   --depth         <optional: a fixed value for average depth can be given, or \"average\" or \"max\" to take\n"+
+            "                    the average or maximum depth of the synsets in the wordnet>\n"+
+            "   --subsumers     <path to a file with subsumer frequencies, required for resnik, lin and jiang-conrath,\n"+
+            "                    optionally preceded by the name of the wordnet and \"=\">\n"+
+            "   --port          <optional: port on the loopback interface, default is 8765>\n"+
+            "   --threads       <optional: number of threads that load LMF files and answer requests, default is the number of processors>\n";
+
+    static final String [] ENDPOINTS = {"similarity", "hypernyms", "lcs", "expand", "batch", "stats"};
+    static final List<String> METHODS = Arrays.asList("path", "leacock-chodorow", "wu-palmer", "resnik", "lin",
+            "jiang-conrath", "all");
+
+    private final LinkedHashMap<String, WordnetData> wordnets;
+    private final HashMap<String, SubsumersFrequencies> subsumers;
+    private final HashMap<String, Integer> depths;
+    private final LinkedHashMap<String, EndpointStats> stats;
+    private int threads;
+    private HttpServer server;
+    private ExecutorService requestExecutor;
+    private ExecutorService batchExecutor;
+
+    /**
+     * @param wordnets loaded wordnets by name, the first is the default
+     * @param subsumers subsumer frequencies resolved for the wordnet of the same name
+     * @param depths default depth for leacock-chodorow by name of the wordnet
+     */
+    public SimilarityServer (LinkedHashMap<String, WordnetData> wordnets,
+                             HashMap<String, SubsumersFrequencies> subsumers,
+                             HashMap<String, Integer> depths) {
+        this.wordnets = wordnets;
+        this.subsumers = subsumers;
+        this.depths = depths;
+        this.stats = new LinkedHashMap<String, EndpointStats>();
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            if (!ENDPOINTS[i].equals("stats")) {
+                stats.put(ENDPOINTS[i], new EndpointStats());
+            }
+        }
+        this.threads = 1;
+    }
+
+    /**
+     * Starts answering requests on the loopback interface
+     * @param port
+     * @param threads number of threads that answer requests and of the threads that answer the lines of batches
+     * @throws IOException
+     */
+    public void start (int port, int threads) throws IOException {
+        this.threads = Math.max(1, threads);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), port), 0);
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            server.createContext("/"+ENDPOINTS[i], new EndpointHandler(ENDPOINTS[i]));
+        }
+        /// the lines of a batch go to their own pool, so a batch never waits for a thread it is holding itself
+        requestExecutor = Executors.newFixedThreadPool(this.threads);
+        batchExecutor = Executors.newFixedThreadPool(this.threads);
+        server.setExecutor(requestExecutor);
+        server.start();
+    }
+
+    public void stop () {
+        if (server!=null) {
+            server.stop(0);
+            requestExecutor.shutdown();
+            batchExecutor.shutdown();
+        }
+    }
+
+    public int getPort () {
+        return server.getAddress().getPort();
+    }
+
+    public EndpointStats getStats (String endpoint) {
+        return stats.get(endpoint);
+    }
+
+    /**
+     * Answers one query and records its latency for the endpoint
+     * @param endpoint similarity, hypernyms, lcs or expand
+     * @param parameters
+     * @return answer
+     * @throws JSONException
+     * @throws IllegalArgumentException if a parameter is missing or wrong
+     */
+    public JSONObject query (String endpoint, Map<String, String> parameters) throws JSONException {
+        EndpointStats endpointStats = stats.get(endpoint);
+        long startTime = System.nanoTime();
+        boolean ok = false;
+        try {
+            JSONObject answer;
+            if (endpoint.equals("similarity")) {
+                answer = similarity(parameters);
+            }
+            else if (endpoint.equals("hypernyms")) {
+                answer = hypernyms(parameters);
+            }
+            else if (endpoint.equals("lcs")) {
+                answer = lowestCommonSubsumers(parameters);
+            }
+            else if (endpoint.equals("expand")) {
+                answer = expand(parameters);
+            }
+            else {
+                throw new IllegalArgumentException("Unknown endpoint = "+endpoint);
+            }
+            ok = true;
+            return answer;
+        } finally {
+            if (endpointStats!=null) {
+                endpointStats.add(System.nanoTime()-startTime, ok);
+            }
+        }
+    }
+
+    JSONObject similarity (Map<String, String> parameters) throws JSONException {
+        String name = getWordnetName(parameters);
+        WordnetData wordnetData = wordnets.get(name);
+        String method = getParameter(parameters, "method");
+        String source = getParameter(parameters, "source");
+        String target = getParameter(parameters, "target");
+        String pairs = getParameter(parameters, "pairs", "words");
+        int depth = getDepth(parameters, name);
+        boolean trees = getParameter(parameters, "trees", "false").equalsIgnoreCase("true");
+        if (!METHODS.contains(method.toLowerCase())) {
+            throw new IllegalArgumentException("Unknown method = "+method);
+        }
+        SubsumersFrequencies subsumersFrequencies = getSubsumersFrequencies(name, method);
+        boolean words = isWords(pairs);
+        JSONObject answer = new JSONObject();
+        answer.put("wordnet", name);
+        answer.put("method", method);
+        answer.put("source", source);
+        answer.put("target", target);
+        if (words && !knownWords(wordnetData, answer, source, target)) {
+            putScore(answer, "score", -1);
+            answer.put("match", "");
+            return answer;
+        }
+        if (method.equalsIgnoreCase("all")) {
+            AllMeasuresPair allMeasuresPair;
+            if (words) {
+                allMeasuresPair = WordnetSimilarityApi.getTopScoringAllMeasuresPair(
+                        WordnetSimilarityApi.wordAllSimilarity(wordnetData, subsumersFrequencies, depth, source, target));
+            }
+            else {
+                allMeasuresPair = WordnetSimilarityApi.synsetAllSimilarity(wordnetData, subsumersFrequencies, depth, source, target);
+            }
+            answer.put("path", toJson(allMeasuresPair.getPath(), trees));
+            answer.put("leacock-chodorow", toJson(allMeasuresPair.getLeacockChodorow(), trees));
+            answer.put("wu-palmer", toJson(allMeasuresPair.getWuPalmer(), trees));
+            answer.put("resnik", toJson(allMeasuresPair.getResnik(), trees));
+            answer.put("lin", toJson(allMeasuresPair.getLin(), trees));
+            answer.put("jiang-conrath", toJson(allMeasuresPair.getJiangConrath(), trees));
+            return answer;
+        }
+        CompactSimilarityPair compactPair;
+        if (words) {
+            compactPair = WordnetSimilarityApi.wordBestCompactSimilarity(wordnetData, subsumersFrequencies,
+                    method, depth, source, target);
+        }
+        else {
+            compactPair = WordnetSimilarityApi.synsetCompactSimilarity(wordnetData, subsumersFrequencies,
+                    method, depth, source, target);
+        }
+        if (compactPair!=null) {
+            putScore(answer, "score", compactPair.getScore());
+            answer.put("match", compactPair.getMatch());
+            answer.put("sourceSynset", compactPair.getSourceId());
+            answer.put("targetSynset", compactPair.getTargetId());
+            if (trees) {
+                answer.put("sourceTree", toJson(wordnetData, compactPair.getSourceTree()));
+                answer.put("targetTree", toJson(wordnetData, compactPair.getTargetTree()));
+            }
+        }
+        else {
+            /// synsets that are not in the wordnet
+            SimilarityPair similarityPair = WordnetSimilarityApi.synsetSimilarity(wordnetData, subsumersFrequencies,
+                    method, depth, source, target);
+            putScore(answer, "score", similarityPair.getScore());
+            answer.put("match", similarityPair.getMatch());
+            answer.put("sourceSynset", similarityPair.getSourceId());
+            answer.put("targetSynset", similarityPair.getTargetId());
+            if (trees) {
+                answer.put("sourceTree", toJson(wordnetData, similarityPair.getSourceTree()));
+                answer.put("targetTree", toJson(wordnetData, similarityPair.getTargetTree()));
+            }
+        }
+        return answer;
+    }
+
+    JSONObject hypernyms (Map<String, String> parameters) throws JSONException {
+        String name = getWordnetName(parameters);
+        WordnetData wordnetData = wordnets.get(name);
+        String word = getParameter(parameters, "word", "");
+        String synset = getParameter(parameters, "synset", "");
+        JSONObject answer = new JSONObject();
+        answer.put("wordnet", name);
+        ArrayList<String> synsets = new ArrayList<String>();
+        if (!synset.isEmpty()) {
+            answer.put("synset", synset);
+            synsets.add(synset);
+        }
+        else if (!word.isEmpty()) {
+            answer.put("word", word);
+            if (!knownWords(wordnetData, answer, word)) {
+                answer.put("senses", new JSONArray());
+                return answer;
+            }
+            synsets = wordnetData.entryToSynsets.get(word);
+        }
+        else {
+            throw new IllegalArgumentException("Missing parameter word or synset");
+        }
+        JSONArray senses = new JSONArray();
+        for (int i = 0; i < synsets.size(); i++) {
+            String synsetId = synsets.get(i);
+            ArrayList<ArrayList<String>> hyperChains = new ArrayList<ArrayList<String>>();
+            wordnetData.getMultipleHyperChain(synsetId, hyperChains);
+            JSONArray chains = new JSONArray();
+            for (int j = 0; j < hyperChains.size(); j++) {
+                chains.put(toJson(wordnetData, hyperChains.get(j)));
+            }
+            JSONObject sense = new JSONObject();
+            sense.put("synset", synsetId);
+            sense.put("chains", chains);
+            senses.put(sense);
+        }
+        answer.put("senses", senses);
+        return answer;
+    }
+
+    /**
+     * The lowest common subsumers of two synsets, or of the meanings of two words with the shortest path
+     */
+    JSONObject lowestCommonSubsumers (Map<String, String> parameters) throws JSONException {
+        String name = getWordnetName(parameters);
+        WordnetData wordnetData = wordnets.get(name);
+        String source = getParameter(parameters, "source");
+        String target = getParameter(parameters, "target");
+        boolean words = isWords(getParameter(parameters, "pairs", "words"));
+        JSONObject answer = new JSONObject();
+        answer.put("wordnet", name);
+        answer.put("source", source);
+        answer.put("target", target);
+        ArrayList<String> sources = new ArrayList<String>();
+        ArrayList<String> targets = new ArrayList<String>();
+        if (words) {
+            if (!knownWords(wordnetData, answer, source, target)) {
+                answer.put("distance", -1);
+                answer.put("lcs", new JSONArray());
+                return answer;
+            }
+            sources = wordnetData.entryToSynsets.get(source);
+            targets = wordnetData.entryToSynsets.get(target);
+        }
+        else {
+            sources.add(source);
+            targets.add(target);
+        }
+        AncestorIndex ancestorIndex = wordnetData.getAncestorIndex();
+        SynsetGraph graph = ancestorIndex.getGraph();
+        int topDistance = -1;
+        int topSource = -1;
+        int topTarget = -1;
+        for (int i = 0; i < sources.size(); i++) {
+            int s = graph.getOrdinal(sources.get(i));
+            if (s<0) {
+                continue;
+            }
+            for (int j = 0; j < targets.size(); j++) {
+                int t = graph.getOrdinal(targets.get(j));
+                if (t<0) {
+                    continue;
+                }
+                int distance = ancestorIndex.getPathLength(s, t);
+                if (distance>-1 && (topDistance<0 || distance<topDistance)) {
+                    topDistance = distance;
+                    topSource = s;
+                    topTarget = t;
+                }
+            }
+        }
+        answer.put("distance", topDistance);
+        ArrayList<String> lcs = new ArrayList<String>();
+        if (topDistance>-1) {
+            answer.put("sourceSynset", graph.getId(topSource));
+            answer.put("targetSynset", graph.getId(topTarget));
+            int [] subsumers = ancestorIndex.getLowestCommonSubsumers(topSource, topTarget);
+            lcs = graph.toIds(subsumers, subsumers.length);
+        }
+        answer.put("lcs", toJson(wordnetData, lcs));
+        return answer;
+    }
+
+    /**
+     * Expands a word with the k most similar lemmas according to a measure, as ExpandWord does,
+     * or with the hyponyms of its meanings if no method is given
+     */
+    JSONObject expand (Map<String, String> parameters) throws JSONException {
+        String name = getWordnetName(parameters);
+        WordnetData wordnetData = wordnets.get(name);
+        String word = getParameter(parameters, "word");
+        String method = getParameter(parameters, "method", "");
+        String pos = getParameter(parameters, "pos", "");
+        int k = getInteger(parameters, "k", 10);
+        int levels = getInteger(parameters, "levels", 1);
+        int depth = getDepth(parameters, name);
+        JSONObject answer = new JSONObject();
+        answer.put("wordnet", name);
+        answer.put("word", word);
+        if (!knownWords(wordnetData, answer, word)) {
+            answer.put(method.isEmpty() ? "senses" : "similar", new JSONArray());
+            return answer;
+        }
+        if (!method.isEmpty()) {
+            if (!METHODS.contains(method.toLowerCase()) || method.equalsIgnoreCase("all")) {
+                throw new IllegalArgumentException("Unknown method = "+method);
+            }
+            answer.put("method", method);
+            SubsumersFrequencies subsumersFrequencies = getSubsumersFrequencies(name, method);
+            ArrayList<SimilarWord> similarWords = WordnetSimilarityApi.wordMostSimilar(wordnetData,
+                    subsumersFrequencies, method, depth, word, pos, k, 1);
+            JSONArray similar = new JSONArray();
+            for (int i = 0; i < similarWords.size(); i++) {
+                SimilarWord similarWord = similarWords.get(i);
+                JSONObject json = new JSONObject();
+                json.put("word", similarWord.getWord());
+                putScore(json, "score", similarWord.getScore());
+                json.put("sourceSynset", similarWord.getSimilarityPair().getSourceId());
+                json.put("targetSynset", similarWord.getSimilarityPair().getTargetId());
+                similar.put(json);
+            }
+            answer.put("similar", similar);
+        }
+        else {
+            SynsetGraph graph = wordnetData.getSynsetGraph();
+            ArrayList<String> synsets = wordnetData.entryToSynsets.get(word);
+            JSONArray senses = new JSONArray();
+            for (int i = 0; i < synsets.size(); i++) {
+                JSONObject sense = new JSONObject();
+                sense.put("synset", synsets.get(i));
+                JSONArray hyponyms = new JSONArray();
+                int ordinal = graph.getOrdinal(synsets.get(i));
+                if (ordinal>-1) {
+                    /// breadth first, every hyponym once at its lowest level
+                    HashSet<Integer> covered = new HashSet<Integer>();
+                    covered.add(ordinal);
+                    ArrayList<Integer> level = new ArrayList<Integer>();
+                    level.add(ordinal);
+                    for (int l = 1; l <= levels && !level.isEmpty(); l++) {
+                        ArrayList<Integer> nextLevel = new ArrayList<Integer>();
+                        for (int j = 0; j < level.size(); j++) {
+                            int [] children = graph.getChildren(level.get(j));
+                            for (int c = 0; c < children.length; c++) {
+                                if (covered.add(children[c])) {
+                                    nextLevel.add(children[c]);
+                                    String hyponymId = graph.getId(children[c]);
+                                    JSONObject hyponym = new JSONObject();
+                                    hyponym.put("synset", hyponymId);
+                                    hyponym.put("level", l);
+                                    hyponym.put("entries", toEntries(wordnetData, hyponymId));
+                                    hyponyms.put(hyponym);
+                                }
+                            }
+                        }
+                        level = nextLevel;
+                    }
+                }
+                sense.put("hyponyms", hyponyms);
+                senses.put(sense);
+            }
+            answer.put("senses", senses);
+        }
+        return answer;
+    }
+
+    /**
+     * Answers the lines of a batch on the batch pool, in blocks of lines per thread
+     * @param lines JSON objects with an endpoint and its parameters
+     * @return the answers as JSON strings in the order of the lines
+     */
+    String [] batch (final ArrayList<String> lines) {
+        String [] answers = new String[lines.size()];
+        int blockSize = (lines.size()+threads-1)/threads;
+        if (threads==1 || lines.size()<2) {
+            for (int i = 0; i < lines.size(); i++) {
+                answers[i] = answerLine(lines.get(i));
+            }
+            return answers;
+        }
+        ArrayList<Future<String[]>> results = new ArrayList<Future<String[]>>();
+        for (int start = 0; start < lines.size(); start += blockSize) {
+            final int from = start;
+            final int to = Math.min(lines.size(), start+blockSize);
+            results.add(batchExecutor.submit(new Callable<String[]>() {
+                public String[] call() {
+                    String [] block = new String[to-from];
+                    for (int i = from; i < to; i++) {
+                        block[i-from] = answerLine(lines.get(i));
+                    }
+                    return block;
+                }
+            }));
+        }
+        int n = 0;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                String [] block = results.get(i).get();
+                System.arraycopy(block, 0, answers, n, block.length);
+                n += block.length;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Batch was interrupted");
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+                throw new IllegalStateException("Batch failed: "+e.getCause());
+            }
+        }
+        return answers;
+    }
+
+    String answerLine (String line) {
+        String id = null;
+        try {
+            JSONObject request = new JSONObject(line);
+            if (request.has("id")) {
+                id = request.optString("id");
+            }
+            HashMap<String, String> parameters = new HashMap<String, String>();
+            Iterator keys = request.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                parameters.put(key, request.optString(key));
+            }
+            JSONObject answer = query(getParameter(parameters, "endpoint"), parameters);
+            if (id!=null) {
+                answer.put("id", id);
+            }
+            return answer.toString();
+        } catch (JSONException e) {
+            return toError(id, "Wrong JSON line: "+e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return toError(id, e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return toError(id, e.toString());
+        }
+    }
+
+    JSONObject getStats () throws JSONException {
+        JSONObject answer = new JSONObject();
+        Iterator<String> keys = stats.keySet().iterator();
+        while (keys.hasNext()) {
+            String endpoint = keys.next();
+            answer.put(endpoint, stats.get(endpoint).toJson());
+        }
+        return answer;
+    }
+
+    public String toString () {
+        String str = "";
+        Iterator<String> keys = stats.keySet().iterator();
+        while (keys.hasNext()) {
+            String endpoint = keys.next();
+            str += endpoint+"\t"+stats.get(endpoint).toString()+"\n";
+        }
+        return str;
+    }
+
+    private class EndpointHandler implements HttpHandler {
+        private final String endpoint;
+
+        EndpointHandler (String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public void handle (HttpExchange exchange) throws IOException {
+            int code = 200;
+            String contentType = "application/json; charset=UTF-8";
+            String body;
+            try {
+                if (endpoint.equals("stats")) {
+                    body = getStats().toString()+"\n";
+                }
+                else if (endpoint.equals("batch")) {
+                    long startTime = System.nanoTime();
+                    boolean ok = false;
+                    try {
+                        if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+                            throw new IllegalArgumentException("The batch endpoint takes a POST with JSON lines");
+                        }
+                        String [] answers = batch(readLines(exchange.getRequestBody()));
+                        StringBuilder builder = new StringBuilder();
+                        for (int i = 0; i < answers.length; i++) {
+                            builder.append(answers[i]).append("\n");
+                        }
+                        body = builder.toString();
+                        contentType = "application/x-ndjson; charset=UTF-8";
+                        ok = true;
+                    } finally {
+                        stats.get(endpoint).add(System.nanoTime()-startTime, ok);
+                    }
+                }
+                else {
+                    body = query(endpoint, parseQuery(exchange.getRequestURI().getRawQuery())).toString()+"\n";
+                }
+            } catch (IllegalArgumentException e) {
+                code = 400;
+                body = toError(null, e.getMessage())+"\n";
+            } catch (Exception e) {
+                e.printStackTrace();
+                code = 500;
+                body = toError(null, e.toString())+"\n";
+            }
+            byte [] bytes = body.getBytes("UTF-8");
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(code, bytes.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+    }
+
+    static ArrayList<String> readLines (InputStream inputStream) throws IOException {
+        ArrayList<String> lines = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+        String line;
+        while ((line = in.readLine())!=null) {
+            if (!line.trim().isEmpty()) {
+                lines.add(line);
+            }
+        }
+        in.close();
+        return lines;
+    }
+
+    static HashMap<String, String> parseQuery (String query) throws UnsupportedEncodingException {
+        HashMap<String, String> parameters = new HashMap<String, String>();
+        if (query==null) {
+            return parameters;
+        }
+        String [] fields = query.split("&");
+        for (int i = 0; i < fields.length; i++) {
+            String field = fields[i];
+            int idx = field.indexOf('=');
+            if (idx>0) {
+                parameters.put(URLDecoder.decode(field.substring(0, idx), "UTF-8"),
+                        URLDecoder.decode(field.substring(idx+1), "UTF-8"));
+            }
+            else if (!field.isEmpty()) {
+                parameters.put(URLDecoder.decode(field, "UTF-8"), "");
+            }
+        }
+        return parameters;
+    }
+
+    static String getParameter (Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value==null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter "+name);
+        }
+        return value;
+    }
+
+    static String getParameter (Map<String, String> parameters, String name, String defaultValue) {
+        String value = parameters.get(name);
+        if (value==null || value.isEmpty()) {
+            return defaultValue;
+        }
+        return value;
+    }
+
+    static int getInteger (Map<String, String> parameters, String name, int defaultValue) {
+        String value = getParameter(parameters, name, "");
+        if (value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Wrong number for "+name+" = "+value);
+        }
+    }
+
+    private String getWordnetName (Map<String, String> parameters) {
+        String name = getParameter(parameters, "wordnet", "");
+        if (name.isEmpty()) {
+            return wordnets.keySet().iterator().next();
+        }
+        if (!wordnets.containsKey(name)) {
+            throw new IllegalArgumentException("Unknown wordnet = "+name);
+        }
+        return name;
+    }
+
+    private int getDepth (Map<String, String> parameters, String name) {
+        Integer depth = depths.get(name);
+        return getInteger(parameters, "depth", depth==null ? 0 : depth);
+    }
+
+    private SubsumersFrequencies getSubsumersFrequencies (String name, String method) {
+        SubsumersFrequencies subsumersFrequencies = subsumers.get(name);
+        if (subsumersFrequencies==null) {
+            if (method.equalsIgnoreCase("resnik") || method.equalsIgnoreCase("lin")
+                    || method.equalsIgnoreCase("jiang-conrath") || method.equalsIgnoreCase("all")) {
+                throw new IllegalArgumentException("No subsumer frequencies for wordnet = "+name);
+            }
+            subsumersFrequencies = new SubsumersFrequencies();
+        }
+        return subsumersFrequencies;
+    }
+
+    private static boolean isWords (String pairs) {
+        if (pairs.equalsIgnoreCase("words")) {
+            return true;
+        }
+        if (pairs.equalsIgnoreCase("synsets")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Unknown pairs = "+pairs+", use words or synsets");
+    }
+
+    /**
+     * Adds the words that are not in the wordnet to the answer
+     * @return true if all words are known
+     */
+    private static boolean knownWords (WordnetData wordnetData, JSONObject answer, String... words) throws JSONException {
+        JSONArray unknown = new JSONArray();
+        for (int i = 0; i < words.length; i++) {
+            if (!wordnetData.entryToSynsets.containsKey(words[i])) {
+                unknown.put(words[i]);
+            }
+        }
+        if (unknown.length()>0) {
+            answer.put("unknown", unknown);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * JSON has no Infinity and NaN, so these scores are given as strings
+     */
+    static void putScore (JSONObject json, String key, double score) throws JSONException {
+        if (Double.isNaN(score) || Double.isInfinite(score)) {
+            json.put(key, Double.toString(score));
+        }
+        else {
+            json.put(key, score);
+        }
+    }
+
+    private JSONObject toJson (SimilarityPair similarityPair, boolean trees) throws JSONException {
+        JSONObject json = new JSONObject();
+        putScore(json, "score", similarityPair.getScore());
+        json.put("match", similarityPair.getMatch());
+        if (trees) {
+            json.put("sourceTree", new JSONArray(similarityPair.getSourceTree()));
+            json.put("targetTree", new JSONArray(similarityPair.getTargetTree()));
+        }
+        return json;
+    }
+
+    /**
+     * @return the synsets with their entries
+     */
+    private static JSONArray toJson (WordnetData wordnetData, ArrayList<String> synsets) throws JSONException {
+        JSONArray chain = new JSONArray();
+        for (int i = 0; i < synsets.size(); i++) {
+            String synsetId = synsets.get(i);
+            JSONObject json = new JSONObject();
+            json.put("synset", synsetId);
+            json.put("entries", toEntries(wordnetData, synsetId));
+            chain.put(json);
+        }
+        return chain;
+    }
+
+    private static JSONArray toEntries (WordnetData wordnetData, String synsetId) {
+        if (wordnetData.synsetToEntries.containsKey(synsetId)) {
+            return new JSONArray(wordnetData.synsetToEntries.get(synsetId));
+        }
+        return new JSONArray();
+    }
+
+    static String toError (String id, String message) {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("error", message==null ? "" : message);
+            if (id!=null) {
+                json.put("id", id);
+            }
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return json.toString();
+    }
+
+    /**
+     * Number of requests, errors and latency of one endpoint. The latencies are counted in buckets of powers of two
+     * microseconds, from which the percentiles are estimated as the upper bound of the bucket.
+     */
+    static public class EndpointStats {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(40);
+
+        void add (long nanos, boolean ok) {
+            requests.incrementAndGet();
+            if (!ok) {
+                errors.incrementAndGet();
+            }
+            totalNanos.addAndGet(nanos);
+            long max = maxNanos.get();
+            while (nanos>max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+            long micros = Math.max(1, nanos/1000);
+            int bucket = Math.min(buckets.length()-1, 63-Long.numberOfLeadingZeros(micros));
+            buckets.incrementAndGet(bucket);
+        }
+
+        public long getRequests() {
+            return requests.get();
+        }
+
+        public long getErrors() {
+            return errors.get();
+        }
+
+        /**
+         * @return mean latency in milliseconds, 0 if there were no requests
+         */
+        public double getMean() {
+            long n = getRequests();
+            if (n==0) {
+                return 0;
+            }
+            return totalNanos.get()/(n*1000000.0);
+        }
+
+        public double getMax() {
+            return maxNanos.get()/1000000.0;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return upper bound in milliseconds of the latency below which the percentile of the requests fall
+         */
+        public double getPercentile (double percentile) {
+            long n = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                n += buckets.get(i);
+            }
+            if (n==0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(n*percentile/100.0);
+            long count = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                count += buckets.get(i);
+                if (count>=rank && count>0) {
+                    return Math.min(getMax(), (1L<<(i+1))/1000.0);
+                }
+            }
+            return getMax();
+        }
+
+        JSONObject toJson () throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("requests", getRequests());
+            json.put("errors", getErrors());
+            json.put("meanMs", getMean());
+            json.put("p50Ms", getPercentile(50));
+            json.put("p99Ms", getPercentile(99));
+            json.put("maxMs", getMax());
+            return json;
+        }
+
+        public String toString () {
+            return "requests = "+getRequests()+", errors = "+getErrors()+", mean ms = "+getMean()
+                    +", p50 ms = "+getPercentile(50)+", p99 ms = "+getPercentile(99)+", max ms = "+getMax();
+        }
+    }
+
+    static public void main (String[] args) {
+        ArrayList<String[]> wordnetFiles = new ArrayList<String[]>();
+        ArrayList<String[]> subsumerFiles = new ArrayList<String[]>();
+        ArrayList<String> relations = new ArrayList<String>();
+        String pathToRelFile = "";
+        String posFilter = "";
+        String depthOption = "";
+        int port = 8765;
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length==0) {
+            System.out.println(usage);
+            return;
+        }
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ((arg.equalsIgnoreCase("--lmf-file") || arg.equalsIgnoreCase("--gwg-file")
+                    || arg.equalsIgnoreCase("--cdb-file")) && args.length>i+1) {
+                String [] nameAndPath = getNameAndPath(args[i+1]);
+                wordnetFiles.add(new String[] {arg, nameAndPath[0], nameAndPath[1]});
+            }
+            else if ((arg.equalsIgnoreCase("--subsumers")) && args.length>i+1) {
+                String [] nameAndPath = getNameAndPath(args[i+1]);
+                if (nameAndPath[0].equals(new File(nameAndPath[1]).getName())) {
+                    /// no name, the frequencies are used for all wordnets
+                    nameAndPath[0] = "";
+                }
+                subsumerFiles.add(nameAndPath);
+            }
+            else if ((arg.equalsIgnoreCase("--relations")) && args.length>i+1) {
+                pathToRelFile = args[i+1];
+            }
+            else if ((arg.equalsIgnoreCase("--pos")) && args.length>i+1) {
+                posFilter = args[i+1];
+            }
+            else if ((arg.equalsIgnoreCase("--depth")) && args.length>i+1) {
+                depthOption = args[i+1];
+            }
+            else if ((arg.equalsIgnoreCase("--port")) && args.length>i+1) {
+                try {
+                    port = Integer.parseInt(args[i+1]);
+                } catch (NumberFormatException e) {
+                    e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+                }
+            }
+            else if ((arg.equalsIgnoreCase("--threads")) && args.length>i+1) {
+                try {
+                    threads = Integer.parseInt(args[i+1]);
+                } catch (NumberFormatException e) {
+                    e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+                }
+            }
+        }
+        if (wordnetFiles.isEmpty()) {
+            System.out.println("Missing parameter for wordnet file \n" +
+                    " --gwg-file global wordnet grid format\n" +
+                    " --cdb-file cornetto export format\n" +
+                    " --lmf-file wordnet lmf format\n");
+            System.out.println(usage);
+            return;
+        }
+        if (!pathToRelFile.isEmpty()) {
+            relations = Util.readRelationsFile(pathToRelFile);
+        }
+        LinkedHashMap<String, WordnetData> wordnets = new LinkedHashMap<String, WordnetData>();
+        HashMap<String, SubsumersFrequencies> subsumers = new HashMap<String, SubsumersFrequencies>();
+        HashMap<String, Integer> depths = new HashMap<String, Integer>();
+        for (int i = 0; i < wordnetFiles.size(); i++) {
+            String wnformat = wordnetFiles.get(i)[0];
+            String name = wordnetFiles.get(i)[1];
+            String pathToWordnetFile = wordnetFiles.get(i)[2];
+            long startTime = System.currentTimeMillis();
+            /// read-only copy with all indexes built before the first request, shared by the request threads
+            WordnetData wordnetData = loadWordnet(wnformat, pathToWordnetFile, relations, posFilter, threads).freeze();
+            int depth = 0;
+            if (depthOption.equalsIgnoreCase("average")) {
+                depth = wordnetData.getAverageDepthBySynset();
+            }
+            else if (depthOption.equalsIgnoreCase("max")) {
+                depth = wordnetData.getMaxDepthBySynset();
+            }
+            else if (!depthOption.isEmpty()) {
+                try {
+                    depth = Integer.parseInt(depthOption);
+                } catch (NumberFormatException e) {
+                    e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+                }
+            }
+            wordnets.put(name, wordnetData);
+            depths.put(name, depth);
+            for (int j = 0; j < subsumerFiles.size(); j++) {
+                String [] nameAndPath = subsumerFiles.get(j);
+                if (nameAndPath[0].isEmpty() || nameAndPath[0].equals(name)) {
+                    SubsumersFrequencies subsumersFrequencies = new SubsumersFrequencies();
+                    subsumersFrequencies.readSubsumerFrequenciesFromFile(nameAndPath[1]);
+                    subsumersFrequencies.resolveInformationContent(wordnetData);
+                    subsumers.put(name, subsumersFrequencies);
+                }
+            }
+            System.out.println("wordnet = " + name + ", file = " + pathToWordnetFile
+                    + ", entries = " + wordnetData.entryToSynsets.size()
+                    + ", synsets = " + wordnetData.getHyperRelations().size()
+                    + ", depth = " + depth
+                    + ", subsumers = " + subsumers.containsKey(name)
+                    + ", load time = " + (System.currentTimeMillis()-startTime) + " ms");
+        }
+        final SimilarityServer similarityServer = new SimilarityServer(wordnets, subsumers, depths);
+        try {
+            similarityServer.start(port, threads);
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    similarityServer.stop();
+                    System.out.println(similarityServer.toString());
+                }
+            });
+            System.out.println("Wordnet Tools similarity server, version "+version+", listening on http://127.0.0.1:"
+                    + similarityServer.getPort() + "/ with " + threads + " threads");
+        } catch (IOException e) {
+            e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
+        }
+    }
+
+    /**
+     * @param value path, or name=path
+     * @return name and path, the name is the file name if none is given
+     */
+    static String [] getNameAndPath (String value) {
+        int idx = value.indexOf('=');
+        if (idx>0 && !new File(value).exists()) {
+            return new String[] {value.substring(0, idx), value.substring(idx+1)};
+        }
+        return new String[] {new File(value).getName(), value};
+    }
+
+    static WordnetData loadWordnet (String wnformat, String pathToWordnetFile, ArrayList<String> relations, String posFilter,
+                                    int threads) {
+        WordnetData wordnetData = new WordnetData();
+        if (wnformat.equalsIgnoreCase("--cdb-file")) {
+            CdbSynSaxParser parser = new CdbSynSaxParser();
+            if (relations.size()>0) parser.setRelations( relations);
+            if (!posFilter.isEmpty()) parser.setPos(posFilter);
+            parser.parseFile(pathToWordnetFile);
+            wordnetData = parser.wordnetData;
+            wordnetData.buildSynsetIndex();
+        }
+        else if (wnformat.equalsIgnoreCase("--gwg-file")) {
+            PwnSaxParser parser = new PwnSaxParser();
+            if (relations.size()>0) parser.setRelations( relations);
+            if (!posFilter.isEmpty()) parser.setPos(posFilter);
+            parser.parseFile(pathToWordnetFile);
+            wordnetData = parser.wordnetData;
+            wordnetData.buildSynsetIndex();
+        }
+        else if (wnformat.equalsIgnoreCase("--lmf-file")) {
+            WordnetLmfSaxParser parser = new WordnetLmfSaxParser();
+            parser.setIndexes(WordnetIndexBuilder.SYNSET_INDEX);
+            if (relations.size()>0) parser.setRelations( relations);
+            if (!posFilter.isEmpty()) parser.setPos(posFilter);
+            parser.parseFile(pathToWordnetFile, threads);
+            wordnetData = parser.wordnetData;
+        }
+        return wordnetData;
+    }
+}
@@ -0,0 +1,166 @@
+package vu.wntools.wnsimilarity.measures;
+
+/**
+ * Result of comparing a source and a target with all measures at once.
+ * Holds a SimilarityPair for each measure with its own score, match and trees,
+ * together with the information content values that were used for the best Resnik, Lin and Jiang and Conrath pairs.
+ */
+public class AllMeasuresPair {
+
+    private String sourceId;
+    private String targetId;
+    private SimilarityPair path;
+    private SimilarityPair leacockChodorow;
+    private SimilarityPair wuPalmer;
+    private SimilarityPair resnik;
+    private SimilarityPair lin;
+    private SimilarityPair jiangConrath;
+    double resnikValue;
+    double linIc1;
+    double linIc2;
+    double linIcLcs;
+    double jiangConrathIc1;
+    double jiangConrathIc2;
+    double jiangConrathIcLcs;
+
+    public AllMeasuresPair() {
+        this.sourceId = "";
+        this.targetId = "";
+        this.path = new SimilarityPair();
+        this.leacockChodorow = new SimilarityPair();
+        this.wuPalmer = new SimilarityPair();
+        this.resnik = new SimilarityPair();
+        this.lin = new SimilarityPair();
+        this.jiangConrath = new SimilarityPair();
+        this.resnikValue = 0;
+        this.linIc1 = 0;
+        this.linIc2 = 0;
+        this.linIcLcs = 0;
+        this.jiangConrathIc1 = 0;
+        this.jiangConrathIc2 = 0;
+        this.jiangConrathIcLcs = 0;
+    }
+
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public void setSourceId(String sourceId) {
+        this.sourceId = sourceId;
+    }
+
+    public String getTargetId() {
+        return targetId;
+    }
+
+    public void setTargetId(String targetId) {
+        this.targetId = targetId;
+    }
+
+    public SimilarityPair getPath() {
+        return path;
+    }
+
+    public void setPath(SimilarityPair path) {
+        this.path = path;
+    }
+
+    public SimilarityPair getLeacockChodorow() {
+        return leacockChodorow;
+    }
+
+    public void setLeacockChodorow(SimilarityPair leacockChodorow) {
+        this.leacockChodorow = leacockChodorow;
+    }
+
+    public SimilarityPair getWuPalmer() {
+        return wuPalmer;
+    }
+
+    public void setWuPalmer(SimilarityPair wuPalmer) {
+        this.wuPalmer = wuPalmer;
+    }
+
+    public SimilarityPair getResnik() {
+        return resnik;
+    }
+
+    public void setResnik(SimilarityPair resnik) {
+        this.resnik = resnik;
+    }
+
+    public SimilarityPair getLin() {
+        return lin;
+    }
+
+    public void setLin(SimilarityPair lin) {
+        this.lin = lin;
+    }
+
+    public SimilarityPair getJiangConrath() {
+        return jiangConrath;
+    }
+
+    public void setJiangConrath(SimilarityPair jiangConrath) {
+        this.jiangConrath = jiangConrath;
+    }
+
+    /**
+     * @return probability of the Resnik match, 0 if there is no frequency for it
+     */
+    public double getResnikValue() {
+        return resnikValue;
+    }
+
+    public void setResnikValue(double resnikValue) {
+        this.resnikValue = resnikValue;
+    }
+
+    public double getLinIc1() {
+        return linIc1;
+    }
+
+    public void setLinIc1(double linIc1) {
+        this.linIc1 = linIc1;
+    }
+
+    public double getLinIc2() {
+        return linIc2;
+    }
+
+    public void setLinIc2(double linIc2) {
+        this.linIc2 = linIc2;
+    }
+
+    public double getLinIcLcs() {
+        return linIcLcs;
+    }
+
+    public void setLinIcLcs(double linIcLcs) {
+        this.linIcLcs = linIcLcs;
+    }
+
+    public double getJiangConrathIc1() {
+        return jiangConrathIc1;
+    }
+
+    public void setJiangConrathIc1(double jiangConrathIc1) {
+        this.jiangConrathIc1 = jiangConrathIc1;
+    }
+
+    public double getJiangConrathIc2() {
+        return jiangConrathIc2;
+    }
+
+    public void setJiangConrathIc2(double jiangConrathIc2) {
+        this.jiangConrathIc2 = jiangConrathIc2;
+    }
+
+    public double getJiangConrathIcLcs() {
+        return jiangConrathIcLcs;
+    }
+
+    public void setJiangConrathIcLcs(double jiangConrathIcLcs) {
+        this.jiangConrathIcLcs = jiangConrathIcLcs;
+    }
+}
@@ -9,20 +9,48 @@ import java.util.ArrayList;
  * Time: 3:03 PM
  * To change this template use File | Settings | File Templates.
  */
-public class BaseLines {
+public class BaseLines implements SimilarityMeasure {
 
+    /** @deprecated set by the static methods only, use a MeasureResult */
+    @Deprecated
     public static String match = "";
 
+    /**
+     * @deprecated not thread-safe, use getSimilarity with a MeasureResult
+     */
+    @Deprecated
     public static double GetPath (ArrayList<String> hyp1, ArrayList<String> hyp2) {
+        MeasureResult result = new MeasureResult();
+        double distance = new BaseLines().getSimilarity(hyp1, hyp2, result);
+        if (result.getSourceIndex()>-1) {
+            match = result.getMatch();
+        }
+        return distance;
+    }
+
+    /**
+     * Path score of two hyper chains
+     * @param hyp1
+     * @param hyp2
+     * @param result
+     * @return
+     */
+    public double getSimilarity (ArrayList<String> hyp1, ArrayList<String> hyp2, MeasureResult result) {
+        result.reset();
+        result.findMatch(hyp1, hyp2);
+        return GetPath(result.sourceIndex, result.targetIndex);
+    }
+
+    /**
+     * Path score for a match that is already found
+     * @param i1 position of the match in the first chain, -1 if there is no match
+     * @param i2 position of the match in the second chain
+     * @return
+     */
+    public static double GetPath (int i1, int i2) {
         double distance = -1;
-        for (int i = 0; i < hyp1.size(); i++) {
-            String s = hyp1.get(i);
-            int i2 = hyp2.indexOf(s);
-            if (i2>-1) {
-                distance = 1+i+i2; /// additional 1 for node counting and avoiding zero values
-                match = s;
-                break;
-            }
+        if (i1>-1) {
+            distance = 1+i1+i2; /// additional 1 for node counting and avoiding zero values
         }
         distance = 1/distance;
         return distance;
@@ -0,0 +1,128 @@
+package vu.wntools.wnsimilarity.measures;
+
+import vu.wntools.wordnet.HyperPath;
+import vu.wntools.wordnet.HyperPathIndex;
+import vu.wntools.wordnet.SynsetGraph;
+
+import java.util.ArrayList;
+
+/**
+ * Result of comparing two synsets that only holds the score and ordinals.
+ *
+ * The source, target and match are synset ordinals of the graph of the HyperPathIndex, and the trees are the
+ * positions of the best chains in the chains of the source and target. Ids and trees are only made when they are asked
+ * for, so scoring many pairs does not create strings and lists for every pair.
+ * A pair without a source and target (ordinals -1) is the empty result, as a new SimilarityPair is.
+ */
+public class CompactSimilarityPair {
+
+    private final HyperPathIndex hyperPathIndex;
+    private final int source;
+    private final int target;
+    private double score;
+    private int match;
+    private int sourceChain;
+    private int targetChain;
+
+    public CompactSimilarityPair(HyperPathIndex hyperPathIndex, int source, int target) {
+        this.hyperPathIndex = hyperPathIndex;
+        this.source = source;
+        this.target = target;
+        this.score = -1;
+        this.match = -1;
+        this.sourceChain = -1;
+        this.targetChain = -1;
+    }
+
+    /**
+     * @param score
+     * @param match ordinal of the match, -1 if there is none
+     * @param sourceChain position of the best chain in the chains of the source
+     * @param targetChain position of the best chain in the chains of the target
+     */
+    public void set (double score, int match, int sourceChain, int targetChain) {
+        this.score = score;
+        this.match = match;
+        this.sourceChain = sourceChain;
+        this.targetChain = targetChain;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public int getTarget() {
+        return target;
+    }
+
+    /**
+     * @return ordinal of the match, -1 if there is none
+     */
+    public int getMatchOrdinal() {
+        return match;
+    }
+
+    public int getSourceChain() {
+        return sourceChain;
+    }
+
+    public int getTargetChain() {
+        return targetChain;
+    }
+
+    public String getSourceId() {
+        return getId(source);
+    }
+
+    public String getTargetId() {
+        return getId(target);
+    }
+
+    public String getMatch() {
+        return getId(match);
+    }
+
+    private String getId (int ordinal) {
+        if (ordinal<0) {
+            return "";
+        }
+        return hyperPathIndex.getGraph().getId(ordinal);
+    }
+
+    public ArrayList<String> getSourceTree() {
+        return getTree(source, sourceChain);
+    }
+
+    public ArrayList<String> getTargetTree() {
+        return getTree(target, targetChain);
+    }
+
+    private ArrayList<String> getTree (int ordinal, int chain) {
+        if (chain<0) {
+            return new ArrayList<String>();
+        }
+        SynsetGraph graph = hyperPathIndex.getGraph();
+        HyperPath [] paths = hyperPathIndex.getPaths(ordinal);
+        return paths[chain].toIds(graph);
+    }
+
+    /**
+     * @return a SimilarityPair with the ids, match and trees of this pair
+     */
+    public SimilarityPair toSimilarityPair () {
+        SimilarityPair similarityPair = new SimilarityPair();
+        similarityPair.setSourceId(getSourceId());
+        similarityPair.setTargetId(getTargetId());
+        if (sourceChain>-1) {
+            similarityPair.setScore(score);
+            similarityPair.setMatch(getMatch());
+            similarityPair.setSourceTree(getSourceTree());
+            similarityPair.setTargetTree(getTargetTree());
+        }
+        return similarityPair;
+    }
+}
@@ -9,33 +9,70 @@ import java.util.ArrayList;
  * Time: 11:43 AM
  * To change this template use File | Settings | File Templates.
  */
-public class LeacockChodorow {
+public class LeacockChodorow implements SimilarityMeasure {
+    /** @deprecated set by the static GetDistance only, use a MeasureResult */
+    @Deprecated
     public static String match = "";
+
+    private final int averageDepth;
+    private final int depthOffset;
+
+    /**
+     * Leacock & Chodorow with a fixed average depth
+     * @param averageDepth
+     */
+    public LeacockChodorow (int averageDepth) {
+        this(averageDepth, 0);
+    }
+
+    /**
+     * @param averageDepth fixed average depth, 0 or less to use the depth of the two chains that are compared
+     * @param depthOffset added to the depth of the chains when there is no fixed average depth
+     */
+    public LeacockChodorow (int averageDepth, int depthOffset) {
+        this.averageDepth = averageDepth;
+        this.depthOffset = depthOffset;
+    }
+
     /**
      *  Calculates the distance according to Leacock & Chodorow by
      * @param averageDepth
      * @param hyp1
      * @param hyp2
      * @return
+     * @deprecated not thread-safe, use getSimilarity with a MeasureResult
      */
+    @Deprecated
     public static double GetDistance(int averageDepth, ArrayList<String> hyp1, ArrayList<String> hyp2) {
+        MeasureResult result = new MeasureResult();
+        result.findMatch(hyp1, hyp2);
+        match = result.getMatch();
+        return GetDistance(averageDepth, result.getSourceIndex(), result.getTargetIndex());
+    }
+
+    public double getSimilarity (ArrayList<String> hyp1, ArrayList<String> hyp2, MeasureResult result) {
         /// Adapted Leacock Chodorow algorithm (1988). Average depth can be based on the depth of the words in the document,
         //// average of all wordnet or of the two synsets compared
-        double distance = -1;
-        match = "";
-        for (int i = 0; i < hyp1.size(); i++) {
-            String s = hyp1.get(i);
-            int i2 = hyp2.indexOf(s);
-            if (i2>-1) {
-                distance = 1+i+i2; /// node counting additional 1 for dividing by zero
-                match = s;
-                break;
-            }
-            else {
-                //// there is no intersection so the distance remains -1
-            }
+        result.reset();
+        result.findMatch(hyp1, hyp2);
+        int D = averageDepth;
+        if (D<=0) {
+            D = depthOffset+(hyp1.size()+hyp2.size())/2;
         }
-        if (distance>-1) {
+        return GetDistance(D, result.sourceIndex, result.targetIndex);
+    }
+
+    /**
+     * Leacock & Chodorow score for a match that is already found
+     * @param averageDepth
+     * @param i1 position of the match in the first chain, -1 if there is no match
+     * @param i2 position of the match in the second chain
+     * @return
+     */
+    public static double GetDistance(int averageDepth, int i1, int i2) {
+        double distance = -1;
+        if (i1>-1) {
+            distance = 1+i1+i2; /// node counting additional 1 for dividing by zero
             distance = - Math.log(distance/(2*averageDepth));
         }
         return distance;
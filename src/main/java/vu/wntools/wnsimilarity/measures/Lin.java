@@ -1,5 +1,7 @@
 package vu.wntools.wnsimilarity.measures;
 
+import vu.wntools.wnsimilarity.corpus.SubsumersFrequencies;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -10,20 +12,71 @@ import java.util.HashMap;
  * Time: 2:57 PM
  * To change this template use File | Settings | File Templates.
  */
-public class Lin {
+public class Lin implements SimilarityMeasure {
 
+    /** @deprecated set by the static GetDistance only, use a MeasureResult */
+    @Deprecated
     public static String match = "";
+    @Deprecated
     public static double valueIc1 = 0;
+    @Deprecated
     public static double valueIc2 = 0;
+    @Deprecated
     public static double valueIcLcs = 0;
 
 
+    private final HashMap<String, Long> hyperFrequencies;
+    private final Long topFrequency;
+    private final SubsumersFrequencies subsumersFrequencies;
+
+    public Lin (HashMap<String, Long> hyperFrequencies, Long topFrequency) {
+        this.hyperFrequencies = hyperFrequencies;
+        this.topFrequency = topFrequency;
+        this.subsumersFrequencies = null;
+    }
+
+    /**
+     * Uses the information content array of the subsumers frequencies if it is resolved against the wordnet
+     * @param subsumersFrequencies
+     */
+    public Lin (SubsumersFrequencies subsumersFrequencies) {
+        this.hyperFrequencies = subsumersFrequencies.data;
+        this.topFrequency = subsumersFrequencies.maxFreq;
+        this.subsumersFrequencies = subsumersFrequencies;
+    }
+
+    /**
+     * @param synsetId
+     * @return information content of the synset or NaN if there is no frequency for it
+     */
+    private double getInformationContent (String synsetId) {
+        if (subsumersFrequencies!=null) {
+            return subsumersFrequencies.getInformationContent(synsetId);
+        }
+        Long freq = hyperFrequencies.get(synsetId);
+        if (freq==null) {
+            return Double.NaN;
+        }
+        return -Math.log((double) freq/(double) topFrequency);
+    }
+
+    /**
+     * @deprecated not thread-safe, use getSimilarity with a MeasureResult
+     */
+    @Deprecated
     public static double GetDistance (HashMap<String, Long> hyperFrequencies, Long topFrequency, ArrayList<String> hyp1, ArrayList<String> hyp2) {
+        MeasureResult result = new MeasureResult();
+        double distance = new Lin(hyperFrequencies, topFrequency).getSimilarity(hyp1, hyp2, result);
+        match = result.getMatch();
+        valueIc1 = result.getIc1();
+        valueIc2 = result.getIc2();
+        valueIcLcs = result.getIcLcs();
+        return distance;
+    }
+
+    public double getSimilarity (ArrayList<String> hyp1, ArrayList<String> hyp2, MeasureResult result) {
         double distance = -1;
-        match = "";
-        valueIc1 = 0;
-        valueIc2 = 0;
-        valueIcLcs = 0;
+        result.reset();
 
         int i1 = -1;
         int i2 = -1;
@@ -31,17 +84,17 @@ public class Lin {
         double ic2 = 0;
         double icLcs = 0;
 
-        if (hyperFrequencies.containsKey(hyp1.get(0))) {
-            double prob = (double) hyperFrequencies.get(hyp1.get(0));
-            ic1 = -Math.log(prob/(double) topFrequency);
-            valueIc1 = ic1;
+        double ic = getInformationContent(hyp1.get(0));
+        if (!Double.isNaN(ic)) {
+            ic1 = ic;
+            result.ic1 = ic1;
          //   System.out.println("valueIc1 = " + valueIc1);
         }
 
-        if (hyperFrequencies.containsKey(hyp2.get(0))) {
-            double prob = (double) hyperFrequencies.get(hyp2.get(0));
-            ic2 = -Math.log(prob/(double) topFrequency);
-            valueIc2 = ic2;
+        ic = getInformationContent(hyp2.get(0));
+        if (!Double.isNaN(ic)) {
+            ic2 = ic;
+            result.ic2 = ic2;
          //   System.out.println("valueIc2 = " + valueIc2);
         }
 
@@ -88,17 +141,18 @@ distance = Infinity
             i2 = hyp2.indexOf(s);
             if (i2>-1) {
                 i1= i;
-                double prob = 0;
-                if (hyperFrequencies.containsKey(s)) {
-                    prob = (double) hyperFrequencies.get(s);
+                icLcs = getInformationContent(s);
+                if (Double.isNaN(icLcs)) {
+                    icLcs = -Math.log(0/(double) topFrequency);
                 }
-                icLcs = -Math.log(prob / (double) topFrequency);
                 if (icLcs==-0) {
                   //  System.out.println("prob = " + prob);
                   //  System.out.println("nWords = " + topFrequency);
                 }
-                valueIcLcs = icLcs;
-                match = s;
+                result.icLcs = icLcs;
+                result.match = s;
+                result.sourceIndex = i1;
+                result.targetIndex = i2;
                 // System.out.println("prob = " + prob);
                 // System.out.println("nWords = " + nWords);
                 // System.out.println("s = " + s);
@@ -107,6 +161,35 @@ distance = Infinity
             }
         }
 
+        distance = GetDistance(ic1, ic2, icLcs, i1, i2);
+
+/*        if (distance==-0.0) {
+            System.out.println("hyp1.toString() = " + hyp1.toString());
+            System.out.println("hyp2.toString() = " + hyp2.toString());
+            System.out.println("i1 = " + i1);
+            System.out.println("i2 = " + i2);
+            System.out.println("match = " + match);
+            System.out.println("ic1 = " + ic1);
+            System.out.println("ic2 = " + ic2);
+            System.out.println("icLcs = " + icLcs);
+            System.out.println("ic1+ic2 = " + ic1 + ic2);
+            System.out.println("(ic1+ic2-(2*icLcs)) = " + (ic1 + ic2 - (2 * icLcs)));
+            System.out.println("distance = " + distance);
+        }*/
+        return distance;
+    }
+
+    /**
+     * Lin score for information content values that are already known
+     * @param ic1 information content of the first synset, 0 if unknown
+     * @param ic2 information content of the second synset, 0 if unknown
+     * @param icLcs information content of the lowest common subsumer
+     * @param i1 position of the subsumer in the first chain, -1 if there is no match
+     * @param i2 position of the subsumer in the second chain
+     * @return
+     */
+    public static double GetDistance (double ic1, double ic2, double icLcs, int i1, int i2) {
+        double distance = -1;
         //we often do not have the frequency of the word and get the frequency of the hypernym
         //to avoid dividing by zero, we set distance to 0
         if (ic1==0 || ic2==0)    {
@@ -131,20 +214,6 @@ distance = Infinity
         else {
             distance = (2*icLcs)/(ic1+ic2);
         }
-
-/*        if (distance==-0.0) {
-            System.out.println("hyp1.toString() = " + hyp1.toString());
-            System.out.println("hyp2.toString() = " + hyp2.toString());
-            System.out.println("i1 = " + i1);
-            System.out.println("i2 = " + i2);
-            System.out.println("match = " + match);
-            System.out.println("ic1 = " + ic1);
-            System.out.println("ic2 = " + ic2);
-            System.out.println("icLcs = " + icLcs);
-            System.out.println("ic1+ic2 = " + ic1 + ic2);
-            System.out.println("(ic1+ic2-(2*icLcs)) = " + (ic1 + ic2 - (2 * icLcs)));
-            System.out.println("distance = " + distance);
-        }*/
         return distance;
     }
 }
@@ -0,0 +1,93 @@
+package vu.wntools.wnsimilarity.measures;
+
+import java.util.ArrayList;
+
+/**
+ * Holder for the details of a single SimilarityMeasure call: the first element of the source chain that also occurs
+ * in the target chain (the match), its positions in both chains and the information content values used by the
+ * frequency based measures. The caller creates it once and passes it to every call.
+ */
+public class MeasureResult {
+
+    String match;
+    int sourceIndex;
+    int targetIndex;
+    double ic1;
+    double ic2;
+    double icLcs;
+    double probability;
+
+    public MeasureResult() {
+        reset();
+    }
+
+    public void reset() {
+        this.match = "";
+        this.sourceIndex = -1;
+        this.targetIndex = -1;
+        this.ic1 = 0;
+        this.ic2 = 0;
+        this.icLcs = 0;
+        this.probability = -1;
+    }
+
+    /**
+     * Looks for the first element of hyp1 that occurs in hyp2
+     * @param hyp1
+     * @param hyp2
+     * @return true if there is a match
+     */
+    boolean findMatch (ArrayList<String> hyp1, ArrayList<String> hyp2) {
+        for (int i = 0; i < hyp1.size(); i++) {
+            String s = hyp1.get(i);
+            int i2 = hyp2.indexOf(s);
+            if (i2>-1) {
+                match = s;
+                sourceIndex = i;
+                targetIndex = i2;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the lowest common subsumer of the chains, empty if there is none
+     */
+    public String getMatch() {
+        return match;
+    }
+
+    /**
+     * @return position of the match in the source chain, -1 if there is no match
+     */
+    public int getSourceIndex() {
+        return sourceIndex;
+    }
+
+    /**
+     * @return position of the match in the target chain, -1 if there is no match
+     */
+    public int getTargetIndex() {
+        return targetIndex;
+    }
+
+    public double getIc1() {
+        return ic1;
+    }
+
+    public double getIc2() {
+        return ic2;
+    }
+
+    public double getIcLcs() {
+        return icLcs;
+    }
+
+    /**
+     * @return probability of the match used by Resnik, -1 if there is no frequency for it
+     */
+    public double getProbability() {
+        return probability;
+    }
+}
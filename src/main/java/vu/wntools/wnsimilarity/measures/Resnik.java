@@ -1,5 +1,7 @@
 package vu.wntools.wnsimilarity.measures;
 
+import vu.wntools.wnsimilarity.corpus.SubsumersFrequencies;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -10,31 +12,89 @@ import java.util.HashMap;
  * Time: 9:51 AM
  * To change this template use File | Settings | File Templates.
  */
-public class Resnik {
+public class Resnik implements SimilarityMeasure {
 
+    /** @deprecated set by the static GetDistance only, use a MeasureResult */
+    @Deprecated
     public static String match = "";
+    @Deprecated
     public static double value = 0;
 
+    private final HashMap<String, Long> hyperFrequencies;
+    private final Long topFrequency;
+    private final SubsumersFrequencies subsumersFrequencies;
+
+    public Resnik (HashMap<String, Long> hyperFrequencies, Long topFrequency) {
+        this.hyperFrequencies = hyperFrequencies;
+        this.topFrequency = topFrequency;
+        this.subsumersFrequencies = null;
+    }
+
+    /**
+     * Uses the information content array of the subsumers frequencies if it is resolved against the wordnet
+     * @param subsumersFrequencies
+     */
+    public Resnik (SubsumersFrequencies subsumersFrequencies) {
+        this.hyperFrequencies = subsumersFrequencies.data;
+        this.topFrequency = subsumersFrequencies.maxFreq;
+        this.subsumersFrequencies = subsumersFrequencies;
+    }
+
+    /**
+     * @deprecated not thread-safe, use getSimilarity with a MeasureResult
+     */
+    @Deprecated
     public static double GetDistance(HashMap<String, Long> hyperFrequencies, Long topFrequency, ArrayList<String> hyp1, ArrayList<String> hyp2) {
+        MeasureResult result = new MeasureResult();
+        double distance = new Resnik(hyperFrequencies, topFrequency).getSimilarity(hyp1, hyp2, result);
+        match = result.getMatch();
+        if (result.getProbability()>-1) {
+            value = result.getProbability();
+        }
+        return distance;
+    }
+
+    public double getSimilarity (ArrayList<String> hyp1, ArrayList<String> hyp2, MeasureResult result) {
         double distance = -1;
-        match = "";
-        for (int i = 0; i < hyp1.size(); i++) {
-            String s = hyp1.get(i);
-            int i2 = hyp2.indexOf(s);
-            if (i2>-1) {
-                double freq = 0;
-                double p = -1;
-                if (hyperFrequencies.containsKey(s)) {
-                    freq = (double) hyperFrequencies.get(s);
-                    p = freq/(double)topFrequency;
-                    value = p;
-                }
-                distance = -Math.log(p);
+        result.reset();
+        if (result.findMatch(hyp1, hyp2)) {
+            if (subsumersFrequencies!=null) {
+                /// NaN for a subsumer without frequency, as -log(-1) below
+                result.probability = subsumersFrequencies.getProbability(result.match);
+                distance = subsumersFrequencies.getInformationContent(result.match);
+            }
+            else {
+                result.probability = GetProbability(hyperFrequencies, topFrequency, result.match);
+                distance = -Math.log(result.probability);
                 //distance = p;
-                match = s;
-                break;
             }
         }
         return distance;
     }
+
+    /**
+     * @param hyperFrequencies
+     * @param topFrequency
+     * @param lcs
+     * @return probability of the subsumer or -1 if there is no frequency for it
+     */
+    public static double GetProbability(HashMap<String, Long> hyperFrequencies, Long topFrequency, String lcs) {
+        double p = -1;
+        if (hyperFrequencies.containsKey(lcs)) {
+            double freq = (double) hyperFrequencies.get(lcs);
+            p = freq/(double)topFrequency;
+        }
+        return p;
+    }
+
+    /**
+     * Resnik score for a lowest common subsumer that is already known
+     * @param hyperFrequencies
+     * @param topFrequency
+     * @param lcs
+     * @return
+     */
+    public static double GetDistance(HashMap<String, Long> hyperFrequencies, Long topFrequency, String lcs) {
+        return -Math.log(GetProbability(hyperFrequencies, topFrequency, lcs));
+    }
 }
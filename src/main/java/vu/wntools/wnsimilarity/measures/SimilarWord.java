@@ -0,0 +1,41 @@
+package vu.wntools.wnsimilarity.measures;
+
+/**
+ * Result of a most similar words query: a lemma with the best scoring pair of one of the meanings of the query word
+ * and one of the synsets of the lemma.
+ */
+public class SimilarWord {
+
+    private String word;
+    private SimilarityPair similarityPair;
+
+    public SimilarWord() {
+        this.word = "";
+        this.similarityPair = new SimilarityPair();
+    }
+
+    public SimilarWord(String word, SimilarityPair similarityPair) {
+        this.word = word;
+        this.similarityPair = similarityPair;
+    }
+
+    public String getWord() {
+        return word;
+    }
+
+    public void setWord(String word) {
+        this.word = word;
+    }
+
+    public SimilarityPair getSimilarityPair() {
+        return similarityPair;
+    }
+
+    public void setSimilarityPair(SimilarityPair similarityPair) {
+        this.similarityPair = similarityPair;
+    }
+
+    public double getScore() {
+        return similarityPair.getScore();
+    }
+}
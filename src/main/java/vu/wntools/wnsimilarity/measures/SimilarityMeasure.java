@@ -0,0 +1,21 @@
+package vu.wntools.wnsimilarity.measures;
+
+import java.util.ArrayList;
+
+/**
+ * Similarity measure that compares two hyper chains.
+ *
+ * Implementations keep their settings in final fields and have no other state, so one instance can be shared by
+ * several threads. The match and the values used for the score are written to a MeasureResult that is supplied
+ * by the caller and can be reused for every pair of chains.
+ */
+public interface SimilarityMeasure {
+
+    /**
+     * @param hyp1 hyper chain of the source, starting with the source itself
+     * @param hyp2 hyper chain of the target, starting with the target itself
+     * @param result is reset and filled with the match and the values used for the score
+     * @return the score, -1 if the chains cannot be compared
+     */
+    public double getSimilarity (ArrayList<String> hyp1, ArrayList<String> hyp2, MeasureResult result);
+}
@@ -9,9 +9,11 @@ import java.util.ArrayList;
  * Time: 2:58 PM
  * To change this template use File | Settings | File Templates.
  */
-public class WuPalmer {
+public class WuPalmer implements SimilarityMeasure {
 
 
+    /** @deprecated set by the static GetDistance only, use a MeasureResult */
+    @Deprecated
     public static String match = "";
 
     /**
@@ -19,28 +21,28 @@ public class WuPalmer {
      * @param hyp1
      * @param hyp2
      * @return
+     * @deprecated not thread-safe, use getSimilarity with a MeasureResult
      */
+    @Deprecated
     public static double GetDistance (ArrayList<String> hyp1, ArrayList<String> hyp2) {
+        MeasureResult result = new MeasureResult();
+        double distance = new WuPalmer().getSimilarity(hyp1, hyp2, result);
+        match = result.getMatch();
+        return distance;
+    }
+
+    /**
+     *  Calculates the distance according to Wu and Palmer
+     * @param hyp1
+     * @param hyp2
+     * @param result
+     * @return
+     */
+    public double getSimilarity (ArrayList<String> hyp1, ArrayList<String> hyp2, MeasureResult result) {
         /// Adapted Wu & palmer. Average depth can be based on the depth of the words in the document,
         //// average of all wordnet or of the two synsets compared
-        double distance = -1;
-        match = "";
-        int i2 = -1;
-        int i1 = -1;
-        for (int i = 0; i < hyp1.size(); i++) {
-            String s = hyp1.get(i);
-            i2 = hyp2.indexOf(s);
-           // System.out.println("i2 = " + i2);
-            if (i2>-1) {
-                i1 = i;
-                distance = 1+i+i2; /// initial one for node counting, avoid zero values
-                match = s;
-                break;
-            }
-            else {
-                //// there is no intersection so the distance remain -1
-            }
-        }
+        result.reset();
+        result.findMatch(hyp1, hyp2);
 /*     original variant that does not take the fact into account that there can be multiple paths due
        to multiple hypernyms. The LCs thus can be at different depths depending on which chain is used
        */
@@ -54,12 +56,25 @@ public class WuPalmer {
             System.out.println("score = " + distance);
         }*/
 
+        return GetDistance(result.sourceIndex, result.targetIndex, hyp1.size(), hyp2.size());
+    }
+
+    /**
+     * Wu and Palmer score for a match that is already found
+     * @param i1 position of the match in the first chain, -1 if there is no match
+     * @param i2 position of the match in the second chain
+     * @param size1 length of the first chain
+     * @param size2 length of the second chain
+     * @return
+     */
+    public static double GetDistance (int i1, int i2, int size1, int size2) {
+        double distance = -1;
         /** New variant that takes the depths of each hyper chain into account
 
          */
-        if (distance>-1) {
-            double depthLcs1 = hyp1.size()-i1;
-            double depthLcs2 = hyp2.size()-i2;
+        if (i1>-1) {
+            double depthLcs1 = size1-i1;
+            double depthLcs2 = size2-i2;
 /*
             System.out.println("hyp1 = " + hyp1);
             System.out.println("hyp2 = " + hyp2);
@@ -67,7 +82,7 @@ public class WuPalmer {
             System.out.println("depthLcs1 = " + depthLcs1);
             System.out.println("depthLcs2 = " + depthLcs2);
 */
-            distance = (depthLcs1+depthLcs2) / (double) ((hyp1.size())+(hyp2.size()));
+            distance = (depthLcs1+depthLcs2) / (double) ((size1)+(size2));
 //            System.out.println("score = " + distance);
         }
         return distance;
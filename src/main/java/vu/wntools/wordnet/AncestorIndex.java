@@ -0,0 +1,239 @@
+package vu.wntools.wordnet;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed hypernym closure of a SynsetGraph.
+ *
+ * For every synset ordinal we store the sorted ordinals of all its ancestors (the synset itself included, at distance 0)
+ * together with the minimum number of hypernym steps needed to reach each ancestor. The closure is computed with a
+ * breadth-first walk per synset, so circular hypernym relations do not cause problems.
+ *
+ * With the sorted arrays isA is a binary search and the common subsumers of two synsets are found by merging
+ * their two ancestor lists, without enumerating the hypernym chains.
+ */
+public class AncestorIndex {
+
+    private final SynsetGraph graph;
+    private final int [] offsets;
+    private final int [] ancestors;
+    private final int [] distances;
+
+    public AncestorIndex (SynsetGraph graph) {
+        this(null, graph, null, null, null);
+    }
+
+    /**
+     * Closure of a graph that was updated. The ancestors of the synsets that were not affected by the update are
+     * copied from the closure of the previous graph with their ordinals renumbered, which keeps them sorted as the
+     * ids of both graphs are sorted. The ancestors of the affected synsets are computed again.
+     * @param index closure of the previous graph, null to compute all
+     * @param graph
+     * @param toOld ordinal in the previous graph by ordinal in graph, -1 for new synsets
+     * @param toNew ordinal in graph by ordinal in the previous graph, -1 for removed synsets
+     * @param affected synsets of which the hypernyms or those of one of their ancestors changed
+     */
+    AncestorIndex (AncestorIndex index, SynsetGraph graph, int [] toOld, int [] toNew, boolean [] affected) {
+        this.graph = graph;
+        int n = graph.size();
+        int [][] nodeAncestors = new int[n][];
+        int [][] nodeDistances = new int[n][];
+        int [] stamp = new int[n];
+        int [] distance = new int[n];
+        int [] queue = new int[n];
+        int total = 0;
+        for (int source = 0; source < n; source++) {
+            if (index!=null && !affected[source]) {
+                int old = toOld[source];
+                int start = index.offsets[old];
+                int length = index.offsets[old+1]-start;
+                int [] renumbered = new int[length];
+                for (int i = 0; i < length; i++) {
+                    renumbered[i] = toNew[index.ancestors[start+i]];
+                }
+                nodeAncestors[source] = renumbered;
+                nodeDistances[source] = Arrays.copyOfRange(index.distances, start, start+length);
+                total += length;
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = source;
+            stamp[source] = source+1;
+            distance[source] = 0;
+            while (head<tail) {
+                int node = queue[head++];
+                for (int i = graph.getHyperStart(node); i < graph.getHyperEnd(node); i++) {
+                    int hyper = graph.getHyperTarget(i);
+                    if (stamp[hyper]!=source+1) {
+                        stamp[hyper] = source+1;
+                        distance[hyper] = distance[node]+1;
+                        queue[tail++] = hyper;
+                    }
+                }
+            }
+            int [] sorted = Arrays.copyOf(queue, tail);
+            Arrays.sort(sorted);
+            int [] sortedDistances = new int[tail];
+            for (int i = 0; i < tail; i++) {
+                sortedDistances[i] = distance[sorted[i]];
+            }
+            nodeAncestors[source] = sorted;
+            nodeDistances[source] = sortedDistances;
+            total += tail;
+        }
+        this.offsets = new int[n+1];
+        this.ancestors = new int[total];
+        this.distances = new int[total];
+        int pos = 0;
+        for (int i = 0; i < n; i++) {
+            offsets[i] = pos;
+            System.arraycopy(nodeAncestors[i], 0, ancestors, pos, nodeAncestors[i].length);
+            System.arraycopy(nodeDistances[i], 0, distances, pos, nodeDistances[i].length);
+            pos += nodeAncestors[i].length;
+            nodeAncestors[i] = null;
+            nodeDistances[i] = null;
+        }
+        offsets[n] = pos;
+    }
+
+    public SynsetGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @param ordinal
+     * @return sorted ordinals of all ancestors of the synset, including the synset itself
+     */
+    public int [] getAncestors (int ordinal) {
+        return Arrays.copyOfRange(ancestors, offsets[ordinal], offsets[ordinal+1]);
+    }
+
+    /**
+     * @param ordinal
+     * @return minimum distances of the ancestors, in the same order as getAncestors
+     */
+    public int [] getAncestorDistances (int ordinal) {
+        return Arrays.copyOfRange(distances, offsets[ordinal], offsets[ordinal+1]);
+    }
+
+    public int getAncestorCount (int ordinal) {
+        return offsets[ordinal+1]-offsets[ordinal];
+    }
+
+    /**
+     * @param ordinal
+     * @param ancestor
+     * @return the minimum number of hypernym steps from ordinal to ancestor, or -1 if it is not an ancestor
+     */
+    public int getDistance (int ordinal, int ancestor) {
+        int i = Arrays.binarySearch(ancestors, offsets[ordinal], offsets[ordinal+1], ancestor);
+        if (i<0) {
+            return -1;
+        }
+        return distances[i];
+    }
+
+    /**
+     * @param ordinal
+     * @param ancestor
+     * @return true if ancestor is the synset itself or one of its (indirect) hypernyms
+     */
+    public boolean isA (int ordinal, int ancestor) {
+        return Arrays.binarySearch(ancestors, offsets[ordinal], offsets[ordinal+1], ancestor)>=0;
+    }
+
+    /**
+     * Length of the shortest path between two synsets through a common subsumer, counted in hypernym steps
+     * @param source
+     * @param target
+     * @return number of steps or -1 if the synsets have no common subsumer
+     */
+    public int getPathLength (int source, int target) {
+        int best = -1;
+        int i = offsets[source];
+        int iEnd = offsets[source+1];
+        int j = offsets[target];
+        int jEnd = offsets[target+1];
+        while (i<iEnd && j<jEnd) {
+            if (ancestors[i]<ancestors[j]) {
+                i++;
+            }
+            else if (ancestors[i]>ancestors[j]) {
+                j++;
+            }
+            else {
+                int length = distances[i]+distances[j];
+                if (best==-1 || length<best) {
+                    best = length;
+                }
+                i++;
+                j++;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The common subsumers that are closest to both synsets, i.e. with the smallest sum of distances.
+     * @param source
+     * @param target
+     * @return sorted ordinals of the lowest common subsumers, empty if there are none
+     */
+    public int [] getLowestCommonSubsumers (int source, int target) {
+        int length = getPathLength(source, target);
+        if (length<0) {
+            return new int[0];
+        }
+        int [] result = new int[Math.min(getAncestorCount(source), getAncestorCount(target))];
+        int n = 0;
+        int i = offsets[source];
+        int iEnd = offsets[source+1];
+        int j = offsets[target];
+        int jEnd = offsets[target+1];
+        while (i<iEnd && j<jEnd) {
+            if (ancestors[i]<ancestors[j]) {
+                i++;
+            }
+            else if (ancestors[i]>ancestors[j]) {
+                j++;
+            }
+            else {
+                if (distances[i]+distances[j]==length) {
+                    result[n++] = ancestors[i];
+                }
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * @param source
+     * @param target
+     * @return sorted ordinals of all common subsumers of the two synsets
+     */
+    public int [] getCommonSubsumers (int source, int target) {
+        int [] result = new int[Math.min(getAncestorCount(source), getAncestorCount(target))];
+        int n = 0;
+        int i = offsets[source];
+        int iEnd = offsets[source+1];
+        int j = offsets[target];
+        int jEnd = offsets[target+1];
+        while (i<iEnd && j<jEnd) {
+            if (ancestors[i]<ancestors[j]) {
+                i++;
+            }
+            else if (ancestors[i]>ancestors[j]) {
+                j++;
+            }
+            else {
+                result[n++] = ancestors[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+}
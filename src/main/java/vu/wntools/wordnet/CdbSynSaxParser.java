@@ -1,16 +1,9 @@
 package vu.wntools.wordnet;
 
-import org.xml.sax.Attributes;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
-import org.xml.sax.helpers.DefaultHandler;
-
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLStreamException;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 
@@ -21,12 +14,27 @@ import java.util.ArrayList;
  * Time: 9:36 PM
  * To change this template use File | Settings | File Templates.
  */
-public class CdbSynSaxParser extends DefaultHandler{
+public class CdbSynSaxParser implements WordnetXmlReader.Builder {
+    static final int CDB_SYNSET = 0;
+    static final int WN_INTERNAL_RELATIONS = 1;
+    static final int WN_EQUIVALENCE_RELATIONS = 2;
+    static final int RELATION = 3;
+    static final int SYNONYM = 4;
+    static final String [] ELEMENTS = {"cdb_synset", "wn_internal_relations", "wn_equivalence_relations", "relation",
+            "synonym"};
+    static final int A_C_SY_ID = 0;
+    static final int A_POS_SPECIFIC = 1;
+    static final int A_RELATION_NAME = 2;
+    static final int A_SOURCE = 3;
+    static final int A_TARGET = 4;
+    static final int A_C_LU_ID_PREVIEWTEXT = 5;
+    static final String [] ATTRIBUTES = {"c_sy_id", "posSpecific", "relation_name", "source", "target",
+            "c_lu_id-previewtext"};
+
+    /// if set, the internal relations are written to it
     static OutputStream fos;
     public WordnetData wordnetData;
-    private String value = "";
     private String aValue = "";
-    private String aName = "";
     private String sourceId = "";
     private String targetId= "";
     private String relationSource= "";
@@ -59,22 +67,17 @@ public class CdbSynSaxParser extends DefaultHandler{
         System.out.println("filePath = " + filePath);
         String myerror = "";
         try {
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            factory.setValidating(false);
-            SAXParser parser = factory.newSAXParser();
-            InputSource inp = new InputSource (new FileReader(filePath));
-            parser.parse(inp, this);
-        } catch (SAXParseException err) {
-            myerror = "\n** Parsing error" + ", line " + err.getLineNumber()
-                    + ", uri " + err.getSystemId();
+            InputStream fis = WordnetXmlReader.open(filePath);
+            try {
+                parse(fis);
+            } finally {
+                fis.close();
+            }
+        } catch (XMLStreamException err) {
+            myerror = "\n** Parsing error" + ", line "
+                    + (err.getLocation()!=null ? err.getLocation().getLineNumber() : -1) + ", uri " + filePath;
             myerror += "\n" + err.getMessage();
             System.out.println("myerror = " + myerror);
-        } catch (SAXException e) {
-            Exception x = e;
-            if (e.getException() != null)
-                x = e.getException();
-            myerror += "\nSAXException --" + x.getMessage();
-            System.out.println("myerror = " + myerror);
         } catch (Exception eee) {
             eee.printStackTrace();
             myerror += "\nException --" + eee.getMessage();
@@ -83,130 +86,122 @@ public class CdbSynSaxParser extends DefaultHandler{
         System.out.println("myerror = " + myerror);
     }//--c
 
+    /**
+     * Parses a Cornetto synset export into the data
+     * @param stream
+     * @throws XMLStreamException
+     */
+    public void parse (InputStream stream) throws XMLStreamException {
+        new WordnetXmlReader(ELEMENTS, ATTRIBUTES, false).parse(stream, this);
+    }
 
 
-    public void startElement(String uri, String localName,
-                             String qName, Attributes attributes)
-            throws SAXException {
-
-       // System.out.println("qName = " + qName);
-        if (qName.equalsIgnoreCase("cdb_synset")) {
-            hypers = new ArrayList<String>();
-            others = new ArrayList<String>();
-            sourceId = "";
-            pos = "";
-            posMatch = false;
-            IR = false;
-            aValue = attributes.getValue("c_sy_id");
-            if (aValue!=null) {
-                sourceId = aValue;
 
-              //  System.out.println("sourceId = " + sourceId);
-            }
-            aValue = attributes.getValue("posSpecific");
-            if (aValue!= null) {
-               pos= aValue;
-/*
-               if (sourceId.equals("d_n-31719")) {
-                   System.out.println("sourceId = " + sourceId);
-                    System.out.println("pos = " + pos);
-               }
-*/
-            }
-            if (!posFilter.isEmpty()) {
-                if (matchPos(posFilter, pos)) {
-                    posMatch = true;
+    public void startElement(int element, WordnetXmlReader reader) {
+        switch (element) {
+            case CDB_SYNSET:
+                hypers.clear();
+                others.clear();
+                sourceId = "";
+                pos = "";
+                posMatch = false;
+                IR = false;
+                aValue = reader.getAttribute(A_C_SY_ID);
+                if (aValue!=null) {
+                    sourceId = WordnetStringPool.intern(aValue);
                 }
-                else {
-                    posMatch = false;
+                aValue = reader.getAttribute(A_POS_SPECIFIC);
+                if (aValue!= null) {
+                   pos= aValue;
                 }
-            }
-            else {
-                posMatch = true;
-            }
-        }
-        else if (qName.equalsIgnoreCase("wn_internal_relations")) {
-            IR = true;
-        }
-        else if (qName.equalsIgnoreCase("wn_equivalence_relations")) {
-            IR = false;
-        }
-        else if (qName.equalsIgnoreCase("relation")) {
-            if (posMatch) {
-                if (IR) {
-                    targetRelation="";
-                    targetId = "";
-                    relationSource ="";
-                    aValue = attributes.getValue("relation_name");
-                    if (aValue!=null) {
-                        targetRelation = aValue;
+                if (!posFilter.isEmpty()) {
+                    if (matchPos(posFilter, pos)) {
+                        posMatch = true;
                     }
-                    relationSource = attributes.getValue("source");
-                    aValue = attributes.getValue("target");
-                    if (aValue!=null) {
-                        targetId = aValue;
+                    else {
+                        posMatch = false;
                     }
-                    if (!targetId.isEmpty()) {
-                        String str = sourceId+"#"+targetId+"#"+relationSource+"\n";
-                        try {
-                            fos.write(str.getBytes());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                        if (relations.size()==0) {
-                            if ((targetRelation.equalsIgnoreCase("HAS_HYPERONYM"))      ||
-                                (targetRelation.equalsIgnoreCase("NEAR_SYNONYM"))) {
-                                hypers.add(targetId);
-                            }
-                            else if ((targetRelation.equalsIgnoreCase("XPOS_HAS_HYPERONYM"))      ||
-                                    (targetRelation.equalsIgnoreCase("XPOS_NEAR_SYNONYM"))) {
-                                others.add(targetId);
+                }
+                else {
+                    posMatch = true;
+                }
+                break;
+            case WN_INTERNAL_RELATIONS:
+                IR = true;
+                break;
+            case WN_EQUIVALENCE_RELATIONS:
+                IR = false;
+                break;
+            case RELATION:
+                if (posMatch && IR) {
+                    addRelation(reader);
+                }
+                break;
+            case SYNONYM:
+                if (posMatch && !sourceId.isEmpty()) {
+                    aValue = reader.getAttribute(A_C_LU_ID_PREVIEWTEXT);
+                    if (aValue!=null) {
+                        int idx = aValue.indexOf(":");
+                        String key = WordnetStringPool.intern(aValue.substring(0, idx));
+                        ArrayList<String> synsets = wordnetData.entryToSynsets.get(key);
+                        if (synsets!=null) {
+                            if (!synsets.contains(sourceId)) {
+                                synsets.add(sourceId);
                             }
                         }
-                        else if (relations.contains(targetRelation)) {
-                            hypers.add(targetId);
-                        }
                         else {
-                            others.add(targetId);
+                            synsets = new ArrayList<String>(1);
+                            synsets.add(sourceId);
+                            wordnetData.entryToSynsets.put(key, synsets);
                         }
                     }
                 }
-            }
+                break;
+            default:
+                break;
         }
-        else if (qName.equalsIgnoreCase("synonym")) {
-            if (posMatch) {
-                if (!sourceId.isEmpty()) {
-                    for (int i = 0; i < attributes.getLength(); i++) {
-                        aName = attributes.getQName(i);
-                        aValue = attributes.getValue(i);
-                        if (aName.equalsIgnoreCase("c_lu_id")) {
-                           ////
-                        }
-                        else if (aName.equalsIgnoreCase("c_lu_id-previewtext")) {
-                            int idx = aValue.indexOf(":");
-                            String key = aValue.substring(0, idx);
-                            if (wordnetData.entryToSynsets.containsKey(key)) {
-                                ArrayList<String> synsets = wordnetData.entryToSynsets.get(key);
-                                if (!synsets.contains(sourceId)) {
-                                    synsets.add(sourceId);
-                                    wordnetData.entryToSynsets.put(key, synsets);
-                                }
-                            }
-                            else {
-                                ArrayList<String> synsets = new ArrayList<String>();
-                                synsets.add(sourceId);
-                                wordnetData.entryToSynsets.put(key, synsets);
-                            }
-                        }
+    }//--startElement
 
-                    }
+    private void addRelation (WordnetXmlReader reader) {
+        targetRelation="";
+        targetId = "";
+        relationSource ="";
+        aValue = reader.getAttribute(A_RELATION_NAME);
+        if (aValue!=null) {
+            targetRelation = aValue;
+        }
+        relationSource = reader.getAttribute(A_SOURCE);
+        aValue = reader.getAttribute(A_TARGET);
+        if (aValue!=null) {
+            targetId = WordnetStringPool.intern(aValue);
+        }
+        if (!targetId.isEmpty()) {
+            if (fos!=null) {
+                String str = sourceId+"#"+targetId+"#"+relationSource+"\n";
+                try {
+                    fos.write(str.getBytes());
+                } catch (IOException e) {
+                    e.printStackTrace();
                 }
             }
+            if (relations.size()==0) {
+                if ((targetRelation.equalsIgnoreCase("HAS_HYPERONYM"))      ||
+                    (targetRelation.equalsIgnoreCase("NEAR_SYNONYM"))) {
+                    hypers.add(targetId);
+                }
+                else if ((targetRelation.equalsIgnoreCase("XPOS_HAS_HYPERONYM"))      ||
+                        (targetRelation.equalsIgnoreCase("XPOS_NEAR_SYNONYM"))) {
+                    others.add(targetId);
+                }
+            }
+            else if (relations.contains(targetRelation)) {
+                hypers.add(targetId);
+            }
+            else {
+                others.add(targetId);
+            }
         }
-        else {
-        }
-        value = "";
-    }//--startElement
+    }
 
 
     /*
@@ -237,33 +232,22 @@ public class CdbSynSaxParser extends DefaultHandler{
 </cdb_synset>
 
     */
-    public void endElement(String uri, String localName, String qName)
-            throws SAXException {
-        if (qName.equalsIgnoreCase("cdb_synset")) {
+    public void endElement(int element, WordnetXmlReader reader) {
+        if (element==CDB_SYNSET) {
+            /// the lists are reused for every synset, so the data get a copy
             if ((!sourceId.isEmpty()) && hypers.size()>0) {
-                wordnetData.addHyperRelation(sourceId, hypers);
-/*
-                if (hyperRelations.size()%100==0) {
-                    System.out.println("hyperRelations = " + hyperRelations.size());
-                }
-*/
+                wordnetData.addHyperRelation(sourceId, new ArrayList<String>(hypers));
             }
             if ((!sourceId.isEmpty()) && others.size()>0) {
-                wordnetData.addOtherRelations(sourceId, others);
+                wordnetData.addOtherRelations(sourceId, new ArrayList<String>(others));
             }
             sourceId = "";
             targetId = "";
-            others = new ArrayList<String>();
-            hypers = new ArrayList<String>();
+            others.clear();
+            hypers.clear();
         }
     }
 
-    public void characters(char ch[], int start, int length)
-            throws SAXException {
-        value += new String(ch, start, length);
-        // System.out.println("tagValue:"+value);
-    }
-
     boolean matchPos (String posFilter, String pos) {
         /// posFilter n,v,a,r,b
         if (posFilter.equalsIgnoreCase("n")) {
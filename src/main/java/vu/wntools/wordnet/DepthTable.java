@@ -0,0 +1,205 @@
+package vu.wntools.wordnet;
+
+/**
+ * Depth statistics of the hypernym chains of every synset of a SynsetGraph.
+ *
+ * The depth of a chain is its number of synsets, a top node has depth 1. For every synset ordinal we store
+ * the number of chains, the sum of their depths and the minimum and maximum depth, so the mean depth of a synset is
+ * depthSum/chainCount. The values are computed in one topological pass from the top nodes down: the statistics of
+ * a synset follow from those of its hypernyms, without enumerating the chains. Synsets from which a circular hypernym
+ * relation can be reached are never reached by this pass; their chains are taken from the HyperPathIndex instead.
+ *
+ * The average depths per part-of-speech are computed at the same time, using the last character of the synset id.
+ */
+public class DepthTable {
+
+    private final SynsetGraph graph;
+    private final long [] chainCounts;
+    private final long [] depthSums;
+    private final int [] minDepths;
+    private final int [] maxDepths;
+    private final int averageNounDepth;
+    private final int averageVerbDepth;
+    private final int averageAdjectiveDepth;
+
+    public DepthTable (HyperPathIndex hyperPathIndex) {
+        this(null, hyperPathIndex, null, null);
+    }
+
+    /**
+     * Depth table of a graph that was updated. The statistics of the synsets that were not affected by the update are
+     * copied from the table of the previous graph, the pass only visits the affected synsets.
+     * @param table table of the previous graph, null to compute all
+     * @param hyperPathIndex
+     * @param toOld ordinal in the previous graph by ordinal in the graph of the index, -1 for new synsets
+     * @param affected synsets of which the hypernyms or those of one of their ancestors changed
+     */
+    DepthTable (DepthTable table, HyperPathIndex hyperPathIndex, int [] toOld, boolean [] affected) {
+        this.graph = hyperPathIndex.getGraph();
+        int n = graph.size();
+        chainCounts = new long[n];
+        depthSums = new long[n];
+        minDepths = new int[n];
+        maxDepths = new int[n];
+        int [] remaining = new int[n];
+        int [] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (table!=null && !affected[i]) {
+                int old = toOld[i];
+                chainCounts[i] = table.chainCounts[old];
+                depthSums[i] = table.depthSums[old];
+                minDepths[i] = table.minDepths[old];
+                maxDepths[i] = table.maxDepths[old];
+                continue;
+            }
+            /// hypernyms that were not affected are known already
+            for (int j = graph.getHyperStart(i); j < graph.getHyperEnd(i); j++) {
+                if (table==null || affected[graph.getHyperTarget(j)]) {
+                    remaining[i]++;
+                }
+            }
+            if (remaining[i]==0) {
+                queue[tail++] = i;
+            }
+        }
+        while (head<tail) {
+            int node = queue[head++];
+            if (!graph.hasHypers(node)) {
+                chainCounts[node] = 1;
+                depthSums[node] = 1;
+                minDepths[node] = 1;
+                maxDepths[node] = 1;
+            }
+            else {
+                int min = Integer.MAX_VALUE;
+                int max = 0;
+                for (int i = graph.getHyperStart(node); i < graph.getHyperEnd(node); i++) {
+                    int hyper = graph.getHyperTarget(i);
+                    chainCounts[node] += chainCounts[hyper];
+                    depthSums[node] += depthSums[hyper]+chainCounts[hyper];
+                    min = Math.min(min, minDepths[hyper]);
+                    max = Math.max(max, maxDepths[hyper]);
+                }
+                minDepths[node] = min+1;
+                maxDepths[node] = max+1;
+            }
+            for (int i = graph.getChildStart(node); i < graph.getChildEnd(node); i++) {
+                int child = graph.getChildTarget(i);
+                if (table!=null && !affected[child]) {
+                    continue;
+                }
+                remaining[child]--;
+                if (remaining[child]==0) {
+                    queue[tail++] = child;
+                }
+            }
+        }
+        if (tail<n) {
+            for (int i = 0; i < n; i++) {
+                if (remaining[i]>0) {
+                    setFromPaths(i, hyperPathIndex.getPaths(i));
+                }
+            }
+        }
+        long [] sums = new long[3];
+        long [] counts = new long[3];
+        for (int i = 0; i < n; i++) {
+            String id = graph.getId(i);
+            int p = -1;
+            if (id.endsWith("n")) p = 0;
+            else if (id.endsWith("v")) p = 1;
+            else if (id.endsWith("a") || id.endsWith("s")) p = 2;
+            if (p>-1) {
+                sums[p] += depthSums[i];
+                counts[p] += chainCounts[i];
+            }
+        }
+        averageNounDepth = average(sums[0], counts[0]);
+        averageVerbDepth = average(sums[1], counts[1]);
+        averageAdjectiveDepth = average(sums[2], counts[2]);
+    }
+
+    private void setFromPaths (int ordinal, HyperPath [] paths) {
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (int i = 0; i < paths.length; i++) {
+            int depth = paths[i].getLength();
+            depthSums[ordinal] += depth;
+            min = Math.min(min, depth);
+            max = Math.max(max, depth);
+        }
+        chainCounts[ordinal] = paths.length;
+        if (paths.length>0) {
+            minDepths[ordinal] = min;
+            maxDepths[ordinal] = max;
+        }
+    }
+
+    private static int average (long sum, long count) {
+        if (count==0) {
+            return 0;
+        }
+        return (int) (sum/count);
+    }
+
+    public SynsetGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @param ordinal
+     * @return number of hypernym chains of the synset
+     */
+    public long getChainCount (int ordinal) {
+        return chainCounts[ordinal];
+    }
+
+    /**
+     * @param ordinal
+     * @return sum of the depths of all hypernym chains of the synset
+     */
+    public long getDepthSum (int ordinal) {
+        return depthSums[ordinal];
+    }
+
+    /**
+     * @param ordinal
+     * @return depth of the shortest chain, 0 if the synset has no chains
+     */
+    public int getMinDepth (int ordinal) {
+        return minDepths[ordinal];
+    }
+
+    /**
+     * @param ordinal
+     * @return depth of the longest chain, 0 if the synset has no chains
+     */
+    public int getMaxDepth (int ordinal) {
+        return maxDepths[ordinal];
+    }
+
+    /**
+     * @param ordinal
+     * @return mean depth of the chains, 0 if the synset has no chains
+     */
+    public double getMeanDepth (int ordinal) {
+        if (chainCounts[ordinal]==0) {
+            return 0;
+        }
+        return (double) depthSums[ordinal]/chainCounts[ordinal];
+    }
+
+    public int getAverageNounDepth() {
+        return averageNounDepth;
+    }
+
+    public int getAverageVerbDepth() {
+        return averageVerbDepth;
+    }
+
+    public int getAverageAdjectiveDepth() {
+        return averageAdjectiveDepth;
+    }
+}
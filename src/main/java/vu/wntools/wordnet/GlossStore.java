@@ -0,0 +1,234 @@
+package vu.wntools.wordnet;
+
+import vu.wntools.lmf.Gloss;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * Glosses of synsets that are kept outside the heap and read when they are asked for.
+ *
+ * The glosses are added while a wordnet is read and written to a temporary file as UTF-8. When the reading is done,
+ * finish maps the file into memory and getGlosses decodes the glosses of a synset from the mapped file, so the texts
+ * of the glosses that are never asked for do not take any heap. The heap only holds the offset of the last gloss
+ * of every synset and the languages and provenances, which repeat a lot.
+ *
+ * A gloss is stored as a record: the offset of the previous gloss of the synset (-1 for the first), the positions of
+ * its language and provenance, the number of bytes of the text and the text. The glosses of a synset are found by
+ * following the offsets back from the last one.
+ *
+ * Glosses are added by one or more threads before finish, and read by any number of threads after it. The temporary
+ * file is deleted when it has been mapped, or when the JVM exits if the system does not allow that.
+ */
+public class GlossStore {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int HEADER = 16;
+
+    private File file;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private final ByteBuffer pending = ByteBuffer.allocate(1<<16);
+    private long written = 0;
+    private int nGlosses = 0;
+    /// offset of the last gloss of every synset
+    private final HashMap<String, Integer> lastGloss = new HashMap<String, Integer>();
+    private final ArrayList<String> strings = new ArrayList<String>();
+    private final HashMap<String, Integer> stringPositions = new HashMap<String, Integer>();
+    /// null until finish
+    private volatile ByteBuffer mapped;
+
+    /**
+     * Makes a store with a temporary file in the default temporary directory
+     * @throws IOException
+     */
+    public GlossStore () throws IOException {
+        this(null);
+    }
+
+    /**
+     * @param directory directory for the temporary file, e.g. one on a local disk, null for the default temporary directory
+     * @throws IOException
+     */
+    public GlossStore (File directory) throws IOException {
+        file = File.createTempFile("glosses", ".bin", directory);
+        file.deleteOnExit();
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+    }
+
+    /**
+     * Adds a gloss after the glosses that were added to the synset before
+     * @param synsetId
+     * @param gloss
+     * @throws IOException
+     */
+    public synchronized void add (String synsetId, Gloss gloss) throws IOException {
+        if (mapped!=null) {
+            throw new IllegalStateException("Glosses cannot be added to a finished gloss store");
+        }
+        byte [] text = gloss.getText().getBytes(UTF8);
+        if (written+pending.position()+HEADER+text.length>Integer.MAX_VALUE) {
+            throw new IOException("The gloss store is full");
+        }
+        int offset = (int) written+pending.position();
+        Integer previous = lastGloss.get(synsetId);
+        if (pending.remaining()<HEADER) {
+            flush();
+        }
+        pending.putInt(previous==null ? -1 : previous);
+        pending.putInt(getPosition(gloss.getLanguage()));
+        pending.putInt(getPosition(gloss.getProvenance()));
+        pending.putInt(text.length);
+        for (int i = 0; i < text.length; ) {
+            if (!pending.hasRemaining()) {
+                flush();
+            }
+            int n = Math.min(text.length-i, pending.remaining());
+            pending.put(text, i, n);
+            i += n;
+        }
+        lastGloss.put(synsetId, offset);
+        nGlosses++;
+    }
+
+    /**
+     * Adds the glosses of another finished store after the glosses of the same synsets in this store
+     * @param store
+     * @throws IOException
+     */
+    public synchronized void addAll (GlossStore store) throws IOException {
+        for (String synsetId : store.getSynsetIds()) {
+            ArrayList<Gloss> glosses = store.getGlosses(synsetId);
+            for (int i = 0; i < glosses.size(); i++) {
+                add(synsetId, glosses.get(i));
+            }
+        }
+    }
+
+    /**
+     * Maps the file into memory, after which the glosses can be read and no glosses can be added
+     * @throws IOException
+     */
+    public synchronized void finish () throws IOException {
+        if (mapped!=null) {
+            return;
+        }
+        flush();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, written);
+        /// the mapping stays valid when the file is closed
+        raf.close();
+        raf = null;
+        channel = null;
+        file.delete();
+        mapped = buffer;
+    }
+
+    public boolean isFinished () {
+        return mapped!=null;
+    }
+
+    /**
+     * Decodes the glosses of the synset, the glosses are not kept by the store
+     * @param synsetId
+     * @return the glosses in the order in which they were added, an empty list if the synset has none
+     */
+    public ArrayList<Gloss> getGlosses (String synsetId) {
+        ByteBuffer buffer = mapped;
+        if (buffer==null) {
+            throw new IllegalStateException("The glosses can be read when the gloss store is finished");
+        }
+        ArrayList<Gloss> glosses = new ArrayList<Gloss>(1);
+        Integer last = lastGloss.get(synsetId);
+        if (last==null) {
+            return glosses;
+        }
+        /// a copy, so that threads do not share the position
+        buffer = buffer.duplicate();
+        byte [] text = new byte[64];
+        for (int offset = last; offset>-1; offset = buffer.getInt(offset)) {
+            int length = buffer.getInt(offset+12);
+            if (length>text.length) {
+                text = new byte[length];
+            }
+            buffer.position(offset+HEADER);
+            buffer.get(text, 0, length);
+            Gloss gloss = new Gloss();
+            gloss.setLanguage(strings.get(buffer.getInt(offset+4)));
+            gloss.setProvenance(strings.get(buffer.getInt(offset+8)));
+            gloss.setText(new String(text, 0, length, UTF8));
+            glosses.add(gloss);
+        }
+        Collections.reverse(glosses);
+        return glosses;
+    }
+
+    public boolean hasGlosses (String synsetId) {
+        return lastGloss.containsKey(synsetId);
+    }
+
+    /**
+     * @return the ids of the synsets with glosses
+     */
+    public Set<String> getSynsetIds () {
+        return Collections.unmodifiableSet(lastGloss.keySet());
+    }
+
+    /**
+     * @return the number of synsets with glosses
+     */
+    public int size () {
+        return lastGloss.size();
+    }
+
+    public int getGlossCount () {
+        return nGlosses;
+    }
+
+    /**
+     * @return the number of bytes of the file
+     */
+    public long getFileSize () {
+        return written+pending.position();
+    }
+
+    /**
+     * Deletes the file of a store that will not be finished, e.g. one of a parse that failed
+     * @throws IOException
+     */
+    public synchronized void close () throws IOException {
+        if (raf!=null) {
+            raf.close();
+            raf = null;
+            channel = null;
+            file.delete();
+        }
+    }
+
+    private int getPosition (String s) {
+        Integer position = stringPositions.get(s);
+        if (position==null) {
+            position = strings.size();
+            strings.add(s);
+            stringPositions.put(s, position);
+        }
+        return position;
+    }
+
+    private void flush () throws IOException {
+        pending.flip();
+        while (pending.hasRemaining()) {
+            written += channel.write(pending, written);
+        }
+        pending.clear();
+    }
+}
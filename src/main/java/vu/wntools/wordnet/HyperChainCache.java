@@ -0,0 +1,157 @@
+package vu.wntools.wordnet;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded cache of the hypernym chains of synsets, used by WordnetData.getMultipleHyperChain.
+ *
+ * The chains are stored once per synset ordinal as read-only lists and the same lists are handed out on every hit.
+ * The cache is split in segments that are locked separately, so that threads working on different synsets
+ * do not wait for each other. Each segment evicts its least recently used entry (LRU) or its oldest entry (FIFO)
+ * when it is full.
+ */
+public class HyperChainCache {
+
+    public static final int LRU = 0;
+    public static final int FIFO = 1;
+
+    private final SynsetGraph graph;
+    private final int maxSize;
+    private final int eviction;
+    private final Segment [] segments;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param graph the graph the ordinals belong to
+     * @param maxSize maximum number of synsets in the cache
+     * @param eviction LRU or FIFO
+     */
+    public HyperChainCache (SynsetGraph graph, int maxSize, int eviction) {
+        this.graph = graph;
+        this.maxSize = maxSize;
+        this.eviction = eviction;
+        int nSegments = 16;
+        while (nSegments>1 && maxSize/nSegments<64) {
+            nSegments /= 2;
+        }
+        this.segments = new Segment[nSegments];
+        for (int i = 0; i < nSegments; i++) {
+            segments[i] = new Segment((maxSize+nSegments-1)/nSegments, eviction==LRU);
+        }
+    }
+
+    public SynsetGraph getGraph() {
+        return graph;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getEviction() {
+        return eviction;
+    }
+
+    /**
+     * @param ordinal
+     * @return the chains of the synset or null if they are not in the cache
+     */
+    public ArrayList<ArrayList<String>> get (int ordinal) {
+        Segment segment = segments[ordinal & (segments.length-1)];
+        ArrayList<ArrayList<String>> chains;
+        synchronized (segment) {
+            chains = segment.get(ordinal);
+        }
+        if (chains==null) {
+            misses.incrementAndGet();
+        }
+        else {
+            hits.incrementAndGet();
+        }
+        return chains;
+    }
+
+    /**
+     * Stores the chains of a synset. The chains are copied to read-only lists.
+     * @param ordinal
+     * @param chains
+     * @return the cached read-only chains
+     */
+    public ArrayList<ArrayList<String>> put (int ordinal, ArrayList<ArrayList<String>> chains) {
+        ArrayList<ArrayList<String>> frozenChains = new ArrayList<ArrayList<String>>(chains.size());
+        for (int i = 0; i < chains.size(); i++) {
+            frozenChains.add(new ReadOnlyChain(chains.get(i)));
+        }
+        Segment segment = segments[ordinal & (segments.length-1)];
+        synchronized (segment) {
+            segment.put(ordinal, frozenChains);
+        }
+        return frozenChains;
+    }
+
+    public void clear () {
+        for (int i = 0; i < segments.length; i++) {
+            synchronized (segments[i]) {
+                segments[i].clear();
+            }
+        }
+    }
+
+    public int size () {
+        int size = 0;
+        for (int i = 0; i < segments.length; i++) {
+            synchronized (segments[i]) {
+                size += segments[i].size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public String toString () {
+        return "hyper chain cache size = "+size()+", hits = "+getHits()+", misses = "+getMisses()+", evictions = "+getEvictions();
+    }
+
+    private class Segment extends LinkedHashMap<Integer, ArrayList<ArrayList<String>>> {
+        private final int capacity;
+
+        Segment (int capacity, boolean accessOrder) {
+            super(16, 0.75f, accessOrder);
+            this.capacity = capacity;
+        }
+
+        protected boolean removeEldestEntry (Map.Entry<Integer, ArrayList<ArrayList<String>>> eldest) {
+            if (size()>capacity) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Chain that is shared by all users of the cache and therefore cannot be changed.
+     */
+    static class ReadOnlyChain extends ReadOnlyList<String> {
+
+        ReadOnlyChain (ArrayList<String> chain) {
+            super(chain, "Hyper chains from the cache are shared and cannot be changed");
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package vu.wntools.wordnet;
+
+import java.util.ArrayList;
+
+/**
+ * Hypernym chain stored as a linked path of synset ordinals, from a synset up to a top node.
+ *
+ * Each element only points to the next element towards the top, so all chains that end in the same path
+ * to a top node share that part. Paths are never changed after construction and can be shared between threads.
+ */
+public class HyperPath {
+
+    private final int ordinal;
+    private final HyperPath next;
+    private final int length;
+
+    public HyperPath (int ordinal, HyperPath next) {
+        this.ordinal = ordinal;
+        this.next = next;
+        if (next==null) {
+            this.length = 1;
+        }
+        else {
+            this.length = next.length+1;
+        }
+    }
+
+    /**
+     * @return ordinal of the first synset of the path
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * @return the path from the hypernym of the first synset to the top, null at the top node
+     */
+    public HyperPath getNext() {
+        return next;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @param ordinal
+     * @return position of the synset in the path, -1 if it does not occur
+     */
+    public int indexOf (int ordinal) {
+        HyperPath path = this;
+        for (int i = 0; i < length; i++) {
+            if (path.ordinal==ordinal) {
+                return i;
+            }
+            path = path.next;
+        }
+        return -1;
+    }
+
+    public int [] toOrdinals () {
+        int [] ordinals = new int[length];
+        HyperPath path = this;
+        for (int i = 0; i < length; i++) {
+            ordinals[i] = path.ordinal;
+            path = path.next;
+        }
+        return ordinals;
+    }
+
+    /**
+     * Materializes the path as a chain of synset ids, as returned by WordnetData.getMultipleHyperChain
+     * @param graph
+     * @return chain
+     */
+    public ArrayList<String> toIds (SynsetGraph graph) {
+        ArrayList<String> synsetIds = new ArrayList<String>(length);
+        HyperPath path = this;
+        for (int i = 0; i < length; i++) {
+            synsetIds.add(graph.getId(path.ordinal));
+            path = path.next;
+        }
+        return synsetIds;
+    }
+}
@@ -0,0 +1,255 @@
+package vu.wntools.wordnet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Hypernym chains of the synsets of a SynsetGraph as shared HyperPaths.
+ *
+ * The chains of a synset are the synset followed by each chain of each of its hypernyms, in the order of the
+ * hypernym relations. The chains of a hypernym are therefore computed once and reused as the tail of the chains
+ * of all its hyponyms. Chains are computed on first use with an explicit stack, so deep hierarchies do not
+ * exhaust the call stack.
+ *
+ * This reuse is only correct if no synset can be reached twice on a path. For synsets from which a circular
+ * hypernym relation can be reached, the chains are enumerated by extending each chain separately and skipping
+ * hypernyms that are already in the chain, as WordnetData.getHyperChains does.
+ */
+public class HyperPathIndex {
+
+    private final SynsetGraph graph;
+    private final boolean [] reachesCycle;
+    private final AtomicReferenceArray<HyperPath[]> paths;
+
+    public HyperPathIndex (SynsetGraph graph) {
+        this.graph = graph;
+        this.reachesCycle = findCycles(graph);
+        this.paths = new AtomicReferenceArray<HyperPath[]>(graph.size());
+    }
+
+    public SynsetGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @param ordinal
+     * @return true if a circular hypernym relation can be reached from the synset
+     */
+    public boolean reachesCycle (int ordinal) {
+        return reachesCycle[ordinal];
+    }
+
+    /**
+     * @param ordinal
+     * @return all hypernym chains of the synset, in the same order as WordnetData.getMultipleHyperChain
+     */
+    public HyperPath [] getPaths (int ordinal) {
+        HyperPath [] result = paths.get(ordinal);
+        if (result==null) {
+            if (reachesCycle[ordinal]) {
+                result = walk(ordinal);
+                paths.set(ordinal, result);
+            }
+            else {
+                result = build(ordinal);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Visits the chains of the synset until the visitor returns false
+     * @param ordinal
+     * @param visitor
+     * @return false if the visitor stopped the enumeration
+     */
+    public boolean visit (int ordinal, HyperPathVisitor visitor) {
+        HyperPath [] result = getPaths(ordinal);
+        for (int i = 0; i < result.length; i++) {
+            if (!visitor.visit(result[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the chains of the synset and of all its hypernyms that are not known yet, hypernyms first
+     * @param ordinal synset from which no cycle can be reached
+     * @return chains of the synset
+     */
+    private HyperPath [] build (int ordinal) {
+        int [] stack = new int[16];
+        int [] next = new int[16];
+        int top = 0;
+        stack[0] = ordinal;
+        next[0] = graph.getHyperStart(ordinal);
+        while (top>=0) {
+            int node = stack[top];
+            if (next[top]<graph.getHyperEnd(node)) {
+                int hyper = graph.getHyperTarget(next[top]);
+                next[top]++;
+                if (paths.get(hyper)==null) {
+                    top++;
+                    if (top==stack.length) {
+                        stack = Arrays.copyOf(stack, top*2);
+                        next = Arrays.copyOf(next, top*2);
+                    }
+                    stack[top] = hyper;
+                    next[top] = graph.getHyperStart(hyper);
+                }
+            }
+            else {
+                paths.set(node, combine(node));
+                top--;
+            }
+        }
+        return paths.get(ordinal);
+    }
+
+    /**
+     * @param node synset of which the chains of all hypernyms are known
+     * @return chains of the synset
+     */
+    private HyperPath [] combine (int node) {
+        if (!graph.hasHypers(node)) {
+            return new HyperPath[] {new HyperPath(node, null)};
+        }
+        int size = 0;
+        for (int i = graph.getHyperStart(node); i < graph.getHyperEnd(node); i++) {
+            size += paths.get(graph.getHyperTarget(i)).length;
+        }
+        HyperPath [] result = new HyperPath[size];
+        int n = 0;
+        for (int i = graph.getHyperStart(node); i < graph.getHyperEnd(node); i++) {
+            HyperPath [] tails = paths.get(graph.getHyperTarget(i));
+            for (int j = 0; j < tails.length; j++) {
+                result[n++] = new HyperPath(node, tails[j]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Depth-first enumeration of the chains of a synset from which a cycle can be reached.
+     * Hypernyms that are already in the chain are skipped. Once the chain reaches a hypernym from which no cycle
+     * can be reached, the shared chains of that hypernym are used for the rest.
+     * @param ordinal
+     * @return chains of the synset
+     */
+    private HyperPath [] walk (int ordinal) {
+        ArrayList<HyperPath> result = new ArrayList<HyperPath>();
+        int [] chain = new int[16];
+        int [] next = new int[16];
+        int length = 1;
+        chain[0] = ordinal;
+        next[0] = graph.getHyperStart(ordinal);
+        while (length>0) {
+            int node = chain[length-1];
+            if (!graph.hasHypers(node)) {
+                result.add(toPath(chain, length, null));
+                length--;
+            }
+            else if (next[length-1]<graph.getHyperEnd(node)) {
+                int target = graph.getHyperTarget(next[length-1]);
+                next[length-1]++;
+                boolean circular = false;
+                for (int c = 0; c < length; c++) {
+                    if (chain[c]==target) {
+                        circular = true;
+                        break;
+                    }
+                }
+                if (circular) {
+                    continue;
+                }
+                if (!reachesCycle[target]) {
+                    /// the chain cannot come back to one of its own synsets from here
+                    HyperPath [] tails = getPaths(target);
+                    for (int j = 0; j < tails.length; j++) {
+                        result.add(toPath(chain, length, tails[j]));
+                    }
+                }
+                else {
+                    if (length==chain.length) {
+                        chain = Arrays.copyOf(chain, length*2);
+                        next = Arrays.copyOf(next, length*2);
+                    }
+                    chain[length] = target;
+                    next[length] = graph.getHyperStart(target);
+                    length++;
+                }
+            }
+            else {
+                length--;
+            }
+        }
+        return result.toArray(new HyperPath[result.size()]);
+    }
+
+    private static HyperPath toPath (int [] chain, int length, HyperPath tail) {
+        HyperPath path = tail;
+        for (int i = length-1; i >= 0; i--) {
+            path = new HyperPath(chain[i], path);
+        }
+        return path;
+    }
+
+    /**
+     * Marks the synsets that are on a circular hypernym relation or from which one can be reached,
+     * with an iterative depth-first walk over the whole graph
+     * @param graph
+     * @return flags by ordinal
+     */
+    static boolean [] findCycles (SynsetGraph graph) {
+        int n = graph.size();
+        boolean [] cycle = new boolean[n];
+        /// 0 not visited, 1 on the stack, 2 done
+        byte [] state = new byte[n];
+        int [] stack = new int[16];
+        int [] next = new int[16];
+        for (int source = 0; source < n; source++) {
+            if (state[source]!=0) {
+                continue;
+            }
+            int top = 0;
+            stack[0] = source;
+            next[0] = graph.getHyperStart(source);
+            state[source] = 1;
+            while (top>=0) {
+                int node = stack[top];
+                if (next[top]<graph.getHyperEnd(node)) {
+                    int hyper = graph.getHyperTarget(next[top]);
+                    next[top]++;
+                    if (state[hyper]==1) {
+                        cycle[node] = true;
+                    }
+                    else if (state[hyper]==2) {
+                        if (cycle[hyper]) {
+                            cycle[node] = true;
+                        }
+                    }
+                    else {
+                        top++;
+                        if (top==stack.length) {
+                            stack = Arrays.copyOf(stack, top*2);
+                            next = Arrays.copyOf(next, top*2);
+                        }
+                        stack[top] = hyper;
+                        next[top] = graph.getHyperStart(hyper);
+                        state[hyper] = 1;
+                    }
+                }
+                else {
+                    state[node] = 2;
+                    top--;
+                    if (top>=0 && cycle[node]) {
+                        cycle[stack[top]] = true;
+                    }
+                }
+            }
+        }
+        return cycle;
+    }
+}
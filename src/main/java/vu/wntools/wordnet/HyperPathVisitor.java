@@ -0,0 +1,13 @@
+package vu.wntools.wordnet;
+
+/**
+ * Receives the hypernym chains of a synset one by one, see WordnetData.visitHyperChains
+ */
+public interface HyperPathVisitor {
+
+    /**
+     * @param path chain from the synset to a top node
+     * @return false to stop the enumeration
+     */
+    public boolean visit (HyperPath path);
+}
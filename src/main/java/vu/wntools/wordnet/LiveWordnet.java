@@ -0,0 +1,38 @@
+package vu.wntools.wordnet;
+
+/**
+ * Wordnet that is read by many threads while it is updated.
+ *
+ * Readers take the current snapshot, a frozen WordnetData, without locking and keep using it for as long as they
+ * need consistent answers, e.g. for one request. An update makes a new snapshot from the current one and publishes
+ * it when it is complete; readers of the previous snapshot are not affected. Updates are applied one at a time.
+ */
+public class LiveWordnet {
+
+    private volatile WordnetData snapshot;
+
+    /**
+     * @param wordnetData the data to start with, it is frozen if it is not frozen already
+     */
+    public LiveWordnet (WordnetData wordnetData) {
+        this.snapshot = wordnetData.freeze();
+    }
+
+    /**
+     * @return the current snapshot
+     */
+    public WordnetData getSnapshot () {
+        return snapshot;
+    }
+
+    /**
+     * Applies the update to the current snapshot and publishes the result
+     * @param update
+     * @return the new snapshot
+     */
+    public synchronized WordnetData update (WordnetUpdate update) {
+        WordnetData updated = snapshot.update(update);
+        snapshot = updated;
+        return updated;
+    }
+}
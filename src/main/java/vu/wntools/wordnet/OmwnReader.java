@@ -30,8 +30,8 @@ public class OmwnReader {
                                    continue;
                                }
                                ArrayList<String> types = new ArrayList<String>();
-                               String lemma = fields[word];
-                               String wnid = prefix+fields[id];
+                               String lemma = WordnetStringPool.intern(fields[word]);
+                               String wnid = WordnetStringPool.intern(prefix+fields[id]);
                                if (wordnetData.synsetToEntries.containsKey(wnid)) {
                                    ArrayList<String> entries = wordnetData.synsetToEntries.get(wnid);
                                    entries.add(lemma);
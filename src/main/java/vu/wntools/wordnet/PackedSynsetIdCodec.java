@@ -0,0 +1,204 @@
+package vu.wntools.wordnet;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Synset id codec that packs the usual id schemes into a long and keeps a table of the other ids.
+ *
+ * An id is packed if it is a prefix, a number of at most 13 digits and optionally a part of speech, e.g.
+ * eng-30-00001740-n (prefix eng-30-, number 00001740, part of speech n), d_n-27579 or odwn-10-100324629-n. The code
+ * holds the position of the prefix in a dictionary of prefixes (11 bits), the part of speech (4 bits), the number of
+ * digits (4 bits, so leading zeros come back) and the number (44 bits). Codes of packed ids are positive.
+ * Ids that cannot be packed, or of which the prefix no longer fits in the dictionary, are stored once in a table and
+ * get the negative code -1-position. An id is always packed or always in the table, which keeps the codes unique.
+ *
+ * Looking up a packed id does not make any objects. Prefixes and ids are only added under a lock, readers do not lock.
+ */
+public class PackedSynsetIdCodec implements SynsetIdCodec {
+
+    private static final String POS = "nvarsbpcux";
+    private static final int MAX_DIGITS = 13;
+    private static final int MAX_PREFIXES = 1<<11;
+    private static final int NUMBER_BITS = 44;
+    private static final int DIGITS_SHIFT = NUMBER_BITS;
+    private static final int POS_SHIFT = DIGITS_SHIFT+4;
+    private static final int PREFIX_SHIFT = POS_SHIFT+4;
+
+    /// replaced as a whole when a prefix is added, so readers always see a complete dictionary
+    private volatile Prefixes prefixes = new Prefixes(new String[0]);
+    private final ConcurrentHashMap<String, Integer> fallbackCodes = new ConcurrentHashMap<String, Integer>();
+    /// replaced by a larger copy when it is full
+    private volatile String [] fallbackIds = new String[64];
+    private int nFallbackIds = 0;
+
+    public long encode (String synsetId) {
+        long code = lookup(synsetId);
+        if (code!=NONE) {
+            return code;
+        }
+        synchronized (this) {
+            code = lookup(synsetId);
+            if (code!=NONE) {
+                return code;
+            }
+            int end = getNumberEnd(synsetId);
+            int start = getNumberStart(synsetId, end);
+            if (start>-1 && prefixes.ids.length<MAX_PREFIXES) {
+                prefixes = prefixes.add(synsetId.substring(0, start));
+                return pack(synsetId, prefixes.ids.length-1, start, end);
+            }
+            if (nFallbackIds==fallbackIds.length) {
+                String [] ids = new String[nFallbackIds*2];
+                System.arraycopy(fallbackIds, 0, ids, 0, nFallbackIds);
+                fallbackIds = ids;
+            }
+            /// the id is stored before its code is handed out
+            fallbackIds[nFallbackIds] = synsetId;
+            fallbackCodes.put(synsetId, nFallbackIds);
+            return -1-nFallbackIds++;
+        }
+    }
+
+    public long lookup (String synsetId) {
+        int end = getNumberEnd(synsetId);
+        int start = getNumberStart(synsetId, end);
+        if (start>-1) {
+            int prefix = prefixes.find(synsetId, start);
+            if (prefix>-1) {
+                return pack(synsetId, prefix, start, end);
+            }
+        }
+        Integer position = fallbackCodes.get(synsetId);
+        if (position==null) {
+            return NONE;
+        }
+        return -1-position;
+    }
+
+    public String decode (long code) {
+        if (code<0) {
+            return fallbackIds[(int) (-1-code)];
+        }
+        String prefix = prefixes.ids[(int) (code>>>PREFIX_SHIFT)];
+        int pos = (int) (code>>>POS_SHIFT) & 0xf;
+        int digits = (int) (code>>>DIGITS_SHIFT) & 0xf;
+        String number = Long.toString(code & ((1L<<NUMBER_BITS)-1));
+        StringBuilder synsetId = new StringBuilder(prefix.length()+digits+2);
+        synsetId.append(prefix);
+        for (int i = number.length(); i < digits; i++) {
+            synsetId.append('0');
+        }
+        synsetId.append(number);
+        if (pos>0) {
+            synsetId.append('-').append(POS.charAt(pos-1));
+        }
+        return synsetId.toString();
+    }
+
+    /**
+     * @return the number of prefixes and the number of ids that are not packed
+     */
+    public int [] getSizes () {
+        return new int[]{prefixes.ids.length, fallbackCodes.size()};
+    }
+
+    /**
+     * @param synsetId
+     * @return the end of the number, before the part of speech if the id has one
+     */
+    private static int getNumberEnd (String synsetId) {
+        int end = synsetId.length();
+        if (end>=2 && synsetId.charAt(end-2)=='-' && POS.indexOf(synsetId.charAt(end-1))>-1) {
+            return end-2;
+        }
+        return end;
+    }
+
+    /**
+     * @param synsetId
+     * @param end
+     * @return the start of the number, -1 if the id cannot be packed
+     */
+    private static int getNumberStart (String synsetId, int end) {
+        int start = end;
+        while (start>0 && end-start<=MAX_DIGITS) {
+            char c = synsetId.charAt(start-1);
+            if (c<'0' || c>'9') {
+                break;
+            }
+            start--;
+        }
+        if (start==end || end-start>MAX_DIGITS) {
+            return -1;
+        }
+        return start;
+    }
+
+    private static long pack (String synsetId, int prefix, int start, int end) {
+        long number = 0;
+        for (int i = start; i < end; i++) {
+            number = number*10+(synsetId.charAt(i)-'0');
+        }
+        int pos = 0;
+        if (end<synsetId.length()) {
+            pos = POS.indexOf(synsetId.charAt(end+1))+1;
+        }
+        return ((long) prefix<<PREFIX_SHIFT) | ((long) pos<<POS_SHIFT) | ((long) (end-start)<<DIGITS_SHIFT) | number;
+    }
+
+    /**
+     * Dictionary of prefixes with an open addressing table, so a prefix can be found in an id without taking it out
+     */
+    private static class Prefixes {
+        final String [] ids;
+        final int [] slots;
+
+        Prefixes (String [] ids) {
+            this.ids = ids;
+            int size = 16;
+            while (size<ids.length*2) {
+                size *= 2;
+            }
+            this.slots = new int[size];
+            for (int i = 0; i < ids.length; i++) {
+                int slot = hash(ids[i], ids[i].length()) & (size-1);
+                while (slots[slot]!=0) {
+                    slot = (slot+1) & (size-1);
+                }
+                slots[slot] = i+1;
+            }
+        }
+
+        Prefixes add (String prefix) {
+            String [] added = new String[ids.length+1];
+            System.arraycopy(ids, 0, added, 0, ids.length);
+            added[ids.length] = prefix;
+            return new Prefixes(added);
+        }
+
+        /**
+         * @param synsetId
+         * @param length length of the prefix in the id
+         * @return the position of the prefix, -1 if it is not in the dictionary
+         */
+        int find (String synsetId, int length) {
+            int slot = hash(synsetId, length) & (slots.length-1);
+            while (slots[slot]!=0) {
+                String prefix = ids[slots[slot]-1];
+                if (prefix.length()==length && synsetId.startsWith(prefix)) {
+                    return slots[slot]-1;
+                }
+                slot = (slot+1) & (slots.length-1);
+            }
+            return -1;
+        }
+
+        static int hash (String s, int length) {
+            int h = 0;
+            for (int i = 0; i < length; i++) {
+                h = 31*h+s.charAt(i);
+            }
+            return h ^ (h>>>16);
+        }
+    }
+}
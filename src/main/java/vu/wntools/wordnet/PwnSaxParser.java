@@ -1,16 +1,9 @@
 package vu.wntools.wordnet;
 
-import org.xml.sax.Attributes;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
-import org.xml.sax.helpers.DefaultHandler;
-
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLStreamException;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 
@@ -21,10 +14,20 @@ import java.util.ArrayList;
  * Time: 9:34 PM
  * To change this template use File | Settings | File Templates.
  */
-public class PwnSaxParser extends DefaultHandler {
+public class PwnSaxParser implements WordnetXmlReader.Builder {
+    static final int ILR = 0;
+    static final int SYNSET = 1;
+    static final int POS = 2;
+    static final int DEF = 3;
+    static final int LITERAL = 4;
+    static final int ID = 5;
+    static final String [] ELEMENTS = {"ILR", "SYNSET", "POS", "DEF", "LITERAL", "ID"};
+    static final int A_TYPE = 0;
+    static final String [] ATTRIBUTES = {"type"};
+
+    /// if set, the definitions are written to it
     static OutputStream fos = null;
     public WordnetData wordnetData;
-    private String value = "";
     private String sourceId = "";
     private String targetId= "";
     private String entry = "";
@@ -58,22 +61,17 @@ public class PwnSaxParser extends DefaultHandler {
             System.out.println("filePath = " + filePath);
             String myerror = "";
             try {
-                SAXParserFactory factory = SAXParserFactory.newInstance();
-                factory.setValidating(false);
-                SAXParser parser = factory.newSAXParser();
-                InputSource inp = new InputSource (new FileReader(filePath));
-                parser.parse(inp, this);
-            } catch (SAXParseException err) {
-                myerror = "\n** Parsing error" + ", line " + err.getLineNumber()
-                        + ", uri " + err.getSystemId();
+                InputStream fis = WordnetXmlReader.open(filePath);
+                try {
+                    parse(fis);
+                } finally {
+                    fis.close();
+                }
+            } catch (XMLStreamException err) {
+                myerror = "\n** Parsing error" + ", line "
+                        + (err.getLocation()!=null ? err.getLocation().getLineNumber() : -1) + ", uri " + filePath;
                 myerror += "\n" + err.getMessage();
                 System.out.println("myerror = " + myerror);
-            } catch (SAXException e) {
-                Exception x = e;
-                if (e.getException() != null)
-                    x = e.getException();
-                myerror += "\nSAXException --" + x.getMessage();
-                System.out.println("myerror = " + myerror);
             } catch (Exception eee) {
                 eee.printStackTrace();
                 myerror += "\nException --" + eee.getMessage();
@@ -82,21 +80,30 @@ public class PwnSaxParser extends DefaultHandler {
             System.out.println("myerror = " + myerror);
         }//--c
 
+        /**
+         * Parses a document in the global wordnet grid format into the data
+         * @param stream
+         * @throws XMLStreamException
+         */
+        public void parse (InputStream stream) throws XMLStreamException {
+            new WordnetXmlReader(ELEMENTS, ATTRIBUTES, true).parse(stream, this);
+        }
 
-        public void startElement(String uri, String localName,
-                                 String qName, Attributes attributes)
-                throws SAXException {
 
-            if (qName.equalsIgnoreCase("ILR")) {
-                type = attributes.getValue("type");
-            }
-            else if (qName.equalsIgnoreCase("SYNSET")) {
-                pos = "";
-                sourceId = "";
-                entry = "";
-                definition = "";
+        public void startElement(int element, WordnetXmlReader reader) {
+            switch (element) {
+                case ILR:
+                    type = reader.getAttribute(A_TYPE);
+                    break;
+                case SYNSET:
+                    pos = "";
+                    sourceId = "";
+                    entry = "";
+                    definition = "";
+                    break;
+                default:
+                    break;
             }
-            value = "";
         }//--startElement
 
 
@@ -138,63 +145,63 @@ public class PwnSaxParser extends DefaultHandler {
         */
         ///** version that filters entries on pos ***////
 
-        public void endElement(String uri, String localName, String qName)
-                throws SAXException {
-
-            if (qName.equalsIgnoreCase("SYNSET")) {
-                /// add all relations
-                if ((!sourceId.isEmpty()) && hypers.size()>0) {
-                    wordnetData.addHyperRelation(sourceId, hypers);
-                }
-                if ((!sourceId.isEmpty()) && others.size()>0) {
-                    wordnetData.addOtherRelations(sourceId, others);
-                }
-                /// possibly filter entries
-                if (posMatch && !entry.isEmpty()) {
-                    if (wordnetData.entryToSynsets.containsKey(entry)) {
+        public void endElement(int element, WordnetXmlReader reader) {
+            switch (element) {
+                case SYNSET:
+                    /// add all relations, the lists are reused so the data get a copy
+                    if ((!sourceId.isEmpty()) && hypers.size()>0) {
+                        wordnetData.addHyperRelation(sourceId, new ArrayList<String>(hypers));
+                    }
+                    if ((!sourceId.isEmpty()) && others.size()>0) {
+                        wordnetData.addOtherRelations(sourceId, new ArrayList<String>(others));
+                    }
+                    /// possibly filter entries
+                    if (posMatch && !entry.isEmpty()) {
                         ArrayList<String> synsets = wordnetData.entryToSynsets.get(entry);
-                        if (!synsets.contains(sourceId)) {
+                        if (synsets!=null) {
+                            if (!synsets.contains(sourceId)) {
+                                synsets.add(sourceId);
+                            }
+                        }
+                        else {
+                            synsets = new ArrayList<String>(1);
                             synsets.add(sourceId);
                             wordnetData.entryToSynsets.put(entry, synsets);
                         }
                     }
-                    else {
-                        ArrayList<String> synsets = new ArrayList<String>();
-                        synsets.add(sourceId);
-                        wordnetData.entryToSynsets.put(entry, synsets);
+                    others.clear();
+                    hypers.clear();
+                    entry = "";
+                    pos = "";
+                    sourceId = "";
+                    break;
+                case POS:
+                    pos = reader.getText().trim();
+                    if (!posFilter.isEmpty()) {
+                        if (pos.equalsIgnoreCase(posFilter)) {
+                            posMatch = true;
+                        }
+                        else {
+                            posMatch = false;
+                        }
                     }
-                }
-                others = new ArrayList<String>();
-                hypers = new ArrayList<String>();
-                entry = "";
-                pos = "";
-                sourceId = "";
-            }
-            else if (qName.equalsIgnoreCase("POS")) {
-                pos = value.trim();
-                if (!posFilter.isEmpty()) {
-                    if (pos.equalsIgnoreCase(posFilter)) {
+                    else {
                         posMatch = true;
                     }
-                    else {
-                        posMatch = false;
+                    break;
+                case DEF:
+                    definition = reader.getText().trim();
+                    if (fos!=null) {
+                        String str = sourceId+" # "+definition+"\n";
+                        try {
+                            fos.write(str.getBytes());
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
                     }
-                }
-                else {
-                    posMatch = true;
-                }
-            }
-            else if (qName.equalsIgnoreCase("DEF")) {
-                definition = value.trim();
-                String str = sourceId+" # "+definition+"\n";
-                try {
-                    fos.write(str.getBytes());
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-            else if (qName.equalsIgnoreCase("ILR")) {
-                    targetId = value.trim();
+                    break;
+                case ILR:
+                    targetId = WordnetStringPool.intern(reader.getText().trim());
                     if (relations.size()==0) {
                         if (type.equalsIgnoreCase("hypernym")) {
                             hypers.add(targetId);
@@ -210,21 +217,16 @@ public class PwnSaxParser extends DefaultHandler {
                         others.add(targetId);
                     }
                     type = "";
+                    break;
+                case LITERAL:
+                    entry = WordnetStringPool.intern(reader.getText().trim());
+                    break;
+                case ID:
+                    sourceId = WordnetStringPool.intern(reader.getText().trim());
+                    break;
+                default:
+                    break;
             }
-            else if (qName.equalsIgnoreCase("LITERAL")) {
-                 entry = value.trim();
-            }
-            else if (qName.equalsIgnoreCase("ID")) {
-                sourceId = value.trim();
-            }
-
-        }
-
-
-        public void characters(char ch[], int start, int length)
-                throws SAXException {
-            value += new String(ch, start, length);
-            // System.out.println("tagValue:"+value);
         }
 
         static public void main (String[] args) {
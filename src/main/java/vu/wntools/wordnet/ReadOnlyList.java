@@ -0,0 +1,107 @@
+package vu.wntools.wordnet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * List that is shared between threads and therefore cannot be changed once it has been filled.
+ * It stays an ArrayList so that it can be used wherever the wordnet data hands out ArrayLists.
+ */
+class ReadOnlyList<E> extends ArrayList<E> {
+    private final boolean frozen;
+    private final String message;
+
+    /**
+     * @param list elements of the list
+     * @param message text of the exception thrown when the list is changed
+     */
+    ReadOnlyList (Collection<? extends E> list, String message) {
+        super(list);
+        this.message = message;
+        this.frozen = true;
+    }
+
+    private void readOnly () {
+        if (frozen) {
+            throw new UnsupportedOperationException(message);
+        }
+    }
+
+    public boolean add (E e) {
+        readOnly();
+        return super.add(e);
+    }
+
+    public void add (int index, E e) {
+        readOnly();
+        super.add(index, e);
+    }
+
+    public boolean addAll (Collection<? extends E> c) {
+        readOnly();
+        return super.addAll(c);
+    }
+
+    public boolean addAll (int index, Collection<? extends E> c) {
+        readOnly();
+        return super.addAll(index, c);
+    }
+
+    public E set (int index, E e) {
+        readOnly();
+        return super.set(index, e);
+    }
+
+    public E remove (int index) {
+        readOnly();
+        return super.remove(index);
+    }
+
+    public boolean remove (Object o) {
+        readOnly();
+        return super.remove(o);
+    }
+
+    public boolean removeAll (Collection<?> c) {
+        readOnly();
+        return super.removeAll(c);
+    }
+
+    public boolean retainAll (Collection<?> c) {
+        readOnly();
+        return super.retainAll(c);
+    }
+
+    public void clear () {
+        readOnly();
+        super.clear();
+    }
+
+    protected void removeRange (int fromIndex, int toIndex) {
+        readOnly();
+        super.removeRange(fromIndex, toIndex);
+    }
+
+    /// Collections.sort sorts an ArrayList in place through this method
+    public void sort (Comparator<? super E> c) {
+        throw new UnsupportedOperationException(message);
+    }
+
+    /// the bulk methods of ArrayList change the elements without calling the methods above
+    public boolean removeIf (Predicate<? super E> filter) {
+        throw new UnsupportedOperationException(message);
+    }
+
+    public void replaceAll (UnaryOperator<E> operator) {
+        throw new UnsupportedOperationException(message);
+    }
+
+    public List<E> subList (int fromIndex, int toIndex) {
+        return Collections.unmodifiableList(super.subList(fromIndex, toIndex));
+    }
+}
@@ -0,0 +1,160 @@
+package vu.wntools.wordnet;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Map that is shared between threads and therefore cannot be changed once it has been filled.
+ * It stays a HashMap so that it can be stored in the public fields of WordnetData. It is linked, so it iterates in the
+ * order of the map it was made from, which a HashMap with the same entries does not always do. The entries handed out
+ * by the entry set cannot be changed either.
+ */
+class ReadOnlyMap<K, V> extends LinkedHashMap<K, V> {
+    private final boolean frozen;
+    private final String message;
+
+    /**
+     * @param map entries of the map
+     * @param message text of the exception thrown when the map is changed
+     */
+    ReadOnlyMap (Map<? extends K, ? extends V> map, String message) {
+        super(map);
+        this.message = message;
+        this.frozen = true;
+    }
+
+    /**
+     * Copy of a map with changes. Keys keep their position in the map, new keys are added at the end.
+     * @param map entries of the map
+     * @param changes new values by key, a null value removes the key
+     * @param message text of the exception thrown when the map is changed
+     */
+    ReadOnlyMap (Map<K, V> map, Map<K, V> changes, String message) {
+        super(map.size()*4/3+changes.size()+1);
+        for (Map.Entry<K, V> entry : map.entrySet()) {
+            if (!changes.containsKey(entry.getKey())) {
+                super.put(entry.getKey(), entry.getValue());
+            }
+            else if (changes.get(entry.getKey())!=null) {
+                super.put(entry.getKey(), changes.get(entry.getKey()));
+            }
+        }
+        for (Map.Entry<K, V> entry : changes.entrySet()) {
+            if (entry.getValue()!=null && !map.containsKey(entry.getKey())) {
+                super.put(entry.getKey(), entry.getValue());
+            }
+        }
+        this.message = message;
+        this.frozen = true;
+    }
+
+    private void readOnly () {
+        if (frozen) {
+            throw new UnsupportedOperationException(message);
+        }
+    }
+
+    public V put (K key, V value) {
+        readOnly();
+        return super.put(key, value);
+    }
+
+    public void putAll (Map<? extends K, ? extends V> m) {
+        readOnly();
+        super.putAll(m);
+    }
+
+    public V remove (Object key) {
+        readOnly();
+        return super.remove(key);
+    }
+
+    public void clear () {
+        readOnly();
+        super.clear();
+    }
+
+    /// the default methods of Map, which HashMap implements without calling the methods above
+    public V putIfAbsent (K key, V value) {
+        readOnly();
+        return null;
+    }
+
+    public boolean remove (Object key, Object value) {
+        readOnly();
+        return false;
+    }
+
+    public V replace (K key, V value) {
+        readOnly();
+        return null;
+    }
+
+    public boolean replace (K key, V oldValue, V newValue) {
+        readOnly();
+        return false;
+    }
+
+    public V computeIfAbsent (K key, Function<? super K, ? extends V> mappingFunction) {
+        readOnly();
+        return null;
+    }
+
+    public V computeIfPresent (K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        readOnly();
+        return null;
+    }
+
+    public V compute (K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        readOnly();
+        return null;
+    }
+
+    public V merge (K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        readOnly();
+        return null;
+    }
+
+    public void replaceAll (BiFunction<? super K, ? super V, ? extends V> function) {
+        readOnly();
+    }
+
+    public Set<K> keySet () {
+        return Collections.unmodifiableSet(super.keySet());
+    }
+
+    public Collection<V> values () {
+        return Collections.unmodifiableCollection(super.values());
+    }
+
+    public Set<Map.Entry<K, V>> entrySet () {
+        final Set<Map.Entry<K, V>> entries = super.entrySet();
+        return new AbstractSet<Map.Entry<K, V>>() {
+            public Iterator<Map.Entry<K, V>> iterator () {
+                final Iterator<Map.Entry<K, V>> iterator = entries.iterator();
+                return new Iterator<Map.Entry<K, V>>() {
+                    public boolean hasNext () {
+                        return iterator.hasNext();
+                    }
+
+                    public Map.Entry<K, V> next () {
+                        return new AbstractMap.SimpleImmutableEntry<K, V>(iterator.next());
+                    }
+
+                    public void remove () {
+                        throw new UnsupportedOperationException(message);
+                    }
+                };
+            }
+
+            public int size () {
+                return entries.size();
+            }
+
+            public boolean contains (Object o) {
+                return entries.contains(o);
+            }
+        };
+    }
+}
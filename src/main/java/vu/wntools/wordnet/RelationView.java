@@ -0,0 +1,270 @@
+package vu.wntools.wordnet;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Read-only map of the hypernym, child or other relations of frozen data that reads the int arrays of the synset
+ * graph, so the relations are stored once. It stays a HashMap so that it can be stored in the public fields of
+ * WordnetData.
+ *
+ * The lists are made from the graph when they are asked for and cannot be changed. A synset is a key if it has at
+ * least one relation. The keys are in the order of the ordinals, which is the order of the sorted ids.
+ */
+class RelationView extends HashMap<String, ArrayList<String>> {
+    static final int HYPERS = 0;
+    static final int CHILDREN = 1;
+    static final int OTHERS = 2;
+
+    private final SynsetGraph graph;
+    private final int relation;
+    private final int size;
+
+    /**
+     * @param graph
+     * @param relation HYPERS, CHILDREN or OTHERS
+     */
+    RelationView (SynsetGraph graph, int relation) {
+        super(0);
+        this.graph = graph;
+        this.relation = relation;
+        int n = 0;
+        for (int i = 0; i < graph.size(); i++) {
+            if (end(i)>start(i)) n++;
+        }
+        this.size = n;
+    }
+
+    private int start (int ordinal) {
+        if (relation==HYPERS) return graph.getHyperStart(ordinal);
+        if (relation==CHILDREN) return graph.getChildStart(ordinal);
+        return graph.getOtherStart(ordinal);
+    }
+
+    private int end (int ordinal) {
+        if (relation==HYPERS) return graph.getHyperEnd(ordinal);
+        if (relation==CHILDREN) return graph.getChildEnd(ordinal);
+        return graph.getOtherEnd(ordinal);
+    }
+
+    private int target (int index) {
+        if (relation==HYPERS) return graph.getHyperTarget(index);
+        if (relation==CHILDREN) return graph.getChildTarget(index);
+        return graph.getOtherTarget(index);
+    }
+
+    /**
+     * @return the ordinal of the key if it has relations, otherwise -1
+     */
+    private int row (Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        int ordinal = graph.getOrdinal((String) key);
+        if (ordinal<0 || end(ordinal)==start(ordinal)) {
+            return -1;
+        }
+        return ordinal;
+    }
+
+    private ArrayList<String> targets (int ordinal) {
+        ArrayList<String> targets = new ArrayList<String>(end(ordinal)-start(ordinal));
+        for (int i = start(ordinal); i < end(ordinal); i++) {
+            targets.add(graph.getId(target(i)));
+        }
+        return new ReadOnlyList<String>(targets, WordnetData.READ_ONLY);
+    }
+
+    /**
+     * @return the first ordinal from the given one on that has relations, size of the graph if there is none
+     */
+    private int next (int ordinal) {
+        while (ordinal<graph.size() && end(ordinal)==start(ordinal)) {
+            ordinal++;
+        }
+        return ordinal;
+    }
+
+    public int size () {
+        return size;
+    }
+
+    public boolean isEmpty () {
+        return size==0;
+    }
+
+    public boolean containsKey (Object key) {
+        return row(key)>-1;
+    }
+
+    public ArrayList<String> get (Object key) {
+        int ordinal = row(key);
+        return ordinal<0 ? null : targets(ordinal);
+    }
+
+    public ArrayList<String> getOrDefault (Object key, ArrayList<String> defaultValue) {
+        int ordinal = row(key);
+        return ordinal<0 ? defaultValue : targets(ordinal);
+    }
+
+    public boolean containsValue (Object value) {
+        return values().contains(value);
+    }
+
+    public void forEach (BiConsumer<? super String, ? super ArrayList<String>> action) {
+        for (int i = next(0); i < graph.size(); i = next(i+1)) {
+            action.accept(graph.getId(i), targets(i));
+        }
+    }
+
+    /**
+     * @return a HashMap with the same relations that can be changed
+     */
+    public Object clone () {
+        return new HashMap<String, ArrayList<String>>(this);
+    }
+
+    private abstract class RowIterator<T> implements Iterator<T> {
+        private int ordinal = RelationView.this.next(0);
+
+        public boolean hasNext () {
+            return ordinal<graph.size();
+        }
+
+        public T next () {
+            if (ordinal>=graph.size()) {
+                throw new NoSuchElementException();
+            }
+            int current = ordinal;
+            ordinal = RelationView.this.next(ordinal+1);
+            return item(current);
+        }
+
+        public void remove () {
+            throw new UnsupportedOperationException(WordnetData.READ_ONLY);
+        }
+
+        abstract T item (int ordinal);
+    }
+
+    public Set<String> keySet () {
+        return new AbstractSet<String>() {
+            public Iterator<String> iterator () {
+                return new RowIterator<String>() {
+                    String item (int ordinal) {
+                        return graph.getId(ordinal);
+                    }
+                };
+            }
+
+            public int size () {
+                return size;
+            }
+
+            public boolean contains (Object o) {
+                return containsKey(o);
+            }
+        };
+    }
+
+    public Collection<ArrayList<String>> values () {
+        return new AbstractCollection<ArrayList<String>>() {
+            public Iterator<ArrayList<String>> iterator () {
+                return new RowIterator<ArrayList<String>>() {
+                    ArrayList<String> item (int ordinal) {
+                        return targets(ordinal);
+                    }
+                };
+            }
+
+            public int size () {
+                return size;
+            }
+        };
+    }
+
+    public Set<Map.Entry<String, ArrayList<String>>> entrySet () {
+        return new AbstractSet<Map.Entry<String, ArrayList<String>>>() {
+            public Iterator<Map.Entry<String, ArrayList<String>>> iterator () {
+                return new RowIterator<Map.Entry<String, ArrayList<String>>>() {
+                    Map.Entry<String, ArrayList<String>> item (int ordinal) {
+                        return new AbstractMap.SimpleImmutableEntry<String, ArrayList<String>>(graph.getId(ordinal),
+                                targets(ordinal));
+                    }
+                };
+            }
+
+            public int size () {
+                return size;
+            }
+
+            public boolean contains (Object o) {
+                if (!(o instanceof Map.Entry)) {
+                    return false;
+                }
+                Map.Entry entry = (Map.Entry) o;
+                int ordinal = row(entry.getKey());
+                return ordinal>-1 && targets(ordinal).equals(entry.getValue());
+            }
+        };
+    }
+
+    public ArrayList<String> put (String key, ArrayList<String> value) {
+        throw new UnsupportedOperationException(WordnetData.READ_ONLY);
+    }
+
+    public void putAll (Map<? extends String, ? extends ArrayList<String>> m) {
+        throw new UnsupportedOperationException(WordnetData.READ_ONLY);
+    }
+
+    public ArrayList<String> remove (Object key) {
+        throw new UnsupportedOperationException(WordnetData.READ_ONLY);
+    }
+
+    public void clear () {
+        throw new UnsupportedOperationException(WordnetData.READ_ONLY);
+    }
+
+    public ArrayList<String> putIfAbsent (String key, ArrayList<String> value) {
+        throw new UnsupportedOperationException(WordnetData.READ_ONLY);
+    }
+
+    public boolean remove (Object key, Object value) {
+        throw new UnsupportedOperationException(WordnetData.READ_ONLY);
+    }
+
+    public ArrayList<String> replace (String key, ArrayList<String> value) {
+        throw new UnsupportedOperationException(WordnetData.READ_ONLY);
+    }
+
+    public boolean replace (String key, ArrayList<String> oldValue, ArrayList<String> newValue) {
+        throw new UnsupportedOperationException(WordnetData.READ_ONLY);
+    }
+
+    public ArrayList<String> computeIfAbsent (String key,
+                                              Function<? super String, ? extends ArrayList<String>> mappingFunction) {
+        throw new UnsupportedOperationException(WordnetData.READ_ONLY);
+    }
+
+    public ArrayList<String> computeIfPresent (String key, BiFunction<? super String, ? super ArrayList<String>,
+            ? extends ArrayList<String>> remappingFunction) {
+        throw new UnsupportedOperationException(WordnetData.READ_ONLY);
+    }
+
+    public ArrayList<String> compute (String key, BiFunction<? super String, ? super ArrayList<String>,
+            ? extends ArrayList<String>> remappingFunction) {
+        throw new UnsupportedOperationException(WordnetData.READ_ONLY);
+    }
+
+    public ArrayList<String> merge (String key, ArrayList<String> value, BiFunction<? super ArrayList<String>,
+            ? super ArrayList<String>, ? extends ArrayList<String>> remappingFunction) {
+        throw new UnsupportedOperationException(WordnetData.READ_ONLY);
+    }
+
+    public void replaceAll (BiFunction<? super String, ? super ArrayList<String>,
+            ? extends ArrayList<String>> function) {
+        throw new UnsupportedOperationException(WordnetData.READ_ONLY);
+    }
+}
@@ -0,0 +1,453 @@
+package vu.wntools.wordnet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact, read-only graph of the synsets in a WordnetData.
+ *
+ * Every synset id is mapped once to a dense int ordinal. The hypernym, child and other relations are stored as
+ * offset/target int arrays (compressed sparse rows): the targets of ordinal n are found in
+ * targets[offsets[n]] ... targets[offsets[n+1]-1], in the same order as in the String maps of WordnetData.
+ * The child relations are derived from the hypernym relations. The graph of frozen data is where its relations are
+ * stored: the relation maps of frozen data are views of the graph (see RelationView).
+ *
+ * The ordinals are found on the codes of the ids (see SynsetIdCodec) in an open addressing table, so a lookup does
+ * not hash or compare strings when the ids can be packed. Only the codes are kept, getId decodes the id and takes
+ * the string of the id from the WordnetStringPool, so the ids that the graph hands out are the strings that the maps
+ * of the data hold and an id is not kept twice, e.g. by the chain cache.
+ *
+ * The graph is built by WordnetData.getSynsetGraph() and is not changed after construction. An update of frozen
+ * data makes a new graph from the previous one.
+ */
+public class SynsetGraph {
+
+    private final SynsetIdCodec codec;
+    /// code of every ordinal, the ids are not stored but decoded from their codes
+    private final long [] codes;
+    /// codes and ordinals+1 (0 for a free slot) of the lookup table
+    private final long [] slotCodes;
+    private final int [] slotOrdinals;
+    private final int [] hyperOffsets;
+    private final int [] hyperTargets;
+    private final int [] childOffsets;
+    private final int [] childTargets;
+    private final int [] otherOffsets;
+    private final int [] otherTargets;
+
+    /**
+     * @param codec
+     * @param codes codes of the ids by ordinal, in the order of the ids
+     */
+    SynsetGraph (SynsetIdCodec codec, long [] codes, int [] hyperOffsets, int [] hyperTargets, int [] otherOffsets,
+                 int [] otherTargets) {
+        this.codec = codec;
+        this.codes = codes;
+        int size = 16;
+        while (size<codes.length*2) {
+            size *= 2;
+        }
+        this.slotCodes = new long[size];
+        this.slotOrdinals = new int[size];
+        for (int i = 0; i < codes.length; i++) {
+            int slot = hash(codes[i]) & (size-1);
+            while (slotOrdinals[slot]!=0) {
+                slot = (slot+1) & (size-1);
+            }
+            slotCodes[slot] = codes[i];
+            slotOrdinals[slot] = i+1;
+        }
+        this.hyperOffsets = hyperOffsets;
+        this.hyperTargets = hyperTargets;
+        this.otherOffsets = otherOffsets;
+        this.otherTargets = otherTargets;
+        this.childOffsets = new int[codes.length+1];
+        this.childTargets = new int[hyperTargets.length];
+        buildChildren();
+    }
+
+    /**
+     * Collects all synset ids that occur in the hypernym and other relations, the lexicon and the synset list,
+     * sorts them and stores the relations with the ordinals of the sorted ids.
+     * @param wordnetData
+     * @return SynsetGraph
+     */
+    static public SynsetGraph build (WordnetData wordnetData) {
+        HashMap<String, Integer> seen = new HashMap<String, Integer>();
+        addIds(seen, wordnetData.hyperRelations);
+        addIds(seen, wordnetData.otherRelations);
+        addValues(seen, wordnetData.entryToSynsets);
+        for (int i = 0; i < wordnetData.synsetArrayList.size(); i++) {
+            seen.put(wordnetData.synsetArrayList.get(i), 0);
+        }
+        String [] ids = seen.keySet().toArray(new String[seen.size()]);
+        Arrays.sort(ids);
+        SynsetIdCodec codec = wordnetData.getSynsetIdCodec();
+        long [] codes = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            seen.put(ids[i], i);
+            codes[i] = codec.encode(ids[i]);
+            /// the string of the data is the one getId returns, also if it was made without a parser
+            WordnetStringPool.intern(ids[i]);
+        }
+        int [] hyperOffsets = new int[ids.length+1];
+        int [] hyperTargets = flatten(ids, seen, wordnetData.hyperRelations, hyperOffsets);
+        int [] otherOffsets = new int[ids.length+1];
+        int [] otherTargets = flatten(ids, seen, wordnetData.otherRelations, otherOffsets);
+        return new SynsetGraph(codec, codes, hyperOffsets, hyperTargets, otherOffsets, otherTargets);
+    }
+
+    /**
+     * Graph of data that was changed by a WordnetUpdate. The ids are those of the graph without the removed ids and
+     * with the added ids, still sorted. The relations of synsets that did not change are copied from the graph with
+     * their targets renumbered, those of the changed synsets are taken from the rows of the update.
+     * @param graph graph of the data before the update
+     * @param removed ids of the graph that are no longer in the data
+     * @param added ids that are new in the data
+     * @param hyperRows hypernyms of the synsets of which they changed, null or empty if a synset has none left
+     * @param otherRows other relations of the synsets of which they changed, null or empty if a synset has none left
+     * @param toNew is filled with the new ordinal of every ordinal of the graph, -1 if it was removed
+     * @return SynsetGraph
+     */
+    static SynsetGraph update (SynsetGraph graph, Set<String> removed, Set<String> added,
+                               HashMap<String, ArrayList<String>> hyperRows,
+                               HashMap<String, ArrayList<String>> otherRows, int [] toNew) {
+        String [] newIds = added.toArray(new String[added.size()]);
+        Arrays.sort(newIds);
+        int nOld = graph.codes.length;
+        boolean [] gone = new boolean[nOld];
+        for (String synsetId : removed) {
+            gone[graph.getOrdinal(synsetId)] = true;
+        }
+        /// the ordinals of the graph before which the new ids come, only the new ids are compared as strings
+        int [] before = new int[newIds.length];
+        for (int j = 0; j < newIds.length; j++) {
+            int low = j==0 ? 0 : before[j-1];
+            int high = nOld;
+            while (low<high) {
+                int middle = (low+high)>>>1;
+                if (graph.getId(middle).compareTo(newIds[j])<0) {
+                    low = middle+1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+            before[j] = low;
+        }
+        long [] codes = new long[nOld-removed.size()+newIds.length];
+        int [] toOld = new int[codes.length];
+        HashMap<String, Integer> newOrdinals = new HashMap<String, Integer>(newIds.length*2);
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i<nOld || j<newIds.length) {
+            if (j<newIds.length && before[j]<=i) {
+                toOld[n] = -1;
+                codes[n] = graph.codec.encode(newIds[j]);
+                WordnetStringPool.intern(newIds[j]);
+                newOrdinals.put(newIds[j++], n++);
+            }
+            else if (gone[i]) {
+                toNew[i++] = -1;
+            }
+            else {
+                toOld[n] = i;
+                toNew[i] = n;
+                codes[n++] = graph.codes[i++];
+            }
+        }
+        int [] hyperOffsets = new int[codes.length+1];
+        int [] hyperTargets = updateRows(toOld, toNew, graph.hyperOffsets, graph.hyperTargets,
+                getRows(graph, toNew, newOrdinals, hyperRows, codes.length), hyperOffsets);
+        int [] otherOffsets = new int[codes.length+1];
+        int [] otherTargets = updateRows(toOld, toNew, graph.otherOffsets, graph.otherTargets,
+                getRows(graph, toNew, newOrdinals, otherRows, codes.length), otherOffsets);
+        return new SynsetGraph(graph.codec, codes, hyperOffsets, hyperTargets, otherOffsets, otherTargets);
+    }
+
+    /**
+     * @return the new ordinal of the id, -1 if it is not in the new graph
+     */
+    private static int getNewOrdinal (SynsetGraph graph, int [] toNew, HashMap<String, Integer> newOrdinals,
+                                      String synsetId) {
+        int ordinal = graph.getOrdinal(synsetId);
+        if (ordinal>-1) {
+            return toNew[ordinal];
+        }
+        Integer newOrdinal = newOrdinals.get(synsetId);
+        return newOrdinal==null ? -1 : newOrdinal;
+    }
+
+    /**
+     * @return the targets of the changed rows by new ordinal, null for the rows that did not change
+     */
+    private static int [][] getRows (SynsetGraph graph, int [] toNew, HashMap<String, Integer> newOrdinals,
+                                     HashMap<String, ArrayList<String>> rows, int size) {
+        int [][] changed = new int[size][];
+        for (Map.Entry<String, ArrayList<String>> row : rows.entrySet()) {
+            int ordinal = getNewOrdinal(graph, toNew, newOrdinals, row.getKey());
+            if (ordinal<0) {
+                continue;
+            }
+            ArrayList<String> targets = row.getValue();
+            changed[ordinal] = new int[targets==null ? 0 : targets.size()];
+            for (int j = 0; j < changed[ordinal].length; j++) {
+                changed[ordinal][j] = getNewOrdinal(graph, toNew, newOrdinals, targets.get(j));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * A synset that is new and has no changed row has no relations
+     */
+    private static int [] updateRows (int [] toOld, int [] toNew, int [] oldOffsets, int [] oldTargets,
+                                      int [][] changed, int [] offsets) {
+        int total = 0;
+        for (int i = 0; i < toOld.length; i++) {
+            if (changed[i]!=null) {
+                total += changed[i].length;
+            }
+            else if (toOld[i]>-1) {
+                total += oldOffsets[toOld[i]+1]-oldOffsets[toOld[i]];
+            }
+        }
+        int [] flat = new int[total];
+        int n = 0;
+        for (int i = 0; i < toOld.length; i++) {
+            offsets[i] = n;
+            if (changed[i]!=null) {
+                System.arraycopy(changed[i], 0, flat, n, changed[i].length);
+                n += changed[i].length;
+            }
+            else if (toOld[i]>-1) {
+                for (int j = oldOffsets[toOld[i]]; j < oldOffsets[toOld[i]+1]; j++) {
+                    flat[n++] = toNew[oldTargets[j]];
+                }
+            }
+        }
+        offsets[toOld.length] = n;
+        return flat;
+    }
+
+    static void addIds (HashMap<String, Integer> seen, HashMap<String, ArrayList<String>> relations) {
+        Set keySet = relations.keySet();
+        Iterator<String> keys = keySet.iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            seen.put(key, 0);
+            ArrayList<String> targets = relations.get(key);
+            for (int i = 0; i < targets.size(); i++) {
+                seen.put(targets.get(i), 0);
+            }
+        }
+    }
+
+    static void addValues (HashMap<String, Integer> seen, HashMap<String, ArrayList<String>> map) {
+        Set keySet = map.keySet();
+        Iterator<String> keys = keySet.iterator();
+        while (keys.hasNext()) {
+            ArrayList<String> values = map.get(keys.next());
+            for (int i = 0; i < values.size(); i++) {
+                seen.put(values.get(i), 0);
+            }
+        }
+    }
+
+    static int [] flatten (String [] ids, HashMap<String, Integer> ordinals,
+                           HashMap<String, ArrayList<String>> relations, int [] offsets) {
+        int total = 0;
+        for (int i = 0; i < ids.length; i++) {
+            ArrayList<String> targets = relations.get(ids[i]);
+            if (targets!=null) total += targets.size();
+        }
+        int [] flat = new int[total];
+        int n = 0;
+        for (int i = 0; i < ids.length; i++) {
+            offsets[i] = n;
+            ArrayList<String> targets = relations.get(ids[i]);
+            if (targets!=null) {
+                for (int j = 0; j < targets.size(); j++) {
+                    flat[n++] = ordinals.get(targets.get(j));
+                }
+            }
+        }
+        offsets[ids.length] = n;
+        return flat;
+    }
+
+    private void buildChildren () {
+        int [] counts = new int[codes.length];
+        for (int i = 0; i < hyperTargets.length; i++) {
+            counts[hyperTargets[i]]++;
+        }
+        int n = 0;
+        for (int i = 0; i < codes.length; i++) {
+            childOffsets[i] = n;
+            n += counts[i];
+        }
+        childOffsets[codes.length] = n;
+        int [] fill = new int[codes.length];
+        for (int child = 0; child < codes.length; child++) {
+            for (int j = hyperOffsets[child]; j < hyperOffsets[child+1]; j++) {
+                int hyper = hyperTargets[j];
+                childTargets[childOffsets[hyper]+fill[hyper]] = child;
+                fill[hyper]++;
+            }
+        }
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * @param synsetId
+     * @return the ordinal of the synset or -1 if the synset is not in the graph
+     */
+    public int getOrdinal (String synsetId) {
+        long code = codec.lookup(synsetId);
+        if (code==SynsetIdCodec.NONE) {
+            return -1;
+        }
+        return getOrdinal(code);
+    }
+
+    /**
+     * @param code code of a synset id given by the codec of the graph
+     * @return the ordinal of the synset or -1 if the synset is not in the graph
+     */
+    public int getOrdinal (long code) {
+        int slot = hash(code) & (slotCodes.length-1);
+        while (slotOrdinals[slot]!=0) {
+            if (slotCodes[slot]==code) {
+                return slotOrdinals[slot]-1;
+            }
+            slot = (slot+1) & (slotCodes.length-1);
+        }
+        return -1;
+    }
+
+    private static int hash (long code) {
+        code ^= code>>>33;
+        code *= 0xff51afd7ed558ccdL;
+        code ^= code>>>33;
+        return (int) code;
+    }
+
+    public long getCode (int ordinal) {
+        return codes[ordinal];
+    }
+
+    public SynsetIdCodec getSynsetIdCodec () {
+        return codec;
+    }
+
+    /**
+     * @param ordinal
+     * @return the id decoded from the code of the ordinal, the same string as in the data unless the string pool is
+     * switched off
+     */
+    public String getId (int ordinal) {
+        return WordnetStringPool.intern(codec.decode(codes[ordinal]));
+    }
+
+    public boolean hasHypers (int ordinal) {
+        return hyperOffsets[ordinal+1]>hyperOffsets[ordinal];
+    }
+
+    public int getHyperStart (int ordinal) {
+        return hyperOffsets[ordinal];
+    }
+
+    public int getHyperEnd (int ordinal) {
+        return hyperOffsets[ordinal+1];
+    }
+
+    /**
+     * @param index position between getHyperStart and getHyperEnd
+     * @return ordinal of the hypernym
+     */
+    public int getHyperTarget (int index) {
+        return hyperTargets[index];
+    }
+
+    public int [] getHypers (int ordinal) {
+        return Arrays.copyOfRange(hyperTargets, hyperOffsets[ordinal], hyperOffsets[ordinal+1]);
+    }
+
+    public int getChildStart (int ordinal) {
+        return childOffsets[ordinal];
+    }
+
+    public int getChildEnd (int ordinal) {
+        return childOffsets[ordinal+1];
+    }
+
+    public int getChildTarget (int index) {
+        return childTargets[index];
+    }
+
+    public int [] getChildren (int ordinal) {
+        return Arrays.copyOfRange(childTargets, childOffsets[ordinal], childOffsets[ordinal+1]);
+    }
+
+    public int getOtherStart (int ordinal) {
+        return otherOffsets[ordinal];
+    }
+
+    public int getOtherEnd (int ordinal) {
+        return otherOffsets[ordinal+1];
+    }
+
+    public int getOtherTarget (int index) {
+        return otherTargets[index];
+    }
+
+    public int [] getOthers (int ordinal) {
+        return Arrays.copyOfRange(otherTargets, otherOffsets[ordinal], otherOffsets[ordinal+1]);
+    }
+
+    /**
+     * @param synsetIds synsets, ids that are not in the graph are skipped
+     * @return flags by ordinal of the synsets and all their direct and indirect hyponyms
+     */
+    public boolean [] markDescendants (Collection<String> synsetIds) {
+        boolean [] marked = new boolean[codes.length];
+        int [] queue = new int[codes.length];
+        int tail = 0;
+        for (String synsetId : synsetIds) {
+            int ordinal = getOrdinal(synsetId);
+            if (ordinal>-1 && !marked[ordinal]) {
+                marked[ordinal] = true;
+                queue[tail++] = ordinal;
+            }
+        }
+        int head = 0;
+        while (head<tail) {
+            int node = queue[head++];
+            for (int i = childOffsets[node]; i < childOffsets[node+1]; i++) {
+                int child = childTargets[i];
+                if (!marked[child]) {
+                    marked[child] = true;
+                    queue[tail++] = child;
+                }
+            }
+        }
+        return marked;
+    }
+
+    public ArrayList<String> toIds (int [] ordinals, int length) {
+        ArrayList<String> synsetIds = new ArrayList<String>(length);
+        for (int i = 0; i < length; i++) {
+            synsetIds.add(getId(ordinals[i]));
+        }
+        return synsetIds;
+    }
+}
@@ -0,0 +1,32 @@
+package vu.wntools.wordnet;
+
+/**
+ * Maps synset ids to long codes and back. Two ids get the same code if and only if they are equal, so synsets can be
+ * looked up, compared and hashed on their codes instead of on the strings.
+ *
+ * A codec is used by the SynsetGraph of a WordnetData, see WordnetData.setSynsetIdCodec. Its methods can be called by
+ * several threads at the same time.
+ */
+public interface SynsetIdCodec {
+
+    /// code of an id that the codec does not know
+    public static final long NONE = Long.MIN_VALUE;
+
+    /**
+     * @param synsetId
+     * @return the code of the id, the codec learns the id if it cannot be packed
+     */
+    long encode(String synsetId);
+
+    /**
+     * @param synsetId
+     * @return the code of the id, or NONE if the id was never encoded and cannot be packed
+     */
+    long lookup(String synsetId);
+
+    /**
+     * @param code a code returned by encode or lookup
+     * @return the id
+     */
+    String decode(long code);
+}
@@ -4,8 +4,14 @@ import eu.kyotoproject.kaf.KafSense;
 import vu.wntools.lmf.Gloss;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -36,13 +42,203 @@ public class WordnetData {
     private int nAverageAdjectiveDepth = 0;
     private String resource;
     private String version;
+    private volatile SynsetGraph synsetGraph;
+    private volatile AncestorIndex ancestorIndex;
+    private volatile HyperPathIndex hyperPathIndex;
+    private volatile DepthTable depthTable;
+    private volatile HyperChainCache hyperChainCache;
+    private int hyperChainCacheSize = 10000;
+    private int hyperChainCacheEviction = HyperChainCache.LRU;
+    private SynsetIdCodec synsetIdCodec = new PackedSynsetIdCodec();
+    /// glosses that are read from a file when they are asked for, null if they are all in synsetToGlosses
+    private GlossStore glossStore = null;
+    /// synsets of which an update removed the glosses in the gloss store
+    private Set<String> removedStoredGlosses = Collections.emptySet();
+    /// true for the read-only copies made by freeze
+    private final boolean frozen;
 
 
     public WordnetData() {
+        frozen = false;
         init();
     }
 
+    /**
+     * Read-only copy of the data, see freeze
+     * @param data
+     */
+    private WordnetData (WordnetData data) {
+        frozen = true;
+        DEBUG = data.DEBUG;
+        resource = data.resource;
+        version = data.version;
+        nAverageNounDepth = data.nAverageNounDepth;
+        nAverageVerbDepth = data.nAverageVerbDepth;
+        nAverageAdjectiveDepth = data.nAverageAdjectiveDepth;
+        hyperChainCacheSize = data.hyperChainCacheSize;
+        hyperChainCacheEviction = data.hyperChainCacheEviction;
+        synsetIdCodec = data.synsetIdCodec;
+        glossStore = data.glossStore;
+        removedStoredGlosses = data.removedStoredGlosses;
+        hyperRelations = data.hyperRelations;
+        otherRelations = data.otherRelations;
+        entryToSynsets = data.entryToSynsets;
+        synsetToLexicalUnits = data.synsetToLexicalUnits;
+        synsetArrayList = data.synsetArrayList;
+        synsetToEntries = data.synsetToEntries;
+        lexicalUnitsToSynsets = data.lexicalUnitsToSynsets;
+        lemmaToSynsets = data.lemmaToSynsets;
+        childRelations = data.childRelations;
+        /// the index builder replaces the indexes of the copy and leaves those of data as they are
+        int indexes = 0;
+        if (synsetToEntries.isEmpty() && !entryToSynsets.isEmpty()) indexes |= WordnetIndexBuilder.SYNSET_INDEX;
+        if (lexicalUnitsToSynsets.isEmpty() && !synsetToLexicalUnits.isEmpty()) indexes |= WordnetIndexBuilder.LEXICAL_UNIT_INDEX;
+        WordnetIndexBuilder.build(this, indexes);
+        if (lemmaToSynsets.isEmpty() && !synsetArrayList.isEmpty()) {
+            lemmaToSynsets = WordnetIndexBuilder.buildLemmaIndex(new LinkedHashSet<String>(synsetArrayList), synsetToEntries);
+        }
+        entryToSynsets = readOnly(entryToSynsets);
+        lemmaToSynsets = readOnly(lemmaToSynsets);
+        lexicalUnitsToSynsets = readOnly(lexicalUnitsToSynsets);
+        lexicalUnitsToLemmas = new ReadOnlyMap<String, String>(data.lexicalUnitsToLemmas, READ_ONLY);
+        synsetToLexicalUnits = readOnly(synsetToLexicalUnits);
+        synsetToDirectEquiSynsets = readOnly(data.synsetToDirectEquiSynsets);
+        synsetToNearEquiSynsets = readOnly(data.synsetToNearEquiSynsets);
+        synsetToOtherEquiSynsets = readOnly(data.synsetToOtherEquiSynsets);
+        synsetToEntries = readOnly(synsetToEntries);
+        synsetArrayList = new ReadOnlyList<String>(synsetArrayList, READ_ONLY);
+        synsetToGlosses = readOnly(data.synsetToGlosses);
+        synsetGraph = SynsetGraph.build(this);
+        setRelationViews();
+        hyperPathIndex = new HyperPathIndex(synsetGraph);
+        ancestorIndex = new AncestorIndex(synsetGraph);
+        depthTable = new DepthTable(hyperPathIndex);
+        if (hyperChainCacheSize>0) {
+            hyperChainCache = new HyperChainCache(synsetGraph, hyperChainCacheSize, hyperChainCacheEviction);
+        }
+    }
+
+    /**
+     * Frozen copy of frozen data with the changes of an update, see update
+     * @param data
+     * @param update
+     */
+    private WordnetData (WordnetData data, WordnetUpdate update) {
+        frozen = true;
+        DEBUG = data.DEBUG;
+        resource = data.resource;
+        version = data.version;
+        nAverageNounDepth = data.nAverageNounDepth;
+        nAverageVerbDepth = data.nAverageVerbDepth;
+        nAverageAdjectiveDepth = data.nAverageAdjectiveDepth;
+        hyperChainCacheSize = data.hyperChainCacheSize;
+        hyperChainCacheEviction = data.hyperChainCacheEviction;
+        synsetIdCodec = data.synsetIdCodec;
+        lexicalUnitsToLemmas = data.lexicalUnitsToLemmas;
+        glossStore = data.glossStore;
+        removedStoredGlosses = data.removedStoredGlosses;
+        WordnetUpdate.Changes changes = update.apply(data, this);
+        if (glossStore!=null && !changes.glossesRemoved.isEmpty()) {
+            HashSet<String> removed = new HashSet<String>(removedStoredGlosses);
+            removed.addAll(changes.glossesRemoved);
+            removedStoredGlosses = removed;
+        }
+        SynsetGraph graph = data.getSynsetGraph();
+        int [] toNew = new int[graph.size()];
+        synsetGraph = SynsetGraph.update(graph, changes.removed, changes.added, changes.hyperRows, changes.otherRows,
+                toNew);
+        setRelationViews();
+        int [] toOld = new int[synsetGraph.size()];
+        Arrays.fill(toOld, -1);
+        for (int i = 0; i < toNew.length; i++) {
+            if (toNew[i]>-1) {
+                toOld[toNew[i]] = i;
+            }
+        }
+        /// synsets of which the hypernym chains changed
+        LinkedHashSet<String> seeds = new LinkedHashSet<String>(changes.hyperChanged);
+        seeds.addAll(changes.added);
+        boolean [] affected = synsetGraph.markDescendants(seeds);
+        hyperPathIndex = new HyperPathIndex(synsetGraph);
+        ancestorIndex = new AncestorIndex(data.getAncestorIndex(), synsetGraph, toOld, toNew, affected);
+        depthTable = new DepthTable(data.getDepthTable(), hyperPathIndex, toOld, affected);
+        if (hyperChainCacheSize>0) {
+            hyperChainCache = new HyperChainCache(synsetGraph, hyperChainCacheSize, hyperChainCacheEviction);
+        }
+    }
+
+    static final String READ_ONLY = "Frozen wordnet data is shared and cannot be changed";
+    static final String GLOSSES_READ_ONLY = "The glosses of getGlosses cannot be changed, change synsetToGlosses";
+
+    /**
+     * The relations of frozen data are only stored in the synset graph, the maps read them from it. The child
+     * relations are those of the graph, which it derives from the hypernym relations.
+     */
+    private void setRelationViews () {
+        hyperRelations = new RelationView(synsetGraph, RelationView.HYPERS);
+        childRelations = new RelationView(synsetGraph, RelationView.CHILDREN);
+        otherRelations = new RelationView(synsetGraph, RelationView.OTHERS);
+    }
+
+    private static <T> HashMap<String, ArrayList<T>> readOnly (HashMap<String, ArrayList<T>> map) {
+        LinkedHashMap<String, ArrayList<T>> copy = new LinkedHashMap<String, ArrayList<T>>(map.size()*2);
+        for (Map.Entry<String, ArrayList<T>> entry : map.entrySet()) {
+            copy.put(entry.getKey(), new ReadOnlyList<T>(entry.getValue(), READ_ONLY));
+        }
+        return new ReadOnlyMap<String, ArrayList<T>>(copy, READ_ONLY);
+    }
+
+    /**
+     * Returns a read-only copy of the data that any number of threads can query at the same time without locks.
+     *
+     * The synset, lexical unit and lemma indexes are built in the copy if the data does not have them, and so are the
+     * synset graph, hypernym chains index, ancestor index and depth table, so that reading the copy does not build
+     * anything (only the hypernym chains of a synset and the chain cache are filled on first
+     * use, which is thread-safe). The maps and lists of the copy throw an UnsupportedOperationException when they are
+     * changed and the methods that change or build data throw an IllegalStateException. The glosses, the strings
+     * and the gloss store are shared with this data, so a gloss should not be changed once the data is frozen. The
+     * copy is complete when freeze returns: hand it to other threads through a final or volatile field, a concurrent
+     * collection or an executor. Its public fields should not be assigned.
+     *
+     * The hypernym, child and other relations of the copy are only stored in the synset graph. Its relation maps read
+     * them from the graph: the keys are the synsets with at least one relation, in the order of the sorted ids, and
+     * the child relations are derived from the hypernym relations.
+     * @return the copy, or this data if it is frozen already
+     */
+    public WordnetData freeze () {
+        if (frozen) {
+            return this;
+        }
+        return new WordnetData(this);
+    }
+
+    /**
+     * Returns a frozen copy of this frozen data with the changes of the update, this data is not changed, so threads
+     * that are reading it can go on. The copy shares the maps and lists that the update does not change. The synset
+     * graph, ancestor index and depth table are made from those of this data: only the synsets below a synset of which
+     * the hypernyms changed are computed again.
+     * @param update
+     * @return the updated copy
+     */
+    public WordnetData update (WordnetUpdate update) {
+        if (!frozen) {
+            throw new IllegalStateException("Only frozen wordnet data can be updated");
+        }
+        return new WordnetData(this, update);
+    }
+
+    public boolean isFrozen () {
+        return frozen;
+    }
+
+    private void checkNotFrozen () {
+        if (frozen) {
+            throw new IllegalStateException(READ_ONLY);
+        }
+    }
+
     public void init () {
+        checkNotFrozen();
         synsetArrayList = new ArrayList<String>();
         synsetToGlosses = new HashMap<String, ArrayList<Gloss>>();
         hyperRelations = new HashMap<String, ArrayList<String>>();
@@ -62,6 +258,275 @@ public class WordnetData {
         nAverageAdjectiveDepth = 0;
         resource = "";
         version = "";
+        synsetGraph = null;
+        ancestorIndex = null;
+        hyperPathIndex = null;
+        depthTable = null;
+        hyperChainCache = null;
+        glossStore = null;
+        removedStoredGlosses = Collections.emptySet();
+    }
+
+    /**
+     * Returns the glosses of a synset. Use this method rather than synsetToGlosses, it also finds the glosses that
+     * are kept in the gloss store and decodes them only now.
+     * @param synsetId
+     * @return the glosses in the gloss store followed by those in synsetToGlosses, an empty list if there are none.
+     * The list cannot be changed, add glosses to synsetToGlosses instead.
+     */
+    public ArrayList<Gloss> getGlosses (String synsetId) {
+        ArrayList<Gloss> glosses = synsetToGlosses.get(synsetId);
+        if (glossStore==null || !glossStore.hasGlosses(synsetId) || removedStoredGlosses.contains(synsetId)) {
+            if (glosses==null) {
+                return new ReadOnlyList<Gloss>(Collections.<Gloss>emptyList(), GLOSSES_READ_ONLY);
+            }
+            if (glosses instanceof ReadOnlyList) {
+                return glosses;
+            }
+            return new ReadOnlyList<Gloss>(glosses, GLOSSES_READ_ONLY);
+        }
+        ArrayList<Gloss> stored = glossStore.getGlosses(synsetId);
+        if (glosses!=null) {
+            stored.addAll(glosses);
+        }
+        return new ReadOnlyList<Gloss>(stored, GLOSSES_READ_ONLY);
+    }
+
+    /**
+     * @return the synsets with glosses in synsetToGlosses or in the gloss store
+     */
+    public Set<String> getSynsetsWithGlosses () {
+        if (glossStore==null) {
+            return synsetToGlosses.keySet();
+        }
+        LinkedHashSet<String> synsetIds = new LinkedHashSet<String>(synsetToGlosses.keySet());
+        for (String synsetId : glossStore.getSynsetIds()) {
+            if (!removedStoredGlosses.contains(synsetId)) {
+                synsetIds.add(synsetId);
+            }
+        }
+        return synsetIds;
+    }
+
+    public GlossStore getGlossStore () {
+        return glossStore;
+    }
+
+    /**
+     * Keeps the glosses of the store outside the heap instead of in synsetToGlosses, see WordnetLmfSaxParser.setLazyGlosses.
+     * Frozen copies share the store.
+     * @param glossStore a finished store, or null
+     */
+    public void setGlossStore (GlossStore glossStore) {
+        checkNotFrozen();
+        this.glossStore = glossStore;
+        removedStoredGlosses = Collections.emptySet();
+    }
+
+    public SynsetIdCodec getSynsetIdCodec () {
+        return synsetIdCodec;
+    }
+
+    /**
+     * Sets the codec with which the synset graph looks up synset ids, e.g. one that knows the id schemes of the
+     * wordnet or one that is shared by several wordnets. The synset graph is built again.
+     * @param synsetIdCodec
+     */
+    public void setSynsetIdCodec (SynsetIdCodec synsetIdCodec) {
+        checkNotFrozen();
+        this.synsetIdCodec = synsetIdCodec;
+        invalidateSynsetGraph();
+    }
+
+    /**
+     * Returns the integer-indexed graph of the synsets and their relations. The graph is built on first use
+     * from the String maps and reused until the hypernym or other relations change.
+     * Code that modifies hyperRelations or otherRelations directly must call invalidateSynsetGraph afterwards.
+     * @return SynsetGraph
+     */
+    public SynsetGraph getSynsetGraph() {
+        SynsetGraph graph = synsetGraph;
+        if (graph==null) {
+            synchronized (this) {
+                graph = synsetGraph;
+                if (graph==null) {
+                    graph = SynsetGraph.build(this);
+                    synsetGraph = graph;
+                }
+            }
+        }
+        return graph;
+    }
+
+    public void invalidateSynsetGraph() {
+        checkNotFrozen();
+        synsetGraph = null;
+        ancestorIndex = null;
+        hyperPathIndex = null;
+        depthTable = null;
+        hyperChainCache = null;
+    }
+
+    /**
+     * Returns the shared hypernym chains of the current synset graph. The chains of a synset are computed on first use.
+     * @return HyperPathIndex
+     */
+    public HyperPathIndex getHyperPathIndex() {
+        SynsetGraph graph = getSynsetGraph();
+        HyperPathIndex index = hyperPathIndex;
+        if (index==null || index.getGraph()!=graph) {
+            synchronized (this) {
+                index = hyperPathIndex;
+                if (index==null || index.getGraph()!=graph) {
+                    index = new HyperPathIndex(graph);
+                    hyperPathIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the depth statistics of the hypernym chains of all synsets of the current synset graph, built on first use.
+     * @return DepthTable
+     */
+    public DepthTable getDepthTable() {
+        HyperPathIndex index = getHyperPathIndex();
+        DepthTable table = depthTable;
+        if (table==null || table.getGraph()!=index.getGraph()) {
+            synchronized (this) {
+                table = depthTable;
+                if (table==null || table.getGraph()!=index.getGraph()) {
+                    table = new DepthTable(index);
+                    depthTable = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Streams the hypernym chains of a synset to the visitor without copying them to Strings.
+     * The chains are the same and in the same order as those of getMultipleHyperChain.
+     * @param synsetId
+     * @param visitor
+     * @return false if the synset is not in the synset graph or the visitor stopped the enumeration
+     */
+    public boolean visitHyperChains (String synsetId, HyperPathVisitor visitor) {
+        HyperPathIndex index = getHyperPathIndex();
+        int ordinal = index.getGraph().getOrdinal(synsetId);
+        if (ordinal<0) {
+            return false;
+        }
+        return index.visit(ordinal, visitor);
+    }
+
+    /**
+     * Sets the size and eviction policy of the cache used by getMultipleHyperChain. The current cache is dropped.
+     * @param maxSize maximum number of synsets for which the chains are kept, 0 switches the cache off
+     * @param eviction HyperChainCache.LRU or HyperChainCache.FIFO
+     */
+    public void setHyperChainCache (int maxSize, int eviction) {
+        checkNotFrozen();
+        synchronized (this) {
+            hyperChainCacheSize = maxSize;
+            hyperChainCacheEviction = eviction;
+            hyperChainCache = null;
+        }
+    }
+
+    /**
+     * Returns the cache of hypernym chains for the current synset graph, which is created on first use.
+     * @return HyperChainCache or null if the cache is switched off
+     */
+    public HyperChainCache getHyperChainCache() {
+        SynsetGraph graph = getSynsetGraph();
+        HyperChainCache cache = hyperChainCache;
+        if (cache==null || cache.getGraph()!=graph) {
+            synchronized (this) {
+                if (hyperChainCacheSize<=0) {
+                    return null;
+                }
+                cache = hyperChainCache;
+                if (cache==null || cache.getGraph()!=graph) {
+                    cache = new HyperChainCache(graph, hyperChainCacheSize, hyperChainCacheEviction);
+                    hyperChainCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the hypernym closure of the current synset graph. It is built on first use.
+     * @return AncestorIndex
+     */
+    public AncestorIndex getAncestorIndex() {
+        SynsetGraph graph = getSynsetGraph();
+        AncestorIndex index = ancestorIndex;
+        if (index==null || index.getGraph()!=graph) {
+            synchronized (this) {
+                index = ancestorIndex;
+                if (index==null || index.getGraph()!=graph) {
+                    index = new AncestorIndex(graph);
+                    ancestorIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @param synsetId
+     * @param hyperId
+     * @return true if hyperId is synsetId or one of its direct or indirect hypernyms
+     */
+    public boolean isA (String synsetId, String hyperId) {
+        if (synsetId.equals(hyperId)) {
+            return true;
+        }
+        AncestorIndex index = getAncestorIndex();
+        int source = index.getGraph().getOrdinal(synsetId);
+        int target = index.getGraph().getOrdinal(hyperId);
+        if (source<0 || target<0) {
+            return false;
+        }
+        return index.isA(source, target);
+    }
+
+    /**
+     * @param synsetId
+     * @return all direct and indirect hypernyms of the synset, including the synset itself
+     */
+    public ArrayList<String> getAncestors (String synsetId) {
+        AncestorIndex index = getAncestorIndex();
+        int source = index.getGraph().getOrdinal(synsetId);
+        if (source<0) {
+            ArrayList<String> ancestors = new ArrayList<String>();
+            ancestors.add(synsetId);
+            return ancestors;
+        }
+        int [] ancestors = index.getAncestors(source);
+        return index.getGraph().toIds(ancestors, ancestors.length);
+    }
+
+    /**
+     * Common subsumers of two synsets with the shortest path between the synsets
+     * @param sourceId
+     * @param targetId
+     * @return the lowest common subsumers, empty if there are none
+     */
+    public ArrayList<String> getLowestCommonSubsumers (String sourceId, String targetId) {
+        AncestorIndex index = getAncestorIndex();
+        int source = index.getGraph().getOrdinal(sourceId);
+        int target = index.getGraph().getOrdinal(targetId);
+        if (source<0 || target<0) {
+            ArrayList<String> lcs = new ArrayList<String>();
+            if (sourceId.equals(targetId)) lcs.add(sourceId);
+            return lcs;
+        }
+        int [] lcs = index.getLowestCommonSubsumers(source, target);
+        return index.getGraph().toIds(lcs, lcs.length);
     }
 
     public HashMap<String, ArrayList<String>> getHyperRelations() {
@@ -69,10 +534,14 @@ public class WordnetData {
     }
 
     public void setHyperRelations(HashMap<String, ArrayList<String>> hyperRelations) {
+        checkNotFrozen();
         this.hyperRelations = hyperRelations;
+        invalidateSynsetGraph();
     }
 
     public void addHyperRelation(String sourceId, ArrayList<String> targetIds) {
+        checkNotFrozen();
+        invalidateSynsetGraph();
         if (hyperRelations.containsKey(sourceId)) {
             ArrayList<String> givenHypers = hyperRelations.get(sourceId);
             for (int i = 0; i < targetIds.size(); i++) {
@@ -90,27 +559,48 @@ public class WordnetData {
     }
 
 
+    /**
+     * @return the average depth that was set or else the average depth of the adjective synsets in the depth table
+     */
     public int getnAverageAdjectiveDepth() {
+        if (nAverageAdjectiveDepth==0) {
+            return getDepthTable().getAverageAdjectiveDepth();
+        }
         return nAverageAdjectiveDepth;
     }
 
     public void setnAverageAdjectiveDepth(int nAverageAdjectiveDepth) {
+        checkNotFrozen();
         this.nAverageAdjectiveDepth = nAverageAdjectiveDepth;
     }
 
+    /**
+     * @return the average depth that was set or else the average depth of the noun synsets in the depth table
+     */
     public int getnAverageNounDepth() {
+        if (nAverageNounDepth==0) {
+            return getDepthTable().getAverageNounDepth();
+        }
         return nAverageNounDepth;
     }
 
     public void setnAverageNounDepth(int nAverageNounDepth) {
+        checkNotFrozen();
         this.nAverageNounDepth = nAverageNounDepth;
     }
 
+    /**
+     * @return the average depth that was set or else the average depth of the verb synsets in the depth table
+     */
     public int getnAverageVerbDepth() {
+        if (nAverageVerbDepth==0) {
+            return getDepthTable().getAverageVerbDepth();
+        }
         return nAverageVerbDepth;
     }
 
     public void setnAverageVerbDepth(int nAverageVerbDepth) {
+        checkNotFrozen();
         this.nAverageVerbDepth = nAverageVerbDepth;
     }
 
@@ -119,10 +609,14 @@ public class WordnetData {
     }
 
     public void setOtherRelations(HashMap<String, ArrayList<String>> otherRelations) {
+        checkNotFrozen();
         this.otherRelations = otherRelations;
+        invalidateSynsetGraph();
     }
 
     public void addOtherRelations(String sourceId, ArrayList<String> targetIds) {
+        checkNotFrozen();
+        invalidateSynsetGraph();
         if (otherRelations.containsKey(sourceId)) {
             ArrayList<String> givenHypers = otherRelations.get(sourceId);
             for (int i = 0; i < targetIds.size(); i++) {
@@ -143,6 +637,7 @@ public class WordnetData {
     }
 
     public void addSynsetToDirectEquiSynsets(String synsetID, ArrayList<String> synsetToDirectEquiSynsets) {
+        checkNotFrozen();
         this.synsetToDirectEquiSynsets.put(synsetID, synsetToDirectEquiSynsets);
     }
 
@@ -151,6 +646,7 @@ public class WordnetData {
     }
 
     public void addSynsetToNearEquiSynsets(String synsetID, ArrayList<String> synsetToNearEquiSynsets) {
+        checkNotFrozen();
         this.synsetToNearEquiSynsets.put(synsetID, synsetToNearEquiSynsets);
     }
 
@@ -159,6 +655,7 @@ public class WordnetData {
     }
 
     public void addSynsetToOtherEquiSynsets(String synsetID, ArrayList<String> synsetToOtherEquiSynsets) {
+        checkNotFrozen();
         this.synsetToOtherEquiSynsets.put(synsetID, synsetToOtherEquiSynsets);
     }
 
@@ -167,6 +664,7 @@ public class WordnetData {
     }
 
     public void setResource(String resource) {
+        checkNotFrozen();
         this.resource = resource;
     }
 
@@ -175,6 +673,7 @@ public class WordnetData {
     }
 
     public void setVersion(String version) {
+        checkNotFrozen();
         this.version = version;
     }
 
@@ -213,6 +712,7 @@ public class WordnetData {
     }
 
     public void buildChildRelations () {
+        checkNotFrozen();
         Set keyHyperSet = entryToSynsets.keySet();
         Iterator entries = keyHyperSet.iterator();
         while(entries.hasNext()) {
@@ -243,6 +743,7 @@ public class WordnetData {
     }
 
     public void buildChildRelationsFromSynsets () {
+        checkNotFrozen();
         Set keyHyperSet = hyperRelations.keySet();
         Iterator entries = keyHyperSet.iterator();
         while(entries.hasNext()) {
@@ -278,6 +779,7 @@ public class WordnetData {
     }
 
     public void buildChildRelationsFromids () {
+        checkNotFrozen();
         Set keyHyperSet = hyperRelations.keySet();
         Iterator entries = keyHyperSet.iterator();
         while(entries.hasNext()) {
@@ -302,6 +804,7 @@ public class WordnetData {
     }
 
     public void buildSynsetIndex () {
+        checkNotFrozen();
         Set keyHyperSet = entryToSynsets.keySet();
         Iterator entries = keyHyperSet.iterator();
         while(entries.hasNext()) {
@@ -326,6 +829,7 @@ public class WordnetData {
     }
 
     public void buildLexicalUnitIndex () {
+        checkNotFrozen();
         Set keyHyperSet = synsetToLexicalUnits.keySet();
         Iterator entries = keyHyperSet.iterator();
         while(entries.hasNext()) {
@@ -335,8 +839,10 @@ public class WordnetData {
                 String luId = luIds.get(i);
                 if (lexicalUnitsToSynsets.containsKey(luId)) {
                    ArrayList<String> synsets = lexicalUnitsToSynsets.get(luId);
-                    synsets.add(synset);
-                    lexicalUnitsToSynsets.put(luId, synsets);
+                    if (!synsets.contains(synset)) {
+                        synsets.add(synset);
+                        lexicalUnitsToSynsets.put(luId, synsets);
+                    }
                 }
                 else {
                     ArrayList<String> synsets = new ArrayList<String>();
@@ -348,6 +854,7 @@ public class WordnetData {
     }
 
     public void buildLemmaIndex () {
+        checkNotFrozen();
         for (int i = 0; i < synsetArrayList.size(); i++) {
             String s = synsetArrayList.get(i);
             ArrayList<String> lemmas = getSynonyms(s);
@@ -372,6 +879,7 @@ public class WordnetData {
     }
 
     public void buildLemmaIndex (String posTag) {
+        checkNotFrozen();
         for (int i = 0; i < synsetArrayList.size(); i++) {
             String s = synsetArrayList.get(i);
             if (s.endsWith(posTag)) {
@@ -427,6 +935,7 @@ public class WordnetData {
     }
 
     public void buildDirectEquivalencesFromIds (String prefix1, String prefix2) {
+        checkNotFrozen();
         for (int i = 0; i < synsetArrayList.size(); i++) {
             String synsetId = synsetArrayList.get(i);
             if (synsetId.startsWith(prefix1)) {
@@ -482,121 +991,114 @@ public class WordnetData {
         return synonyms;
     }
 
+    /**
+     * Sum of the depths of the hypernym chains of all synsets with hypernym relations divided by the number of
+     * these synsets plus the number of their chains. The depths are taken from the depth table.
+     * @return depth
+     */
     public int getAverageDepthBySynset () {
-         int depth = 0;
-        int nSynsets = 0;
-
+        DepthTable table = getDepthTable();
+        long depth = 0;
+        long nSynsets = 0;
         Set keySet = hyperRelations.keySet();
-         Iterator keys = keySet.iterator();
-         while (keys.hasNext()) {
-             String key = (String) keys.next();
-             ArrayList<ArrayList<String>> targetChains = new ArrayList<ArrayList<String>>();
-             getMultipleHyperChain(key, targetChains);
-             for (int i = 0; i < targetChains.size(); i++) {
-                 nSynsets++;
-                 ArrayList<String> targetChain =  targetChains.get(i);
-                 depth+= targetChain.size();
-             }
-         }
-         if (keySet.size()==0) {
-            depth = 1;
-         }
-         else {
-            depth = depth/(keySet.size()+nSynsets);
-         }
-         return depth;
+        Iterator keys = keySet.iterator();
+        while (keys.hasNext()) {
+            String key = (String) keys.next();
+            int ordinal = table.getGraph().getOrdinal(key);
+            nSynsets += table.getChainCount(ordinal);
+            depth += table.getDepthSum(ordinal);
+        }
+        if (keySet.size()==0) {
+            return 1;
+        }
+        return (int) (depth/(keySet.size()+nSynsets));
     }
 
+    /**
+     * @param synset
+     * @return mean depth of the hypernym chains of the synset rounded down, 1 if it has no hypernym relations
+     */
     public int getAverageDepthBySynset (String synset) {
-         int depth = 0;
-         ArrayList<ArrayList<String>> targetChains = new ArrayList<ArrayList<String>>();
-         if (hyperRelations.containsKey (synset)) {
-             getMultipleHyperChain(synset, targetChains);
-             for (int i = 0; i < targetChains.size(); i++) {
-                 ArrayList<String> targetChain =  targetChains.get(i);
-                 depth+= targetChain.size();
-             }
-         }
-         if (targetChains.size()==0) {
-            depth = 1;
-         }
-         else {
-            depth = depth/targetChains.size();
-         }
-         return depth;
+        if (hyperRelations.containsKey (synset)) {
+            DepthTable table = getDepthTable();
+            int ordinal = table.getGraph().getOrdinal(synset);
+            if (table.getChainCount(ordinal)>0) {
+                return (int) (table.getDepthSum(ordinal)/table.getChainCount(ordinal));
+            }
+        }
+        return 1;
     }
 
+    /**
+     * Sum of the depths of the hypernym chains of all word meanings divided by the number of words
+     * plus the number of chains
+     * @return depth
+     */
     public int getAverageDepthByWord () {
-         int depth = 0;
-        int nSynsets = 0;
-
+        DepthTable table = getDepthTable();
+        long depth = 0;
+        long nSynsets = 0;
         Set keySet = entryToSynsets.keySet();
-         Iterator keys = keySet.iterator();
-         while (keys.hasNext()) {
-             String key = (String) keys.next(); ///word
-             ArrayList<String> wordSynsets = entryToSynsets.get(key);
-             for (int w = 0; w < wordSynsets.size(); w++) {
-                 String wordSynset =  wordSynsets.get(w);
-                 ArrayList<ArrayList<String>> targetChains = new ArrayList<ArrayList<String>>();
-                 getMultipleHyperChain(wordSynset, targetChains);
-                 for (int i = 0; i < targetChains.size(); i++) {
-                     nSynsets++;  /// increment
-                     ArrayList<String> targetChain =  targetChains.get(i);
-                     depth+= targetChain.size();
-                 }
-             }
-         }
-         if (keySet.size()==0) {
-            depth = 1;
-         }
-         else {
-            depth = depth/(keySet.size()+nSynsets);
-         }
-         return depth;
+        Iterator keys = keySet.iterator();
+        while (keys.hasNext()) {
+            String key = (String) keys.next(); ///word
+            ArrayList<String> wordSynsets = entryToSynsets.get(key);
+            for (int w = 0; w < wordSynsets.size(); w++) {
+                int ordinal = table.getGraph().getOrdinal(wordSynsets.get(w));
+                nSynsets += table.getChainCount(ordinal);
+                depth += table.getDepthSum(ordinal);
+            }
+        }
+        if (keySet.size()==0) {
+            return 1;
+        }
+        return (int) (depth/(keySet.size()+nSynsets));
     }
 
+    /**
+     * @param word
+     * @return sum of the depths of the hypernym chains of the meanings of the word divided by the number of
+     * meanings plus the number of chains, 0 for unknown words
+     */
     public int getAverageDepthForWord (String word) {
-         int depth = 0;
-         int nSynsets = 0;
-         if (entryToSynsets.containsKey(word)) {
-             ArrayList<String> wordSynsets = entryToSynsets.get(word);
-             nSynsets = wordSynsets.size();
-             for (int w = 0; w < wordSynsets.size(); w++) {
-                 String wordSynset =  wordSynsets.get(w);
-                 ArrayList<ArrayList<String>> targetChains = new ArrayList<ArrayList<String>>();
-                 getMultipleHyperChain(wordSynset, targetChains);
-                 for (int i = 0; i < targetChains.size(); i++) {
-                     nSynsets++;  /// increment
-                     ArrayList<String> targetChain =  targetChains.get(i);
-                     depth+= targetChain.size();
-                 }
-             }
-         }
+        long depth = 0;
+        long nSynsets = 0;
+        if (entryToSynsets.containsKey(word)) {
+            DepthTable table = getDepthTable();
+            ArrayList<String> wordSynsets = entryToSynsets.get(word);
+            nSynsets = wordSynsets.size();
+            for (int w = 0; w < wordSynsets.size(); w++) {
+                int ordinal = table.getGraph().getOrdinal(wordSynsets.get(w));
+                nSynsets += table.getChainCount(ordinal);
+                depth += table.getDepthSum(ordinal);
+            }
+        }
         if (nSynsets>0) {
-             depth = depth/nSynsets;
-         }
-         return depth;
+            depth = depth/nSynsets;
+        }
+        return (int) depth;
     }
 
+    /**
+     * @return depth of the longest hypernym chain of the synsets with hypernym relations
+     */
     public int getMaxDepthBySynset () {
-         int maxDepth = 0;
-         Set keySet = hyperRelations.keySet();
-         Iterator keys = keySet.iterator();
-         while (keys.hasNext()) {
-             String key = (String) keys.next();
-             ArrayList<ArrayList<String>> targetChains = new ArrayList<ArrayList<String>>();
-             getMultipleHyperChain(key, targetChains);
-             for (int i = 0; i < targetChains.size(); i++) {
-                 ArrayList<String> targetChain =  targetChains.get(i);
-                 if (targetChain.size()>maxDepth) {
-                     maxDepth+= targetChain.size();
-                 }
-             }
-         }
-         return maxDepth;
+        DepthTable table = getDepthTable();
+        int maxDepth = 0;
+        Set keySet = hyperRelations.keySet();
+        Iterator keys = keySet.iterator();
+        while (keys.hasNext()) {
+            String key = (String) keys.next();
+            maxDepth = Math.max(maxDepth, table.getMaxDepth(table.getGraph().getOrdinal(key)));
+        }
+        return maxDepth;
     }
 
+    /**
+     * @return depth of the longest hypernym chain of the word meanings
+     */
     public int getMaxDepthByWord () {
+        DepthTable table = getDepthTable();
         int maxDepth = 0;
         Set keySet = entryToSynsets.keySet();
         Iterator keys = keySet.iterator();
@@ -604,14 +1106,8 @@ public class WordnetData {
             String key = (String) keys.next(); ///word
             ArrayList<String> wordSynsets = entryToSynsets.get(key);
             for (int w = 0; w < wordSynsets.size(); w++) {
-                String wordSynset =  wordSynsets.get(w);
-                ArrayList<ArrayList<String>> targetChains = new ArrayList<ArrayList<String>>();
-                getMultipleHyperChain(wordSynset, targetChains);
-                for (int i = 0; i < targetChains.size(); i++) {
-                    ArrayList<String> targetChain =  targetChains.get(i);
-                    if (targetChain.size()>maxDepth) {
-                        maxDepth+= targetChain.size();
-                    }                }
+                int ordinal = table.getGraph().getOrdinal(wordSynsets.get(w));
+                maxDepth = Math.max(maxDepth, table.getMaxDepth(ordinal));
             }
         }
         return maxDepth;
@@ -808,9 +1304,32 @@ public class WordnetData {
     }
 
     public void getMultipleHyperChain (String source, ArrayList<ArrayList<String>> targetChain) {
-        ArrayList<String> initChain = new ArrayList<String>();
-        initChain.add(source);
-        getHyperChains(source, targetChain, initChain);
+        HyperPathIndex index = getHyperPathIndex();
+        SynsetGraph graph = index.getGraph();
+        int ordinal = graph.getOrdinal(source);
+        if (DEBUG || ordinal<0) {
+            ArrayList<String> initChain = new ArrayList<String>();
+            initChain.add(source);
+            getHyperChains(source, targetChain, initChain);
+        }
+        else {
+            HyperChainCache cache = getHyperChainCache();
+            ArrayList<ArrayList<String>> chains = null;
+            if (cache!=null) {
+                chains = cache.get(ordinal);
+            }
+            if (chains==null) {
+                HyperPath [] paths = index.getPaths(ordinal);
+                chains = new ArrayList<ArrayList<String>>(paths.length);
+                for (int i = 0; i < paths.length; i++) {
+                    chains.add(paths[i].toIds(graph));
+                }
+                if (cache!=null) {
+                    chains = cache.put(ordinal, chains);
+                }
+            }
+            targetChain.addAll(chains);
+        }
         if (DEBUG) System.out.println("FINAL RESULT:"+getMatrixPrint(targetChain));
     }
 
@@ -0,0 +1,232 @@
+package vu.wntools.wordnet;
+
+import java.util.*;
+
+/**
+ * Builds the derived indexes of WordnetData while a file is parsed, instead of in a pass over the data afterwards.
+ *
+ * The parser reports every relation it adds (an entry and its synset, a synset and its lexical unit, a synset and its
+ * hypernym) and every synset of a sense. freeze then turns the relations into the indexes that were asked for:
+ * SYNSET_INDEX (synsetToEntries, as buildSynsetIndex), LEXICAL_UNIT_INDEX (lexicalUnitsToSynsets, as
+ * buildLexicalUnitIndex), LEMMA_INDEX (lemmaToSynsets, as buildLemmaIndex, which needs the synset index) and
+ * CHILD_RELATIONS (childRelations, as buildChildRelationsFromSynsets).
+ *
+ * The build methods walk a map in its iteration order and add every value that is not in the list yet. freeze gives
+ * the same lists in the same order without searching the lists: the relations are sorted on the position of their key
+ * in the iteration order of the map, so all relations of a key are next to each other and a duplicate can only be the
+ * last value of a list. The lists are trimmed to their size.
+ */
+public class WordnetIndexBuilder {
+
+    public static final int SYNSET_INDEX = 1;
+    public static final int LEXICAL_UNIT_INDEX = 2;
+    /// implies SYNSET_INDEX
+    public static final int LEMMA_INDEX = 4;
+    public static final int CHILD_RELATIONS = 8;
+    public static final int ALL = SYNSET_INDEX | LEXICAL_UNIT_INDEX | LEMMA_INDEX | CHILD_RELATIONS;
+
+    private final int indexes;
+    private final Relations entrySynsets = new Relations();
+    private final Relations synsetLexicalUnits = new Relations();
+    private final Relations synsetHypers = new Relations();
+    /// synsets of senses in the order of their first sense
+    private final LinkedHashSet<String> senseSynsets = new LinkedHashSet<String>();
+
+    /**
+     * @param indexes the indexes to build, SYNSET_INDEX, LEXICAL_UNIT_INDEX, LEMMA_INDEX and CHILD_RELATIONS or-ed
+     */
+    public WordnetIndexBuilder(int indexes) {
+        if ((indexes & LEMMA_INDEX)!=0) {
+            indexes |= SYNSET_INDEX;
+        }
+        this.indexes = indexes;
+    }
+
+    public boolean has (int index) {
+        return (indexes & index)!=0;
+    }
+
+    /**
+     * @param synsetId synset of a sense, as it is added to synsetArrayList
+     */
+    public void addSenseSynset (String synsetId) {
+        if (has(LEMMA_INDEX)) {
+            senseSynsets.add(synsetId);
+        }
+    }
+
+    /**
+     * @param entry
+     * @param synsetId synset as it is added to the synsets of the entry in entryToSynsets
+     */
+    public void addEntrySynset (String entry, String synsetId) {
+        if (has(SYNSET_INDEX)) {
+            entrySynsets.add(entry, synsetId);
+        }
+    }
+
+    /**
+     * @param synsetId
+     * @param lexicalUnitId lexical unit as it is added to the lexical units of the synset in synsetToLexicalUnits
+     */
+    public void addLexicalUnit (String synsetId, String lexicalUnitId) {
+        if (has(LEXICAL_UNIT_INDEX)) {
+            synsetLexicalUnits.add(synsetId, lexicalUnitId);
+        }
+    }
+
+    /**
+     * @param synsetId
+     * @param hyperId hypernym as it is added to the hypernyms of the synset in hyperRelations
+     */
+    public void addHyperRelation (String synsetId, String hyperId) {
+        if (has(CHILD_RELATIONS)) {
+            synsetHypers.add(synsetId, hyperId);
+        }
+    }
+
+    /**
+     * Adds the relations of data that were not reported while parsing, e.g. of a snapshot or of another parser
+     * @param wordnetData
+     */
+    public void addAll (WordnetData wordnetData) {
+        if (has(LEMMA_INDEX)) {
+            senseSynsets.addAll(wordnetData.synsetArrayList);
+        }
+        if (has(SYNSET_INDEX)) {
+            entrySynsets.addAll(wordnetData.entryToSynsets);
+        }
+        if (has(LEXICAL_UNIT_INDEX)) {
+            synsetLexicalUnits.addAll(wordnetData.synsetToLexicalUnits);
+        }
+        if (has(CHILD_RELATIONS)) {
+            synsetHypers.addAll(wordnetData.hyperRelations);
+        }
+    }
+
+    /**
+     * Replaces the indexes of the data that were asked for by the indexes of the relations. The relations are kept, so
+     * freeze can be called again after more relations were added.
+     * @param wordnetData the data the relations were added to
+     */
+    public void freeze (WordnetData wordnetData) {
+        if (has(SYNSET_INDEX)) {
+            wordnetData.synsetToEntries = entrySynsets.invert(wordnetData.entryToSynsets);
+        }
+        if (has(LEXICAL_UNIT_INDEX)) {
+            wordnetData.lexicalUnitsToSynsets = synsetLexicalUnits.invert(wordnetData.synsetToLexicalUnits);
+        }
+        if (has(LEMMA_INDEX)) {
+            wordnetData.lemmaToSynsets = buildLemmaIndex(senseSynsets, wordnetData.synsetToEntries);
+        }
+        if (has(CHILD_RELATIONS)) {
+            wordnetData.childRelations = synsetHypers.invert(wordnetData.hyperRelations);
+        }
+    }
+
+    /**
+     * Builds the indexes of data that have already been read
+     * @param wordnetData
+     * @param indexes
+     */
+    public static void build (WordnetData wordnetData, int indexes) {
+        WordnetIndexBuilder builder = new WordnetIndexBuilder(indexes);
+        builder.addAll(wordnetData);
+        builder.freeze(wordnetData);
+    }
+
+    /**
+     * The synsets of a lemma are in the order of their first sense, as buildLemmaIndex walks synsetArrayList
+     * @param synsetIds synsets of the senses without duplicates
+     * @param synsetToEntries
+     * @return lemmaToSynsets
+     */
+    static HashMap<String, ArrayList<String>> buildLemmaIndex (Collection<String> synsetIds,
+                                                               HashMap<String, ArrayList<String>> synsetToEntries) {
+        HashMap<String, ArrayList<String>> lemmaToSynsets = new HashMap<String, ArrayList<String>>();
+        for (String synsetId : synsetIds) {
+            ArrayList<String> lemmas = synsetToEntries.get(synsetId);
+            if (lemmas!=null) {
+                for (int i = 0; i < lemmas.size(); i++) {
+                    ArrayList<String> synsets = lemmaToSynsets.get(lemmas.get(i));
+                    if (synsets==null) {
+                        synsets = new ArrayList<String>(1);
+                        lemmaToSynsets.put(lemmas.get(i), synsets);
+                    }
+                    /// a lemma can occur more than once in a synset
+                    if (synsets.isEmpty() || !synsets.get(synsets.size()-1).equals(synsetId)) {
+                        synsets.add(synsetId);
+                    }
+                }
+            }
+        }
+        trim(lemmaToSynsets);
+        return lemmaToSynsets;
+    }
+
+    private static void trim (HashMap<String, ArrayList<String>> index) {
+        for (ArrayList<String> values : index.values()) {
+            values.trimToSize();
+        }
+    }
+
+    /**
+     * Relations from a key of a map to one of its values, in the order in which they were added
+     */
+    private static class Relations {
+        final ArrayList<String> keys = new ArrayList<String>();
+        final ArrayList<String> values = new ArrayList<String>();
+
+        void add (String key, String value) {
+            keys.add(key);
+            values.add(value);
+        }
+
+        void addAll (HashMap<String, ArrayList<String>> map) {
+            for (Map.Entry<String, ArrayList<String>> entry : map.entrySet()) {
+                ArrayList<String> mapValues = entry.getValue();
+                for (int i = 0; i < mapValues.size(); i++) {
+                    add(entry.getKey(), mapValues.get(i));
+                }
+            }
+        }
+
+        /**
+         * @param map the map the relations were added to
+         * @return for every value the keys that have it, in the iteration order of the map
+         */
+        HashMap<String, ArrayList<String>> invert (HashMap<String, ArrayList<String>> map) {
+            HashMap<String, Integer> ranks = new HashMap<String, Integer>(map.size()*2);
+            int rank = 0;
+            for (String key : map.keySet()) {
+                ranks.put(key, rank++);
+            }
+            /// rank of the key in the high bits, position of the relation in the low bits
+            long [] order = new long[keys.size()];
+            int n = 0;
+            for (int i = 0; i < keys.size(); i++) {
+                Integer keyRank = ranks.get(keys.get(i));
+                if (keyRank!=null) {
+                    order[n++] = ((long) keyRank<<32) | i;
+                }
+            }
+            Arrays.sort(order, 0, n);
+            HashMap<String, ArrayList<String>> index = new HashMap<String, ArrayList<String>>();
+            for (int j = 0; j < n; j++) {
+                int i = (int) (order[j] & 0xffffffffL);
+                String key = keys.get(i);
+                String value = values.get(i);
+                ArrayList<String> indexKeys = index.get(value);
+                if (indexKeys==null) {
+                    indexKeys = new ArrayList<String>(1);
+                    index.put(value, indexKeys);
+                }
+                if (indexKeys.isEmpty() || !indexKeys.get(indexKeys.size()-1).equals(key)) {
+                    indexKeys.add(key);
+                }
+            }
+            trim(index);
+            return index;
+        }
+    }
+}
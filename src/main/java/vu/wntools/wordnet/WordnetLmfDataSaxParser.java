@@ -1,17 +1,10 @@
 package vu.wntools.wordnet;
 
-import org.xml.sax.Attributes;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
-import org.xml.sax.helpers.DefaultHandler;
 import vu.wntools.lmf.*;
 import vu.wntools.util.*;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLStreamException;
 import java.io.*;
 import java.util.ArrayList;
-import java.util.zip.GZIPInputStream;
 
 /**
  * Created with IntelliJ IDEA.
@@ -20,14 +13,49 @@ import java.util.zip.GZIPInputStream;
  * Time: 3:16 PM
  * To change this template use File | Settings | File Templates.
  */
-public class WordnetLmfDataSaxParser extends DefaultHandler {
+public class WordnetLmfDataSaxParser implements WordnetXmlReader.Builder {
+
+    static final int LEXICON = 0;
+    static final int GLOBAL_INFORMATION = 1;
+    static final int LEXICAL_ENTRY = 2;
+    static final int LEMMA = 3;
+    static final int SENSE = 4;
+    static final int SYNSET = 5;
+    static final int SYNSET_RELATION = 6;
+    static final int DEFINITION = 7;
+    static final String [] ELEMENTS = {"Lexicon", "GlobalInformation", "LexicalEntry", "Lemma", "Sense", "Synset",
+            "SynsetRelation", "Definition"};
+
+    static final int A_LABEL = 0;
+    static final int A_LANGUAGE_ENCODING = 1;
+    static final int A_LANGUAGE = 2;
+    static final int A_OWNER = 3;
+    static final int A_ID = 4;
+    static final int A_PART_OF_SPEECH = 5;
+    static final int A_WRITTEN_FORM = 6;
+    static final int A_SENSE_ID = 7;
+    static final int A_ORIGIN = 8;
+    static final int A_PROVENANCE = 9;
+    static final int A_SYNSET = 10;
+    static final int A_DEFINITION = 11;
+    static final int A_ILI = 12;
+    static final int A_TARGET = 13;
+    static final int A_REL_TYPE = 14;
+    static final int A_SOURCE = 15;
+    static final int A_GLOSS = 16;
+    static final String [] ATTRIBUTES = {"label", "languageEncoding", "language", "owner", "id", "partOfSpeech",
+            "writtenForm", "senseId", "origin", "provenance", "synset", "definition", "ili", "target", "relType", "source",
+            "gloss"};
 
     public WordnetLmfData wordnetData;
-    private String value = "";
     private LmfEntry lmfEntry;
     private Synset synset;
     private SynsetRelation synsetRelation;
     private LmfSense lmfSense;
+    /// keep the definitions of the synsets in a gloss store instead of in the synsets
+    private boolean lazyGlosses = false;
+    /// store to which the definitions are added while parsing, null if they go to the synsets
+    private GlossStore glossStore = null;
 
     /**
      *       <Synset id="nld-21-d_n-11517-n">
@@ -67,6 +95,15 @@ public class WordnetLmfDataSaxParser extends DefaultHandler {
         wordnetData = new WordnetLmfData();
     }
 
+    /**
+     * The definitions of the synsets are kept in a GlossStore outside the heap and decoded when they are asked for
+     * with Synset.getGlosses, see GlossStore
+     * @param lazyGlosses
+     */
+    public void setLazyGlosses (boolean lazyGlosses) {
+        this.lazyGlosses = lazyGlosses;
+    }
+
 
     public void parseFile(String filePath) {
         //System.out.println("filePath = " + filePath);
@@ -76,29 +113,17 @@ public class WordnetLmfDataSaxParser extends DefaultHandler {
         }
         String myerror = "";
         try {
-            InputStream fis = new FileInputStream(filePath);
-
-            if (filePath.toLowerCase().endsWith(".gz")) {
-                InputStream fileStream = new FileInputStream(filePath);
-                fis = new GZIPInputStream(fileStream);
+            InputStream fis = WordnetXmlReader.open(filePath);
+            try {
+                parse(fis);
+            } finally {
+                fis.close();
             }
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            factory.setValidating(false);
-            SAXParser parser = factory.newSAXParser();
-           // InputSource inp = new InputSource (new FileReader(filePath));
-            InputSource inp = new InputSource (fis);
-            parser.parse(inp, this);
-        } catch (SAXParseException err) {
-            myerror = "\n** Parsing error" + ", line " + err.getLineNumber()
-                    + ", uri " + err.getSystemId();
+        } catch (XMLStreamException err) {
+            myerror = "\n** Parsing error" + ", line "
+                    + (err.getLocation()!=null ? err.getLocation().getLineNumber() : -1) + ", uri " + filePath;
             myerror += "\n" + err.getMessage();
             System.out.println("myerror = " + myerror);
-        } catch (SAXException e) {
-            Exception x = e;
-            if (e.getException() != null)
-                x = e.getException();
-            myerror += "\nSAXException --" + x.getMessage();
-            System.out.println("myerror = " + myerror);
         } catch (Exception eee) {
             eee.printStackTrace();
             myerror += "\nException --" + eee.getMessage();
@@ -107,6 +132,34 @@ public class WordnetLmfDataSaxParser extends DefaultHandler {
       //  System.out.println("myerror = " + myerror);
     }//--c
 
+    /**
+     * Parses an LMF document into the data
+     * @param stream
+     * @throws XMLStreamException
+     */
+    public void parse (InputStream stream) throws XMLStreamException {
+        if (lazyGlosses) {
+            try {
+                glossStore = new GlossStore();
+            } catch (IOException e) {
+                /// the definitions go to the synsets
+                e.printStackTrace();
+            }
+        }
+        try {
+            new WordnetXmlReader(ELEMENTS, ATTRIBUTES, false).parse(stream, this);
+        } finally {
+            if (glossStore!=null) {
+                try {
+                    glossStore.finish();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                glossStore = null;
+            }
+        }
+    }
+
 
     /*
     <LexicalEntry id="clean_out">
@@ -126,204 +179,197 @@ public class WordnetLmfDataSaxParser extends DefaultHandler {
     <MonolingualExternalRef externalReference="dummy" externalSystem="Domain" />
     </MonolingualExternalRefs></Synset>
      */
-    public void startElement(String uri, String localName,
-                             String qName, Attributes attributes)
-            throws SAXException {
-
-        //<Lexicon label="Princeton WordNet 3.0" language="eng" languageCoding="ISO 639-3" owner="KYOTO project" version="3.0">
-
-        if (qName.equalsIgnoreCase("Lexicon")) {
-
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("label")) {
-                    wordnetData.setLexiconLabel(attributes.getValue(i).trim());
+    public void startElement(int element, WordnetXmlReader reader) {
+        String attribute;
+        switch (element) {
+            case LEXICON:
+                //<Lexicon label="Princeton WordNet 3.0" language="eng" languageCoding="ISO 639-3" owner="KYOTO project" version="3.0">
+                attribute = reader.getAttribute(A_LABEL);
+                if (attribute!=null) {
+                    wordnetData.setLexiconLabel(attribute.trim());
                 }
-                else if (attributes.getQName(i).equalsIgnoreCase("languageEncoding")) {
-                    wordnetData.setLanguageEncoding(attributes.getValue(i).trim());
+                attribute = reader.getAttribute(A_LANGUAGE_ENCODING);
+                if (attribute!=null) {
+                    wordnetData.setLanguageEncoding(attribute.trim());
                 }
-                else if (attributes.getQName(i).equalsIgnoreCase("language")) {
-                    wordnetData.setLanguage(attributes.getValue(i).trim());
+                attribute = reader.getAttribute(A_LANGUAGE);
+                if (attribute!=null) {
+                    wordnetData.setLanguage(attribute.trim());
                 }
-                else if (attributes.getQName(i).equalsIgnoreCase("owner")) {
-                    wordnetData.setOwner(attributes.getValue(i).trim());
+                attribute = reader.getAttribute(A_OWNER);
+                if (attribute!=null) {
+                    wordnetData.setOwner(attribute.trim());
                 }
-            }
-        }
-        else if (qName.equalsIgnoreCase("GlobalInformation")) {
-
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("label")) {
-                    wordnetData.setGlobalLabel(attributes.getValue(i).trim());
+                break;
+            case GLOBAL_INFORMATION:
+                attribute = reader.getAttribute(A_LABEL);
+                if (attribute!=null) {
+                    wordnetData.setGlobalLabel(attribute.trim());
                 }
-            }
-        }
-        else if (qName.equalsIgnoreCase("LexicalEntry")) {
-            lmfEntry = new LmfEntry();
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("id")) {
-                    lmfEntry.setEntryId(attributes.getValue(i).trim());
+                break;
+            case LEXICAL_ENTRY:
+                lmfEntry = new LmfEntry();
+                attribute = reader.getAttribute(A_ID);
+                if (attribute!=null) {
+                    lmfEntry.setEntryId(WordnetStringPool.intern(attribute.trim()));
                 }
-                else if (attributes.getQName(i).equalsIgnoreCase("partOfSpeech")) {
-                    lmfEntry.setPos(attributes.getValue(i).trim());
+                attribute = reader.getAttribute(A_PART_OF_SPEECH);
+                if (attribute!=null) {
+                    lmfEntry.setPos(WordnetStringPool.intern(attribute.trim()));
                 }
-            }
-
-            /**
-             * /**
-             * <LexicalEntry id="clapboard">
-             *     <Lemma partOfSpeech="v" writtenForm="clapboard" />
-             <Sense id="clapboard_1"
-             synset="eng-30-01337412-v">
-             <MonolingualExternalRefs>
-             <MonolingualExternalRef externalReference="clapboard%2:35:00::" externalSystem="Wordnet3.0" />
-             </MonolingualExternalRefs>
-             </Sense>
-             </LexicalEntry>
+                /**
+                 * <LexicalEntry id="clapboard">
+                 *     <Lemma partOfSpeech="v" writtenForm="clapboard" />
+                 <Sense id="clapboard_1"
+                 synset="eng-30-01337412-v">
+                 <MonolingualExternalRefs>
+                 <MonolingualExternalRef externalReference="clapboard%2:35:00::" externalSystem="Wordnet3.0" />
+                 </MonolingualExternalRefs>
+                 </Sense>
+                 </LexicalEntry>
+                 */
+            /*
+             <LexicalEntry id="ANWB-kantoor-n-1" partOfSpeech="noun">
+          <Lemma writtenForm="ANWB-kantoor"/>
+          <WordForms>
+            <WordForm writtenForm="ANWB-kantoor" grammaticalNumber="singular" article="het"/>
+            <WordForm writtenForm="ANWB-kantoren" grammaticalNumber="plural" article="de"/>
+          </WordForms>
+          <Morphology morphoType="compound"/>
+          <MorphoSyntax pronominalAndGrammaticalGender="m_f"/>
+          <Sense senseId="r_n-3696" definition="kantoor v.d. ANWB" synset="odwn-10-107184172-n" origin="cdb2.2_None">
+            <SenseRelations/>
+            <Semantics-noun reference="common" countability="count" semanticType="artefact">
+              <semanticShifts-noun semanticType="artefact"/>
+              <semanticShifts-noun semanticType="place"/>
+            </Semantics-noun>
+            <Pragmatics>
+              <Domains domain="transport"/>
+            </Pragmatics>
+          </Sense>
+        </LexicalEntry>
              */
-        /*
-         <LexicalEntry id="ANWB-kantoor-n-1" partOfSpeech="noun">
-      <Lemma writtenForm="ANWB-kantoor"/>
-      <WordForms>
-        <WordForm writtenForm="ANWB-kantoor" grammaticalNumber="singular" article="het"/>
-        <WordForm writtenForm="ANWB-kantoren" grammaticalNumber="plural" article="de"/>
-      </WordForms>
-      <Morphology morphoType="compound"/>
-      <MorphoSyntax pronominalAndGrammaticalGender="m_f"/>
-      <Sense senseId="r_n-3696" definition="kantoor v.d. ANWB" synset="odwn-10-107184172-n" origin="cdb2.2_None">
-        <SenseRelations/>
-        <Semantics-noun reference="common" countability="count" semanticType="artefact">
-          <semanticShifts-noun semanticType="artefact"/>
-          <semanticShifts-noun semanticType="place"/>
-        </Semantics-noun>
-        <Pragmatics>
-          <Domains domain="transport"/>
-        </Pragmatics>
-      </Sense>
-    </LexicalEntry>
-         */
-        }
-        else if (qName.equalsIgnoreCase("Lemma")) {
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("writtenForm")) {
-                    lmfEntry.setWrittenForm(attributes.getValue(i).trim());
+                break;
+            case LEMMA:
+                attribute = reader.getAttribute(A_WRITTEN_FORM);
+                if (attribute!=null) {
+                    lmfEntry.setWrittenForm(WordnetStringPool.intern(attribute.trim()));
                 }
-                else if (attributes.getQName(i).equalsIgnoreCase("partOfSpeech")) {
-                    lmfEntry.setPos(attributes.getValue(i).trim());
+                attribute = reader.getAttribute(A_PART_OF_SPEECH);
+                if (attribute!=null) {
+                    lmfEntry.setPos(WordnetStringPool.intern(attribute.trim()));
                 }
-            }
-        }
-        else if (qName.equalsIgnoreCase("Sense")) {
-            lmfSense = new LmfSense();
-/*
-    <Sense id="clapboard_1" synset="eng-30-01337412-v"/>
-*/
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("id")) {
-                    lmfSense.setSenseId(attributes.getValue(i).trim());
-                }
-                else if (attributes.getQName(i).equalsIgnoreCase("senseId")) {
-                    lmfSense.setSenseId(attributes.getValue(i).trim());
+                break;
+            case SENSE:
+                lmfSense = new LmfSense();
+                /*
+                    <Sense id="clapboard_1" synset="eng-30-01337412-v"/>
+                */
+                attribute = reader.getLastAttribute(A_ID, A_SENSE_ID);
+                if (attribute!=null) {
+                    lmfSense.setSenseId(WordnetStringPool.intern(attribute.trim()));
                 }
-                else if (attributes.getQName(i).equalsIgnoreCase("origin")) {
-                    lmfSense.setProvenance(attributes.getValue(i).trim());
+                attribute = reader.getLastAttribute(A_ORIGIN, A_PROVENANCE);
+                if (attribute!=null) {
+                    lmfSense.setProvenance(WordnetStringPool.intern(attribute.trim()));
                 }
-                else if (attributes.getQName(i).equalsIgnoreCase("provenance")) {
-                    lmfSense.setProvenance(attributes.getValue(i).trim());
-                }
-                else if (attributes.getQName(i).equalsIgnoreCase("synset")) {
-                    String synsetId = attributes.getValue(i).trim();
+                attribute = reader.getAttribute(A_SYNSET);
+                if (attribute!=null) {
+                    String synsetId = WordnetStringPool.intern(attribute.trim());
                     lmfSense.setSynset(synsetId);
-                    if (wordnetData.synsetToEntriesMap.containsKey(synsetId)) {
-                        ArrayList<String> entries = wordnetData.synsetToEntriesMap.get(synsetId);
+                    ArrayList<String> entries = wordnetData.synsetToEntriesMap.get(synsetId);
+                    if (entries!=null) {
                         if (!entries.contains(lmfEntry.getWrittenForm())) {
                             entries.add(lmfEntry.getWrittenForm());
-                            wordnetData.synsetToEntriesMap.put(synsetId, entries);
                         }
                     }
                     else {
-                        ArrayList<String> entries = new ArrayList<String>();
+                        entries = new ArrayList<String>(1);
                         entries.add(lmfEntry.getWrittenForm());
                         wordnetData.synsetToEntriesMap.put(synsetId, entries);
                     }
-                    if (wordnetData.entryToSynsetsMap.containsKey(lmfEntry.getWrittenForm())) {
-                        ArrayList<String> synsets = wordnetData.entryToSynsetsMap.get(lmfEntry.getWrittenForm());
+                    ArrayList<String> synsets = wordnetData.entryToSynsetsMap.get(lmfEntry.getWrittenForm());
+                    if (synsets!=null) {
                         if (!synsets.contains(synsetId)) {
                             synsets.add(synsetId);
-                            wordnetData.entryToSynsetsMap.put(lmfEntry.getWrittenForm(), synsets);
                         }
                     }
                     else {
-                        ArrayList<String> synsets = new ArrayList<String>();
+                        synsets = new ArrayList<String>(1);
                         synsets.add(synsetId);
                         wordnetData.entryToSynsetsMap.put(lmfEntry.getWrittenForm(), synsets);
                     }
                 }
-                else if (attributes.getQName(i).equalsIgnoreCase("definition")) {
-                    lmfSense.setDefinition(attributes.getValue(i).trim());
+                attribute = reader.getAttribute(A_DEFINITION);
+                if (attribute!=null) {
+                    lmfSense.setDefinition(attribute.trim());
                 }
-            }
-            lmfEntry.addSense(lmfSense);
-        }
-        else if (qName.equalsIgnoreCase("Synset")) {
-            synset = new Synset();
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("id")) {
-                    synset.setSynsetId(attributes.getValue(i).trim());
+                lmfEntry.addSense(lmfSense);
+                break;
+            case SYNSET:
+                synset = new Synset();
+                synset.setGlossStore(glossStore);
+                attribute = reader.getAttribute(A_ID);
+                if (attribute!=null) {
+                    synset.setSynsetId(WordnetStringPool.intern(attribute.trim()));
                 }
-                else if (attributes.getQName(i).equalsIgnoreCase("ili")) {
-                    synset.setIliId(attributes.getValue(i).trim());
+                attribute = reader.getAttribute(A_ILI);
+                if (attribute!=null) {
+                    synset.setIliId(WordnetStringPool.intern(attribute.trim()));
                 }
-            }
-            /**
-                 <Synset id="mwn-569856-n" ili=""> <!-- PROPOSING A NEW ILI -->
-                    <Definition language= “en” gloss="cultural habit to walk on skates"/>
-                 </Synset>
-            **/
-        }
-        else if (qName.equalsIgnoreCase("SynsetRelation")) {
-            synsetRelation = new SynsetRelation();
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("target")) {
-                    synsetRelation.setTarget(attributes.getValue(i).trim());
+                /**
+                     <Synset id="mwn-569856-n" ili=""> <!-- PROPOSING A NEW ILI -->
+                        <Definition language= “en” gloss="cultural habit to walk on skates"/>
+                     </Synset>
+                **/
+                break;
+            case SYNSET_RELATION:
+                synsetRelation = new SynsetRelation();
+                attribute = reader.getAttribute(A_TARGET);
+                if (attribute!=null) {
+                    synsetRelation.setTarget(WordnetStringPool.intern(attribute.trim()));
                 }
-                else if (attributes.getQName(i).equalsIgnoreCase("relType")) {
-                    synsetRelation.setRelType(attributes.getValue(i).trim());
+                attribute = reader.getAttribute(A_REL_TYPE);
+                if (attribute!=null) {
+                    synsetRelation.setRelType(WordnetStringPool.intern(attribute.trim()));
                 }
-                else if (attributes.getQName(i).equalsIgnoreCase("provenance")) {
-                    synsetRelation.setProvenance(attributes.getValue(i).trim());
+                attribute = reader.getLastAttribute(A_PROVENANCE, A_SOURCE);
+                if (attribute!=null) {
+                    synsetRelation.setProvenance(WordnetStringPool.intern(attribute.trim()));
                 }
-                else if (attributes.getQName(i).equalsIgnoreCase("source")) {
-                    synsetRelation.setProvenance(attributes.getValue(i).trim());
+                synset.getRelations().add(synsetRelation);
+                break;
+            case DEFINITION:
+                Gloss definition = new Gloss();
+                attribute = reader.getAttribute(A_LANGUAGE);
+                if (attribute!=null) {
+                    definition.setLanguage(WordnetStringPool.intern(attribute.trim()));
                 }
-            }
-            synset.getRelations().add(synsetRelation);
-
-           // synset.addRelations(synsetRelation);
-        }
-        else if (qName.equalsIgnoreCase("Definition")) {
-            Gloss definition = new Gloss();
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("language")) {
-                    definition.setLanguage(attributes.getValue(i).trim());
+                attribute = reader.getAttribute(A_GLOSS);
+                if (attribute!=null) {
+                    definition.setText(attribute.trim());
                 }
-                else if (attributes.getQName(i).equalsIgnoreCase("gloss")) {
-                    definition.setText(attributes.getValue(i).trim());
+                attribute = reader.getAttribute(A_PROVENANCE);
+                if (attribute!=null) {
+                    definition.setProvenance(WordnetStringPool.intern(attribute.trim()));
                 }
-                else if (attributes.getQName(i).equalsIgnoreCase("provenance")) {
-                    definition.setProvenance(attributes.getValue(i).trim());
+                if (glossStore!=null) {
+                    try {
+                        glossStore.add(synset.getSynsetId(), definition);
+                        break;
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
                 }
-            }
-            synset.addDefinition(definition);
-        }
-        else {
+                synset.addDefinition(definition);
+                break;
+            default:
+                break;
         }
-        value = "";
-
     }//--startElement
 
 
-    public void endElement(String uri, String localName, String qName)
-            throws SAXException {
+    public void endElement(int element, WordnetXmlReader reader) {
 
 
         /**
@@ -335,7 +381,7 @@ public class WordnetLmfDataSaxParser extends DefaultHandler {
          </Definitions>
          </Synset>
          */
-        if (qName.equalsIgnoreCase("Synset")) {
+        if (element==SYNSET) {
             if (synset.getSynsetId().equals("eng-30-10980256-n")) {
                 System.out.println("synset.toString() = " + synset.toString());
             }
@@ -390,12 +436,6 @@ public class WordnetLmfDataSaxParser extends DefaultHandler {
         }*/
     }
 
-    public void characters(char ch[], int start, int length)
-            throws SAXException {
-        value += new String(ch, start, length);
-        // System.out.println("tagValue:"+value);
-    }
-
     static public void main (String[] args) {
         try {
             String glossLanguage = "nl";
@@ -1,20 +1,16 @@
 package vu.wntools.wordnet;
 
-import org.xml.sax.Attributes;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
-import org.xml.sax.helpers.DefaultHandler;
 import vu.wntools.lmf.Gloss;
 import vu.wntools.util.Pos;
 
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLStreamException;
 import java.io.*;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.Set;
-import java.util.zip.GZIPInputStream;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Created with IntelliJ IDEA.
@@ -23,10 +19,37 @@ import java.util.zip.GZIPInputStream;
  * Time: 3:16 PM
  * To change this template use File | Settings | File Templates.
  */
-public class WordnetLmfSaxParser extends DefaultHandler {
+public class WordnetLmfSaxParser implements WordnetXmlReader.Builder {
+
+    static final int LEXICON = 0;
+    static final int LEXICAL_ENTRY = 1;
+    static final int LEMMA = 2;
+    static final int SENSE = 3;
+    static final int SYNSET = 4;
+    static final int DEFINITION = 5;
+    static final int SYNSET_RELATION = 6;
+    static final int MONOLINGUAL_EXTERNAL_REF = 7;
+    static final String [] ELEMENTS = {"Lexicon", "LexicalEntry", "Lemma", "Sense", "Synset", "Definition",
+            "SynsetRelation", "MonolingualExternalRef"};
+
+    static final int A_LABEL = 0;
+    static final int A_VERSION = 1;
+    static final int A_WRITTEN_FORM = 2;
+    static final int A_PART_OF_SPEECH = 3;
+    static final int A_SYNSET = 4;
+    static final int A_SENSE_ID = 5;
+    static final int A_ID = 6;
+    static final int A_GLOSS = 7;
+    static final int A_LANGUAGE = 8;
+    static final int A_PROVENANCE = 9;
+    static final int A_TARGET = 10;
+    static final int A_TARGETS = 11;
+    static final int A_REL_TYPE = 12;
+    static final int A_EXTERNAL_REFERENCE = 13;
+    static final String [] ATTRIBUTES = {"label", "version", "writtenForm", "partOfSpeech", "synset", "senseId", "id",
+            "gloss", "language", "provenance", "target", "targets", "relType", "externalReference"};
 
     public WordnetData wordnetData;
-    private String value = "";
     private String sourceId = "";
     private String targetId= "";
     private String type = "";
@@ -44,6 +67,23 @@ public class WordnetLmfSaxParser extends DefaultHandler {
     private ArrayList<String> directequivalences = new ArrayList<String>();
     private ArrayList<String> nearequivalences = new ArrayList<String>();
     private ArrayList<String> otherequivalences = new ArrayList<String>();
+    /// open LexicalEntry and Synset elements, to see if an element depends on the elements before it
+    private int openEntries = 0;
+    private int openSynsets = 0;
+    /// set when a Lemma or Sense is found outside a LexicalEntry or a Definition outside a Synset
+    private boolean contextDependent = false;
+    /// fills the indexes that were asked for with setIndexes while parsing, null if none were asked for
+    private WordnetIndexBuilder indexBuilder = null;
+    /// keep the glosses in a gloss store instead of in synsetToGlosses
+    private boolean lazyGlosses = false;
+    /// store to which the glosses are added while parsing, null if they go to synsetToGlosses
+    private GlossStore glossStore = null;
+
+    /// elements at which the parallel parser can split the file, and elements in which it cannot split
+    static final String [] RECORDS = {"LexicalEntry", "Synset"};
+    static final String [] BLOCKING = {"Lemma", "Sense", "Definition", "SynsetRelation", "MonolingualExternalRef"};
+    /// minimum size in bytes of the chunks of the parallel parser
+    static int minChunkSize = 1<<20;
 
     /**
      *       <Synset id="nld-21-d_n-11517-n">
@@ -92,6 +132,29 @@ public class WordnetLmfSaxParser extends DefaultHandler {
     }
 
 
+    /**
+     * The indexes are built while the file is parsed and replace the indexes of the data when it has been read,
+     * so the build methods of WordnetData do not have to be called.
+     * @param indexes WordnetIndexBuilder.SYNSET_INDEX, LEXICAL_UNIT_INDEX, LEMMA_INDEX and CHILD_RELATIONS or-ed, 0 for none
+     */
+    public void setIndexes (int indexes) {
+        if (indexes==0) {
+            indexBuilder = null;
+        }
+        else {
+            indexBuilder = new WordnetIndexBuilder(indexes);
+        }
+    }
+
+    /**
+     * The glosses are kept in a GlossStore outside the heap and decoded when they are asked for with
+     * WordnetData.getGlosses, instead of in synsetToGlosses. For tools that read few glosses or none.
+     * @param lazyGlosses
+     */
+    public void setLazyGlosses (boolean lazyGlosses) {
+        this.lazyGlosses = lazyGlosses;
+    }
+
     public void setPos (String pos) {
         posFilter = pos;
         posMatch = false;
@@ -127,41 +190,276 @@ public class WordnetLmfSaxParser extends DefaultHandler {
             System.err.println("Cannot find file WnLMF file = "+filePath);
             return;
         }
+        if (WordnetSnapshot.isSnapshot(filePath)) {
+            /// a binary snapshot written by WordnetSnapshot, no xml parsing needed, if it has the filters of this parser
+            /// there is no xml to fall back to, so a snapshot that cannot be read stops the tool instead of giving no data
+            try {
+                wordnetData = WordnetSnapshot.read(filePath, posFilter, relations, lazyGlosses);
+            } catch (IOException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            if (indexBuilder!=null) {
+                indexBuilder.addAll(wordnetData);
+                indexBuilder.freeze(wordnetData);
+            }
+            return;
+        }
 
         String myerror = "";
         try {
-
-            InputStream fis = new FileInputStream(filePath);
-
-            if (filePath.toLowerCase().endsWith(".gz")) {
-                InputStream fileStream = new FileInputStream(filePath);
-                fis = new GZIPInputStream(fileStream);
+            InputStream fis = WordnetXmlReader.open(filePath);
+            try {
+                parse(fis);
+            } finally {
+                fis.close();
             }
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            factory.setValidating(false);
-            SAXParser parser = factory.newSAXParser();
-           // InputSource inp = new InputSource (new FileReader(filePath));
-            InputSource inp = new InputSource (fis);
-            parser.parse(inp, this);
-        } catch (SAXParseException err) {
-            myerror = "\n** Parsing error" + ", line " + err.getLineNumber()
-                    + ", uri " + err.getSystemId();
+        } catch (XMLStreamException err) {
+            myerror = "\n** Parsing error" + ", line "
+                    + (err.getLocation()!=null ? err.getLocation().getLineNumber() : -1) + ", uri " + filePath;
             myerror += "\n" + err.getMessage();
             System.err.println("myerror = " + myerror);
-        } catch (SAXException e) {
-            Exception x = e;
-            if (e.getException() != null)
-                x = e.getException();
-            myerror += "\nSAXException --" + x.getMessage();
-            System.err.println("myerror = " + myerror);
         } catch (Exception eee) {
             eee.printStackTrace();
             myerror += "\nException --" + eee.getMessage();
             System.err.println("myerror = " + myerror);
         }
+        if (indexBuilder!=null) {
+            indexBuilder.freeze(wordnetData);
+        }
       //  System.out.println("myerror = " + myerror);
     }//--c
 
+    /**
+     * Parses an LMF document into the data
+     * @param stream
+     * @throws XMLStreamException
+     */
+    public void parse (InputStream stream) throws XMLStreamException {
+        if (lazyGlosses) {
+            glossStore = openGlossStore();
+        }
+        try {
+            new WordnetXmlReader(ELEMENTS, ATTRIBUTES, false).parse(stream, this);
+        } finally {
+            if (glossStore!=null) {
+                finishGlossStore();
+            }
+        }
+    }
+
+    /**
+     * @return a store with the glosses of the store of the data, null if it cannot be made
+     */
+    private GlossStore openGlossStore () {
+        try {
+            GlossStore store = new GlossStore();
+            if (wordnetData.getGlossStore()!=null) {
+                store.addAll(wordnetData.getGlossStore());
+            }
+            return store;
+        } catch (IOException e) {
+            /// the glosses go to synsetToGlosses
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void finishGlossStore () {
+        try {
+            glossStore.finish();
+            wordnetData.setGlossStore(glossStore);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        glossStore = null;
+    }
+
+    /**
+     * Adds the gloss to the gloss store, or to synsetToGlosses if there is no store or it cannot be written
+     * @param synsetId
+     * @param gloss
+     */
+    private void addGloss (String synsetId, Gloss gloss) {
+        if (glossStore!=null) {
+            try {
+                glossStore.add(synsetId, gloss);
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        ArrayList<Gloss> glosses = wordnetData.synsetToGlosses.get(synsetId);
+        if (glosses==null) {
+            glosses = new ArrayList<Gloss>(1);
+            wordnetData.synsetToGlosses.put(synsetId, glosses);
+        }
+        glosses.add(gloss);
+    }
+
+    /**
+     * Parses the file on several threads and gives the same WordnetData as parseFile(filePath).
+     *
+     * The file is split in chunks at LexicalEntry and Synset elements (see XmlChunks). Every chunk is parsed by its own
+     * parser, with the same relations and filters as this parser, into a partial WordnetData. The partial data are
+     * merged in the order of the chunks, in the way the serial parser adds an element to the data, so lists and maps
+     * end up with the same content and order.
+     * The file is parsed serially if it is a snapshot, cannot be split or has a Lemma or Sense outside a LexicalEntry or
+     * a Definition outside a Synset (these use the element before them), or if a chunk gives an error.
+     * @param filePath
+     * @param threads number of threads, below 2 the file is parsed serially
+     */
+    public void parseFile(String filePath, int threads) {
+        if (threads<2 || !(new File(filePath)).exists() || WordnetSnapshot.isSnapshot(filePath)) {
+            parseFile(filePath);
+            return;
+        }
+        XmlChunks chunks = null;
+        try {
+            ByteBuffer buffer = XmlChunks.read(filePath);
+            if (buffer!=null) {
+                int chunkSize = Math.max(minChunkSize, buffer.limit()/(threads*4));
+                chunks = XmlChunks.split(buffer, RECORDS, BLOCKING, chunkSize);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (chunks==null || chunks.size()<2) {
+            parseFile(filePath);
+            return;
+        }
+        ArrayList<WordnetData> partials = new ArrayList<WordnetData>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, chunks.size()));
+        try {
+            ArrayList<Future<WordnetData>> futures = new ArrayList<Future<WordnetData>>();
+            for (int c = 0; c < chunks.size(); c++) {
+                final InputStream chunk = chunks.getChunk(c);
+                futures.add(executor.submit(new Callable<WordnetData>() {
+                    public WordnetData call() throws Exception {
+                        return parseChunk(chunk);
+                    }
+                }));
+            }
+            for (int c = 0; c < futures.size(); c++) {
+                WordnetData partial = futures.get(c).get();
+                if (partial==null) {
+                    break;
+                }
+                partials.add(partial);
+            }
+        } catch (Exception e) {
+            System.err.println("Parallel parsing failed, parsing serially: "+e.getMessage());
+            partials = null;
+        } finally {
+            executor.shutdownNow();
+        }
+        if (partials==null || partials.size()<chunks.size()) {
+            parseFile(filePath);
+            return;
+        }
+        if (lazyGlosses) {
+            glossStore = openGlossStore();
+        }
+        for (int c = 0; c < partials.size(); c++) {
+            merge(partials.get(c));
+        }
+        if (glossStore!=null) {
+            finishGlossStore();
+        }
+        if (indexBuilder!=null) {
+            indexBuilder.addAll(wordnetData);
+            indexBuilder.freeze(wordnetData);
+        }
+    }
+
+    /**
+     * @param chunk
+     * @return the data of the chunk, or null if the chunk depends on the chunks before it
+     * @throws Exception
+     */
+    private WordnetData parseChunk (InputStream chunk) throws Exception {
+        WordnetLmfSaxParser chunkParser = new WordnetLmfSaxParser();
+        /// keep the order in which the keys are found, so they are merged in the order of the serial parser
+        chunkParser.wordnetData.synsetToGlosses = new LinkedHashMap<String, ArrayList<Gloss>>();
+        chunkParser.wordnetData.hyperRelations = new LinkedHashMap<String, ArrayList<String>>();
+        chunkParser.wordnetData.otherRelations = new LinkedHashMap<String, ArrayList<String>>();
+        chunkParser.wordnetData.entryToSynsets = new LinkedHashMap<String, ArrayList<String>>();
+        chunkParser.wordnetData.synsetToLexicalUnits = new LinkedHashMap<String, ArrayList<String>>();
+        chunkParser.wordnetData.lexicalUnitsToLemmas = new LinkedHashMap<String, String>();
+        chunkParser.wordnetData.synsetToDirectEquiSynsets = new LinkedHashMap<String, ArrayList<String>>();
+        chunkParser.wordnetData.synsetToNearEquiSynsets = new LinkedHashMap<String, ArrayList<String>>();
+        chunkParser.wordnetData.synsetToOtherEquiSynsets = new LinkedHashMap<String, ArrayList<String>>();
+        /// null unless a Lexicon in the chunk sets them
+        chunkParser.wordnetData.setResource(null);
+        chunkParser.wordnetData.setVersion(null);
+        chunkParser.relations = relations;
+        chunkParser.posFilter = posFilter;
+        chunkParser.posMatch = posMatch;
+        chunkParser.provenanceFilter = provenanceFilter;
+        chunkParser.idFilter = idFilter;
+        /// the glosses of the chunk stay in synsetToGlosses and are written to the store of this parser by merge
+        try {
+            chunkParser.parse(chunk);
+        } finally {
+            chunk.close();
+        }
+        if (chunkParser.contextDependent) {
+            return null;
+        }
+        return chunkParser.wordnetData;
+    }
+
+    /**
+     * Adds the data of a chunk as the serial parser would have added it
+     * @param partial
+     */
+    private void merge (WordnetData partial) {
+        wordnetData.synsetArrayList.addAll(partial.synsetArrayList);
+        mergeUnique(wordnetData.synsetToLexicalUnits, partial.synsetToLexicalUnits);
+        mergeUnique(wordnetData.entryToSynsets, partial.entryToSynsets);
+        for (Map.Entry<String, ArrayList<Gloss>> entry : partial.synsetToGlosses.entrySet()) {
+            ArrayList<Gloss> glosses = wordnetData.synsetToGlosses.get(entry.getKey());
+            if (glossStore!=null) {
+                for (int i = 0; i < entry.getValue().size(); i++) {
+                    addGloss(entry.getKey(), entry.getValue().get(i));
+                }
+            }
+            else if (glosses!=null) {
+                glosses.addAll(entry.getValue());
+            }
+            else {
+                wordnetData.synsetToGlosses.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, ArrayList<String>> entry : partial.hyperRelations.entrySet()) {
+            wordnetData.addHyperRelation(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, ArrayList<String>> entry : partial.otherRelations.entrySet()) {
+            wordnetData.addOtherRelations(entry.getKey(), entry.getValue());
+        }
+        wordnetData.lexicalUnitsToLemmas.putAll(partial.lexicalUnitsToLemmas);
+        wordnetData.synsetToDirectEquiSynsets.putAll(partial.synsetToDirectEquiSynsets);
+        wordnetData.synsetToNearEquiSynsets.putAll(partial.synsetToNearEquiSynsets);
+        wordnetData.synsetToOtherEquiSynsets.putAll(partial.synsetToOtherEquiSynsets);
+        if (partial.getResource()!=null) {
+            wordnetData.setResource(partial.getResource());
+        }
+        if (partial.getVersion()!=null) {
+            wordnetData.setVersion(partial.getVersion());
+        }
+    }
+
+    private static void mergeUnique (HashMap<String, ArrayList<String>> map, HashMap<String, ArrayList<String>> partial) {
+        for (Map.Entry<String, ArrayList<String>> entry : partial.entrySet()) {
+            ArrayList<String> stored = map.get(entry.getKey());
+            if (stored!=null) {
+                addUnique(stored, entry.getValue());
+            }
+            else {
+                map.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
 
     /*
     <LexicalEntry id="clean_out">
@@ -181,331 +479,303 @@ public class WordnetLmfSaxParser extends DefaultHandler {
     <MonolingualExternalRef externalReference="dummy" externalSystem="Domain" />
     </MonolingualExternalRefs></Synset>
      */
-    public void startElement(String uri, String localName,
-                             String qName, Attributes attributes)
-            throws SAXException {
-
-        //<Lexicon label="Princeton WordNet 3.0" language="eng" languageCoding="ISO 639-3" owner="KYOTO project" version="3.0">
-
-        if (qName.equalsIgnoreCase("Lexicon")) {
-
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("label")) {
-                    wordnetData.setResource(attributes.getValue(i).trim());
-                } else if (attributes.getQName(i).equalsIgnoreCase("version")) {
-                    wordnetData.setVersion(attributes.getValue(i).trim());
-                }
-            }
-        }
-        else if (qName.equalsIgnoreCase("LexicalEntry")) {
-            entry = "";
-            pos = "";
-            synsets = new ArrayList<String>();
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("writtenForm")) {
-                    entry = attributes.getValue(i).trim();
-                }
-                else if (attributes.getQName(i).equalsIgnoreCase("partOfSpeech")) {
-                    pos = attributes.getValue(i).trim();
-                    pos = Pos.convertToShortPos(pos);
-
-                }
-            }
-        }
-        else if (qName.equalsIgnoreCase("Lemma")) {
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("writtenForm")) {
-                    entry = attributes.getValue(i).trim();
-                }
-                else if (attributes.getQName(i).equalsIgnoreCase("partOfSpeech")) {
-                    pos = attributes.getValue(i).trim();
-                    pos = Pos.convertToShortPos(pos);
-
-                }
-            }
-        }
-        else if (qName.equalsIgnoreCase("Sense")) {
-            String synsetId = "";
-            String lexicalUnitId = "";
-            String definition = "";
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("synset")) {
-                    synsetId = attributes.getValue(i).trim();
+    public void startElement(int element, WordnetXmlReader reader) {
+        String attribute;
+        switch (element) {
+            case LEXICON:
+                //<Lexicon label="Princeton WordNet 3.0" language="eng" languageCoding="ISO 639-3" owner="KYOTO project" version="3.0">
+                attribute = reader.getAttribute(A_LABEL);
+                if (attribute!=null) {
+                    wordnetData.setResource(attribute.trim());
+                }
+                attribute = reader.getAttribute(A_VERSION);
+                if (attribute!=null) {
+                    wordnetData.setVersion(attribute.trim());
+                }
+                break;
+            case LEXICAL_ENTRY:
+                openEntries++;
+                entry = "";
+                pos = "";
+                synsets.clear();
+                readEntryAttributes(reader);
+                break;
+            case LEMMA:
+                if (openEntries==0) contextDependent = true;
+                readEntryAttributes(reader);
+                break;
+            case SENSE:
+                if (openEntries==0) contextDependent = true;
+                String synsetId = "";
+                String lexicalUnitId = "";
+                attribute = reader.getAttribute(A_SYNSET);
+                if (attribute!=null) {
+                    synsetId = WordnetStringPool.intern(attribute.trim());
                     if (!synsetId.equalsIgnoreCase("unknown_000")) {
                         synsets.add(synsetId);
                         wordnetData.synsetArrayList.add(synsetId);
+                        if (indexBuilder!=null) indexBuilder.addSenseSynset(synsetId);
                     }
                 }
-                if (attributes.getQName(i).equalsIgnoreCase("senseId")) {
-                    lexicalUnitId = attributes.getValue(i).trim();
-                }
-                else if (attributes.getQName(i).equalsIgnoreCase("id")) {
-                    lexicalUnitId = attributes.getValue(i).trim();
-                }
-                if (attributes.getQName(i).equalsIgnoreCase("definition")) {
-                    definition = attributes.getValue(i).trim();
-                }
-            }
-            /*if (!synsetId.isEmpty() && !definition.isEmpty()) {
-                if (wordnetData.synsetToGlosses.containsKey(synsetId)) {
-                    ArrayList<String> defs = wordnetData.synsetToGlosses.get(synsetId);
-                    if (!defs.contains(definition)) {
-                        defs.add(definition);
-                        wordnetData.synsetToGlosses.put(synsetId, defs);
+                attribute = reader.getLastAttribute(A_SENSE_ID, A_ID);
+                if (attribute!=null) {
+                    lexicalUnitId = WordnetStringPool.intern(attribute.trim());
+                }
+                if (!synsetId.isEmpty() && !lexicalUnitId.isEmpty()) {
+                    if (indexBuilder!=null) indexBuilder.addLexicalUnit(synsetId, lexicalUnitId);
+                    if (wordnetData.synsetToLexicalUnits.containsKey(synsetId)) {
+                       ArrayList<String> lus = wordnetData.synsetToLexicalUnits.get(synsetId);
+                       if (!lus.contains(lexicalUnitId)) {
+                           lus.add(lexicalUnitId);
+                       }
+                    }
+                    else {
+                        ArrayList<String> lus = new ArrayList<String>(1);
+                        lus.add(lexicalUnitId);
+                        wordnetData.synsetToLexicalUnits.put(synsetId, lus);
                     }
-                } else {
-                    ArrayList<String> defs = new ArrayList<String>();
-                    defs.add(definition);
-                    wordnetData.synsetToGlosses.put(synsetId, defs);
                 }
-            }*/
-            if (!synsetId.isEmpty() && !lexicalUnitId.isEmpty()) {
-                if (wordnetData.synsetToLexicalUnits.containsKey(synsetId)) {
-                   ArrayList<String> lus = wordnetData.synsetToLexicalUnits.get(synsetId);
-                   if (!lus.contains(lexicalUnitId)) {
-                       lus.add(lexicalUnitId);
-                       wordnetData.synsetToLexicalUnits.put(synsetId, lus);
-                   }
+                if (!lexicalUnitId.isEmpty() && !entry.isEmpty()) {
+                    wordnetData.lexicalUnitsToLemmas.put(lexicalUnitId, entry);
                 }
-                else {
-                    ArrayList<String> lus = new ArrayList<String>();
-                    lus.add(lexicalUnitId);
-                    wordnetData.synsetToLexicalUnits.put(synsetId, lus);
-                }
-            }
-            if (!lexicalUnitId.isEmpty() && !entry.isEmpty()) {
-                wordnetData.lexicalUnitsToLemmas.put(lexicalUnitId, entry);
-            }
-        }
-        else if (qName.equalsIgnoreCase("Synset")) {
-            sourceId = "";
-            others = new ArrayList<String>();
-            hypers = new ArrayList<String>();
-            backupHypers = new ArrayList<String>();
-            directequivalences = new ArrayList<String>();
-            nearequivalences = new ArrayList<String>();
-            otherequivalences = new ArrayList<String>();
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("id")) {
-                    sourceId = attributes.getValue(i).trim();
-                }
-            }
-            if (!idFilter.isEmpty()) {
-                if (!sourceId.startsWith(idFilter)) {
-                   sourceId = "";
+                break;
+            case SYNSET:
+                openSynsets++;
+                sourceId = "";
+                clearSynset();
+                attribute = reader.getAttribute(A_ID);
+                if (attribute!=null) {
+                    sourceId = WordnetStringPool.intern(attribute.trim());
+                }
+                if (!idFilter.isEmpty()) {
+                    if (!sourceId.startsWith(idFilter)) {
+                       sourceId = "";
+                    }
                 }
-            }
+                break;
+            case DEFINITION:
+                if (openSynsets==0) contextDependent = true;
+                Gloss gloss = new Gloss();
+                attribute = reader.getAttribute(A_GLOSS);
+                if (attribute!=null) {
+                    gloss.setText(attribute.trim());
+                }
+                attribute = reader.getAttribute(A_LANGUAGE);
+                if (attribute!=null) {
+                    gloss.setLanguage(WordnetStringPool.intern(attribute.trim()));
+                }
+                attribute = reader.getAttribute(A_PROVENANCE);
+                if (attribute!=null) {
+                    gloss.setProvenance(WordnetStringPool.intern(attribute.trim()));
+                }
+                addGloss(sourceId, gloss);
+                break;
+            case SYNSET_RELATION:
+                addRelation(reader);
+                break;
+            case MONOLINGUAL_EXTERNAL_REF:
+                addEquivalence(reader);
+                break;
+            default:
+                break;
         }
-        else if (qName.equalsIgnoreCase("Definition")) {
-            Gloss gloss = new Gloss();
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("gloss")) {
-                    gloss.setText(attributes.getValue(i).trim());
-                }
-                else if (attributes.getQName(i).equalsIgnoreCase("language")) {
-                    gloss.setLanguage(attributes.getValue(i).trim());
-                }
-                else if (attributes.getQName(i).equalsIgnoreCase("provenance")) {
-                    gloss.setProvenance(attributes.getValue(i).trim());
-                }
-            }
-            if (wordnetData.synsetToGlosses.containsKey(sourceId)) {
-                ArrayList<Gloss> glosses = wordnetData.synsetToGlosses.get(sourceId);
-                glosses.add(gloss);
-                wordnetData.synsetToGlosses.put(sourceId, glosses);
-            }
-            else {
-                ArrayList<Gloss> glosses = new ArrayList<Gloss>();
-                glosses.add(gloss);
-                wordnetData.synsetToGlosses.put(sourceId, glosses);
+    }//--startElement
+
+    private void addHyperRelation (ArrayList<String> targetIds) {
+        wordnetData.addHyperRelation(sourceId, new ArrayList<String>(targetIds));
+        if (indexBuilder!=null) {
+            for (int i = 0; i < targetIds.size(); i++) {
+                indexBuilder.addHyperRelation(sourceId, targetIds.get(i));
             }
         }
-        else if (qName.equalsIgnoreCase("SynsetRelation")) {
-            type = "";
-            targetId = "";
-            String provenance = "";
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("target")) {
-                    targetId = attributes.getValue(i).trim();
-                }
-                else if (attributes.getQName(i).equalsIgnoreCase("targets")) {
-                    targetId = attributes.getValue(i).trim();
-                }
-                else if (attributes.getQName(i).equalsIgnoreCase("relType")) {
-                    type = attributes.getValue(i).trim();
-                }
-                else if (attributes.getQName(i).equalsIgnoreCase("provenance")) {
-                    provenance = attributes.getValue(i).trim();
-                }
+    }
 
-            }
-            if (provenanceFilter.isEmpty() || provenanceFilter.equalsIgnoreCase(provenance)) {
-                if (relations.size() == 0) {
-                    if (type.equalsIgnoreCase("hypernym")) {
-                        if (!targetId.isEmpty()) if (!hypers.contains(targetId)) hypers.add(targetId);
-                    } else if (type.equalsIgnoreCase("has_hypernym")) {
-                        if (!targetId.isEmpty()) if (!hypers.contains(targetId)) hypers.add(targetId);
-                    } else if (type.equalsIgnoreCase("has_hyperonym")) {
-                        if (!targetId.isEmpty()) if (!hypers.contains(targetId)) hypers.add(targetId);
-                    } else if (type.equalsIgnoreCase("near_synonym")) {
-                        if (!targetId.isEmpty()) if (!hypers.contains(targetId)) hypers.add(targetId);
-                    } else if (type.equalsIgnoreCase("eng_derivative")) {
-                        if (!targetId.isEmpty()) if (!others.contains(targetId)) others.add(targetId);
-                    } else if (type.equalsIgnoreCase("xpos_near_synonym")) {
-                        if (!targetId.isEmpty()) if (!others.contains(targetId)) others.add(targetId);
-                    } else if (type.equalsIgnoreCase("event")) {
-                        if (!targetId.isEmpty()) if (!others.contains(targetId)) others.add(targetId);
-                    } else if (type.equalsIgnoreCase("xpos_near_hyperonym")) {
-                        if (!targetId.isEmpty()) if (!others.contains(targetId)) others.add(targetId);
-                    } else if (type.equalsIgnoreCase("xpos_near_hypernym")) {
-                        if (!targetId.isEmpty()) if (!others.contains(targetId)) others.add(targetId);
-                    }
-                } else if (relations.contains(type) || relations.contains(type.toLowerCase())) {
-                 //   if (!type.equalsIgnoreCase("has_hyperonym") && !type.equalsIgnoreCase("xpos_near_synonym")) System.out.println("type = " + type);
-                    if (!targetId.isEmpty()) if (!hypers.contains(targetId)) hypers.add(targetId);
-                } else {
-                    if (!targetId.isEmpty()) if (!others.contains(targetId)) others.add(targetId);
+    /**
+     * Adds the values that are not in the list yet, with a set for the lookups if the list is long
+     * @param stored
+     * @param values
+     */
+    static void addUnique (ArrayList<String> stored, ArrayList<String> values) {
+        if (stored.size()*values.size()<=64) {
+            for (int i = 0; i < values.size(); i++) {
+                String s = values.get(i);
+                if (!stored.contains(s)) {
+                    stored.add(s);
                 }
             }
-            else {
-                if (relations.size() == 0) {
-                    if (type.equalsIgnoreCase("hypernym")) {
-                        if (!targetId.isEmpty()) if (!backupHypers.contains(targetId)) backupHypers.add(targetId);
-                    } else if (type.equalsIgnoreCase("has_hypernym")) {
-                        if (!targetId.isEmpty()) if (!backupHypers.contains(targetId)) backupHypers.add(targetId);
-                    } else if (type.equalsIgnoreCase("has_hyperonym")) {
-                        if (!targetId.isEmpty()) if (!backupHypers.contains(targetId)) backupHypers.add(targetId);
-                    } else if (type.equalsIgnoreCase("near_synonym")) {
-                        if (!targetId.isEmpty()) if (!backupHypers.contains(targetId)) backupHypers.add(targetId);
-                    }
-                } else if (relations.contains(type.toLowerCase()) || relations.contains(type)) {
-                    if (!targetId.isEmpty()) if (!backupHypers.contains(targetId)) backupHypers.add(targetId);
+        }
+        else {
+            HashSet<String> storedSet = new HashSet<String>(stored);
+            for (int i = 0; i < values.size(); i++) {
+                String s = values.get(i);
+                if (storedSet.add(s)) {
+                    stored.add(s);
                 }
             }
         }
-        else if (qName.equalsIgnoreCase("MonolingualExternalRef")) {
-
-            /*            <MonolingualExternalRef externalSystem="pwn-20"
-            externalReference="eng-20-05247300-n"
-            relType="EQ_NEAR_SYNONYM">
-            <Meta author="Irion Technologies"
-            date="20070622"
-            source="Irion Wordnet Aligner 1.0"
-            confidence="43"/>
-            </MonolingualExternalRef>*/
-            type = "";
-            targetId = "";
-            for (int i = 0; i < attributes.getLength(); i++) {
-                if (attributes.getQName(i).equalsIgnoreCase("externalReference")) {
-                    targetId = attributes.getValue(i).trim();
-                }
-                else if (attributes.getQName(i).equalsIgnoreCase("relType")) {
-                    type = attributes.getValue(i).trim();
-                }
+    }
 
-            }
+    private void readEntryAttributes (WordnetXmlReader reader) {
+        String attribute = reader.getAttribute(A_WRITTEN_FORM);
+        if (attribute!=null) {
+            entry = WordnetStringPool.intern(attribute.trim());
+        }
+        attribute = reader.getAttribute(A_PART_OF_SPEECH);
+        if (attribute!=null) {
+            pos = Pos.convertToShortPos(attribute.trim());
+        }
+    }
 
-            if (type.equalsIgnoreCase("eq_synonym")) {
-                    if (!targetId.isEmpty()) directequivalences.add(targetId);
-            }
-            else if (type.equalsIgnoreCase("eq_near_synonym")) {
-                if (!targetId.isEmpty()) nearequivalences.add(targetId);
-            }
-            else if (type.toLowerCase().startsWith("eq_")) {
-                if (!targetId.isEmpty()) otherequivalences.add(targetId);
+    private void addRelation (WordnetXmlReader reader) {
+        type = "";
+        targetId = "";
+        String provenance = "";
+        String attribute = reader.getLastAttribute(A_TARGET, A_TARGETS);
+        if (attribute!=null) {
+            targetId = WordnetStringPool.intern(attribute.trim());
+        }
+        attribute = reader.getAttribute(A_REL_TYPE);
+        if (attribute!=null) {
+            type = attribute.trim();
+        }
+        attribute = reader.getAttribute(A_PROVENANCE);
+        if (attribute!=null) {
+            provenance = attribute.trim();
+        }
+        if (targetId.isEmpty()) {
+            return;
+        }
+        if (provenanceFilter.isEmpty() || provenanceFilter.equalsIgnoreCase(provenance)) {
+            if (relations.size() == 0) {
+                if (type.equalsIgnoreCase("hypernym")
+                        || type.equalsIgnoreCase("has_hypernym")
+                        || type.equalsIgnoreCase("has_hyperonym")
+                        || type.equalsIgnoreCase("near_synonym")) {
+                    if (!hypers.contains(targetId)) hypers.add(targetId);
+                } else if (type.equalsIgnoreCase("eng_derivative")
+                        || type.equalsIgnoreCase("xpos_near_synonym")
+                        || type.equalsIgnoreCase("event")
+                        || type.equalsIgnoreCase("xpos_near_hyperonym")
+                        || type.equalsIgnoreCase("xpos_near_hypernym")) {
+                    if (!others.contains(targetId)) others.add(targetId);
+                }
+            } else if (relations.contains(type) || relations.contains(type.toLowerCase())) {
+                if (!hypers.contains(targetId)) hypers.add(targetId);
+            } else {
+                if (!others.contains(targetId)) others.add(targetId);
             }
-
         }
         else {
+            if (relations.size() == 0) {
+                if (type.equalsIgnoreCase("hypernym")
+                        || type.equalsIgnoreCase("has_hypernym")
+                        || type.equalsIgnoreCase("has_hyperonym")
+                        || type.equalsIgnoreCase("near_synonym")) {
+                    if (!backupHypers.contains(targetId)) backupHypers.add(targetId);
+                }
+            } else if (relations.contains(type.toLowerCase()) || relations.contains(type)) {
+                if (!backupHypers.contains(targetId)) backupHypers.add(targetId);
+            }
         }
-        value = "";
-
-    }//--startElement
-
+    }
 
-    public void endElement(String uri, String localName, String qName)
-            throws SAXException {
+    private void addEquivalence (WordnetXmlReader reader) {
+        /*            <MonolingualExternalRef externalSystem="pwn-20"
+        externalReference="eng-20-05247300-n"
+        relType="EQ_NEAR_SYNONYM">
+        <Meta author="Irion Technologies"
+        date="20070622"
+        source="Irion Wordnet Aligner 1.0"
+        confidence="43"/>
+        </MonolingualExternalRef>*/
+        type = "";
+        targetId = "";
+        String attribute = reader.getAttribute(A_EXTERNAL_REFERENCE);
+        if (attribute!=null) {
+            targetId = WordnetStringPool.intern(attribute.trim());
+        }
+        attribute = reader.getAttribute(A_REL_TYPE);
+        if (attribute!=null) {
+            type = attribute.trim();
+        }
+        if (targetId.isEmpty()) {
+            return;
+        }
+        if (type.equalsIgnoreCase("eq_synonym")) {
+            directequivalences.add(targetId);
+        }
+        else if (type.equalsIgnoreCase("eq_near_synonym")) {
+            nearequivalences.add(targetId);
+        }
+        else if (type.toLowerCase().startsWith("eq_")) {
+            otherequivalences.add(targetId);
+        }
+    }
 
+    /**
+     * The lists of a synset are reused for every synset, the data get a copy of the lists that are not empty
+     */
+    private void clearSynset () {
+        others.clear();
+        hypers.clear();
+        backupHypers.clear();
+        directequivalences.clear();
+        nearequivalences.clear();
+        otherequivalences.clear();
+    }
 
-        if (qName.equalsIgnoreCase("Synset")) {
+    public void endElement(int element, WordnetXmlReader reader) {
+        if (element==SYNSET) {
+            openSynsets--;
             if ((posFilter.isEmpty()) || sourceId.endsWith(posFilter)) {
                 /// we store all synsets that we find and build the full graph
-               // System.out.println("posFilter = " + posFilter);
-               // System.out.println("sourceId = " + sourceId);
-                if ((!sourceId.isEmpty()) && hypers.size()>0) {
-                    wordnetData.addHyperRelation(sourceId, hypers);
-                }
-                else if (!sourceId.isEmpty() && backupHypers.size()>0) {
-                    wordnetData.addHyperRelation(sourceId, backupHypers);
-                }
-                if ((!sourceId.isEmpty()) && others.size()>0) {
-                    wordnetData.addOtherRelations(sourceId, others);
-                }
-                if ((!sourceId.isEmpty()) && directequivalences.size()>0) {
-                    wordnetData.addSynsetToDirectEquiSynsets(sourceId, directequivalences);
-                }
-                if ((!sourceId.isEmpty()) && nearequivalences.size()>0) {
-                    wordnetData.addSynsetToNearEquiSynsets(sourceId, nearequivalences);
-                }
-                if ((!sourceId.isEmpty()) && otherequivalences.size()>0) {
-                    wordnetData.addSynsetToOtherEquiSynsets(sourceId, otherequivalences);
+                if (!sourceId.isEmpty()) {
+                    if (hypers.size()>0) {
+                        addHyperRelation(hypers);
+                    }
+                    else if (backupHypers.size()>0) {
+                        addHyperRelation(backupHypers);
+                    }
+                    if (others.size()>0) {
+                        wordnetData.addOtherRelations(sourceId, new ArrayList<String>(others));
+                    }
+                    if (directequivalences.size()>0) {
+                        wordnetData.addSynsetToDirectEquiSynsets(sourceId, new ArrayList<String>(directequivalences));
+                    }
+                    if (nearequivalences.size()>0) {
+                        wordnetData.addSynsetToNearEquiSynsets(sourceId, new ArrayList<String>(nearequivalences));
+                    }
+                    if (otherequivalences.size()>0) {
+                        wordnetData.addSynsetToOtherEquiSynsets(sourceId, new ArrayList<String>(otherequivalences));
+                    }
                 }
                 sourceId = "";
-                others = new ArrayList<String>();
-                hypers = new ArrayList<String>();
-                backupHypers = new ArrayList<String>();
-                directequivalences = new ArrayList<String>();
-                nearequivalences = new ArrayList<String>();
-                otherequivalences = new ArrayList<String>();
-
-
-    /*            if (wordnetData.getHyperRelations().size()%1000==0) {
-                    System.out.println("wordnetData.getHyperRelations().size() = " + wordnetData.getHyperRelations().size());
-                }*/
+                clearSynset();
             }
         }
-        else if (qName.equalsIgnoreCase("LexicalEntry")) {
+        else if (element==LEXICAL_ENTRY) {
+            openEntries--;
             if (!entry.isEmpty()) {
                 if ((posFilter.isEmpty()) || pos.isEmpty() || (pos.equalsIgnoreCase(posFilter))) {
-                    //System.out.println("pos = " + pos);
-                    //System.out.println("posFilter = " + posFilter);
-
-                    if (wordnetData.entryToSynsets.containsKey(entry)) {
-                        ArrayList<String> storedSynsets = wordnetData.entryToSynsets.get(entry);
-                        for (int i = 0; i < synsets.size(); i++) {
-                            String s = synsets.get(i);
-                            if (!storedSynsets.contains(s)) {
-                                storedSynsets.add(s);
-                            }
-                        }
-                       // System.out.println("storedSynsets = " + storedSynsets);
-                        wordnetData.entryToSynsets.put(entry, storedSynsets);
+                    ArrayList<String> storedSynsets = wordnetData.entryToSynsets.get(entry);
+                    if (storedSynsets!=null) {
+                        addUnique(storedSynsets, synsets);
                     }
                     else {
-                        wordnetData.entryToSynsets.put(entry, synsets);
+                        wordnetData.entryToSynsets.put(entry, new ArrayList<String>(synsets));
+                    }
+                    if (indexBuilder!=null) {
+                        for (int i = 0; i < synsets.size(); i++) {
+                            indexBuilder.addEntrySynset(entry, synsets.get(i));
+                        }
                     }
                 }
-                else {
-                  //  System.out.println("pos = " + pos);
-                }
-            }
-
-/*
-            if (wordnetData.entryToSynsets.size()%10000==0) {
-                System.out.println("wordnetData.entryToSynsets.size() = " + wordnetData.entryToSynsets.size());
-                //System.out.println("synsets = " + synsets.size());
             }
-*/
             entry = "";
-            synsets = new ArrayList<String>();
+            synsets.clear();
         }
     }
 
-    public void characters(char ch[], int start, int length)
-            throws SAXException {
-        value += new String(ch, start, length);
-        // System.out.println("tagValue:"+value);
-    }
     static public void main (String[] args) {
         //String pathToFile = args[0];
         // String pathToFile = "/Releases/wordnetsimilarity_v.0.1/resources/cornetto2.0.lmf.xml";
@@ -0,0 +1,496 @@
+package vu.wntools.wordnet;
+
+import vu.wntools.lmf.Gloss;
+import vu.wntools.util.Util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Binary snapshot of a loaded and indexed WordnetData.
+ *
+ * A snapshot is written once from a wordnet file and can then be loaded without XML parsing.
+ * WordnetLmfSaxParser.parseFile recognizes a snapshot by its header, so every tool that takes an LMF file also
+ * takes a snapshot. The pos and relation filters are applied when the snapshot is written, not when it is loaded.
+ * They are stored in the header, and a snapshot is not loaded by a parser with other filters (see read).
+ *
+ * The snapshot holds the maps of the data, not the synset graph: loaded data can still be changed, and the graph is
+ * built when the data is frozen or the graph is asked for, with the codec of the data.
+ *
+ * Layout (big-endian):
+ *   int MAGIC, int VERSION
+ *   filters: the pos filter as a string, int count and the relations as strings, a string is an int byte length and
+ *   the UTF-8 bytes
+ *   string pool: int count, per string an int byte length and the UTF-8 bytes
+ *   resource and version as pool references, the average noun, verb and adjective depth
+ *   synsetArrayList: int count, pool references
+ *   the relation and index maps in the order of LIST_MAPS: int keys, per key a reference, int count and references
+ *   lexicalUnitsToLemmas: int keys, per key the references of key and value
+ *   synsetToGlosses: int keys, per key a reference, int count and per gloss the references of text, language and provenance
+ *
+ * Every distinct string is stored once, so the loaded maps share their String objects. The ids and lemmas are also
+ * shared with the other wordnets through the WordnetStringPool.
+ * Loading skips the XML parsing, but the maps and lists are still built on the heap from the mapped file: for the
+ * English wordnet (a 20 MB snapshot) this takes around a second, about half the time of parsing the XML, not
+ * milliseconds. With lazy glosses the glosses go to a GlossStore instead of synsetToGlosses.
+ */
+public class WordnetSnapshot {
+
+    static public final int MAGIC = 0x574e5350;
+    static public final int VERSION = 2;
+    static final Charset UTF8 = Charset.forName("UTF-8");
+    static final String [] LIST_MAPS = {"hyperRelations", "otherRelations", "entryToSynsets", "lemmaToSynsets",
+            "lexicalUnitsToSynsets", "synsetToLexicalUnits", "synsetToDirectEquiSynsets", "synsetToNearEquiSynsets",
+            "synsetToOtherEquiSynsets", "synsetToEntries", "childRelations"};
+
+    static final String usage = "\n" +
+            "   Writes a binary snapshot of a wordnet that can be given to --lmf-file or --wn-lmf instead of the xml file\n" +
+            "   Choose one of the 3 options to load a wordnet file\n" +
+            "   --gwg-file      <path to wordnet file in global wordnet grid format\n" +
+            "   --lmf-file      <path to wordnet file in lmf format\n" +
+            "   --cdb-file      <path to wordnet file in Cornetto export synset format\n" +
+            "   --pos           <optional part-of-speech filter, values: n, v, a\n" +
+            "   --relations     <optional file with relations used for the hiearchy\n"+
+            "   --snapshot      <path to the snapshot file that is written\n";
+
+    static public void main (String[] args) {
+        String wnformat = "";
+        String pathToWordnetFile = "";
+        String pathToRelFile = "";
+        String pathToSnapshot = "";
+        String posFilter = "";
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ((arg.equalsIgnoreCase("--gwg-file") || arg.equalsIgnoreCase("--lmf-file") || arg.equalsIgnoreCase("--cdb-file"))
+                    && args.length>i+1) {
+                pathToWordnetFile = args[i+1];
+                wnformat = arg;
+            }
+            else if ((arg.equalsIgnoreCase("--pos")) && args.length>i+1) {
+                posFilter = args[i+1];
+            }
+            else if ((arg.equalsIgnoreCase("--relations")) && args.length>i+1) {
+                pathToRelFile = args[i+1];
+            }
+            else if ((arg.equalsIgnoreCase("--snapshot")) && args.length>i+1) {
+                pathToSnapshot = args[i+1];
+            }
+        }
+        if (pathToWordnetFile.isEmpty() || pathToSnapshot.isEmpty()) {
+            System.out.println(usage);
+            return;
+        }
+        ArrayList<String> relations = new ArrayList<String>();
+        if (!pathToRelFile.isEmpty()) {
+            relations = Util.readRelationsFile(pathToRelFile);
+        }
+        WordnetData wordnetData = null;
+        if (wnformat.equalsIgnoreCase("--cdb-file")) {
+            CdbSynSaxParser parser = new CdbSynSaxParser();
+            if (relations.size()>0) parser.setRelations(relations);
+            if (!posFilter.isEmpty()) parser.setPos(posFilter);
+            parser.parseFile(pathToWordnetFile);
+            wordnetData = parser.wordnetData;
+        }
+        else if (wnformat.equalsIgnoreCase("--gwg-file")) {
+            PwnSaxParser parser = new PwnSaxParser();
+            if (relations.size()>0) parser.setRelations(relations);
+            if (!posFilter.isEmpty()) parser.setPos(posFilter);
+            parser.parseFile(pathToWordnetFile);
+            wordnetData = parser.wordnetData;
+        }
+        else {
+            WordnetLmfSaxParser parser = new WordnetLmfSaxParser();
+            if (relations.size()>0) parser.setRelations(relations);
+            if (!posFilter.isEmpty()) parser.setPos(posFilter);
+            parser.parseFile(pathToWordnetFile);
+            wordnetData = parser.wordnetData;
+        }
+        wordnetData.buildSynsetIndex();
+        wordnetData.buildLexicalUnitIndex();
+        try {
+            write(wordnetData, pathToSnapshot, posFilter, relations);
+            System.out.println("Wrote snapshot = " + pathToSnapshot);
+            System.out.println("synsets = " + wordnetData.synsetArrayList.size());
+            System.out.println("entries = " + wordnetData.entryToSynsets.size());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @param filePath
+     * @return true if the file starts with the snapshot header
+     */
+    static public boolean isSnapshot (String filePath) {
+        File file = new File(filePath);
+        if (!file.isFile() || file.length()<8) {
+            return false;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try {
+                return in.readInt()==MAGIC;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes a snapshot of data that was read without filters
+     * @param wordnetData
+     * @param filePath
+     * @throws IOException
+     */
+    static public void write (WordnetData wordnetData, String filePath) throws IOException {
+        write(wordnetData, filePath, "", new ArrayList<String>());
+    }
+
+    /**
+     * @param wordnetData
+     * @param filePath
+     * @param posFilter pos filter with which the data was read, empty for none
+     * @param relations relations with which the data was read, empty for all
+     * @throws IOException
+     */
+    static public void write (WordnetData wordnetData, String filePath, String posFilter, ArrayList<String> relations)
+            throws IOException {
+        HashMap<String, Integer> refs = new HashMap<String, Integer>();
+        ArrayList<String> pool = new ArrayList<String>();
+        addString(refs, pool, wordnetData.getResource());
+        addString(refs, pool, wordnetData.getVersion());
+        addStrings(refs, pool, wordnetData.synsetArrayList);
+        for (int i = 0; i < LIST_MAPS.length; i++) {
+            HashMap<String, ArrayList<String>> map = getListMap(wordnetData, LIST_MAPS[i]);
+            Set keySet = map.keySet();
+            Iterator<String> keys = keySet.iterator();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                addString(refs, pool, key);
+                addStrings(refs, pool, map.get(key));
+            }
+        }
+        Set keySet = wordnetData.lexicalUnitsToLemmas.keySet();
+        Iterator<String> keys = keySet.iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            addString(refs, pool, key);
+            addString(refs, pool, wordnetData.lexicalUnitsToLemmas.get(key));
+        }
+        /// with the glosses of the gloss store, if the data has one
+        Set<String> glossKeys = wordnetData.getSynsetsWithGlosses();
+        keys = glossKeys.iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            addString(refs, pool, key);
+            ArrayList<Gloss> glosses = wordnetData.getGlosses(key);
+            for (int i = 0; i < glosses.size(); i++) {
+                Gloss gloss = glosses.get(i);
+                addString(refs, pool, gloss.getText());
+                addString(refs, pool, gloss.getLanguage());
+                addString(refs, pool, gloss.getProvenance());
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, posFilter);
+            out.writeInt(relations.size());
+            for (int i = 0; i < relations.size(); i++) {
+                writeString(out, relations.get(i));
+            }
+            out.writeInt(pool.size());
+            for (int i = 0; i < pool.size(); i++) {
+                writeString(out, pool.get(i));
+            }
+            out.writeInt(refs.get(wordnetData.getResource()));
+            out.writeInt(refs.get(wordnetData.getVersion()));
+            out.writeInt(wordnetData.getnAverageNounDepth());
+            out.writeInt(wordnetData.getnAverageVerbDepth());
+            out.writeInt(wordnetData.getnAverageAdjectiveDepth());
+            writeList(out, refs, wordnetData.synsetArrayList);
+            for (int i = 0; i < LIST_MAPS.length; i++) {
+                HashMap<String, ArrayList<String>> map = getListMap(wordnetData, LIST_MAPS[i]);
+                out.writeInt(map.size());
+                keySet = map.keySet();
+                keys = keySet.iterator();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    out.writeInt(refs.get(key));
+                    writeList(out, refs, map.get(key));
+                }
+            }
+            out.writeInt(wordnetData.lexicalUnitsToLemmas.size());
+            keySet = wordnetData.lexicalUnitsToLemmas.keySet();
+            keys = keySet.iterator();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                out.writeInt(refs.get(key));
+                out.writeInt(refs.get(wordnetData.lexicalUnitsToLemmas.get(key)));
+            }
+            out.writeInt(glossKeys.size());
+            keys = glossKeys.iterator();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                ArrayList<Gloss> glosses = wordnetData.getGlosses(key);
+                out.writeInt(refs.get(key));
+                out.writeInt(glosses.size());
+                for (int i = 0; i < glosses.size(); i++) {
+                    Gloss gloss = glosses.get(i);
+                    out.writeInt(refs.get(gloss.getText()));
+                    out.writeInt(refs.get(gloss.getLanguage()));
+                    out.writeInt(refs.get(gloss.getProvenance()));
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Loads a snapshot through a memory-mapped file channel, whatever filters it was written with
+     * @param filePath
+     * @return WordnetData
+     * @throws IOException if the file is not a snapshot or has an unsupported version
+     */
+    static public WordnetData read (String filePath) throws IOException {
+        return read(filePath, null, null);
+    }
+
+    /**
+     * Loads a snapshot through a memory-mapped file channel if it was written with the same filters as those of the
+     * reader. The relations are compared without their order.
+     * @param filePath
+     * @param posFilter pos filter of the reader, empty for none, null to accept any
+     * @param relations relations of the reader, empty for all, null to accept any
+     * @return WordnetData
+     * @throws IOException if the file is not a snapshot, has an unsupported version or other filters
+     */
+    static public WordnetData read (String filePath, String posFilter, ArrayList<String> relations)
+            throws IOException {
+        return read(filePath, posFilter, relations, false);
+    }
+
+    /**
+     * Loads a snapshot as read(filePath, posFilter, relations) does
+     * @param filePath
+     * @param posFilter pos filter of the reader, empty for none, null to accept any
+     * @param relations relations of the reader, empty for all, null to accept any
+     * @param lazyGlosses true to keep the glosses in a GlossStore instead of synsetToGlosses
+     * @return WordnetData
+     * @throws IOException if the file is not a snapshot, has an unsupported version or other filters
+     */
+    static public WordnetData read (String filePath, String posFilter, ArrayList<String> relations,
+                                    boolean lazyGlosses) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(filePath, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt()!=MAGIC) {
+                throw new IOException("Not a wordnet snapshot: " + filePath);
+            }
+            int version = buffer.getInt();
+            if (version!=VERSION) {
+                throw new IOException("Unsupported wordnet snapshot version " + version + " in " + filePath);
+            }
+            String snapshotPos = readString(buffer);
+            ArrayList<String> snapshotRelations = new ArrayList<String>();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                snapshotRelations.add(readString(buffer));
+            }
+            if ((posFilter!=null && !posFilter.equalsIgnoreCase(snapshotPos))
+                    || (relations!=null && !new HashSet<String>(relations).equals(new HashSet<String>(snapshotRelations)))) {
+                throw new IOException("The wordnet snapshot " + filePath + " was written with pos filter \"" + snapshotPos
+                        + "\" and relations " + snapshotRelations + ", not with pos filter \"" + posFilter
+                        + "\" and relations " + relations + ": write a snapshot with these filters or read the wordnet file");
+            }
+            String [] pool = new String[buffer.getInt()];
+            byte [] bytes = new byte[256];
+            for (int i = 0; i < pool.length; i++) {
+                int length = buffer.getInt();
+                if (length>bytes.length) {
+                    bytes = new byte[Math.max(length, bytes.length*2)];
+                }
+                buffer.get(bytes, 0, length);
+                pool[i] = decode(bytes, length);
+            }
+            WordnetData wordnetData = new WordnetData();
+            wordnetData.setResource(pool[buffer.getInt()]);
+            wordnetData.setVersion(pool[buffer.getInt()]);
+            wordnetData.setnAverageNounDepth(buffer.getInt());
+            wordnetData.setnAverageVerbDepth(buffer.getInt());
+            wordnetData.setnAverageAdjectiveDepth(buffer.getInt());
+            wordnetData.synsetArrayList = readList(buffer, pool);
+            for (int i = 0; i < LIST_MAPS.length; i++) {
+                int n = buffer.getInt();
+                HashMap<String, ArrayList<String>> map = new HashMap<String, ArrayList<String>>(capacity(n));
+                for (int j = 0; j < n; j++) {
+                    String key = shared(pool, buffer.getInt());
+                    map.put(key, readList(buffer, pool));
+                }
+                setListMap(wordnetData, LIST_MAPS[i], map);
+            }
+            int n = buffer.getInt();
+            wordnetData.lexicalUnitsToLemmas = new HashMap<String, String>(capacity(n));
+            for (int j = 0; j < n; j++) {
+                String key = shared(pool, buffer.getInt());
+                wordnetData.lexicalUnitsToLemmas.put(key, shared(pool, buffer.getInt()));
+            }
+            n = buffer.getInt();
+            GlossStore glossStore = null;
+            if (lazyGlosses) {
+                try {
+                    glossStore = new GlossStore();
+                } catch (IOException e) {
+                    /// the glosses go to synsetToGlosses
+                    e.printStackTrace();
+                }
+            }
+            try {
+                wordnetData.synsetToGlosses = new HashMap<String, ArrayList<Gloss>>(glossStore==null ? capacity(n) : 16);
+                for (int j = 0; j < n; j++) {
+                    String key = shared(pool, buffer.getInt());
+                    int nGlosses = buffer.getInt();
+                    ArrayList<Gloss> glosses = new ArrayList<Gloss>(nGlosses);
+                    for (int k = 0; k < nGlosses; k++) {
+                        Gloss gloss = new Gloss();
+                        gloss.setText(pool[buffer.getInt()]);
+                        gloss.setLanguage(shared(pool, buffer.getInt()));
+                        gloss.setProvenance(shared(pool, buffer.getInt()));
+                        if (glossStore!=null) {
+                            glossStore.add(key, gloss);
+                        }
+                        else {
+                            glosses.add(gloss);
+                        }
+                    }
+                    if (glossStore==null) {
+                        wordnetData.synsetToGlosses.put(key, glosses);
+                    }
+                }
+                if (glossStore!=null) {
+                    glossStore.finish();
+                    wordnetData.setGlossStore(glossStore);
+                    glossStore = null;
+                }
+            } finally {
+                if (glossStore!=null) {
+                    glossStore.close();
+                }
+            }
+            wordnetData.invalidateSynsetGraph();
+            return wordnetData;
+        } finally {
+            file.close();
+        }
+    }
+
+    static HashMap<String, ArrayList<String>> getListMap (WordnetData wordnetData, String name) {
+        if (name.equals("hyperRelations")) return wordnetData.hyperRelations;
+        if (name.equals("otherRelations")) return wordnetData.otherRelations;
+        if (name.equals("entryToSynsets")) return wordnetData.entryToSynsets;
+        if (name.equals("lemmaToSynsets")) return wordnetData.lemmaToSynsets;
+        if (name.equals("lexicalUnitsToSynsets")) return wordnetData.lexicalUnitsToSynsets;
+        if (name.equals("synsetToLexicalUnits")) return wordnetData.synsetToLexicalUnits;
+        if (name.equals("synsetToDirectEquiSynsets")) return wordnetData.synsetToDirectEquiSynsets;
+        if (name.equals("synsetToNearEquiSynsets")) return wordnetData.synsetToNearEquiSynsets;
+        if (name.equals("synsetToOtherEquiSynsets")) return wordnetData.synsetToOtherEquiSynsets;
+        if (name.equals("synsetToEntries")) return wordnetData.synsetToEntries;
+        return wordnetData.childRelations;
+    }
+
+    static void setListMap (WordnetData wordnetData, String name, HashMap<String, ArrayList<String>> map) {
+        if (name.equals("hyperRelations")) wordnetData.hyperRelations = map;
+        else if (name.equals("otherRelations")) wordnetData.otherRelations = map;
+        else if (name.equals("entryToSynsets")) wordnetData.entryToSynsets = map;
+        else if (name.equals("lemmaToSynsets")) wordnetData.lemmaToSynsets = map;
+        else if (name.equals("lexicalUnitsToSynsets")) wordnetData.lexicalUnitsToSynsets = map;
+        else if (name.equals("synsetToLexicalUnits")) wordnetData.synsetToLexicalUnits = map;
+        else if (name.equals("synsetToDirectEquiSynsets")) wordnetData.synsetToDirectEquiSynsets = map;
+        else if (name.equals("synsetToNearEquiSynsets")) wordnetData.synsetToNearEquiSynsets = map;
+        else if (name.equals("synsetToOtherEquiSynsets")) wordnetData.synsetToOtherEquiSynsets = map;
+        else if (name.equals("synsetToEntries")) wordnetData.synsetToEntries = map;
+        else wordnetData.childRelations = map;
+    }
+
+    static void addString (HashMap<String, Integer> refs, ArrayList<String> pool, String s) {
+        if (!refs.containsKey(s)) {
+            refs.put(s, pool.size());
+            pool.add(s);
+        }
+    }
+
+    static void addStrings (HashMap<String, Integer> refs, ArrayList<String> pool, ArrayList<String> strings) {
+        for (int i = 0; i < strings.size(); i++) {
+            addString(refs, pool, strings.get(i));
+        }
+    }
+
+    static void writeString (DataOutputStream out, String s) throws IOException {
+        byte [] bytes = s.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString (ByteBuffer buffer) {
+        byte [] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    static void writeList (DataOutputStream out, HashMap<String, Integer> refs, ArrayList<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (int i = 0; i < strings.size(); i++) {
+            out.writeInt(refs.get(strings.get(i)));
+        }
+    }
+
+    static ArrayList<String> readList (ByteBuffer buffer, String [] pool) {
+        int n = buffer.getInt();
+        ArrayList<String> strings = new ArrayList<String>(n);
+        for (int i = 0; i < n; i++) {
+            strings.add(shared(pool, buffer.getInt()));
+        }
+        return strings;
+    }
+
+    /**
+     * Ids and lemmas go to the WordnetStringPool when they are first used, gloss texts are not pooled
+     */
+    static String shared (String [] pool, int ref) {
+        String s = WordnetStringPool.intern(pool[ref]);
+        pool[ref] = s;
+        return s;
+    }
+
+    /**
+     * Most ids and lemmas are plain ASCII, which is copied directly instead of going through the UTF-8 decoder
+     */
+    static String decode (byte [] bytes, int length) {
+        char [] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            if (bytes[i]<0) {
+                return new String(bytes, 0, length, UTF8);
+            }
+            chars[i] = (char) bytes[i];
+        }
+        return new String(chars);
+    }
+
+    static int capacity (int n) {
+        return Math.max(16, (int) (n/0.75f)+1);
+    }
+}
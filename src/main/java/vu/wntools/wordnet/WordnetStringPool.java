@@ -0,0 +1,89 @@
+package vu.wntools.wordnet;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Strings that are shared by all wordnets loaded in the JVM.
+ *
+ * The parsers and readers pass the synset ids, lexical unit ids, lemmas and relation targets they read through the
+ * pool, so an id or lemma is stored once however often it occurs in a file and however many wordnets use it, e.g. the
+ * PWN ids of a PWN file and of the equivalences of the other wordnets. Glosses are not pooled, they hardly repeat.
+ *
+ * The pool only holds its strings weakly: a string is freed when no wordnet uses it any more, so the pool does not
+ * keep the strings of wordnets that were dropped. The pool can be used by several threads at the same time, e.g. by
+ * the chunks of a parallel parse: it is split into segments with a lock each, chosen by the hash of the string.
+ */
+public class WordnetStringPool {
+
+    private static final int SEGMENTS = 64;
+    private static final Segment [] segments = new Segment[SEGMENTS];
+    static {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+    private static volatile boolean enabled = true;
+
+    /// the values are weak as well, a strong value would keep its own key
+    private static class Segment extends WeakHashMap<String, WeakReference<String>> {
+    }
+
+    /**
+     * @param s
+     * @return the pooled string equal to s, s itself if it is new, null or the pool is switched off
+     */
+    public static String intern (String s) {
+        if (s==null || !enabled) {
+            return s;
+        }
+        int hash = s.hashCode();
+        Segment segment = segments[(hash ^ (hash>>>16)) & (SEGMENTS-1)];
+        synchronized (segment) {
+            WeakReference<String> reference = segment.get(s);
+            String pooled = reference==null ? null : reference.get();
+            if (pooled==null) {
+                pooled = s;
+                segment.put(s, new WeakReference<String>(s));
+            }
+            return pooled;
+        }
+    }
+
+    /**
+     * Switches the pool on or off for the strings that are read after the call, e.g. off for a tool that loads a
+     * single wordnet and does not need to share its strings
+     * @param on
+     */
+    public static void setEnabled (boolean on) {
+        enabled = on;
+    }
+
+    public static boolean isEnabled () {
+        return enabled;
+    }
+
+    /**
+     * @return the number of strings in the pool, including those that were freed but not yet removed
+     */
+    public static int size () {
+        int size = 0;
+        for (int i = 0; i < SEGMENTS; i++) {
+            synchronized (segments[i]) {
+                size += segments[i].size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Empties the pool, which does not change the wordnets that were loaded
+     */
+    public static void clear () {
+        for (int i = 0; i < SEGMENTS; i++) {
+            synchronized (segments[i]) {
+                segments[i].clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,551 @@
+package vu.wntools.wordnet;
+
+import vu.wntools.lmf.Gloss;
+
+import java.util.*;
+
+/**
+ * A batch of changes to a wordnet: synsets, lexical entries and hypernym and other relations that are added or removed.
+ *
+ * The changes are applied in the order in which they were given by WordnetData.update or LiveWordnet.update, which
+ * make a new frozen copy of the data and leave the data that was updated as it is. Only the maps and lists that
+ * change are copied, and the derived indexes (synset, lexical unit and lemma index) are changed for the keys that are
+ * touched instead of being built again. The relations are stored in a synset graph that is made from the previous one
+ * with the changed rows. Relations that are added come at the end of the lists.
+ */
+public class WordnetUpdate {
+
+    private static final int ADD_SYNSET = 0;
+    private static final int REMOVE_SYNSET = 1;
+    private static final int ADD_ENTRY = 2;
+    private static final int REMOVE_ENTRY = 3;
+    private static final int ADD_HYPER = 4;
+    private static final int REMOVE_HYPER = 5;
+    private static final int ADD_OTHER = 6;
+    private static final int REMOVE_OTHER = 7;
+
+    private final ArrayList<Edit> edits = new ArrayList<Edit>();
+
+    /**
+     * Adds the synset to the synset list if it is not in it
+     * @param synsetId
+     */
+    public void addSynset (String synsetId) {
+        edits.add(new Edit(ADD_SYNSET, synsetId, null));
+    }
+
+    /**
+     * Removes the synset from the synset list, the lexical entries, the hypernym and other relations (also where it is
+     * the target), the lexical units, the glosses and the equivalences. Entries without synsets are removed, and so are
+     * the lemmas of lexical units without synsets.
+     * @param synsetId
+     */
+    public void removeSynset (String synsetId) {
+        edits.add(new Edit(REMOVE_SYNSET, synsetId, null));
+    }
+
+    /**
+     * Adds a sense: the synset is added to the synsets of the entry and to the synset list if it is not in it
+     * @param entry
+     * @param synsetId
+     */
+    public void addEntry (String entry, String synsetId) {
+        edits.add(new Edit(ADD_ENTRY, entry, synsetId));
+    }
+
+    /**
+     * Removes a sense, the synset stays in the synset list
+     * @param entry
+     * @param synsetId
+     */
+    public void removeEntry (String entry, String synsetId) {
+        edits.add(new Edit(REMOVE_ENTRY, entry, synsetId));
+    }
+
+    /**
+     * Removes the entry with all its senses
+     * @param entry
+     */
+    public void removeEntry (String entry) {
+        edits.add(new Edit(REMOVE_ENTRY, entry, null));
+    }
+
+    public void addHyperRelation (String synsetId, String hyperId) {
+        edits.add(new Edit(ADD_HYPER, synsetId, hyperId));
+    }
+
+    public void removeHyperRelation (String synsetId, String hyperId) {
+        edits.add(new Edit(REMOVE_HYPER, synsetId, hyperId));
+    }
+
+    public void addOtherRelation (String synsetId, String targetId) {
+        edits.add(new Edit(ADD_OTHER, synsetId, targetId));
+    }
+
+    public void removeOtherRelation (String synsetId, String targetId) {
+        edits.add(new Edit(REMOVE_OTHER, synsetId, targetId));
+    }
+
+    public int size () {
+        return edits.size();
+    }
+
+    private static class Edit {
+        final int operation;
+        final String source;
+        final String target;
+
+        Edit (int operation, String source, String target) {
+            this.operation = operation;
+            this.source = source;
+            this.target = target;
+        }
+    }
+
+    /**
+     * What an update changed in the synset graph
+     */
+    static class Changes {
+        /// ids of the previous graph that are no longer in the data
+        final HashSet<String> removed = new HashSet<String>();
+        /// ids that are new in the data
+        final HashSet<String> added = new HashSet<String>();
+        final HashSet<String> hyperChanged = new HashSet<String>();
+        /// hypernyms and other relations of the synsets of which they changed, null or empty if they have none left
+        HashMap<String, ArrayList<String>> hyperRows;
+        HashMap<String, ArrayList<String>> otherRows;
+        /// synsets of which the glosses were removed
+        final HashSet<String> glossesRemoved = new HashSet<String>();
+    }
+
+    /**
+     * Applies the changes to the maps of data and stores the changed maps in result, the other maps are shared. The
+     * relations are not stored in result but in the changes, they are read from the synset graph that is made from them
+     * @param data frozen data with a synset graph
+     * @param result
+     * @return the changes for the synset graph
+     */
+    Changes apply (WordnetData data, WordnetData result) {
+        MapChanges<String> hypers = new MapChanges<String>(data.hyperRelations);
+        MapChanges<String> children = new MapChanges<String>(data.childRelations);
+        MapChanges<String> others = new MapChanges<String>(data.otherRelations);
+        MapChanges<String> entries = new MapChanges<String>(data.entryToSynsets);
+        MapChanges<String> synsetEntries = new MapChanges<String>(data.synsetToEntries);
+        MapChanges<String> lemmas = new MapChanges<String>(data.lemmaToSynsets);
+        MapChanges<String> synsetLexicalUnits = new MapChanges<String>(data.synsetToLexicalUnits);
+        MapChanges<String> lexicalUnits = new MapChanges<String>(data.lexicalUnitsToSynsets);
+        MapChanges<String> directEquivalences = new MapChanges<String>(data.synsetToDirectEquiSynsets);
+        MapChanges<String> nearEquivalences = new MapChanges<String>(data.synsetToNearEquiSynsets);
+        MapChanges<String> otherEquivalences = new MapChanges<String>(data.synsetToOtherEquiSynsets);
+        MapChanges<Gloss> glosses = new MapChanges<Gloss>(data.synsetToGlosses);
+        /// lexical units without synsets, null as value
+        HashMap<String, String> removedLemmas = new HashMap<String, String>();
+        SynsetList synsets = new SynsetList(data.synsetArrayList);
+        Changes changes = new Changes();
+        HashSet<String> touched = new HashSet<String>();
+        HashSet<String> changedLemmas = new HashSet<String>();
+        /// sources by target of the other relations, made for the first synset that is removed
+        HashMap<String, ArrayList<String>> otherSources = null;
+        for (int i = 0; i < edits.size(); i++) {
+            Edit edit = edits.get(i);
+            String source = edit.source;
+            String target = edit.target;
+            switch (edit.operation) {
+                case ADD_SYNSET:
+                    if (synsets.add(source)) {
+                        changedLemmas.addAll(synsetEntries.values(source));
+                    }
+                    touched.add(source);
+                    break;
+                case REMOVE_SYNSET:
+                    synsets.remove(source);
+                    for (String entry : synsetEntries.values(source)) {
+                        entries.remove(entry, source);
+                        changedLemmas.add(entry);
+                    }
+                    synsetEntries.remove(source);
+                    for (String hyper : hypers.values(source)) {
+                        children.remove(hyper, source);
+                        touched.add(hyper);
+                    }
+                    hypers.remove(source);
+                    for (String child : children.values(source)) {
+                        hypers.remove(child, source);
+                        changes.hyperChanged.add(child);
+                        touched.add(child);
+                    }
+                    children.remove(source);
+                    if (otherSources==null) {
+                        otherSources = invert(others);
+                    }
+                    for (String targetId : others.values(source)) {
+                        otherSources.get(targetId).remove(source);
+                        touched.add(targetId);
+                    }
+                    others.remove(source);
+                    ArrayList<String> sources = otherSources.remove(source);
+                    for (int j = 0; sources!=null && j < sources.size(); j++) {
+                        others.remove(sources.get(j), source);
+                        touched.add(sources.get(j));
+                    }
+                    for (String lexicalUnit : synsetLexicalUnits.values(source)) {
+                        lexicalUnits.remove(lexicalUnit, source);
+                        if (lexicalUnits.values(lexicalUnit).isEmpty()) {
+                            if (data.lexicalUnitsToLemmas.containsKey(lexicalUnit)) {
+                                removedLemmas.put(lexicalUnit, null);
+                            }
+                        }
+                    }
+                    synsetLexicalUnits.remove(source);
+                    directEquivalences.remove(source);
+                    nearEquivalences.remove(source);
+                    otherEquivalences.remove(source);
+                    glosses.remove(source);
+                    changes.glossesRemoved.add(source);
+                    /// in case it is added again later in the batch
+                    changes.hyperChanged.add(source);
+                    touched.add(source);
+                    break;
+                case ADD_ENTRY:
+                    entries.add(source, target);
+                    synsetEntries.add(target, source);
+                    if (synsets.add(target)) {
+                        changedLemmas.addAll(synsetEntries.values(target));
+                    }
+                    changedLemmas.add(source);
+                    touched.add(target);
+                    break;
+                case REMOVE_ENTRY:
+                    for (String synsetId : entries.values(source)) {
+                        if (target==null || target.equals(synsetId)) {
+                            entries.remove(source, synsetId);
+                            synsetEntries.remove(synsetId, source);
+                            touched.add(synsetId);
+                        }
+                    }
+                    if (target==null) {
+                        entries.remove(source);
+                    }
+                    changedLemmas.add(source);
+                    break;
+                case ADD_HYPER:
+                case REMOVE_HYPER:
+                    boolean hyperChanged = edit.operation==ADD_HYPER ? hypers.add(source, target) : hypers.remove(source, target);
+                    if (hyperChanged) {
+                        if (edit.operation==ADD_HYPER) {
+                            children.add(target, source);
+                        }
+                        else {
+                            children.remove(target, source);
+                        }
+                        changes.hyperChanged.add(source);
+                        touched.add(source);
+                        touched.add(target);
+                    }
+                    break;
+                case ADD_OTHER:
+                case REMOVE_OTHER:
+                    boolean otherChanged = edit.operation==ADD_OTHER ? others.add(source, target) : others.remove(source, target);
+                    if (otherChanged) {
+                        if (otherSources!=null) {
+                            if (edit.operation==ADD_OTHER) {
+                                add(otherSources, target, source);
+                            }
+                            else {
+                                otherSources.get(target).remove(source);
+                            }
+                        }
+                        touched.add(source);
+                        touched.add(target);
+                    }
+                    break;
+            }
+        }
+        result.synsetArrayList = synsets.result();
+        result.entryToSynsets = entries.result();
+        result.synsetToEntries = synsetEntries.result();
+        /// frozen data has a lemma index if it has a synset list
+        if (data.synsetArrayList.isEmpty() && !result.synsetArrayList.isEmpty()) {
+            lemmas = new MapChanges<String>(WordnetIndexBuilder.buildLemmaIndex(
+                    new LinkedHashSet<String>(result.synsetArrayList), result.synsetToEntries));
+        }
+        else if (!data.synsetArrayList.isEmpty()) {
+            updateLemmas(lemmas, changedLemmas, result, synsets);
+        }
+        result.lemmaToSynsets = lemmas.result();
+        result.synsetToLexicalUnits = synsetLexicalUnits.result();
+        result.lexicalUnitsToSynsets = lexicalUnits.result();
+        if (!removedLemmas.isEmpty()) {
+            result.lexicalUnitsToLemmas = new ReadOnlyMap<String, String>(data.lexicalUnitsToLemmas, removedLemmas,
+                    WordnetData.READ_ONLY);
+        }
+        result.synsetToDirectEquiSynsets = directEquivalences.result();
+        result.synsetToNearEquiSynsets = nearEquivalences.result();
+        result.synsetToOtherEquiSynsets = otherEquivalences.result();
+        result.synsetToGlosses = glosses.result();
+        changes.hyperRows = hypers.changes();
+        changes.otherRows = others.changes();
+        if (otherSources==null) {
+            otherSources = invert(others);
+        }
+        classify(data, result, hypers, children, others, otherSources, touched, synsets, changes);
+        return changes;
+    }
+
+    private static HashMap<String, ArrayList<String>> invert (MapChanges<String> relations) {
+        HashMap<String, ArrayList<String>> sources = new HashMap<String, ArrayList<String>>();
+        for (String synsetId : relations.keys()) {
+            ArrayList<String> targets = relations.get(synsetId);
+            for (int i = 0; targets!=null && i < targets.size(); i++) {
+                add(sources, targets.get(i), synsetId);
+            }
+        }
+        return sources;
+    }
+
+    private static void add (HashMap<String, ArrayList<String>> map, String key, String value) {
+        ArrayList<String> values = map.get(key);
+        if (values==null) {
+            values = new ArrayList<String>(1);
+            map.put(key, values);
+        }
+        values.add(value);
+    }
+
+    /**
+     * The synsets of a lemma are in the order of their first sense in the synset list, as buildLemmaIndex has them
+     */
+    private static void updateLemmas (MapChanges<String> lemmas, HashSet<String> changedLemmas, WordnetData result,
+                                      SynsetList synsets) {
+        if (changedLemmas.isEmpty()) {
+            return;
+        }
+        final HashMap<String, Integer> positions = synsets.getFirstPositions();
+        for (String lemma : changedLemmas) {
+            ArrayList<String> lemmaSynsets = new ArrayList<String>();
+            ArrayList<String> entrySynsets = result.entryToSynsets.get(lemma);
+            if (entrySynsets!=null) {
+                for (int i = 0; i < entrySynsets.size(); i++) {
+                    if (positions.containsKey(entrySynsets.get(i))) {
+                        lemmaSynsets.add(entrySynsets.get(i));
+                    }
+                }
+            }
+            Collections.sort(lemmaSynsets, new Comparator<String>() {
+                public int compare(String s1, String s2) {
+                    return positions.get(s1).compareTo(positions.get(s2));
+                }
+            });
+            lemmas.put(lemma, lemmaSynsets);
+        }
+    }
+
+    /**
+     * Decides for the synsets that were touched whether they are new in the synset graph or no longer in it.
+     * A synset is in the graph if it occurs in the hypernym or other relations, the lexical entries or the synset list.
+     */
+    private static void classify (WordnetData data, WordnetData result, MapChanges<String> hypers,
+                                  MapChanges<String> children, MapChanges<String> others,
+                                  HashMap<String, ArrayList<String>> otherSources, HashSet<String> touched,
+                                  SynsetList synsets, Changes changes) {
+        SynsetGraph graph = data.getSynsetGraph();
+        for (String synsetId : touched) {
+            ArrayList<String> sources = otherSources.get(synsetId);
+            boolean member = hypers.has(synsetId) || children.has(synsetId) || others.has(synsetId)
+                    || (sources!=null && !sources.isEmpty()) || result.synsetToEntries.containsKey(synsetId)
+                    || synsets.contains(synsetId);
+            boolean inGraph = graph.getOrdinal(synsetId)>-1;
+            if (member && !inGraph) {
+                changes.added.add(synsetId);
+            }
+            else if (!member && inGraph) {
+                changes.removed.add(synsetId);
+            }
+        }
+    }
+
+    /**
+     * Changes to a map of frozen data. A list is copied when it is first changed and the map when all changes are
+     * done, so the frozen map and its lists are not changed. Lists that become empty are removed.
+     */
+    private static class MapChanges<E> {
+        private final HashMap<String, ArrayList<E>> map;
+        /// changed lists by key, null if the key is removed
+        private final LinkedHashMap<String, ArrayList<E>> changed = new LinkedHashMap<String, ArrayList<E>>();
+
+        MapChanges (HashMap<String, ArrayList<E>> map) {
+            this.map = map;
+        }
+
+        ArrayList<E> get (String key) {
+            if (changed.containsKey(key)) {
+                return changed.get(key);
+            }
+            return map.get(key);
+        }
+
+        /**
+         * @param key
+         * @return true if the key has values
+         */
+        boolean has (String key) {
+            if (changed.containsKey(key)) {
+                return changed.get(key)!=null && !changed.get(key).isEmpty();
+            }
+            return map.containsKey(key);
+        }
+
+        /**
+         * @param key
+         * @return a copy of the values of the key, empty if it has none
+         */
+        ArrayList<E> values (String key) {
+            ArrayList<E> values = get(key);
+            if (values==null) {
+                return new ArrayList<E>();
+            }
+            return new ArrayList<E>(values);
+        }
+
+        /**
+         * @return the keys of the map and the changed keys
+         */
+        ArrayList<String> keys () {
+            ArrayList<String> keys = new ArrayList<String>(map.keySet());
+            for (String key : changed.keySet()) {
+                if (!map.containsKey(key)) {
+                    keys.add(key);
+                }
+            }
+            return keys;
+        }
+
+        private ArrayList<E> edit (String key) {
+            ArrayList<E> list = changed.get(key);
+            if (list==null) {
+                ArrayList<E> stored = changed.containsKey(key) ? null : map.get(key);
+                list = stored==null ? new ArrayList<E>(1) : new ArrayList<E>(stored);
+                changed.put(key, list);
+            }
+            return list;
+        }
+
+        boolean add (String key, E value) {
+            ArrayList<E> values = get(key);
+            if (values!=null && values.contains(value)) {
+                return false;
+            }
+            edit(key).add(value);
+            return true;
+        }
+
+        boolean remove (String key, E value) {
+            ArrayList<E> values = get(key);
+            if (values==null || !values.contains(value)) {
+                return false;
+            }
+            edit(key).remove(value);
+            return true;
+        }
+
+        void remove (String key) {
+            if (get(key)!=null) {
+                changed.put(key, null);
+            }
+        }
+
+        void put (String key, ArrayList<E> values) {
+            changed.put(key, values);
+        }
+
+        /**
+         * @return the changed lists by key, null or empty if the key has no values left
+         */
+        HashMap<String, ArrayList<E>> changes () {
+            return changed;
+        }
+
+        HashMap<String, ArrayList<E>> result () {
+            if (changed.isEmpty()) {
+                return map;
+            }
+            for (Map.Entry<String, ArrayList<E>> entry : changed.entrySet()) {
+                ArrayList<E> list = entry.getValue();
+                if (list==null || list.isEmpty()) {
+                    entry.setValue(null);
+                }
+                else {
+                    entry.setValue(new ReadOnlyList<E>(list, WordnetData.READ_ONLY));
+                }
+            }
+            return new ReadOnlyMap<String, ArrayList<E>>(map, changed, WordnetData.READ_ONLY);
+        }
+    }
+
+    /**
+     * Changes to the synset list of frozen data, which is copied when it is first changed
+     */
+    private static class SynsetList {
+        private final ArrayList<String> list;
+        private ArrayList<String> copy = null;
+        private HashSet<String> members = null;
+
+        SynsetList (ArrayList<String> list) {
+            this.list = list;
+        }
+
+        boolean contains (String synsetId) {
+            if (members==null) {
+                members = new HashSet<String>(list);
+            }
+            return members.contains(synsetId);
+        }
+
+        /**
+         * @return true if the synset was not in the list
+         */
+        boolean add (String synsetId) {
+            if (contains(synsetId)) {
+                return false;
+            }
+            if (copy==null) {
+                copy = new ArrayList<String>(list);
+            }
+            copy.add(synsetId);
+            members.add(synsetId);
+            return true;
+        }
+
+        /**
+         * @return true if the synset was in the list
+         */
+        boolean remove (String synsetId) {
+            if (!contains(synsetId)) {
+                return false;
+            }
+            if (copy==null) {
+                copy = new ArrayList<String>(list);
+            }
+            /// the list has the synset for every sense
+            copy.removeAll(Collections.singleton(synsetId));
+            members.remove(synsetId);
+            return true;
+        }
+
+        HashMap<String, Integer> getFirstPositions () {
+            ArrayList<String> synsets = copy==null ? list : copy;
+            HashMap<String, Integer> positions = new HashMap<String, Integer>(synsets.size()*2);
+            for (int i = synsets.size()-1; i >= 0; i--) {
+                positions.put(synsets.get(i), i);
+            }
+            return positions;
+        }
+
+        ArrayList<String> result () {
+            if (copy==null) {
+                return list;
+            }
+            return new ReadOnlyList<String>(copy, WordnetData.READ_ONLY);
+        }
+    }
+}
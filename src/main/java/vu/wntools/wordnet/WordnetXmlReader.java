@@ -0,0 +1,221 @@
+package vu.wntools.wordnet;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Pull (StAX) front end of the wordnet parsers.
+ *
+ * A builder gives the names of the elements and attributes it handles. Names are compared ignoring case, as the SAX
+ * handlers did, and every name that is found in the file is looked up once: after that an element is passed to the
+ * builder as its position in the element names (OTHER if it is not one of them) and attributes are read by their
+ * position in the attribute names, so the builder can dispatch with a switch.
+ * The attribute values and the text of an element are kept in buffers that are reused for every element. The text is
+ * only collected if the builder asks for it, and holds all text since the last start tag, as the SAX handlers had it.
+ */
+public class WordnetXmlReader {
+
+    public static final int OTHER = -1;
+
+    /**
+     * Receives the elements of the file in document order
+     */
+    public interface Builder {
+        /**
+         * @param element position of the name in the element names, or OTHER
+         * @param reader gives the attributes of the element
+         */
+        void startElement(int element, WordnetXmlReader reader);
+
+        /**
+         * @param element position of the name in the element names, or OTHER
+         * @param reader gives the text since the last start tag
+         */
+        void endElement(int element, WordnetXmlReader reader);
+    }
+
+    private final HashMap<String, Integer> elementNames;
+    private final HashMap<String, Integer> attributeNames;
+    /// names as they are found in the file, so every name is lower cased only once
+    private final HashMap<String, Integer> elementCache = new HashMap<String, Integer>();
+    private final HashMap<String, Integer> attributeCache = new HashMap<String, Integer>();
+    private final String [] values;
+    private final int [] indexes;
+    private final int [] setAttributes;
+    private int nSetAttributes = 0;
+    private final boolean keepText;
+    private final StringBuilder text = new StringBuilder();
+    private XMLStreamReader streamReader;
+
+    /**
+     * @param elements names of the elements the builder handles
+     * @param attributes names of the attributes the builder reads
+     * @param keepText true if the builder reads the text of elements
+     */
+    public WordnetXmlReader(String [] elements, String [] attributes, boolean keepText) {
+        this.elementNames = toCodes(elements);
+        this.attributeNames = toCodes(attributes);
+        this.values = new String[attributes.length];
+        this.indexes = new int[attributes.length];
+        this.setAttributes = new int[attributes.length];
+        this.keepText = keepText;
+    }
+
+    private static HashMap<String, Integer> toCodes (String [] names) {
+        HashMap<String, Integer> codes = new HashMap<String, Integer>();
+        for (int i = 0; i < names.length; i++) {
+            codes.put(names[i].toLowerCase(Locale.ENGLISH), i);
+        }
+        return codes;
+    }
+
+    private static int getCode (String name, HashMap<String, Integer> cache, HashMap<String, Integer> codes) {
+        Integer code = cache.get(name);
+        if (code==null) {
+            code = codes.get(name.toLowerCase(Locale.ENGLISH));
+            if (code==null) {
+                code = OTHER;
+            }
+            cache.put(name, code);
+        }
+        return code;
+    }
+
+    /**
+     * @param filePath
+     * @return a buffered stream of the file, uncompressed if the name ends with .gz
+     * @throws IOException
+     */
+    public static InputStream open (String filePath) throws IOException {
+        InputStream stream = new FileInputStream(filePath);
+        if (filePath.toLowerCase().endsWith(".gz")) {
+            stream = new GZIPInputStream(stream, 1<<16);
+        }
+        return new BufferedInputStream(stream, 1<<16);
+    }
+
+    /**
+     * Reads the stream and passes its elements to the builder. The stream is not closed.
+     * @param stream
+     * @param builder
+     * @throws XMLStreamException
+     */
+    public void parse (InputStream stream, Builder builder) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
+        streamReader = factory.createXMLStreamReader(stream);
+        try {
+            while (streamReader.hasNext()) {
+                int event = streamReader.next();
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        readAttributes();
+                        if (keepText) {
+                            text.setLength(0);
+                        }
+                        builder.startElement(getCode(getName(), elementCache, elementNames), this);
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        builder.endElement(getCode(getName(), elementCache, elementNames), this);
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        if (keepText) {
+                            text.append(streamReader.getTextCharacters(), streamReader.getTextStart(),
+                                    streamReader.getTextLength());
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            streamReader.close();
+            streamReader = null;
+        }
+    }
+
+    private String getName () {
+        String prefix = streamReader.getPrefix();
+        if (prefix!=null && prefix.length()>0) {
+            return prefix+":"+streamReader.getLocalName();
+        }
+        return streamReader.getLocalName();
+    }
+
+    private void readAttributes () {
+        for (int i = 0; i < nSetAttributes; i++) {
+            values[setAttributes[i]] = null;
+        }
+        nSetAttributes = 0;
+        int n = streamReader.getAttributeCount();
+        for (int i = 0; i < n; i++) {
+            String name = streamReader.getAttributeLocalName(i);
+            String prefix = streamReader.getAttributePrefix(i);
+            if (prefix!=null && prefix.length()>0) {
+                name = prefix+":"+name;
+            }
+            int code = getCode(name, attributeCache, attributeNames);
+            if (code!=OTHER) {
+                if (values[code]==null) {
+                    setAttributes[nSetAttributes++] = code;
+                }
+                /// the last one wins if a name occurs with different cases
+                values[code] = streamReader.getAttributeValue(i);
+                indexes[code] = i;
+            }
+        }
+    }
+
+    /**
+     * @param attribute position in the attribute names
+     * @return the value of the attribute of the current start tag, null if it does not have it
+     */
+    public String getAttribute (int attribute) {
+        return values[attribute];
+    }
+
+    /**
+     * For attributes that set the same field, of which the SAX handlers kept the last one in the tag
+     * @param attribute
+     * @param other
+     * @return the value of the attribute that comes last in the current start tag, null if it has neither
+     */
+    public String getLastAttribute (int attribute, int other) {
+        if (values[attribute]==null) {
+            return values[other];
+        }
+        if (values[other]==null || indexes[attribute]>indexes[other]) {
+            return values[attribute];
+        }
+        return values[other];
+    }
+
+    /**
+     * @return the text since the last start tag, empty if the reader does not keep text
+     */
+    public String getText () {
+        return text.toString();
+    }
+
+    /**
+     * @return the line of the current event, -1 if it is not known
+     */
+    public int getLineNumber () {
+        if (streamReader==null || streamReader.getLocation()==null) {
+            return -1;
+        }
+        return streamReader.getLocation().getLineNumber();
+    }
+}
@@ -0,0 +1,296 @@
+package vu.wntools.wordnet;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Splits an xml document in chunks at the start tags of record elements, so that the chunks can be parsed on
+ * separate threads.
+ *
+ * The document is scanned once for tags, without decoding the text. A chunk starts at the start tag of a record
+ * once the previous chunk has reached the chunk size. Every chunk is given to the parser as a well-formed document:
+ * the prolog of the document, the start tags of the elements that are open where the chunk starts, the bytes of the
+ * chunk and the end tags of the elements that are still open where it ends. The start tags are copied as they are,
+ * so the enclosing elements are seen again with their attributes by every chunk.
+ *
+ * Documents with a DOCTYPE (entities and attribute defaults would be lost) or that are not in an encoding that is
+ * compatible with ASCII, are not split.
+ */
+class XmlChunks {
+
+    private final ByteBuffer buffer;
+    private final int rootStart;
+    /// offsets where the chunks start, the first chunk starts at the root element
+    private final ArrayList<Integer> starts = new ArrayList<Integer>();
+    /// per chunk start the open elements as {start of the start tag, end of the start tag, end of the name}
+    private final ArrayList<int[][]> stacks = new ArrayList<int[][]>();
+
+    private XmlChunks (ByteBuffer buffer, int rootStart) {
+        this.buffer = buffer;
+        this.rootStart = rootStart;
+    }
+
+    /**
+     * @param filePath xml file, or gzipped xml file if the name ends with .gz
+     * @return the bytes of the file, mapped if the file is not compressed
+     * @throws IOException
+     */
+    static ByteBuffer read (String filePath) throws IOException {
+        if (filePath.toLowerCase().endsWith(".gz")) {
+            InputStream in = new GZIPInputStream(new FileInputStream(filePath));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte [] bytes = new byte[1<<16];
+            int n;
+            while ((n = in.read(bytes))>0) {
+                out.write(bytes, 0, n);
+            }
+            in.close();
+            return ByteBuffer.wrap(out.toByteArray());
+        }
+        RandomAccessFile file = new RandomAccessFile(filePath, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size()>Integer.MAX_VALUE) {
+                return null;
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * @param buffer the document
+     * @param records names of the elements at which a chunk can start, compared ignoring case
+     * @param blocking names of elements in which no chunk can start, compared ignoring case
+     * @param chunkSize minimum number of bytes of a chunk
+     * @return the chunks, or null if the document cannot be split
+     */
+    static XmlChunks split (ByteBuffer buffer, String [] records, String [] blocking, int chunkSize) {
+        if (buffer==null) {
+            return null;
+        }
+        int n = buffer.limit();
+        if (n>1 && (buffer.get(0)==0 || buffer.get(1)==0 || (buffer.get(0)&0xff)==0xfe || (buffer.get(0)&0xff)==0xff)) {
+            /// UTF-16 or UTF-32
+            return null;
+        }
+        XmlChunks chunks = null;
+        ArrayList<int[]> stack = new ArrayList<int[]>();
+        int nextChunk = 0;
+        int i = 0;
+        while (i<n) {
+            if (buffer.get(i)!='<') {
+                i++;
+                continue;
+            }
+            if (i+1>=n) {
+                return null;
+            }
+            byte next = buffer.get(i+1);
+            if (next=='?') {
+                i = skipTo(buffer, i+2, "?>");
+            }
+            else if (next=='!') {
+                if (startsWith(buffer, i, "<!--")) {
+                    i = skipTo(buffer, i+4, "-->");
+                }
+                else if (startsWith(buffer, i, "<![CDATA[")) {
+                    i = skipTo(buffer, i+9, "]]>");
+                }
+                else {
+                    /// DOCTYPE
+                    return null;
+                }
+            }
+            else if (next=='/') {
+                if (stack.isEmpty()) {
+                    return null;
+                }
+                stack.remove(stack.size()-1);
+                i = skipTo(buffer, i+2, ">");
+            }
+            else {
+                int nameEnd = i+1;
+                while (nameEnd<n && !isNameEnd(buffer.get(nameEnd))) {
+                    nameEnd++;
+                }
+                int tagEnd = endOfTag(buffer, nameEnd);
+                if (tagEnd<0) {
+                    return null;
+                }
+                if (chunks==null) {
+                    chunks = new XmlChunks(buffer, i);
+                    chunks.starts.add(i);
+                    chunks.stacks.add(new int[0][]);
+                    nextChunk = i+chunkSize;
+                }
+                else if (i>=nextChunk && isName(buffer, i+1, nameEnd, records) && !isBlocked(buffer, stack, records, blocking)) {
+                    chunks.starts.add(i);
+                    chunks.stacks.add(stack.toArray(new int[stack.size()][]));
+                    nextChunk = i+chunkSize;
+                }
+                if (buffer.get(tagEnd-2)!='/') {
+                    stack.add(new int[] {i, tagEnd, nameEnd});
+                }
+                i = tagEnd;
+            }
+            if (i<0) {
+                return null;
+            }
+        }
+        if (chunks==null || !stack.isEmpty()) {
+            return null;
+        }
+        return chunks;
+    }
+
+    int size () {
+        return starts.size();
+    }
+
+    /**
+     * @param c
+     * @return the chunk as a well-formed document
+     */
+    InputStream getChunk (int c) {
+        int start = starts.get(c);
+        int end = c+1<starts.size() ? starts.get(c+1) : buffer.limit();
+        ByteArrayOutputStream prefix = new ByteArrayOutputStream();
+        write(prefix, 0, rootStart);
+        int [][] open = stacks.get(c);
+        for (int i = 0; i < open.length; i++) {
+            write(prefix, open[i][0], open[i][1]);
+        }
+        ByteArrayOutputStream suffix = new ByteArrayOutputStream();
+        if (c+1<starts.size()) {
+            int [][] close = stacks.get(c+1);
+            for (int i = close.length-1; i >= 0; i--) {
+                suffix.write('<');
+                suffix.write('/');
+                write(suffix, close[i][0]+1, close[i][2]);
+                suffix.write('>');
+            }
+        }
+        ByteBuffer body = buffer.duplicate();
+        body.limit(end);
+        body.position(start);
+        return new SequenceInputStream(new ByteArrayInputStream(prefix.toByteArray()),
+                new SequenceInputStream(new ByteBufferInputStream(body.slice()),
+                        new ByteArrayInputStream(suffix.toByteArray())));
+    }
+
+    private void write (ByteArrayOutputStream out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            out.write(buffer.get(i));
+        }
+    }
+
+    private static boolean isNameEnd (byte b) {
+        return b==' ' || b=='\t' || b=='\n' || b=='\r' || b=='/' || b=='>';
+    }
+
+    /**
+     * @return offset after the > that ends the tag, skipping quoted attribute values, -1 if there is none
+     */
+    private static int endOfTag (ByteBuffer buffer, int i) {
+        int n = buffer.limit();
+        byte quote = 0;
+        while (i<n) {
+            byte b = buffer.get(i);
+            if (quote!=0) {
+                if (b==quote) {
+                    quote = 0;
+                }
+            }
+            else if (b=='"' || b=='\'') {
+                quote = b;
+            }
+            else if (b=='>') {
+                return i+1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return offset after the first occurrence of the string from i, -1 if it does not occur
+     */
+    private static int skipTo (ByteBuffer buffer, int i, String end) {
+        int n = buffer.limit()-end.length();
+        while (i<=n) {
+            if (startsWith(buffer, i, end)) {
+                return i+end.length();
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static boolean startsWith (ByteBuffer buffer, int i, String s) {
+        if (i+s.length()>buffer.limit()) {
+            return false;
+        }
+        for (int j = 0; j < s.length(); j++) {
+            if (buffer.get(i+j)!=s.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isName (ByteBuffer buffer, int from, int to, String [] names) {
+        for (int k = 0; k < names.length; k++) {
+            String name = names[k];
+            if (name.length()!=to-from) {
+                continue;
+            }
+            boolean match = true;
+            for (int j = 0; j < name.length() && match; j++) {
+                match = Character.toLowerCase((char) buffer.get(from+j))==Character.toLowerCase(name.charAt(j));
+            }
+            if (match) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBlocked (ByteBuffer buffer, ArrayList<int[]> stack, String [] records, String [] blocking) {
+        for (int i = 0; i < stack.size(); i++) {
+            int [] open = stack.get(i);
+            if (isName(buffer, open[0]+1, open[2], records) || isName(buffer, open[0]+1, open[2], blocking)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream (ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public int read () {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        public int read (byte [] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package vu.wntools.wordnet;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ids of every scheme must come back from their codes, and two different ids must never get the same code.
+ */
+public class PackedSynsetIdCodecTest {
+
+    /// packed ids of the usual schemes, ids with leading zeros and ids that go to the table
+    private static final String [] IDS = {
+            "eng-30-00001740-n", "eng-30-00001740-v", "eng-30-00001740", "eng-30-1740-n", "eng-30-01740-n",
+            "eng-30-0-n", "eng-30-00000000-n", "eng-30-00001740-x", "eng-30-00001740-q", "eng-30-00001740-",
+            "eng-20-00001740-n", "d_n-27579", "d_v-27579", "d_n-027579", "odwn-10-100324629-n", "s-1183-n",
+            "s-1183-a", "s-1183-r", "s-1183-b", "s-11-83-n", "1740", "1740-n", "01740", "synset", "synset-n", "-n",
+            "n", "", "eng-30-1234567890123-n", "eng-30-12345678901234-n", "eng-30-9999999999999-n",
+            "eng-30-10000000000000-n", "eng-30-00001740-n ", "Eng-30-00001740-n"};
+
+    @Test
+    public void idsComeBackFromTheirCodes () {
+        PackedSynsetIdCodec codec = new PackedSynsetIdCodec();
+        for (int i = 0; i < IDS.length; i++) {
+            long code = codec.encode(IDS[i]);
+            assertEquals(IDS[i], codec.decode(code));
+            assertEquals(IDS[i], code, codec.lookup(IDS[i]));
+            assertEquals(IDS[i], code, codec.encode(IDS[i]));
+        }
+    }
+
+    @Test
+    public void differentIdsGetDifferentCodes () {
+        PackedSynsetIdCodec codec = new PackedSynsetIdCodec();
+        HashMap<Long, String> ids = new HashMap<Long, String>();
+        for (int i = 0; i < IDS.length; i++) {
+            String previous = ids.put(codec.encode(IDS[i]), IDS[i]);
+            assertTrue(IDS[i]+" and "+previous, previous==null);
+        }
+        for (int i = 0; i < 1000; i++) {
+            String [] schemes = {"eng-30-"+i+"-n", "eng-30-0"+i+"-n", "d_n-"+i, "s-"+i+"-v", ""+i};
+            for (int j = 0; j < schemes.length; j++) {
+                String previous = ids.put(codec.encode(schemes[j]), schemes[j]);
+                assertTrue(schemes[j]+" and "+previous, previous==null || previous.equals(schemes[j]));
+            }
+        }
+    }
+
+    @Test
+    public void unknownIdIsNotFound () {
+        PackedSynsetIdCodec codec = new PackedSynsetIdCodec();
+        assertEquals(SynsetIdCodec.NONE, codec.lookup("eng-30-00001740-n"));
+        assertEquals(SynsetIdCodec.NONE, codec.lookup("synset"));
+        codec.encode("eng-30-00001740-n");
+        /// an id with a known prefix is packed without being encoded
+        long code = codec.lookup("eng-30-00001741-n");
+        assertTrue(code>=0);
+        assertEquals("eng-30-00001741-n", codec.decode(code));
+        assertEquals(SynsetIdCodec.NONE, codec.lookup("d_n-27579"));
+        assertEquals(SynsetIdCodec.NONE, codec.lookup("synset"));
+    }
+
+    @Test
+    public void idsAreStoredWhenThePrefixesAreFull () {
+        PackedSynsetIdCodec codec = new PackedSynsetIdCodec();
+        ArrayList<String> ids = new ArrayList<String>();
+        ArrayList<Long> codes = new ArrayList<Long>();
+        for (int i = 0; i < 3000; i++) {
+            ids.add("p"+i+"_-"+i+"-n");
+            codes.add(codec.encode(ids.get(i)));
+        }
+        assertEquals(2048, codec.getSizes()[0]);
+        assertEquals(3000-2048, codec.getSizes()[1]);
+        assertTrue(codes.get(2047)>=0);
+        assertTrue(codes.get(2048)<0);
+        /// ids with a prefix in the dictionary are still packed
+        assertTrue(codec.encode("p0_-12345-n")>=0);
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(ids.get(i), codec.decode(codes.get(i)));
+            assertEquals(ids.get(i), (long) codes.get(i), codec.lookup(ids.get(i)));
+        }
+        assertEquals(ids.size(), new HashSet<Long>(codes).size());
+    }
+
+    @Test
+    public void graphFindsOrdinalsOfIds () {
+        WordnetData data = new WordnetData();
+        ArrayList<String> ids = new ArrayList<String>(Arrays.asList(IDS));
+        ids.remove("");
+        for (int i = 0; i < ids.size(); i++) {
+            data.entryToSynsets.put("w"+i, new ArrayList<String>(Arrays.asList(ids.get(i))));
+            data.synsetArrayList.add(ids.get(i));
+            if (i>0) data.addHyperRelation(ids.get(i), new ArrayList<String>(Arrays.asList(ids.get(0))));
+        }
+        SynsetGraph graph = data.freeze().getSynsetGraph();
+        assertEquals(ids.size(), graph.size());
+        for (int i = 0; i < graph.size(); i++) {
+            String synsetId = graph.getId(i);
+            assertTrue(synsetId, ids.contains(synsetId));
+            /// the decoded id is the string of the data, not a copy
+            assertSame(ids.get(ids.indexOf(synsetId)), synsetId);
+            assertSame(synsetId, graph.getId(i));
+            assertEquals(synsetId, i, graph.getOrdinal(synsetId));
+            if (i>0) assertTrue(graph.getId(i-1).compareTo(synsetId)<0);
+        }
+        assertEquals(-1, graph.getOrdinal("eng-30-99999999-n"));
+        assertEquals(-1, graph.getOrdinal("unknown"));
+        assertFalse(graph.getOrdinal(ids.get(0))<0);
+    }
+}
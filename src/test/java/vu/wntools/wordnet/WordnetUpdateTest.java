@@ -0,0 +1,118 @@
+package vu.wntools.wordnet;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * An update of frozen data must give the same data as freezing a wordnet that was built with the changes.
+ */
+public class WordnetUpdateTest {
+
+    private static ArrayList<String> list (String... values) {
+        return new ArrayList<String>(Arrays.asList(values));
+    }
+
+    /**
+     * dog (s-1-n, s-2-n) and cat (s-3-n) are animals (s-4-n), dog s-1-n has an event relation with cat
+     * @param withCat false for the wordnet without cat and its synset
+     */
+    private static WordnetData build (boolean withCat) {
+        WordnetData data = new WordnetData();
+        data.entryToSynsets.put("dog", list("s-1-n", "s-2-n"));
+        if (withCat) data.entryToSynsets.put("cat", list("s-3-n"));
+        data.entryToSynsets.put("animal", list("s-4-n"));
+        data.synsetArrayList.addAll(withCat ? list("s-1-n", "s-2-n", "s-3-n", "s-4-n") : list("s-1-n", "s-2-n", "s-4-n"));
+        data.addHyperRelation("s-1-n", list("s-4-n"));
+        data.addHyperRelation("s-2-n", list("s-4-n"));
+        if (withCat) data.addHyperRelation("s-3-n", list("s-4-n"));
+        if (withCat) data.addOtherRelations("s-1-n", list("s-3-n"));
+        data.addOtherRelations("s-2-n", list("s-4-n"));
+        data.synsetToLexicalUnits.put("s-1-n", list("lu1"));
+        data.synsetToLexicalUnits.put("s-2-n", list("lu2"));
+        if (withCat) data.synsetToLexicalUnits.put("s-3-n", list("lu3"));
+        data.synsetToLexicalUnits.put("s-4-n", list("lu4"));
+        data.lexicalUnitsToLemmas.put("lu1", "dog");
+        data.lexicalUnitsToLemmas.put("lu2", "dog");
+        if (withCat) data.lexicalUnitsToLemmas.put("lu3", "cat");
+        data.lexicalUnitsToLemmas.put("lu4", "animal");
+        return data;
+    }
+
+    private static void assertSameData (WordnetData expected, WordnetData actual) {
+        assertEquals(expected.synsetArrayList, actual.synsetArrayList);
+        assertEquals(expected.hyperRelations, actual.hyperRelations);
+        assertEquals(expected.childRelations, actual.childRelations);
+        assertEquals(expected.otherRelations, actual.otherRelations);
+        assertEquals(expected.entryToSynsets, actual.entryToSynsets);
+        assertEquals(expected.synsetToEntries, actual.synsetToEntries);
+        assertEquals(expected.lemmaToSynsets, actual.lemmaToSynsets);
+        assertEquals(expected.synsetToLexicalUnits, actual.synsetToLexicalUnits);
+        assertEquals(expected.lexicalUnitsToSynsets, actual.lexicalUnitsToSynsets);
+        assertEquals(new HashMap<String, String>(expected.lexicalUnitsToLemmas),
+                new HashMap<String, String>(actual.lexicalUnitsToLemmas));
+        SynsetGraph expectedGraph = expected.getSynsetGraph();
+        SynsetGraph actualGraph = actual.getSynsetGraph();
+        assertEquals(expectedGraph.size(), actualGraph.size());
+        for (int i = 0; i < expectedGraph.size(); i++) {
+            String synsetId = expectedGraph.getId(i);
+            assertEquals(synsetId, actualGraph.getId(i));
+            assertEquals(synsetId, expected.getAncestors(synsetId), actual.getAncestors(synsetId));
+            assertEquals(synsetId, expected.getDepthTable().getMaxDepth(i), actual.getDepthTable().getMaxDepth(i));
+            assertEquals(synsetId, expected.getDepthTable().getChainCount(i), actual.getDepthTable().getChainCount(i));
+        }
+    }
+
+    @Test
+    public void removeSynsetGivesFreshBuild () {
+        WordnetData frozen = build(true).freeze();
+        WordnetUpdate update = new WordnetUpdate();
+        update.removeSynset("s-3-n");
+        WordnetData updated = frozen.update(update);
+        assertSameData(build(false).freeze(), updated);
+        assertFalse(updated.lexicalUnitsToLemmas.containsKey("lu3"));
+        /// the data that was updated is not changed
+        assertSameData(build(true).freeze(), frozen);
+    }
+
+    @Test
+    public void addSynsetGivesFreshBuild () {
+        WordnetData frozen = build(false).freeze();
+        WordnetUpdate update = new WordnetUpdate();
+        update.addEntry("cat", "s-3-n");
+        update.addHyperRelation("s-3-n", "s-4-n");
+        update.addOtherRelation("s-1-n", "s-3-n");
+        WordnetData updated = frozen.update(update);
+        WordnetData fresh = build(true);
+        /// the update does not add lexical units
+        fresh.synsetToLexicalUnits.remove("s-3-n");
+        fresh.lexicalUnitsToLemmas.remove("lu3");
+        /// a synset that is added comes at the end of the synset list
+        fresh.synsetArrayList.remove("s-3-n");
+        fresh.synsetArrayList.add("s-3-n");
+        assertSameData(fresh.freeze(), updated);
+    }
+
+    @Test
+    public void addThenRemoveRestoresData () {
+        WordnetData frozen = build(true).freeze();
+        WordnetUpdate add = new WordnetUpdate();
+        add.addEntry("puppy", "s-5-n");
+        add.addHyperRelation("s-5-n", "s-1-n");
+        add.addHyperRelation("s-2-n", "s-1-n");
+        add.addOtherRelation("s-5-n", "s-3-n");
+        WordnetData added = frozen.update(add);
+        assertTrue(added.getAncestors("s-5-n").contains("s-4-n"));
+        assertTrue(added.childRelations.get("s-1-n").contains("s-2-n"));
+        WordnetUpdate remove = new WordnetUpdate();
+        remove.removeHyperRelation("s-2-n", "s-1-n");
+        remove.removeSynset("s-5-n");
+        assertSameData(frozen, added.update(remove));
+    }
+}
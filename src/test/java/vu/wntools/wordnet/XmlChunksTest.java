@@ -0,0 +1,193 @@
+package vu.wntools.wordnet;
+
+import org.junit.Test;
+import vu.wntools.lmf.Gloss;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The parallel parser splits a small LMF file in many chunks when the minimum chunk size is tiny, and must give the
+ * same data as the serial parser.
+ */
+public class XmlChunksTest {
+
+    private static final int TINY_CHUNKS = 256;
+
+    /**
+     * @return an LMF document with entries of nouns and verbs, synsets with glosses, relations and equivalences
+     */
+    static String lmf () {
+        StringBuilder lmf = new StringBuilder();
+        lmf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        lmf.append("<!-- <LexicalEntry> in a comment is not a record -->\n");
+        lmf.append("<LexicalResource>\n<GlobalInformation label=\"test\"/>\n");
+        lmf.append("<Lexicon label=\"Test wordnet\" version=\"1.0\" language=\"nld\">\n");
+        for (int i = 0; i < 40; i++) {
+            String pos = i%4==0 ? "v" : "n";
+            lmf.append("<LexicalEntry id=\"e").append(i).append("\">");
+            lmf.append("<Lemma writtenForm=\"w").append(i%30).append("\" partOfSpeech=\"").append(pos).append("\"/>");
+            lmf.append("<Sense id=\"lu").append(i).append("\" synset=\"s-").append(i).append('-').append(pos).append("\">");
+            lmf.append("<MonolingualExternalRefs><MonolingualExternalRef externalReference=\"eng-30-")
+                    .append(i).append("-n\" relType=\"eq_synonym\"/></MonolingualExternalRefs>");
+            lmf.append("</Sense>");
+            if (i%3==0) {
+                lmf.append("<Sense id=\"lu").append(i).append("b\" synset=\"s-").append(i+1).append("-n\"/>");
+            }
+            lmf.append("</LexicalEntry>\n");
+        }
+        for (int i = 0; i < 40; i++) {
+            String id = "s-"+i+'-'+(i%4==0 ? "v" : "n");
+            lmf.append("<Synset id=\"").append(id).append("\">");
+            lmf.append("<Definition gloss=\"gloss &amp; text of ").append(id)
+                    .append(" &lt;Synset&gt;\" language=\"nl\" provenance=\"test\"/>");
+            lmf.append("<SynsetRelations>");
+            if (i>0) {
+                lmf.append("<SynsetRelation target=\"s-").append(i/2).append('-').append(i/2%4==0 ? "v" : "n")
+                        .append("\" relType=\"has_hyperonym\"/>");
+            }
+            if (i%5==0) {
+                lmf.append("<SynsetRelation target=\"s-").append((i+7)%40).append('-').append((i+7)%4==0 ? "v" : "n")
+                        .append("\" relType=\"event\"/>");
+            }
+            lmf.append("</SynsetRelations></Synset>\n");
+        }
+        lmf.append("</Lexicon>\n</LexicalResource>\n");
+        return lmf.toString();
+    }
+
+    static File write (String text) throws IOException {
+        File file = File.createTempFile("lmf", ".xml");
+        file.deleteOnExit();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(text.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    static String dump (WordnetData data) {
+        StringBuilder dump = new StringBuilder();
+        dump.append(data.getResource()).append('|').append(data.getVersion()).append('\n');
+        dump.append(data.synsetArrayList).append('\n');
+        Map [] maps = {data.hyperRelations, data.otherRelations, data.entryToSynsets, data.synsetToLexicalUnits,
+                data.lexicalUnitsToLemmas, data.synsetToDirectEquiSynsets, data.synsetToNearEquiSynsets,
+                data.synsetToOtherEquiSynsets};
+        for (int i = 0; i < maps.length; i++) {
+            dump.append(maps[i]).append('\n');
+        }
+        for (Map.Entry<String, ArrayList<Gloss>> entry : data.synsetToGlosses.entrySet()) {
+            dump.append(entry.getKey());
+            for (Gloss gloss : entry.getValue()) {
+                dump.append(';').append(gloss.getText()).append(',').append(gloss.getLanguage()).append(',')
+                        .append(gloss.getProvenance());
+            }
+            dump.append('\n');
+        }
+        return dump.toString();
+    }
+
+    private static void assertSameData (File file, String pos, ArrayList<String> relations) {
+        int minChunkSize = WordnetLmfSaxParser.minChunkSize;
+        WordnetLmfSaxParser.minChunkSize = TINY_CHUNKS;
+        try {
+            WordnetLmfSaxParser serial = new WordnetLmfSaxParser();
+            WordnetLmfSaxParser parallel = new WordnetLmfSaxParser();
+            if (pos!=null) {
+                serial.setPos(pos);
+                parallel.setPos(pos);
+            }
+            if (relations!=null) {
+                serial.setRelations(relations);
+                parallel.setRelations(relations);
+            }
+            serial.parseFile(file.getPath());
+            parallel.parseFile(file.getPath(), 4);
+            assertTrue(serial.wordnetData.synsetArrayList.size()>0);
+            assertEquals(dump(serial.wordnetData), dump(parallel.wordnetData));
+        } finally {
+            WordnetLmfSaxParser.minChunkSize = minChunkSize;
+        }
+    }
+
+    @Test
+    public void splitsSmallFileInManyChunks () throws IOException {
+        File file = write(lmf());
+        XmlChunks chunks = XmlChunks.split(XmlChunks.read(file.getPath()), WordnetLmfSaxParser.RECORDS,
+                WordnetLmfSaxParser.BLOCKING, TINY_CHUNKS);
+        assertTrue("chunks: "+(chunks==null ? 0 : chunks.size()), chunks!=null && chunks.size()>10);
+        file.delete();
+    }
+
+    @Test
+    public void parallelParseEqualsSerialParse () throws IOException {
+        File file = write(lmf());
+        assertSameData(file, null, null);
+        file.delete();
+    }
+
+    @Test
+    public void parallelParseKeepsFilters () throws IOException {
+        File file = write(lmf());
+        assertSameData(file, "n", null);
+        assertSameData(file, null, new ArrayList<String>(Arrays.asList("event")));
+        file.delete();
+    }
+
+    @Test
+    public void parallelParseStoresGlossesOnce () throws IOException {
+        File file = write(lmf());
+        int minChunkSize = WordnetLmfSaxParser.minChunkSize;
+        WordnetLmfSaxParser.minChunkSize = TINY_CHUNKS;
+        try {
+            WordnetLmfSaxParser serial = new WordnetLmfSaxParser();
+            WordnetLmfSaxParser parallel = new WordnetLmfSaxParser();
+            serial.setLazyGlosses(true);
+            parallel.setLazyGlosses(true);
+            serial.parseFile(file.getPath());
+            parallel.parseFile(file.getPath(), 4);
+            GlossStore store = parallel.wordnetData.getGlossStore();
+            assertTrue(store!=null && store.getGlossCount()>0);
+            assertEquals(serial.wordnetData.getGlossStore().getGlossCount(), store.getGlossCount());
+            assertEquals(serial.wordnetData.getGlossStore().getFileSize(), store.getFileSize());
+            assertTrue(parallel.wordnetData.synsetToGlosses.isEmpty());
+            for (String synsetId : serial.wordnetData.synsetArrayList) {
+                assertEquals(synsetId, dump(serial.wordnetData.getGlosses(synsetId)),
+                        dump(parallel.wordnetData.getGlosses(synsetId)));
+            }
+        } finally {
+            WordnetLmfSaxParser.minChunkSize = minChunkSize;
+            file.delete();
+        }
+    }
+
+    private static String dump (ArrayList<Gloss> glosses) {
+        StringBuilder dump = new StringBuilder();
+        for (Gloss gloss : glosses) {
+            dump.append(gloss.getText()).append(',').append(gloss.getLanguage()).append(',')
+                    .append(gloss.getProvenance()).append(';');
+        }
+        return dump.toString();
+    }
+
+    @Test
+    public void contextDependentFileIsParsedSerially () throws IOException {
+        /// a Definition outside a Synset uses the synset before it
+        String text = lmf().replace("</SynsetRelations></Synset>\n<Synset id=\"s-20-v\">",
+                "</SynsetRelations></Synset>\n<Definition gloss=\"stray\"/><Synset id=\"s-20-v\">");
+        assertTrue(text.contains("stray"));
+        File file = write(text);
+        assertSameData(file, null, null);
+        file.delete();
+    }
+}